@@ -0,0 +1,231 @@
+/* Copyright 2014 Extesla Digital Entertainment, Ltd. All rights reserved.
+ *
+ * Licensed under the MIT License (http://opensource.org/licenses/MIT)
+ *
+ * Permission is hereby granted, free of charge, to any
+ * person obtaining a copy of this software and associated
+ * documentation files (the "Software"), to deal in the
+ * Software without restriction, including without limitation
+ * the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software,
+ * and to permit persons to whom the Software is furnished
+ * to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice
+ * shall be included in all copies or substantial portions of
+ * the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY
+ * KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE
+ * WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR
+ * PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS
+ * OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR
+ * OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT
+ * OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE
+ * SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package com.extesla.fixtures.benchmarks;
+
+import java.io.BufferedReader;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Compares the results of a benchmark run against a baseline, both in the
+ * CSV format written by JMH's <tt>-rf csv</tt> option, and reports the
+ * change of every benchmark present in both. Exits with status 1 if any
+ * benchmark regressed by more than the threshold.
+ *
+ * A benchmark only counts as regressed if the 99.9% confidence intervals
+ * of its baseline and result scores, as reported by JMH, do not overlap
+ * either; a change within the error of the scores is reported as noise,
+ * however large it is. Each score is printed with its error as a
+ * percentage of the score.
+ *
+ * <pre>
+ * java -cp benchmarks.jar com.extesla.fixtures.benchmarks.BaselineComparison \
+ *     baseline.csv results.csv [threshold-percent]
+ * </pre>
+ *
+ * @author Sean.Quinn
+ * @since  1.0
+ */
+public class BaselineComparison {
+
+	private static final double DEFAULT_THRESHOLD = 10.0;
+
+	public static void main(final String[] args) throws IOException {
+		if (args.length < 2) {
+			System.err.println("Usage: BaselineComparison <baseline.csv> <results.csv> [threshold-percent]");
+			System.exit(2);
+		}
+		final double threshold = (args.length > 2) ? Double.parseDouble(args[2]) : DEFAULT_THRESHOLD;
+
+		final Map<String, Result> baseline = read(args[0]);
+		final Map<String, Result> results = read(args[1]);
+
+		int width = "Benchmark".length();
+		for (final String key : results.keySet()) {
+			width = Math.max(width, key.length());
+		}
+		final String name = "%-" + width + "s";
+
+		int regressions = 0;
+		int noisy = 0;
+		System.out.println(String.format(name + " %14s %7s %14s %7s %9s", "Benchmark", "Baseline", "Error",
+				"Result", "Error", "Change"));
+		for (final Map.Entry<String, Result> entry : results.entrySet()) {
+			final Result before = baseline.get(entry.getKey());
+			final Result after = entry.getValue();
+			if (before == null) {
+				System.out.println(String.format(name + " %14s %7s %14.3f %6.1f%% %9s", entry.getKey(), "-", "-",
+						after.score, after.relativeError(), "new"));
+				continue;
+			}
+
+			// ** A positive change is always an improvement, whatever the mode.
+			final double change = after.higherIsBetter()
+					? (after.score - before.score) / before.score * 100
+					: (before.score - after.score) / before.score * 100;
+			String verdict = "";
+			if (change < -threshold) {
+				if (before.overlaps(after)) {
+					noisy++;
+					verdict = "  within error";
+				}
+				else {
+					regressions++;
+					verdict = "  REGRESSION";
+				}
+			}
+			System.out.println(String.format(name + " %14.3f %6.1f%% %14.3f %6.1f%% %+8.1f%%%s", entry.getKey(),
+					before.score, before.relativeError(), after.score, after.relativeError(), change, verdict));
+		}
+
+		System.out.println();
+		System.out.println(regressions + " regression(s) beyond " + threshold + "% in "
+				+ results.size() + " benchmark(s), " + noisy + " more within the error of the scores.");
+		System.exit(regressions > 0 ? 1 : 0);
+	}
+
+	/**
+	 * Reads a JMH CSV result file, keying every result by its benchmark name,
+	 * mode and parameters.
+	 */
+	private static Map<String, Result> read(final String path) throws IOException {
+		final Map<String, Result> results = new LinkedHashMap<String, Result>();
+		final BufferedReader reader = new BufferedReader(new InputStreamReader(new FileInputStream(path), "UTF-8"));
+		try {
+			final List<String> header = parse(reader.readLine());
+			final int benchmark = header.indexOf("Benchmark");
+			final int mode = header.indexOf("Mode");
+			final int score = header.indexOf("Score");
+			final int error = header.indexOf("Score Error (99.9%)");
+
+			String line;
+			while ((line = reader.readLine()) != null) {
+				if (line.trim().length() == 0) {
+					continue;
+				}
+				final List<String> columns = parse(line);
+				final StringBuilder key = new StringBuilder(columns.get(benchmark));
+				key.append(" (").append(columns.get(mode)).append(')');
+				for (int i = 0; i < header.size(); i++) {
+					if (header.get(i).startsWith("Param: ") && columns.get(i).length() > 0) {
+						key.append(' ').append(header.get(i).substring("Param: ".length()))
+								.append('=').append(columns.get(i));
+					}
+				}
+				results.put(key.toString(), new Result(columns.get(mode), Double.parseDouble(columns.get(score)),
+						error >= 0 ? parseError(columns.get(error)) : 0));
+			}
+		}
+		finally {
+			reader.close();
+		}
+		return results;
+	}
+
+	/**
+	 * JMH reports no error, <tt>NaN</tt>, for a single measurement.
+	 */
+	private static double parseError(final String column) {
+		final double error = column.length() > 0 ? Double.parseDouble(column) : 0;
+		return Double.isNaN(error) ? 0 : error;
+	}
+
+	private static List<String> parse(final String line) {
+		final List<String> columns = new ArrayList<String>();
+		final StringBuilder column = new StringBuilder();
+		boolean quoted = false;
+		for (int i = 0; i < line.length(); i++) {
+			final char c = line.charAt(i);
+			if (c == '"') {
+				if (quoted && i + 1 < line.length() && line.charAt(i + 1) == '"') {
+					column.append(c);
+					i++;
+				}
+				else {
+					quoted = !quoted;
+				}
+			}
+			else if (c == ',' && !quoted) {
+				columns.add(column.toString());
+				column.setLength(0);
+			}
+			else {
+				column.append(c);
+			}
+		}
+		columns.add(column.toString());
+		return columns;
+	}
+
+	/**
+	 * The score of a single benchmark, with its error.
+	 */
+	private static class Result {
+
+		private final String mode;
+
+		private final double score;
+
+		/**
+		 * The half-width of the 99.9% confidence interval of the score.
+		 */
+		private final double error;
+
+		Result(final String mode, final double score, final double error) {
+			this.mode = mode;
+			this.score = score;
+			this.error = error;
+		}
+
+		/**
+		 * @return the error, as a percentage of the score.
+		 */
+		double relativeError() {
+			return score != 0 ? error / score * 100 : 0;
+		}
+
+		/**
+		 * Whether the confidence intervals of both scores overlap, so that
+		 * their difference may be noise.
+		 */
+		boolean overlaps(final Result other) {
+			return score - error <= other.score + other.error && other.score - other.error <= score + error;
+		}
+
+		/**
+		 * Throughput scores are better when higher, time scores when lower.
+		 */
+		boolean higherIsBetter() {
+			return "thrpt".equals(mode);
+		}
+	}
+}
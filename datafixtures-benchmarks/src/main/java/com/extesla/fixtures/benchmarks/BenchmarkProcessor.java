@@ -0,0 +1,92 @@
+/* Copyright 2014 Extesla Digital Entertainment, Ltd. All rights reserved.
+ *
+ * Licensed under the MIT License (http://opensource.org/licenses/MIT)
+ *
+ * Permission is hereby granted, free of charge, to any
+ * person obtaining a copy of this software and associated
+ * documentation files (the "Software"), to deal in the
+ * Software without restriction, including without limitation
+ * the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software,
+ * and to permit persons to whom the Software is furnished
+ * to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice
+ * shall be included in all copies or substantial portions of
+ * the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY
+ * KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE
+ * WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR
+ * PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS
+ * OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR
+ * OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT
+ * OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE
+ * SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package com.extesla.fixtures.benchmarks;
+
+import java.util.Collection;
+
+import com.extesla.fixtures.AbstractFixtureProcessor;
+import com.extesla.fixtures.loader.AbstractLoader;
+
+/**
+ * A fixture processor that discards everything it persists, loading a fixed
+ * set of fixture classes.
+ *
+ * @author Sean.Quinn
+ * @since  1.0
+ */
+public class BenchmarkProcessor extends AbstractFixtureProcessor {
+
+	private final Collection<Class<?>> fixtures;
+
+	/**
+	 * The number of entities persisted.
+	 */
+	private long persisted;
+
+	public BenchmarkProcessor(final Collection<Class<?>> fixtures) {
+		super(new String[0]);
+		this.fixtures = fixtures;
+	}
+
+	/**
+	 * Returns the number of entities persisted.
+	 * @return the number of entities.
+	 */
+	public long getPersisted() {
+		return persisted;
+	}
+
+	/**
+	 * Resolves the references of the fixture object.
+	 *
+	 * @param fixture the fixture object.
+	 */
+	public void resolveReferences(final Object fixture) {
+		getReferences(fixture);
+	}
+
+	/**
+	 * Looks up a reference of a generated fixture.
+	 *
+	 * @param fixture the fixture {@code Class}.
+	 * @param key the name of the reference.
+	 * @return the referenced object.
+	 */
+	public Object lookupReference(final Class<?> fixture, final String key) {
+		return lookup(fixture, key);
+	}
+
+	@Override
+	protected AbstractLoader createLoader(final String[] packages) {
+		return new PresetLoader(fixtures);
+	}
+
+	@Override
+	protected void persist(final Object data, final boolean andFlush) {
+		persisted++;
+	}
+}
@@ -0,0 +1,113 @@
+/* Copyright 2014 Extesla Digital Entertainment, Ltd. All rights reserved.
+ *
+ * Licensed under the MIT License (http://opensource.org/licenses/MIT)
+ *
+ * Permission is hereby granted, free of charge, to any
+ * person obtaining a copy of this software and associated
+ * documentation files (the "Software"), to deal in the
+ * Software without restriction, including without limitation
+ * the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software,
+ * and to permit persons to whom the Software is furnished
+ * to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice
+ * shall be included in all copies or substantial portions of
+ * the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY
+ * KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE
+ * WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR
+ * PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS
+ * OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR
+ * OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT
+ * OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE
+ * SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package com.extesla.fixtures.benchmarks;
+
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures a complete run of the fixture processor, excluding classpath
+ * scanning, over dependency graphs of different shapes and sizes, serially
+ * (<tt>threads = 0</tt>) and in parallel, with a new processor per run and
+ * with one processor reset between runs.
+ *
+ * @author Sean.Quinn
+ * @since  1.0
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 15, time = 1)
+@Measurement(iterations = 10, time = 1)
+@Fork(5)
+public class GenerateBenchmark {
+
+	@Param({ "CHAIN", "FAN_OUT", "DIAMOND" })
+	private SyntheticClasspath.Shape shape;
+
+	@Param({ "30", "300" })
+	private int fixtures;
+
+	@Param({ "0", "4" })
+	private int threads;
+
+	private SyntheticClasspath classpath;
+
+	private List<Class<?>> classes;
+
+	private ExecutorService executor;
+
+	private BenchmarkProcessor reused;
+
+	@Setup
+	public void setUp() {
+		classpath = new SyntheticClasspath("bench.generate." + shape.name().toLowerCase() + fixtures,
+				shape, fixtures, false);
+		classes = classpath.getFixtures();
+		executor = (threads > 0) ? Executors.newFixedThreadPool(threads) : null;
+		reused = new BenchmarkProcessor(classes);
+		reused.setExecutor(executor);
+	}
+
+	@TearDown
+	public void tearDown() {
+		if (executor != null) {
+			executor.shutdown();
+		}
+		classpath.delete();
+	}
+
+	@Benchmark
+	public long generate() {
+		final BenchmarkProcessor processor = new BenchmarkProcessor(classes);
+		processor.setExecutor(executor);
+		processor.run();
+		return processor.getPersisted();
+	}
+
+	@Benchmark
+	public long regenerate() {
+		reused.reset();
+		reused.run();
+		return reused.getPersisted();
+	}
+}
@@ -0,0 +1,99 @@
+/* Copyright 2014 Extesla Digital Entertainment, Ltd. All rights reserved.
+ *
+ * Licensed under the MIT License (http://opensource.org/licenses/MIT)
+ *
+ * Permission is hereby granted, free of charge, to any
+ * person obtaining a copy of this software and associated
+ * documentation files (the "Software"), to deal in the
+ * Software without restriction, including without limitation
+ * the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software,
+ * and to permit persons to whom the Software is furnished
+ * to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice
+ * shall be included in all copies or substantial portions of
+ * the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY
+ * KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE
+ * WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR
+ * PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS
+ * OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR
+ * OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT
+ * OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE
+ * SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package com.extesla.fixtures.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.extesla.fixtures.loader.AbstractLoader;
+import com.extesla.fixtures.loader.AnnotationLoader;
+import com.extesla.fixtures.loader.IndexLoader;
+
+/**
+ * Measures {@link AnnotationLoader#load()}, which scans the classpath, and
+ * {@link IndexLoader#load()}, which reads the compile-time fixture index,
+ * over synthetic classpaths of different sizes.
+ *
+ * @author Sean.Quinn
+ * @since  1.0
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 15, time = 1)
+@Measurement(iterations = 10, time = 1)
+@Fork(5)
+public class LoaderBenchmark {
+
+	@Param({ "10", "100", "1000" })
+	private int fixtures;
+
+	@Param({ "scan", "index" })
+	private String loader;
+
+	private SyntheticClasspath classpath;
+
+	@Setup
+	public void setUp() {
+		classpath = new SyntheticClasspath("bench.loader.n" + fixtures + loader,
+				SyntheticClasspath.Shape.INDEPENDENT, fixtures, "index".equals(loader));
+	}
+
+	@TearDown
+	public void tearDown() {
+		classpath.delete();
+	}
+
+	@Benchmark
+	public AbstractLoader load() {
+		final Thread thread = Thread.currentThread();
+		final ClassLoader previous = thread.getContextClassLoader();
+		thread.setContextClassLoader(classpath.getClassLoader());
+		try {
+			final AbstractLoader result = "index".equals(loader)
+					? new IndexLoader(classpath.getPackage())
+					: new AnnotationLoader(classpath.getPackage());
+			result.load();
+			return result;
+		}
+		finally {
+			thread.setContextClassLoader(previous);
+		}
+	}
+}
@@ -0,0 +1,110 @@
+/* Copyright 2014 Extesla Digital Entertainment, Ltd. All rights reserved.
+ *
+ * Licensed under the MIT License (http://opensource.org/licenses/MIT)
+ *
+ * Permission is hereby granted, free of charge, to any
+ * person obtaining a copy of this software and associated
+ * documentation files (the "Software"), to deal in the
+ * Software without restriction, including without limitation
+ * the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software,
+ * and to permit persons to whom the Software is furnished
+ * to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice
+ * shall be included in all copies or substantial portions of
+ * the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY
+ * KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE
+ * WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR
+ * PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS
+ * OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR
+ * OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT
+ * OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE
+ * SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package com.extesla.fixtures.benchmarks;
+
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.extesla.fixtures.annotations.FixtureGenerate;
+
+/**
+ * Measures the throughput, in entities, of persisting the output of a
+ * streaming fixture into a sink that discards everything, for different
+ * batch sizes.
+ *
+ * @author Sean.Quinn
+ * @since  1.0
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 15, time = 1)
+@Measurement(iterations = 10, time = 1)
+@Fork(5)
+public class PersistBenchmark {
+
+	private static final int ENTITIES = 100000;
+
+	@Param({ "1", "100", "1000" })
+	private int batchSize;
+
+	@Benchmark
+	@OperationsPerInvocation(ENTITIES)
+	public long persist() {
+		final BenchmarkProcessor processor = new BenchmarkProcessor(
+				Collections.<Class<?>>singletonList(Rows.class));
+		processor.setBatchSize(batchSize);
+		processor.run();
+		return processor.getPersisted();
+	}
+
+	/**
+	 * A fixture streaming {@value PersistBenchmark#ENTITIES} entities.
+	 */
+	public static class Rows {
+
+		@FixtureGenerate
+		public Iterator<Integer> rows() {
+			return new Iterator<Integer>() {
+
+				private int next;
+
+				@Override
+				public boolean hasNext() {
+					return next < ENTITIES;
+				}
+
+				@Override
+				public Integer next() {
+					if (!hasNext()) {
+						throw new NoSuchElementException();
+					}
+					return Integer.valueOf(next++);
+				}
+
+				@Override
+				public void remove() {
+					throw new UnsupportedOperationException();
+				}
+			};
+		}
+	}
+}
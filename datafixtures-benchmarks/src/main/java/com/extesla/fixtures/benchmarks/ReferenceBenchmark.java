@@ -0,0 +1,149 @@
+/* Copyright 2014 Extesla Digital Entertainment, Ltd. All rights reserved.
+ *
+ * Licensed under the MIT License (http://opensource.org/licenses/MIT)
+ *
+ * Permission is hereby granted, free of charge, to any
+ * person obtaining a copy of this software and associated
+ * documentation files (the "Software"), to deal in the
+ * Software without restriction, including without limitation
+ * the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software,
+ * and to permit persons to whom the Software is furnished
+ * to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice
+ * shall be included in all copies or substantial portions of
+ * the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY
+ * KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE
+ * WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR
+ * PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS
+ * OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR
+ * OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT
+ * OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE
+ * SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package com.extesla.fixtures.benchmarks;
+
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.extesla.fixtures.AbstractFixture;
+import com.extesla.fixtures.annotations.FixtureReference;
+
+/**
+ * Measures reference resolution: wiring every {@link FixtureReference} field
+ * of a fixture, and looking up a single reference, against a fixture holding
+ * a varying number of references.
+ *
+ * @author Sean.Quinn
+ * @since  1.0
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 15, time = 1)
+@Measurement(iterations = 10, time = 1)
+@Fork(5)
+public class ReferenceBenchmark {
+
+	@Param({ "10", "10000" })
+	private int references;
+
+	private BenchmarkProcessor processor;
+
+	private Consumer consumer;
+
+	private String[] keys;
+
+	private int next;
+
+	@Setup
+	public void setUp() {
+		Provider.count = references;
+		processor = new BenchmarkProcessor(Arrays.<Class<?>>asList(Provider.class, Consumer.class));
+		processor.run();
+		consumer = new Consumer();
+		keys = new String[references];
+		for (int i = 0; i < references; i++) {
+			keys[i] = "ref-" + i;
+		}
+	}
+
+	@Benchmark
+	public Object getReferences() {
+		processor.resolveReferences(consumer);
+		return consumer;
+	}
+
+	@Benchmark
+	public Object lookup() {
+		next = (next + 1) % references;
+		return processor.lookupReference(Provider.class, keys[next]);
+	}
+
+	/**
+	 * A fixture registering {@link #count} references, named "ref-0",
+	 * "ref-1" and so on.
+	 */
+	public static class Provider extends AbstractFixture<Object> {
+
+		static int count;
+
+		@Override
+		protected Object getData() {
+			for (int i = 0; i < count; i++) {
+				addReference("ref-" + i, Integer.valueOf(i));
+			}
+			return null;
+		}
+	}
+
+	/**
+	 * A fixture with eight references to the {@link Provider}.
+	 */
+	public static class Consumer extends AbstractFixture<Object> {
+
+		@FixtureReference(value = "ref-0", type = Provider.class)
+		Object reference0;
+
+		@FixtureReference(value = "ref-1", type = Provider.class)
+		Object reference1;
+
+		@FixtureReference(value = "ref-2", type = Provider.class)
+		Object reference2;
+
+		@FixtureReference(value = "ref-3", type = Provider.class)
+		Object reference3;
+
+		@FixtureReference(value = "ref-4", type = Provider.class)
+		Object reference4;
+
+		@FixtureReference(value = "ref-5", type = Provider.class)
+		Object reference5;
+
+		@FixtureReference(value = "ref-6", type = Provider.class)
+		Object reference6;
+
+		@FixtureReference(value = "ref-7", type = Provider.class)
+		Object reference7;
+
+		@Override
+		protected Object getData() {
+			return null;
+		}
+	}
+}
@@ -0,0 +1,287 @@
+/* Copyright 2014 Extesla Digital Entertainment, Ltd. All rights reserved.
+ *
+ * Licensed under the MIT License (http://opensource.org/licenses/MIT)
+ *
+ * Permission is hereby granted, free of charge, to any
+ * person obtaining a copy of this software and associated
+ * documentation files (the "Software"), to deal in the
+ * Software without restriction, including without limitation
+ * the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software,
+ * and to permit persons to whom the Software is furnished
+ * to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice
+ * shall be included in all copies or substantial portions of
+ * the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY
+ * KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE
+ * WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR
+ * PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS
+ * OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR
+ * OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT
+ * OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE
+ * SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package com.extesla.fixtures.benchmarks;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import javassist.CannotCompileException;
+import javassist.ClassClassPath;
+import javassist.ClassPool;
+import javassist.CtClass;
+import javassist.CtNewConstructor;
+import javassist.CtNewMethod;
+import javassist.NotFoundException;
+import javassist.bytecode.AnnotationsAttribute;
+import javassist.bytecode.ConstPool;
+import javassist.bytecode.annotation.Annotation;
+import javassist.bytecode.annotation.ArrayMemberValue;
+import javassist.bytecode.annotation.ClassMemberValue;
+import javassist.bytecode.annotation.IntegerMemberValue;
+import javassist.bytecode.annotation.MemberValue;
+
+import com.extesla.fixtures.AbstractFixture;
+import com.extesla.fixtures.annotations.Fixture;
+import com.extesla.fixtures.loader.IndexLoader;
+
+/**
+ * A directory of generated fixture classes, shaped into a dependency graph,
+ * along with the {@link ClassLoader} through which they are loaded. Every
+ * fixture extends {@link AbstractFixture} and generates a single string.
+ *
+ * @author Sean.Quinn
+ * @since  1.0
+ */
+public class SyntheticClasspath {
+
+	/**
+	 * The shapes of the dependency graph.
+	 */
+	public enum Shape {
+
+		/**
+		 * Fixtures without any dependencies.
+		 */
+		INDEPENDENT,
+
+		/**
+		 * Every fixture depends on the one before it.
+		 */
+		CHAIN,
+
+		/**
+		 * Every fixture depends on a single root fixture.
+		 */
+		FAN_OUT,
+
+		/**
+		 * Stacked diamonds: a fork into two fixtures that join again, the
+		 * join being the fork of the next diamond.
+		 */
+		DIAMOND
+	}
+
+	private final String pkg;
+
+	private final File directory;
+
+	private final List<String> classNames = new ArrayList<String>();
+
+	private final URLClassLoader classLoader;
+
+	/**
+	 * Generates the fixture classes.
+	 *
+	 * @param pkg the package of the fixture classes.
+	 * @param shape the shape of the dependency graph.
+	 * @param size the number of fixtures.
+	 * @param index whether to write a fixture index for the {@link IndexLoader}.
+	 */
+	public SyntheticClasspath(final String pkg, final Shape shape, final int size, final boolean index) {
+		this.pkg = pkg;
+		try {
+			directory = File.createTempFile("datafixtures-", "-classes");
+			if (!directory.delete() || !directory.mkdirs()) {
+				throw new IOException("Unable to create the directory: " + directory);
+			}
+
+			final ClassPool pool = new ClassPool(true);
+			pool.appendClassPath(new ClassClassPath(AbstractFixture.class));
+			final List<String[]> entries = new ArrayList<String[]>(size);
+			for (int i = 0; i < size; i++) {
+				final String name = pkg + ".Fixture" + i;
+				final List<String> dependencies = dependencies(shape, i);
+				writeClass(pool, name, dependencies);
+				classNames.add(name);
+				entries.add(new String[]{ name, join(dependencies) });
+			}
+			if (index) {
+				writeIndex(entries);
+			}
+
+			classLoader = new URLClassLoader(new URL[]{ directory.toURI().toURL() },
+					SyntheticClasspath.class.getClassLoader());
+		}
+		catch (final IOException ex) {
+			throw new IllegalStateException(ex);
+		}
+		catch (final NotFoundException ex) {
+			throw new IllegalStateException(ex);
+		}
+		catch (final CannotCompileException ex) {
+			throw new IllegalStateException(ex);
+		}
+	}
+
+	/**
+	 * Returns the package of the fixture classes.
+	 * @return the package.
+	 */
+	public String getPackage() {
+		return pkg;
+	}
+
+	/**
+	 * Returns the {@link ClassLoader} of the fixture classes.
+	 * @return the class loader.
+	 */
+	public ClassLoader getClassLoader() {
+		return classLoader;
+	}
+
+	/**
+	 * Loads the fixture classes.
+	 * @return the fixture classes.
+	 */
+	public List<Class<?>> getFixtures() {
+		final List<Class<?>> fixtures = new ArrayList<Class<?>>(classNames.size());
+		for (final String name : classNames) {
+			try {
+				fixtures.add(Class.forName(name, true, classLoader));
+			}
+			catch (final ClassNotFoundException ex) {
+				throw new IllegalStateException(ex);
+			}
+		}
+		return Collections.unmodifiableList(fixtures);
+	}
+
+	/**
+	 * Deletes the generated classes.
+	 */
+	public void delete() {
+		try {
+			classLoader.close();
+		}
+		catch (final IOException ex) {
+			// Empty. The files are deleted regardless.
+		}
+		delete(directory);
+	}
+
+	private List<String> dependencies(final Shape shape, final int i) {
+		final List<String> dependencies = new ArrayList<String>(2);
+		switch (shape) {
+		case CHAIN:
+			if (i > 0) {
+				dependencies.add(pkg + ".Fixture" + (i - 1));
+			}
+			break;
+		case FAN_OUT:
+			if (i > 0) {
+				dependencies.add(pkg + ".Fixture0");
+			}
+			break;
+		case DIAMOND:
+			// ** 0 forks into 1 and 2, which join into 3; 3 forks into 4 and 5...
+			if (i % 3 == 0 && i > 0) {
+				dependencies.add(pkg + ".Fixture" + (i - 2));
+				dependencies.add(pkg + ".Fixture" + (i - 1));
+			}
+			else if (i % 3 != 0) {
+				dependencies.add(pkg + ".Fixture" + (i - i % 3));
+			}
+			break;
+		default:
+			break;
+		}
+		return dependencies;
+	}
+
+	private void writeClass(final ClassPool pool, final String name, final List<String> dependencies)
+			throws NotFoundException, CannotCompileException, IOException {
+		final CtClass clazz = pool.makeClass(name, pool.get(AbstractFixture.class.getName()));
+		final ConstPool constPool = clazz.getClassFile().getConstPool();
+
+		final Annotation fixture = new Annotation(Fixture.class.getName(), constPool);
+		fixture.addMemberValue("order", new IntegerMemberValue(constPool, 1));
+		if (!dependencies.isEmpty()) {
+			final MemberValue[] values = new MemberValue[dependencies.size()];
+			for (int i = 0; i < values.length; i++) {
+				values[i] = new ClassMemberValue(dependencies.get(i), constPool);
+			}
+			final ArrayMemberValue dependsOn = new ArrayMemberValue(new ClassMemberValue(constPool), constPool);
+			dependsOn.setValue(values);
+			fixture.addMemberValue("dependsOn", dependsOn);
+		}
+		final AnnotationsAttribute annotations = new AnnotationsAttribute(constPool, AnnotationsAttribute.visibleTag);
+		annotations.addAnnotation(fixture);
+		clazz.getClassFile().addAttribute(annotations);
+
+		clazz.addConstructor(CtNewConstructor.defaultConstructor(clazz));
+		clazz.addMethod(CtNewMethod.make("protected Object getData() { return \"" + name + "\"; }", clazz));
+		clazz.writeFile(directory.getPath());
+		clazz.detach();
+	}
+
+	private void writeIndex(final List<String[]> entries) throws IOException {
+		final File file = new File(directory, IndexLoader.INDEX_LOCATION);
+		if (!file.getParentFile().mkdirs()) {
+			throw new IOException("Unable to create the directory: " + file.getParentFile());
+		}
+		final Writer writer = new OutputStreamWriter(new FileOutputStream(file), "UTF-8");
+		try {
+			for (final String[] entry : entries) {
+				writer.write(entry[0] + "\t1\t" + entry[1] + "\t\n");
+			}
+		}
+		finally {
+			writer.close();
+		}
+	}
+
+	private static String join(final List<String> names) {
+		final StringBuilder builder = new StringBuilder();
+		for (final String name : names) {
+			if (builder.length() > 0) {
+				builder.append(',');
+			}
+			builder.append(name);
+		}
+		return builder.toString();
+	}
+
+	private static void delete(final File file) {
+		final File[] children = file.listFiles();
+		if (children != null) {
+			for (final File child : children) {
+				delete(child);
+			}
+		}
+		if (!file.delete()) {
+			file.deleteOnExit();
+		}
+	}
+}
@@ -0,0 +1,179 @@
+/* Copyright 2014 Extesla Digital Entertainment, Ltd. All rights reserved.
+ *
+ * Licensed under the MIT License (http://opensource.org/licenses/MIT)
+ *
+ * Permission is hereby granted, free of charge, to any
+ * person obtaining a copy of this software and associated
+ * documentation files (the "Software"), to deal in the
+ * Software without restriction, including without limitation
+ * the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software,
+ * and to permit persons to whom the Software is furnished
+ * to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice
+ * shall be included in all copies or substantial portions of
+ * the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY
+ * KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE
+ * WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR
+ * PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS
+ * OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR
+ * OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT
+ * OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE
+ * SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package com.extesla.fixtures.processor;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.util.Set;
+import java.util.TreeSet;
+
+import javax.annotation.processing.AbstractProcessor;
+import javax.annotation.processing.RoundEnvironment;
+import javax.annotation.processing.SupportedAnnotationTypes;
+import javax.lang.model.SourceVersion;
+import javax.lang.model.element.AnnotationMirror;
+import javax.lang.model.element.Element;
+import javax.lang.model.element.ElementKind;
+import javax.lang.model.element.TypeElement;
+import javax.tools.Diagnostic;
+import javax.tools.FileObject;
+import javax.tools.StandardLocation;
+
+/**
+ * Annotation processor that writes an index of the classes annotated with
+ * {@code @Fixture} to {@value #INDEX_LOCATION}, one binary class name per
+ * line. The order and the edges of each fixture are read from its
+ * annotations once the {@code IndexLoader} has loaded the class.
+ *
+ * The index is read at runtime by the {@code IndexLoader}, so that fixtures
+ * can be found without scanning the classpath. Entries written by an earlier
+ * (incremental) compilation are kept as long as their class still exists.
+ *
+ * @author Sean.Quinn
+ * @since  1.0
+ */
+@SupportedAnnotationTypes(FixtureIndexProcessor.FIXTURE)
+public class FixtureIndexProcessor extends AbstractProcessor {
+
+	/**
+	 * The location of the index on the classpath.
+	 */
+	public static final String INDEX_LOCATION = "META-INF/datafixtures/fixtures.index";
+
+	static final String FIXTURE = "com.extesla.fixtures.annotations.Fixture";
+
+	/**
+	 * The binary names of the fixture classes.
+	 */
+	private final Set<String> entries = new TreeSet<String>();
+
+	@Override
+	public SourceVersion getSupportedSourceVersion() {
+		return SourceVersion.latestSupported();
+	}
+
+	@Override
+	public boolean process(final Set<? extends TypeElement> annotations, final RoundEnvironment roundEnv) {
+		if (roundEnv.processingOver()) {
+			writeIndex();
+			return false;
+		}
+
+		final TypeElement fixture = processingEnv.getElementUtils().getTypeElement(FIXTURE);
+		if (fixture == null) {
+			return false;
+		}
+		for (final Element element : roundEnv.getElementsAnnotatedWith(fixture)) {
+			if (element.getKind() == ElementKind.CLASS) {
+				entries.add(binaryName((TypeElement) element));
+			}
+		}
+		return false;
+	}
+
+	private void writeIndex() {
+		readPreviousIndex();
+		if (entries.isEmpty()) {
+			return;
+		}
+
+		try {
+			final FileObject file = processingEnv.getFiler().createResource(StandardLocation.CLASS_OUTPUT, "", INDEX_LOCATION);
+			final Writer writer = new OutputStreamWriter(file.openOutputStream(), "UTF-8");
+			try {
+				writer.write("# Generated by " + getClass().getName() + "; do not edit.\n");
+				for (final String entry : entries) {
+					writer.write(entry);
+					writer.write('\n');
+				}
+			}
+			finally {
+				writer.close();
+			}
+		}
+		catch (final IOException ex) {
+			processingEnv.getMessager().printMessage(Diagnostic.Kind.ERROR,
+					"Unable to write the fixture index: " + ex.getMessage());
+		}
+	}
+
+	/**
+	 * Merges in the entries of an index left by a previous compilation, for
+	 * fixtures that were not compiled this time but still exist. An index
+	 * written by an earlier version has further tab separated columns after
+	 * the class name, which are dropped.
+	 */
+	private void readPreviousIndex() {
+		try {
+			final FileObject file = processingEnv.getFiler().getResource(StandardLocation.CLASS_OUTPUT, "", INDEX_LOCATION);
+			final BufferedReader reader = new BufferedReader(new InputStreamReader(file.openInputStream(), "UTF-8"));
+			try {
+				String line;
+				while ((line = reader.readLine()) != null) {
+					if (line.length() == 0 || line.charAt(0) == '#') {
+						continue;
+					}
+					final int separator = line.indexOf('\t');
+					final String name = (separator < 0) ? line : line.substring(0, separator);
+					if (!entries.contains(name) && exists(name)) {
+						entries.add(name);
+					}
+				}
+			}
+			finally {
+				reader.close();
+			}
+		}
+		catch (final IOException ex) {
+			// Empty. There is no previous index.
+		}
+	}
+
+	private boolean exists(final String binaryName) {
+		final TypeElement type = processingEnv.getElementUtils().getTypeElement(binaryName.replace('$', '.'));
+		if (type == null) {
+			return false;
+		}
+		for (final AnnotationMirror annotation : type.getAnnotationMirrors()) {
+			if (FIXTURE.equals(annotationName(annotation))) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	private String binaryName(final TypeElement type) {
+		return processingEnv.getElementUtils().getBinaryName(type).toString();
+	}
+
+	private static String annotationName(final AnnotationMirror annotation) {
+		return ((TypeElement) annotation.getAnnotationType().asElement()).getQualifiedName().toString();
+	}
+}
@@ -0,0 +1,202 @@
+/* Copyright 2014 Extesla Digital Entertainment, Ltd. All rights reserved.
+ *
+ * Licensed under the MIT License (http://opensource.org/licenses/MIT)
+ *
+ * Permission is hereby granted, free of charge, to any
+ * person obtaining a copy of this software and associated
+ * documentation files (the "Software"), to deal in the
+ * Software without restriction, including without limitation
+ * the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software,
+ * and to permit persons to whom the Software is furnished
+ * to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice
+ * shall be included in all copies or substantial portions of
+ * the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY
+ * KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE
+ * WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR
+ * PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS
+ * OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR
+ * OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT
+ * OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE
+ * SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package com.extesla.fixtures.processor;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import javax.tools.Diagnostic;
+import javax.tools.DiagnosticCollector;
+import javax.tools.JavaCompiler;
+import javax.tools.JavaFileObject;
+import javax.tools.StandardJavaFileManager;
+import javax.tools.ToolProvider;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import com.extesla.fixtures.annotations.Fixture;
+
+/**
+ * Tests the {@link FixtureIndexProcessor} by compiling fixtures with it,
+ * the whole sources at first and then, incrementally, only some of them.
+ *
+ * @author Sean.Quinn
+ * @since  1.0
+ */
+public class FixtureIndexProcessorTest {
+
+	@Rule
+	public final TemporaryFolder folder = new TemporaryFolder();
+
+	private File sources;
+
+	private File classes;
+
+	@Before
+	public void createSources() throws IOException {
+		sources = folder.newFolder("sources");
+		classes = folder.newFolder("classes");
+		write("sample/Users.java", "package sample;\n"
+				+ "@com.extesla.fixtures.annotations.Fixture\n"
+				+ "public class Users {\n"
+				+ "}\n");
+		write("sample/Orders.java", "package sample;\n"
+				+ "@com.extesla.fixtures.annotations.Fixture(order = 2, dependsOn = Users.class)\n"
+				+ "public class Orders {\n"
+				+ "	@com.extesla.fixtures.annotations.Fixture\n"
+				+ "	public static class Lines {\n"
+				+ "	}\n"
+				+ "}\n");
+		write("sample/Helper.java", "package sample;\n"
+				+ "public class Helper {\n"
+				+ "}\n");
+	}
+
+	@Test
+	public void indexesTheFixtureClasses() throws IOException {
+		compile("sample/Users.java", "sample/Orders.java", "sample/Helper.java");
+
+		assertEquals(Arrays.asList("sample.Orders", "sample.Orders$Lines", "sample.Users"), readIndex());
+	}
+
+	@Test
+	public void keepsTheFixturesNotRecompiled() throws IOException {
+		compile("sample/Users.java", "sample/Orders.java");
+		compile("sample/Orders.java");
+
+		assertEquals(Arrays.asList("sample.Orders", "sample.Orders$Lines", "sample.Users"), readIndex());
+	}
+
+	@Test
+	public void dropsTheFixturesThatNoLongerExist() throws IOException {
+		compile("sample/Users.java", "sample/Orders.java");
+		assertTrue(new File(classes, "sample/Users.class").delete());
+		write("sample/Orders.java", "package sample;\n"
+				+ "@com.extesla.fixtures.annotations.Fixture\n"
+				+ "public class Orders {\n"
+				+ "}\n");
+		compile("sample/Orders.java");
+
+		assertEquals(Arrays.asList("sample.Orders"), readIndex());
+	}
+
+	@Test
+	public void dropsTheColumnsOfAnEarlierIndex() throws IOException {
+		compile("sample/Users.java", "sample/Orders.java");
+		final File index = new File(classes, FixtureIndexProcessor.INDEX_LOCATION);
+		final OutputStream out = new FileOutputStream(index);
+		try {
+			out.write(("sample.Users\t1\t\t\n" + "sample.Orders\t2\tsample.Users\t\n").getBytes("UTF-8"));
+		}
+		finally {
+			out.close();
+		}
+		compile("sample/Users.java");
+
+		assertEquals(Arrays.asList("sample.Orders", "sample.Users"), readIndex());
+	}
+
+	/**
+	 * Compiles the sources with the processor, against the classes compiled
+	 * before.
+	 */
+	private void compile(final String... names) throws IOException {
+		final JavaCompiler compiler = ToolProvider.getSystemJavaCompiler();
+		final DiagnosticCollector<JavaFileObject> diagnostics = new DiagnosticCollector<JavaFileObject>();
+		final StandardJavaFileManager files = compiler.getStandardFileManager(diagnostics, null, null);
+		try {
+			final List<File> compiled = new ArrayList<File>();
+			for (final String name : names) {
+				compiled.add(new File(sources, name));
+			}
+			final String annotations = new File(Fixture.class.getProtectionDomain().getCodeSource().getLocation()
+					.getPath()).getPath();
+			final JavaCompiler.CompilationTask task = compiler.getTask(null, files, diagnostics,
+					Arrays.asList("-d", classes.getPath(), "-classpath", classes.getPath() + File.pathSeparator
+							+ annotations), null, files.getJavaFileObjectsFromFiles(compiled));
+			task.setProcessors(Collections.singletonList(new FixtureIndexProcessor()));
+			final boolean success = task.call();
+
+			final StringBuilder messages = new StringBuilder();
+			for (final Diagnostic<? extends JavaFileObject> diagnostic : diagnostics.getDiagnostics()) {
+				messages.append(diagnostic).append('\n');
+			}
+			assertTrue(messages.toString(), success);
+		}
+		finally {
+			files.close();
+		}
+	}
+
+	/**
+	 * Returns the class names of the index, without its comments.
+	 */
+	private List<String> readIndex() throws IOException {
+		final List<String> names = new ArrayList<String>();
+		final BufferedReader reader = new BufferedReader(new InputStreamReader(new FileInputStream(
+				new File(classes, FixtureIndexProcessor.INDEX_LOCATION)), "UTF-8"));
+		try {
+			String line;
+			while ((line = reader.readLine()) != null) {
+				if (line.length() > 0 && line.charAt(0) != '#') {
+					names.add(line);
+				}
+			}
+		}
+		finally {
+			reader.close();
+		}
+		return names;
+	}
+
+	private void write(final String name, final String source) throws IOException {
+		final File file = new File(sources, name);
+		file.getParentFile().mkdirs();
+		final OutputStream out = new FileOutputStream(file);
+		try {
+			out.write(source.getBytes("UTF-8"));
+		}
+		finally {
+			out.close();
+		}
+	}
+}
@@ -31,6 +31,7 @@ import java.util.Map;
 
 import com.extesla.fixtures.annotations.FixtureCache;
 import com.extesla.fixtures.annotations.FixtureGenerate;
+import com.extesla.fixtures.random.GenerationContext;
 
 /**
  *
@@ -56,6 +57,18 @@ abstract public class AbstractFixture<T> implements Fixture<T> {
 	@FixtureCache
 	protected Map<String, Object> references = new HashMap<String, Object>();
 
+	/**
+	 * The registry to which references are published as they are added; set
+	 * by the fixture processor.
+	 */
+	private ReferenceRegistry registry;
+
+	/**
+	 * The source of this fixture's random values; set by the fixture
+	 * processor.
+	 */
+	private GenerationContext context;
+
 	/**
 	 * Constructor taking a simple {@link String} as the name for the
 	 * {@link Fixture}.
@@ -119,5 +132,40 @@ abstract public class AbstractFixture<T> implements Fixture<T> {
 	@Override
 	public void addReference(final String name, final Object object) {
 		references.put(name, object);
+		if (registry != null) {
+			registry.register(getClass(), name, object);
+		}
+	}
+
+	/**
+	 * Returns the source of this fixture's random values, seeded from the
+	 * run seed and this fixture's class, so that the fixture generates the
+	 * same data on every run with the same seed.
+	 *
+	 * @return the {@code GenerationContext}.
+	 */
+	protected GenerationContext getContext() {
+		if (context == null) {
+			context = new GenerationContext(0, getClass());
+		}
+		return context;
+	}
+
+	/**
+	 * Sets the source of this fixture's random values.
+	 *
+	 * @param context the {@code GenerationContext}.
+	 */
+	void setContext(final GenerationContext context) {
+		this.context = context;
+	}
+
+	/**
+	 * Sets the registry to which this fixture's references are published.
+	 *
+	 * @param registry the {@code ReferenceRegistry}.
+	 */
+	void setReferenceRegistry(final ReferenceRegistry registry) {
+		this.registry = registry;
 	}
 }
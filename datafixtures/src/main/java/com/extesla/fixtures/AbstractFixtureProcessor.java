@@ -0,0 +1,2318 @@
+/* Copyright 2014 Extesla Digital Entertainment, Ltd. All rights reserved.
+ *
+ * Licensed under the MIT License (http://opensource.org/licenses/MIT)
+ *
+ * Permission is hereby granted, free of charge, to any
+ * person obtaining a copy of this software and associated
+ * documentation files (the "Software"), to deal in the
+ * Software without restriction, including without limitation
+ * the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software,
+ * and to permit persons to whom the Software is furnished
+ * to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice
+ * shall be included in all copies or substantial portions of
+ * the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY
+ * KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE
+ * WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR
+ * PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS
+ * OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR
+ * OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT
+ * OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE
+ * SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package com.extesla.fixtures;
+
+import java.io.File;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.ReentrantLock;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.extesla.fixtures.annotations.Fixture;
+import com.extesla.fixtures.annotations.FixtureReference;
+import com.extesla.fixtures.async.Publisher;
+import com.extesla.fixtures.async.Subscriber;
+import com.extesla.fixtures.async.Subscription;
+import com.extesla.fixtures.exceptions.FixtureExecutionException;
+import com.extesla.fixtures.exceptions.MissingReferenceException;
+import com.extesla.fixtures.exceptions.RecursiveDependencyException;
+import com.extesla.fixtures.exceptions.ShardException;
+import com.extesla.fixtures.graph.FixtureGraph;
+import com.extesla.fixtures.graph.FixtureGraphExecutor;
+import com.extesla.fixtures.graph.FixtureScheduler;
+import com.extesla.fixtures.graph.FixtureHandler;
+import com.extesla.fixtures.listener.CompositeFixtureListener;
+import com.extesla.fixtures.listener.CostRecorder;
+import com.extesla.fixtures.listener.FixtureListener;
+import com.extesla.fixtures.listener.MetricsCollector;
+import com.extesla.fixtures.loader.AbstractLoader;
+import com.extesla.fixtures.loader.AnnotationLoader;
+import com.extesla.fixtures.loader.IndexLoader;
+import com.extesla.fixtures.loader.Loader;
+import com.extesla.fixtures.metadata.FixtureDescriptor;
+import com.extesla.fixtures.persist.BatchPersister;
+import com.extesla.fixtures.persist.PersistenceBuffer;
+import com.extesla.fixtures.persist.PipelinedPersistenceBuffer;
+import com.extesla.fixtures.plan.FixtureCosts;
+import com.extesla.fixtures.plan.FixturePlan;
+import com.extesla.fixtures.random.GenerationContext;
+import com.extesla.fixtures.shard.Shard;
+import com.extesla.fixtures.shard.ShardManifest;
+import com.extesla.fixtures.state.FixtureFingerprints;
+import com.extesla.fixtures.state.FixtureJournal;
+import com.extesla.fixtures.state.FixtureSnapshot;
+import com.extesla.fixtures.state.FixtureState;
+
+/**
+ *
+ * @author Sean.Quinn
+ * @since  1.0
+ */
+abstract public class AbstractFixtureProcessor implements FixtureProcessor {
+
+	/**
+	 * Cache of fixtures; for looking up references.
+	 */
+	private final Map<Class<?>, Object> fixtureCache = new ConcurrentHashMap<Class<?>, Object>();
+
+	private final Set<Class<?>> processedFixtures = Collections.newSetFromMap(new ConcurrentHashMap<Class<?>, Boolean>());
+
+	/**
+	 * The processed fixtures whose instances and references were released.
+	 */
+	private final Set<Class<?>> releasedFixtures = Collections.newSetFromMap(new ConcurrentHashMap<Class<?>, Boolean>());
+
+	/**
+	 * The lock of each fixture, held while it is processed, so that a fixture
+	 * is processed once whether the schedule or a lazy reference gets to it
+	 * first.
+	 */
+	private final ConcurrentMap<Class<?>, ReentrantLock> processLocks = new ConcurrentHashMap<Class<?>, ReentrantLock>();
+
+	/**
+	 * The fixtures being processed by each thread, outermost first.
+	 */
+	private final ThreadLocal<LinkedList<Class<?>>> processing = new ThreadLocal<LinkedList<Class<?>>>() {
+		@Override
+		protected LinkedList<Class<?>> initialValue() {
+			return new LinkedList<Class<?>>();
+		}
+	};
+
+	/**
+	 * The thread holding the lock of each fixture being processed.
+	 */
+	private final ConcurrentMap<Class<?>, Thread> lockOwners = new ConcurrentHashMap<Class<?>, Thread>();
+
+	/**
+	 * The fixture each thread is waiting to lock, with the fixtures it is
+	 * processing meanwhile; together with the {@link #lockOwners}, the
+	 * graph in which lazy references that lead back across threads show as
+	 * a cycle rather than a deadlock.
+	 */
+	private final ConcurrentMap<Thread, LockWait> lockWaits = new ConcurrentHashMap<Thread, LockWait>();
+
+	/**
+	 * The descriptors of the fixtures seen so far; each fixture class is only
+	 * scanned once.
+	 */
+	private final ConcurrentMap<Class<?>, FixtureDescriptor> descriptors = new ConcurrentHashMap<Class<?>, FixtureDescriptor>();
+
+	/**
+	 * The references of the generated fixtures, by fixture type and name.
+	 */
+	private final ReferenceRegistry references = new ReferenceRegistry();
+
+	/**
+	 * The fixtures of the packages in dependency order, once loaded; they are
+	 * kept across runs.
+	 */
+	private List<Class<?>> loadedFixtures;
+
+	/**
+	 * The dependency graph of the loaded fixtures, once built.
+	 */
+	private FixtureGraph loadedGraph;
+
+	/**
+	 * The Java packages that will be scanned for {@link Fixture}s.
+	 */
+	private final String[] packages;
+
+	/**
+	 * The facade through which logging will be done.
+	 */
+	private final Logger logger = LoggerFactory.getLogger(AbstractFixtureProcessor.class);
+
+	/**
+	 * The {@link Executor} on which fixtures are generated in parallel; if
+	 * <tt>null</tt> the fixtures are generated one at a time on the calling
+	 * thread.
+	 */
+	private Executor executor;
+
+	/**
+	 * Which of the fixtures whose dependencies are done is generated first.
+	 */
+	private FixtureScheduler.Priority priority = FixtureScheduler.Priority.ORDER;
+
+	/**
+	 * The number of rows per range of a {@link RangeFixture}.
+	 */
+	private long rangeSize = 10000;
+
+	/**
+	 * The executor on which the ranges of a {@link RangeFixture} are
+	 * generated, or <tt>null</tt>.
+	 */
+	private Executor rangeExecutor;
+
+	/**
+	 * The number of threads generating the ranges of a fixture at once.
+	 */
+	private int rangeParallelism = 1;
+
+	/**
+	 * Records the cost of every fixture, or <tt>null</tt>.
+	 */
+	private CostRecorder costRecorder;
+
+	/**
+	 * The maximum number of entities handed to {@link #persistBatch(List)} at
+	 * once.
+	 */
+	private int batchSize = 1;
+
+	/**
+	 * The maximum estimated size, in bytes, of the entities handed to
+	 * {@link #persistBatch(List)} at once; <tt>0</tt> for no limit.
+	 */
+	private long batchByteBudget;
+
+	/**
+	 * The number of threads persisting batches in the background; <tt>0</tt>
+	 * to persist them on the generating threads.
+	 */
+	private int persistThreads;
+
+	/**
+	 * The maximum number of full batches waiting for a persistence thread.
+	 */
+	private int persistQueueCapacity;
+
+	/**
+	 * The file in which the results of classpath scans are cached; if
+	 * <tt>null</tt> the classpath is scanned on every run.
+	 */
+	private File scanCache;
+
+	/**
+	 * The file in which the fingerprints and references of the generated
+	 * fixtures are kept between runs; if <tt>null</tt> every fixture is
+	 * generated on every run.
+	 */
+	private File stateFile;
+
+	/**
+	 * The file in which the entities and references of the generated
+	 * fixtures are kept between runs, to be replayed; if <tt>null</tt> every
+	 * fixture is generated.
+	 */
+	private File snapshotFile;
+
+	/**
+	 * The snapshot of the current run, if any.
+	 */
+	private FixtureSnapshot snapshot;
+
+	/**
+	 * The file in which the progress of a run is journaled; if <tt>null</tt>
+	 * the progress is not journaled.
+	 */
+	private File journalFile;
+
+	/**
+	 * Whether a run resumes the run journaled in the journal file.
+	 */
+	private boolean resume;
+
+	/**
+	 * The journal of the current run, if any.
+	 */
+	private FixtureJournal journal;
+
+	/**
+	 * The shard this processor generates in a sharded run; <tt>null</tt> if
+	 * the run is not sharded.
+	 */
+	private Shard shard;
+
+	/**
+	 * The manifest through which the shards share their fixtures.
+	 */
+	private ShardManifest manifest;
+
+	/**
+	 * How long to wait for another shard's fixture, in milliseconds.
+	 */
+	private long shardTimeout = TimeUnit.MINUTES.toMillis(30);
+
+	/**
+	 * The fixtures of other shards that fixtures of this shard depend on, in
+	 * the current run.
+	 */
+	private Set<Class<?>> imports = Collections.emptySet();
+
+	/**
+	 * The fixtures referenced lazily by the fixtures of the current run.
+	 */
+	private Set<Class<?>> lazyTargets = Collections.emptySet();
+
+	/**
+	 * Identifies the current run, for the lazy references it creates;
+	 * <tt>null</tt> between runs.
+	 */
+	private volatile Object currentRun;
+
+	/**
+	 * The seed from which the random values of every fixture are derived.
+	 */
+	private long seed;
+
+	/**
+	 * Whether fixture instances and references are dropped once every
+	 * fixture that reads them has been generated.
+	 */
+	private boolean releaseFixtures;
+
+	/**
+	 * The number of fixtures of the current run yet to read the references of
+	 * each fixture.
+	 */
+	private final ConcurrentMap<Class<?>, AtomicInteger> consumers = new ConcurrentHashMap<Class<?>, AtomicInteger>();
+
+	/**
+	 * The state of the current incremental run, if any.
+	 */
+	private FixtureState state;
+
+	/**
+	 * The fingerprints of the current incremental run, if any.
+	 */
+	private FixtureFingerprints fingerprints;
+
+	/**
+	 * The dependency graph of the current run.
+	 */
+	private FixtureGraph graph;
+
+	/**
+	 * The buffer through which generated entities are persisted during the
+	 * current run.
+	 */
+	private PersistenceBuffer buffer;
+
+	/**
+	 * The asynchronous run in progress, or <tt>null</tt>.
+	 */
+	private volatile FixtureRun asyncRun;
+
+	/**
+	 * The listeners registered with this processor.
+	 */
+	private final CompositeFixtureListener listeners = new CompositeFixtureListener();
+
+	/**
+	 * The listener to which events are sent; <tt>null</tt> when no listener
+	 * is registered, so that an uninstrumented run does no more than a null
+	 * check per event.
+	 */
+	private volatile FixtureListener listener;
+
+	protected AbstractFixtureProcessor(final String[] packages) {
+		this.packages = packages;
+	}
+
+	/**
+	 * Sets the {@link Executor} on which fixtures will be generated. When an
+	 * executor is set, {@link #run()} builds the {@link FixtureGraph} of the
+	 * loaded fixtures and generates every fixture whose dependencies are done
+	 * concurrently, e.g. on a fixed thread pool or, where the JVM offers them,
+	 * on virtual threads. Generated entities are still persisted one batch
+	 * at a time.
+	 *
+	 * The executor is not shut down by this processor.
+	 *
+	 * @param executor the {@code Executor}, or <tt>null</tt> to generate the
+	 * 		fixtures serially.
+	 */
+	public void setExecutor(final Executor executor) {
+		this.executor = executor;
+	}
+
+	/**
+	 * Sets the number of rows per range of a {@link RangeFixture}. The rows
+	 * and the random values of every range depend on the range size, so it
+	 * must stay the same for a seed to give the same dataset.
+	 *
+	 * @param rangeSize the number of rows per range, <tt>10000</tt> by
+	 * 		default.
+	 */
+	public void setRangeSize(final long rangeSize) {
+		if (rangeSize < 1) {
+			throw new IllegalArgumentException("The range size must be at least 1, was: " + rangeSize);
+		}
+		this.rangeSize = rangeSize;
+	}
+
+	/**
+	 * Generates the ranges of every {@link RangeFixture} on up to
+	 * <tt>parallelism</tt> threads: the thread generating the fixture and
+	 * tasks submitted to the executor. The generating thread only waits for
+	 * ranges that have already started, so the executor may be the one set
+	 * by {@link #setExecutor(Executor)}, even a bounded pool. The entities
+	 * are persisted in the order of the ranges, whatever the number of
+	 * threads; the output of a range that finishes before an earlier one is
+	 * held in memory until the earlier one is done.
+	 *
+	 * The executor is not shut down by this processor.
+	 *
+	 * @param executor the {@code Executor}, or <tt>null</tt> to generate the
+	 * 		ranges of a fixture one after the other.
+	 * @param parallelism the maximum number of threads generating the ranges
+	 * 		of a fixture.
+	 */
+	public void setRangeExecutor(final Executor executor, final int parallelism) {
+		if (executor != null && parallelism < 1) {
+			throw new IllegalArgumentException("The parallelism must be at least 1, was: " + parallelism);
+		}
+		this.rangeExecutor = executor;
+		this.rangeParallelism = executor != null ? parallelism : 1;
+	}
+
+	/**
+	 * Sets which of the fixtures whose dependencies are done is generated
+	 * first: by default the one with the lowest {@link Fixture#order()}.
+	 * With {@link FixtureScheduler.Priority#CRITICAL_PATH}, the fixture with
+	 * the longest chain of fixtures depending on it goes first, which lets a
+	 * parallel run finish sooner; with a cost file, see
+	 * {@link #setCostFile(File)}, the chain that took the longest on earlier
+	 * runs.
+	 *
+	 * @param priority the {@code Priority}.
+	 */
+	public void setPriority(final FixtureScheduler.Priority priority) {
+		this.priority = priority;
+	}
+
+	/**
+	 * Records the time every fixture takes, and the number of entities it
+	 * generates, in the cost file, see {@link FixtureCosts}. The recorded
+	 * costs are used by {@link #explain()} to estimate the time of a run and,
+	 * with {@link FixtureScheduler.Priority#CRITICAL_PATH}, to find the path
+	 * that takes the longest rather than the one with the most fixtures.
+	 *
+	 * @param costFile the cost file, or <tt>null</tt> not to record costs.
+	 * @see CostRecorder
+	 */
+	public void setCostFile(final File costFile) {
+		if (costRecorder != null) {
+			removeListener(costRecorder);
+		}
+		costRecorder = costFile != null ? new CostRecorder(costFile) : null;
+		if (costRecorder != null) {
+			addListener(costRecorder);
+		}
+	}
+
+	/**
+	 * Sets the file in which the fixtures found by scanning the classpath are
+	 * cached, so that only the jars and directories that have changed are
+	 * scanned again. The file may be shared by several JVMs, e.g. test forks.
+	 *
+	 * @param scanCache the cache file, or <tt>null</tt> to always scan.
+	 * @see AnnotationLoader#setScanCache(File)
+	 */
+	public void setScanCache(final File scanCache) {
+		this.scanCache = scanCache;
+	}
+
+	/**
+	 * Pipelines generation and persistence: full batches are queued and
+	 * persisted by background threads while the fixtures go on generating.
+	 * When the queue is full, generation waits, so at most
+	 * <tt>queueCapacity</tt> full batches are held in memory. A fixture's
+	 * entities are still all persisted before any fixture depending on it
+	 * is generated.
+	 *
+	 * A {@link MetricsCollector} reports the queue depth and how long each
+	 * side waited for the other, to tune the number of threads.
+	 *
+	 * @param threads the number of persistence threads, or <tt>0</tt> to
+	 * 		persist on the generating threads.
+	 * @param queueCapacity the maximum number of queued batches.
+	 * @see PipelinedPersistenceBuffer
+	 */
+	public void setPipelinedPersistence(final int threads, final int queueCapacity) {
+		this.persistThreads = threads;
+		this.persistQueueCapacity = queueCapacity;
+	}
+
+	/**
+	 * Enables incremental runs. The fingerprint of every fixture, a digest
+	 * of its bytecode and of the fingerprints of its dependencies, and the
+	 * references it registered are kept in the state file. A run then only
+	 * generates the fixtures whose fingerprint has changed, or that have no
+	 * usable state, along with every fixture downstream of them; the other
+	 * fixtures are skipped and their recorded references are used instead.
+	 *
+	 * The data of the skipped fixtures is expected to still be in the
+	 * target store. Before a fixture that was generated by a previous run
+	 * is generated again, {@link #invalidate(Class)} is called so that its
+	 * old data can be removed.
+	 *
+	 * @param stateFile the state file, or <tt>null</tt> to always generate
+	 * 		every fixture.
+	 */
+	public void setStateFile(final File stateFile) {
+		this.stateFile = stateFile;
+	}
+
+	/**
+	 * Keeps a snapshot of the generated fixtures: the entities every fixture
+	 * generated and the references it registered, keyed by its fingerprint
+	 * (see {@link #setStateFile(File)}). A later run replays a fixture whose
+	 * fingerprint has not changed: its entities are read from the snapshot
+	 * and persisted again, without instantiating the fixture, e.g. to load
+	 * the same dataset into the fresh database of every test fork.
+	 *
+	 * The entities and references must be {@code Serializable}; a fixture
+	 * with any that are not is always generated. Replayed entities are
+	 * copies, which do not share objects with the references of other
+	 * fixtures. Snapshots are not used in sharded runs.
+	 *
+	 * @param snapshotFile the snapshot file, or <tt>null</tt> to always
+	 * 		generate every fixture.
+	 */
+	public void setSnapshotFile(final File snapshotFile) {
+		this.snapshotFile = snapshotFile;
+	}
+
+	/**
+	 * Journals the progress of every run in the journal file: as soon as a
+	 * fixture has been generated and its entities persisted, it is appended
+	 * to the journal along with the references it registered. A run that
+	 * fails can then be resumed, skipping the fixtures the failed run
+	 * completed and restoring their references from the journal, which must
+	 * therefore be {@code Serializable}. The journal is deleted once a run
+	 * completes.
+	 *
+	 * The entities of every fixture are flushed before it is journaled, so
+	 * batches do not span fixtures.
+	 *
+	 * @param journalFile the journal file, or <tt>null</tt> not to journal
+	 * 		the runs.
+	 * @param resume whether the next run resumes the run journaled in the
+	 * 		file, if there is one, rather than starting anew.
+	 */
+	public void setJournal(final File journalFile, final boolean resume) {
+		this.journalFile = journalFile;
+		this.resume = resume;
+	}
+
+	/**
+	 * Makes this processor one shard of a run split across several
+	 * processes, each of which runs the same fixtures with the same shard
+	 * count and manifest directory but its own shard index. The first shard
+	 * assigns the fixtures of the graph to the shards, balancing their costs
+	 * as recorded in its cost file, if it has one; a shard generates its own
+	 * fixtures and takes the references of the fixtures it depends on from
+	 * the shards that generated them, once they have been persisted. A
+	 * {@link RangeFixture} marked {@link Fixture#partitioned()} is generated
+	 * by every shard, each generating a disjoint share of its ranges.
+	 *
+	 * The references shared between shards must be serializable.
+	 *
+	 * @param index the index of this shard, from <tt>0</tt>.
+	 * @param count the number of shards.
+	 * @param manifest the directory through which the shards share their
+	 * 		fixtures; empty at the start of the run.
+	 * @see Shard
+	 */
+	public void setShard(final int index, final int count, final File manifest) {
+		this.shard = new Shard(index, count);
+		this.manifest = new ShardManifest(manifest);
+	}
+
+	/**
+	 * Sets how long a shard waits for a fixture of another shard before it
+	 * fails. Defaults to 30 minutes.
+	 *
+	 * @param timeout the timeout.
+	 * @param unit the unit of the timeout.
+	 */
+	public void setShardTimeout(final long timeout, final TimeUnit unit) {
+		this.shardTimeout = unit.toMillis(timeout);
+	}
+
+	/**
+	 * Sets whether fixture instances and their references are dropped as soon
+	 * as every fixture of the run that depends on them has been generated, so
+	 * that memory use follows the width of the dependency graph rather than
+	 * the size of the dataset. Defaults to <tt>false</tt>: every fixture is
+	 * kept, so that references can be {@link #lookup(Class, String) looked
+	 * up} after the run. Once turned on, a lazy reference first used after
+	 * its fixture was released fails with a {@link MissingReferenceException}.
+	 *
+	 * @param releaseFixtures <tt>true</tt> to release fixtures during the
+	 * 		run, <tt>false</tt> to keep every fixture until the processor is
+	 * 		discarded.
+	 */
+	public void setReleaseFixtures(final boolean releaseFixtures) {
+		this.releaseFixtures = releaseFixtures;
+	}
+
+	/**
+	 * Sets the seed of the run. Every fixture is given a
+	 * {@link GenerationContext} seeded from it and the fixture's class name,
+	 * so the same seed generates the same dataset, however many threads or
+	 * shards generate it. Defaults to <tt>0</tt>.
+	 *
+	 * @param seed the seed.
+	 */
+	public void setSeed(final long seed) {
+		this.seed = seed;
+	}
+
+	/**
+	 * Sets the maximum number of entities that are gathered before they are
+	 * handed to {@link #persistBatch(List)}. Defaults to 1, i.e. every entity
+	 * is persisted, and flushed, as soon as it has been generated.
+	 *
+	 * @param batchSize the batch size; at least 1.
+	 */
+	public void setBatchSize(final int batchSize) {
+		this.batchSize = batchSize;
+	}
+
+	/**
+	 * Sets the maximum estimated size, in bytes, of the entities gathered
+	 * before they are handed to {@link #persistBatch(List)}. Entity sizes are
+	 * taken from {@link #estimateSize(Object)}.
+	 *
+	 * @param batchByteBudget the byte budget, or <tt>0</tt> for no limit.
+	 */
+	public void setBatchByteBudget(final long batchByteBudget) {
+		this.batchByteBudget = batchByteBudget;
+	}
+
+	/**
+	 * Registers a listener to be notified of the loading, generation and
+	 * persistence of the fixtures, e.g. a {@link MetricsCollector}.
+	 *
+	 * @param listener the {@code FixtureListener}.
+	 */
+	public void addListener(final FixtureListener listener) {
+		listeners.add(listener);
+		this.listener = listeners;
+	}
+
+	/**
+	 * Unregisters a listener.
+	 *
+	 * @param listener the {@code FixtureListener}.
+	 */
+	public void removeListener(final FixtureListener listener) {
+		listeners.remove(listener);
+		this.listener = listeners.isEmpty() ? null : listeners;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 *
+	 * @throws FixtureExecutionException if a fixture fails while generating
+	 * 		in parallel; fixtures that depend on it are not generated.
+	 */
+	@Override
+	public void run() {
+		execute(null, null);
+	}
+
+	/**
+	 * Generates only the target fixtures and the fixtures they transitively
+	 * depend on, through {@link com.extesla.fixtures.annotations.Dependencies},
+	 * {@link Fixture#dependsOn()} and {@link FixtureReference} fields, in
+	 * dependency order. The packages are not scanned; the targets need not be
+	 * part of them.
+	 *
+	 * @param targets the fixture {@code Classes}.
+	 * @throws FixtureExecutionException if a fixture fails while generating
+	 * 		in parallel.
+	 */
+	@Override
+	public void run(final Class<?>... targets) {
+		if (targets.length == 0) {
+			throw new IllegalArgumentException("At least one target fixture is required.");
+		}
+		execute(targets, null);
+	}
+
+	/**
+	 * Generates only the fixtures of the packages that belong to at least one
+	 * of the groups, see {@link Fixture#groups()}, and the fixtures they
+	 * transitively depend on, in dependency order.
+	 *
+	 * @param groups the group names.
+	 * @throws FixtureExecutionException if a fixture fails while generating
+	 * 		in parallel.
+	 */
+	@Override
+	public void runGroups(final String... groups) {
+		if (groups.length == 0) {
+			throw new IllegalArgumentException("At least one group is required.");
+		}
+		execute(null, groups);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 *
+	 * The fixtures are generated as by {@link #run()}: on this processor's
+	 * executor, if it has one, once the run has started on the given one.
+	 * The thread that starts the run generates fixtures too, so the given
+	 * executor may be the bounded pool set by {@link #setExecutor(Executor)}.
+	 * The future of the run fails with the exception {@link #run()} would
+	 * have thrown. The entities of every fixture are persisted before its
+	 * future completes, so batches do not span fixtures.
+	 *
+	 * Every asynchronous run starts with a {@link #reset()}, so each
+	 * generates all of the fixtures again, whatever the runs before it
+	 * generated.
+	 */
+	@Override
+	public FixtureRun runAsync(final Executor executor) {
+		final FixtureRun run = new FixtureRun(null);
+		start(run, executor);
+		return run;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 *
+	 * The entities are delivered on the threads that generate them, before
+	 * they are persisted, and generation waits while the subscriber has not
+	 * requested any more. The subscriber is completed once the run has
+	 * persisted every entity, or failed with the run's failure; cancelling
+	 * the subscription cancels the run. The run starts with a
+	 * {@link #reset()}, as by {@link #runAsync(Executor)}, so the subscriber
+	 * receives all of the entities.
+	 *
+	 * The publisher has a single subscriber, so that the data is seeded
+	 * once: any later subscriber, like one that subscribes while another run
+	 * of this processor is in progress, fails with an
+	 * {@link IllegalStateException}.
+	 */
+	@Override
+	public Publisher<Object> publish(final Executor executor) {
+		return new Publisher<Object>() {
+
+			private final AtomicBoolean subscribed = new AtomicBoolean();
+
+			@Override
+			public void subscribe(final Subscriber<? super Object> subscriber) {
+				if (!subscribed.compareAndSet(false, true)) {
+					subscriber.onSubscribe(new Subscription() {
+						@Override
+						public void request(final long n) {
+						}
+
+						@Override
+						public void cancel() {
+						}
+					});
+					subscriber.onError(new IllegalStateException("The publisher already has a subscriber; each "
+							+ "publish(Executor) seeds the data once."));
+					return;
+				}
+
+				final EntitySubscription subscription = new EntitySubscription(subscriber);
+				final FixtureRun run = new FixtureRun(subscription);
+				subscription.setRun(run);
+				subscriber.onSubscribe(subscription);
+				if (run.isStopping()) {
+					run.runCompleted(null);
+					return;
+				}
+
+				try {
+					start(run, executor);
+				}
+				catch (final RuntimeException ex) {
+					run.runCompleted(ex);
+				}
+			}
+		};
+	}
+
+	/**
+	 * Starts the run on the executor, once this processor has been reset.
+	 *
+	 * @param run the {@code FixtureRun} to complete.
+	 * @param executor the {@code Executor}.
+	 * @throws IllegalStateException if a run is already in progress.
+	 */
+	private void start(final FixtureRun run, final Executor executor) {
+		synchronized (this) {
+			if (asyncRun != null) {
+				throw new IllegalStateException("A run is already in progress.");
+			}
+			asyncRun = run;
+		}
+
+		try {
+			executor.execute(new Runnable() {
+				@Override
+				public void run() {
+					Throwable failure = null;
+					try {
+						reset();
+						execute(null, null);
+					}
+					catch (final Throwable ex) {
+						failure = ex;
+					}
+					finally {
+						synchronized (AbstractFixtureProcessor.this) {
+							asyncRun = null;
+						}
+					}
+					run.runCompleted(failure);
+				}
+			});
+		}
+		catch (final RuntimeException ex) {
+			synchronized (this) {
+				asyncRun = null;
+			}
+			throw ex;
+		}
+	}
+
+	/**
+	 * Plans a run of the fixtures of the packages without generating any:
+	 * the fixtures are loaded and their dependency graph resolved, and the
+	 * plan lists them in the order they would be generated, in the stages
+	 * that could run in parallel, with the critical path. With a cost file,
+	 * see {@link #setCostFile(File)}, the plan also estimates the time of
+	 * every fixture and of the run from the costs recorded by earlier runs.
+	 *
+	 * Listeners are not notified, and the state, snapshot and journal files
+	 * are not read, so the plan lists every fixture.
+	 *
+	 * @return the {@code FixturePlan}.
+	 * @throws RecursiveDependencyException if the fixtures depend on each
+	 * 		other.
+	 */
+	public FixturePlan explain() {
+		return explain(createGraph(null, null));
+	}
+
+	/**
+	 * Plans a run of the target fixtures and the fixtures they depend on,
+	 * see {@link #run(Class...)} and {@link #explain()}.
+	 *
+	 * @param targets the fixture {@code Classes}.
+	 * @return the {@code FixturePlan}.
+	 */
+	public FixturePlan explain(final Class<?>... targets) {
+		if (targets.length == 0) {
+			throw new IllegalArgumentException("At least one target fixture is required.");
+		}
+		return explain(createGraph(targets, null));
+	}
+
+	/**
+	 * Plans a run of the fixtures in the groups and the fixtures they depend
+	 * on, see {@link #runGroups(String...)} and {@link #explain()}.
+	 *
+	 * @param groups the group names.
+	 * @return the {@code FixturePlan}.
+	 */
+	public FixturePlan explainGroups(final String... groups) {
+		if (groups.length == 0) {
+			throw new IllegalArgumentException("At least one group is required.");
+		}
+		return explain(createGraph(null, groups));
+	}
+
+	private FixturePlan explain(final FixtureGraph graph) {
+		return new FixturePlan(graph, priority, loadCosts());
+	}
+
+	/**
+	 * Reads the recorded costs of the fixtures.
+	 *
+	 * @return the {@code FixtureCosts}, or <tt>null</tt> if costs are not
+	 * 		recorded.
+	 */
+	private FixtureCosts loadCosts() {
+		if (costRecorder == null) {
+			return null;
+		}
+		final FixtureCosts costs = new FixtureCosts(costRecorder.getFile());
+		costs.load();
+		return costs;
+	}
+
+	/**
+	 * Creates the dependency graph of the fixtures of the packages, or of the
+	 * closure of the targets or of the fixtures in the groups.
+	 *
+	 * @param targets the target fixtures, or <tt>null</tt>.
+	 * @param groups the groups, or <tt>null</tt>.
+	 * @return the {@code FixtureGraph}.
+	 */
+	private FixtureGraph createGraph(final Class<?>[] targets, final String[] groups) {
+		if (targets != null) {
+			return new FixtureGraph(Arrays.asList(targets));
+		}
+
+		final List<Class<?>> loaded = load();
+		if (groups != null) {
+			return new FixtureGraph(inGroups(loaded, groups));
+		}
+		if (loadedGraph == null) {
+			loadedGraph = new FixtureGraph(loaded);
+		}
+		return loadedGraph;
+	}
+
+	/**
+	 * Generates the fixtures of the packages, or the closure of the targets
+	 * or of the fixtures in the groups.
+	 *
+	 * @param targets the target fixtures, or <tt>null</tt>.
+	 * @param groups the groups, or <tt>null</tt>.
+	 */
+	private void execute(final Class<?>[] targets, final String[] groups) {
+		final FixtureListener listener = this.listener;
+		final long start = listener != null ? System.nanoTime() : 0;
+		if (listener != null) {
+			listener.loadStarted(packages);
+		}
+
+		graph = createGraph(targets, groups);
+		checkPartitioned();
+		final FixtureCosts costs = priority == FixtureScheduler.Priority.CRITICAL_PATH
+				|| (shard != null && shard.getIndex() == 0) ? loadCosts() : null;
+		if (shard != null) {
+			shard = assign(shard, costs);
+		}
+		final FixtureScheduler scheduler = new FixtureScheduler(graph, priority,
+				costs != null && priority == FixtureScheduler.Priority.CRITICAL_PATH
+						? costs.getNanos(graph.getFixtures()) : null);
+		final List<Class<?>> fixtures = scheduler.sort();
+		if (listener != null) {
+			listener.loadFinished(fixtures.size(), System.nanoTime() - start);
+		}
+
+		imports = shard != null ? findImports(shard) : Collections.<Class<?>>emptySet();
+		lazyTargets = findLazyTargets();
+		countConsumers();
+		state = stateFile != null ? new FixtureState(stateFile) : null;
+		snapshot = snapshotFile != null && shard == null ? new FixtureSnapshot(snapshotFile) : null;
+		fingerprints = state != null || snapshot != null ? new FixtureFingerprints(graph, seed, rangeSize)
+				: null;
+		if (state != null) {
+			restore();
+		}
+		if (snapshot != null) {
+			// ** Fingerprint up front, as the fixtures may be generated in parallel.
+			for (final Class<?> fixture : fixtures) {
+				fingerprints.get(fixture);
+			}
+			snapshot.load();
+		}
+
+		final BatchPersister persister = new BatchPersister() {
+			@Override
+			@SuppressWarnings("unchecked")
+			public void persistBatch(final List<?> batch, final List<?> owners, final long bytes) {
+				// ** The owner of every entity is the fixture that generated it, see createSink(Class).
+				final List<Class<?>> fixtures = (List<Class<?>>) owners;
+				final FixtureListener listener = AbstractFixtureProcessor.this.listener;
+				if (listener == null) {
+					AbstractFixtureProcessor.this.persistBatch(batch, fixtures);
+					return;
+				}
+
+				final long start = System.nanoTime();
+				AbstractFixtureProcessor.this.persistBatch(batch, fixtures);
+				listener.batchPersisted(batch.size(), bytes, System.nanoTime() - start);
+			}
+		};
+		buffer = persistThreads > 0
+				? new PipelinedPersistenceBuffer(persister, batchSize, batchByteBudget, persistThreads,
+						persistQueueCapacity, listener)
+				: new PersistenceBuffer(persister, batchSize, batchByteBudget);
+
+		journal = journalFile != null ? new FixtureJournal(journalFile) : null;
+		if (journal != null) {
+			journal.open(resume);
+			if (resume) {
+				resume();
+			}
+		}
+
+		currentRun = new Object();
+		boolean completed = false;
+		try {
+			final List<Class<?>> loadOrder = loadOrder(fixtures);
+			final Set<Class<?>> skipped = new HashSet<Class<?>>(loadOrder);
+			skipped.retainAll(processedFixtures);
+			persistenceStarted(Collections.unmodifiableList(loadOrder), Collections.unmodifiableSet(skipped));
+			if (executor != null) {
+				final FixtureGraphExecutor graphExecutor = new FixtureGraphExecutor(scheduler, executor);
+				graphExecutor.execute(new FixtureHandler() {
+					@Override
+					public void handle(final Class<?> fixture) throws Exception {
+						if (!processedFixtures.contains(fixture)) {
+							process(fixture);
+						}
+					}
+				});
+			}
+			else {
+				for (final Class<?> fixture : fixtures) {
+					if (!processedFixtures.contains(fixture)) {
+						process(fixture);
+					}
+				}
+			}
+			completed = true;
+		}
+		finally {
+			// ** Whatever was generated successfully is still persisted.
+			boolean persisted = false;
+			try {
+				try {
+					buffer.flush();
+					persisted = completed;
+				}
+				finally {
+					try {
+						buffer.close();
+					}
+					finally {
+						persistenceFinished(persisted);
+					}
+				}
+				if (shard != null) {
+					abandonUnprocessed(shard);
+				}
+				if (state != null) {
+					saveState();
+				}
+				if (snapshot != null) {
+					snapshot.save();
+				}
+			}
+			finally {
+				currentRun = null;
+				if (journal != null) {
+					journal.close(persisted);
+				}
+				if (listener != null) {
+					listener.runFinished(System.nanoTime() - start);
+				}
+			}
+		}
+	}
+
+	/**
+	 * Loads the fixtures of the packages, the first time only.
+	 *
+	 * @return the fixtures, in dependency order.
+	 */
+	private List<Class<?>> load() {
+		if (loadedFixtures == null) {
+			final AbstractLoader loader = createLoader(packages);
+			loader.load();
+			loadedFixtures = loader.getOrderedFixtures();
+		}
+		return loadedFixtures;
+	}
+
+	/**
+	 * Forgets the fixtures generated so far, so the next run generates them
+	 * again: the fixture instances, their references and the bookkeeping of
+	 * the previous run are dropped. The loaded fixtures, their descriptors
+	 * and dependency graph are kept, so the next run neither scans the
+	 * packages nor reflects on the fixtures again, and the configuration
+	 * and listeners of the processor are left as they are.
+	 *
+	 * Must not be called while a run is in progress. A sharded run still
+	 * needs an empty manifest directory.
+	 */
+	@Override
+	public void reset() {
+		processedFixtures.clear();
+		releasedFixtures.clear();
+		fixtureCache.clear();
+		references.clear();
+		consumers.clear();
+		imports = Collections.emptySet();
+		lazyTargets = Collections.emptySet();
+	}
+
+	/**
+	 * Returns the fixtures that the fixtures of the graph reference lazily.
+	 *
+	 * @return the lazily referenced fixtures.
+	 */
+	private Set<Class<?>> findLazyTargets() {
+		final Set<Class<?>> result = new HashSet<Class<?>>();
+		for (final Class<?> fixture : graph.getFixtures()) {
+			result.addAll(graph.getLazyReferences(fixture));
+		}
+		return result;
+	}
+
+	/**
+	 * Orders the fixtures of the run so that each comes after the fixtures
+	 * it depends on and, unless they form a cycle, after those it references
+	 * lazily, which may be generated in the middle of it. The lazily
+	 * referenced fixtures outside the graph are included.
+	 *
+	 * @param fixtures the scheduled fixtures.
+	 * @return the fixtures, in the order to load their entities.
+	 */
+	private List<Class<?>> loadOrder(final List<Class<?>> fixtures) {
+		final Set<Class<?>> visited = new HashSet<Class<?>>();
+		final List<Class<?>> result = new ArrayList<Class<?>>(fixtures.size());
+		for (final Class<?> fixture : fixtures) {
+			loadOrder(fixture, visited, result);
+		}
+		return result;
+	}
+
+	private void loadOrder(final Class<?> fixture, final Set<Class<?>> visited, final List<Class<?>> result) {
+		if (!visited.add(fixture)) {
+			return;
+		}
+		for (final Class<?> dependency : FixtureGraph.getDirectDependencies(fixture)) {
+			loadOrder(dependency, visited, result);
+		}
+		for (final Class<?> target : FixtureGraph.getLazilyReferencedFixtures(fixture)) {
+			loadOrder(target, visited, result);
+		}
+		result.add(fixture);
+	}
+
+	/**
+	 * Checks that the partitioned fixtures of the graph are range fixtures,
+	 * the only ones that can be shared out between shards.
+	 *
+	 * @throws IllegalArgumentException if a partitioned fixture is not a
+	 * 		{@link RangeFixture}.
+	 */
+	private void checkPartitioned() {
+		for (final Class<?> fixture : graph.getFixtures()) {
+			if (Shard.isPartitioned(fixture) && !RangeFixture.class.isAssignableFrom(fixture)) {
+				throw new IllegalArgumentException("The fixture: " + fixture.getName() + " is partitioned, but only "
+						+ "a " + RangeFixture.class.getSimpleName() + " can be shared out between shards.");
+			}
+		}
+	}
+
+	/**
+	 * Assigns the fixtures of the graph to the shards. The first shard
+	 * balances them by their recorded costs, if there is a cost file, and
+	 * publishes the assignment; the others wait for it.
+	 *
+	 * @param shard this shard.
+	 * @param costs the recorded costs, or <tt>null</tt>.
+	 * @return the assigned {@code Shard}.
+	 * @throws ShardException if the assignment was not published in time.
+	 */
+	private Shard assign(final Shard shard, final FixtureCosts costs) {
+		if (shard.getIndex() != 0) {
+			return shard.assign(manifest.awaitAssignment(shardTimeout));
+		}
+
+		final Map<String, Integer> owners = Shard.balance(graph.getFixtures(),
+				costs != null ? costs.getNanos(graph.getFixtures()) : Collections.<Class<?>, Long>emptyMap(),
+				shard.getCount());
+		manifest.publishAssignment(owners);
+		return shard.assign(owners);
+	}
+
+	/**
+	 * Returns the fixtures of other shards that the fixtures of the shard
+	 * depend on, directly or through other such fixtures.
+	 *
+	 * @param shard this shard.
+	 * @return the fixtures to import.
+	 */
+	private Set<Class<?>> findImports(final Shard shard) {
+		final Set<Class<?>> result = new HashSet<Class<?>>();
+		final LinkedList<Class<?>> pending = new LinkedList<Class<?>>();
+		for (final Class<?> fixture : graph.getFixtures()) {
+			if (shard.owns(fixture)) {
+				pending.add(fixture);
+			}
+		}
+		while (!pending.isEmpty()) {
+			for (final Class<?> dependency : graph.getDependencies(pending.removeFirst())) {
+				if (!shard.owns(dependency) && result.add(dependency)) {
+					pending.add(dependency);
+				}
+			}
+		}
+		return result;
+	}
+
+	/**
+	 * Publishes the failure of every fixture of the shard that was not
+	 * generated, e.g. because a fixture it depends on failed, so that the
+	 * other shards do not wait for it.
+	 *
+	 * @param shard this shard.
+	 */
+	private void abandonUnprocessed(final Shard shard) {
+		for (final Class<?> fixture : graph.getFixtures()) {
+			if (shard.owns(fixture) && !processedFixtures.contains(fixture)) {
+				manifest.fail(fixture, shard.getIndex(), "The fixture was not generated.");
+			}
+		}
+	}
+
+	/**
+	 * Returns the fixtures that belong to at least one of the groups.
+	 *
+	 * @param fixtures the fixture {@code Classes}.
+	 * @param groups the group names.
+	 * @return the fixtures in the groups.
+	 */
+	private static List<Class<?>> inGroups(final List<Class<?>> fixtures, final String[] groups) {
+		final Set<String> selected = new HashSet<String>(Arrays.asList(groups));
+		final List<Class<?>> result = new ArrayList<Class<?>>();
+		for (final Class<?> fixture : fixtures) {
+			final Fixture annotation = fixture.getAnnotation(Fixture.class);
+			if (annotation == null) {
+				continue;
+			}
+			for (final String group : annotation.groups()) {
+				if (selected.contains(group)) {
+					result.add(fixture);
+					break;
+				}
+			}
+		}
+		return result;
+	}
+
+	/**
+	 * Restores the recorded references of every fixture of the graph that
+	 * has not changed since the previous run, and marks it as processed.
+	 * Fixtures that changed are invalidated, as is everything downstream of
+	 * them.
+	 *
+	 * @throws RecursiveDependencyException if the graph contains a cycle.
+	 */
+	private void restore() {
+		state.load();
+
+		final Map<Class<?>, Map<String, Object>> restorable = new HashMap<Class<?>, Map<String, Object>>();
+		final LinkedList<Class<?>> dirty = new LinkedList<Class<?>>();
+		for (final Class<?> fixture : graph.getFixtures()) {
+			final Map<String, Object> recorded = fingerprints.get(fixture).equals(state.getFingerprint(fixture))
+					? state.getReferences(fixture) : null;
+			if (recorded != null) {
+				restorable.put(fixture, recorded);
+			}
+			else {
+				dirty.add(fixture);
+			}
+		}
+
+		// ** Everything downstream of a dirty fixture is dirty as well.
+		while (!dirty.isEmpty()) {
+			final Class<?> fixture = dirty.removeFirst();
+			for (final Class<?> dependent : graph.getDependents(fixture)) {
+				if (restorable.remove(dependent) != null) {
+					dirty.add(dependent);
+				}
+			}
+		}
+
+		// ** Dependents are invalidated before their dependencies.
+		final List<Class<?>> sorted = graph.sort();
+		Collections.reverse(sorted);
+		for (final Class<?> fixture : sorted) {
+			final Map<String, Object> recorded = restorable.get(fixture);
+			if (recorded != null) {
+				references.registerAll(fixture, recorded);
+				markProcessed(fixture);
+			}
+			else if (state.contains(fixture)) {
+				invalidate(fixture);
+			}
+		}
+		for (final Class<?> fixture : restorable.keySet()) {
+			finished(fixture);
+		}
+		getLogger().info("Restored {} of {} fixtures from: {}.",
+				new Object[] { restorable.size(), graph.size(), stateFile });
+	}
+
+	/**
+	 * Restores the references of the fixtures completed by the journaled
+	 * run, and marks them as processed. A journaled fixture whose references
+	 * cannot be restored is invalidated and generated again, along with the
+	 * journaled fixtures downstream of it, as is a fixture that was cut
+	 * short.
+	 *
+	 * @throws RecursiveDependencyException if the graph contains a cycle.
+	 */
+	private void resume() {
+		final Map<Class<?>, Map<String, Object>> resumable = new HashMap<Class<?>, Map<String, Object>>();
+		final LinkedList<Class<?>> dirty = new LinkedList<Class<?>>();
+		for (final Class<?> fixture : graph.getFixtures()) {
+			if (processedFixtures.contains(fixture) || !journal.contains(fixture)) {
+				continue;
+			}
+			final Map<String, Object> journaled = journal.getReferences(fixture);
+			if (journaled != null) {
+				resumable.put(fixture, journaled);
+			}
+			else {
+				dirty.add(fixture);
+			}
+		}
+
+		// ** Whatever was generated from a fixture generated again goes too.
+		while (!dirty.isEmpty()) {
+			final Class<?> fixture = dirty.removeFirst();
+			for (final Class<?> dependent : graph.getDependents(fixture)) {
+				if (resumable.remove(dependent) != null) {
+					dirty.add(dependent);
+				}
+			}
+		}
+
+		// ** Dependents are invalidated before their dependencies.
+		final List<Class<?>> sorted = graph.sort();
+		Collections.reverse(sorted);
+		for (final Class<?> fixture : sorted) {
+			final Map<String, Object> journaled = resumable.get(fixture);
+			if (journaled != null) {
+				references.registerAll(fixture, journaled);
+				markProcessed(fixture);
+			}
+			else if ((journal.contains(fixture) || journal.isInterrupted(fixture))
+					&& !processedFixtures.contains(fixture)) {
+				invalidate(fixture);
+			}
+		}
+		for (final Class<?> fixture : resumable.keySet()) {
+			finished(fixture);
+		}
+		getLogger().info("Resumed {} of {} fixtures from the journal: {}.",
+				new Object[] { resumable.size(), graph.size(), journalFile });
+	}
+
+	/**
+	 * Records the fingerprint and references of a fixture generated by this
+	 * run, before its references may be released.
+	 *
+	 * @param clazz the fixture {@code Class}.
+	 */
+	private void record(final Class<?> clazz) {
+		synchronized (state) {
+			state.put(clazz, fingerprints.get(clazz), references.getAll(clazz));
+		}
+	}
+
+	/**
+	 * Forgets the fixtures of the graph that were not generated, e.g.
+	 * because they failed, and writes the state file.
+	 */
+	private void saveState() {
+		synchronized (state) {
+			for (final Class<?> fixture : graph.getFixtures()) {
+				if (!processedFixtures.contains(fixture)) {
+					state.remove(fixture);
+				}
+			}
+			state.save();
+		}
+	}
+
+	/**
+	 * Counts, for every fixture of the graph and every fixture referenced
+	 * lazily, the fixtures of this run that will read its references: its
+	 * dependents and the fixtures referencing it lazily, or in a sharded run
+	 * those of them that this shard generates or imports.
+	 */
+	private void countConsumers() {
+		consumers.clear();
+		for (final Class<?> fixture : graph.getFixtures()) {
+			consumers.put(fixture, new AtomicInteger());
+		}
+		for (final Class<?> fixture : lazyTargets) {
+			consumers.put(fixture, new AtomicInteger());
+		}
+		for (final Class<?> consumer : graph.getFixtures()) {
+			if (shard == null || shard.owns(consumer) || imports.contains(consumer)) {
+				for (final Class<?> fixture : graph.getDependencies(consumer)) {
+					consumers.get(fixture).incrementAndGet();
+				}
+				for (final Class<?> fixture : graph.getLazyReferences(consumer)) {
+					consumers.get(fixture).incrementAndGet();
+				}
+			}
+		}
+	}
+
+	/**
+	 * Called once a fixture has been generated, restored or imported: its
+	 * dependencies have one consumer less, and any fixture, including this
+	 * one, that no longer has a consumer is released.
+	 *
+	 * @param clazz the fixture {@code Class}.
+	 */
+	private void finished(final Class<?> clazz) {
+		final FixtureRun asyncRun = this.asyncRun;
+		if (asyncRun != null) {
+			asyncRun.fixtureCompleted(clazz, references.getAll(clazz));
+		}
+		if (!releaseFixtures) {
+			return;
+		}
+
+		for (final Class<?> dependency : graph.getDependencies(clazz)) {
+			consumed(dependency);
+		}
+		for (final Class<?> reference : graph.getLazyReferences(clazz)) {
+			consumed(reference);
+		}
+		final AtomicInteger remaining = consumers.get(clazz);
+		if (remaining != null && remaining.get() == 0) {
+			release(clazz);
+		}
+	}
+
+	/**
+	 * Counts a consumer of the fixture as done, releasing the fixture after
+	 * the last one.
+	 *
+	 * @param clazz the fixture {@code Class}.
+	 */
+	private void consumed(final Class<?> clazz) {
+		final AtomicInteger remaining = consumers.get(clazz);
+		if (remaining != null && remaining.decrementAndGet() == 0) {
+			release(clazz);
+		}
+	}
+
+	/**
+	 * Drops the fixture instance and its references.
+	 *
+	 * @param clazz the fixture {@code Class}.
+	 */
+	private void release(final Class<?> clazz) {
+		if (processedFixtures.contains(clazz)) {
+			releasedFixtures.add(clazz);
+		}
+		fixtureCache.remove(clazz);
+		references.remove(clazz);
+	}
+
+	/**
+	 * Called in incremental and resumed runs, before a fixture that was
+	 * generated by a previous run, or cut short by a failed one, is generated
+	 * again, e.g. to delete the data it generated then; also before a fixture
+	 * is generated whose replay from the snapshot failed part way through.
+	 * The default implementation does nothing.
+	 *
+	 * @param fixture the fixture {@code Class}.
+	 * @see #setStateFile(File)
+	 * @see #setJournal(File, boolean)
+	 * @see #setSnapshotFile(File)
+	 */
+	protected void invalidate(final Class<?> fixture) {
+	}
+
+	/**
+	 * Creates the {@link Loader} through which the fixtures of the packages
+	 * are found. By default this is an {@link IndexLoader}, which reads the
+	 * compile-time fixture index of every classpath location and scans only
+	 * the locations that have none, using the scan cache if one was set.
+	 *
+	 * @param packages the Java packages.
+	 * @return the loader.
+	 */
+	protected AbstractLoader createLoader(final String[] packages) {
+		final IndexLoader loader = new IndexLoader(packages);
+		loader.setScanCache(scanCache);
+		return loader;
+	}
+
+	/**
+	 * Generates the fixture, after the fixtures it depends on that have not
+	 * been generated yet.
+	 *
+	 * @param clazz the fixture {@code Class}; a node of the graph.
+	 */
+	private void generate(final Class<?> clazz) {
+		final List<Class<?>> closure = new ArrayList<Class<?>>();
+		collect(clazz, new HashSet<Class<?>>(), closure);
+		for (final Class<?> fixture : closure) {
+			if (!processedFixtures.contains(fixture)) {
+				process(fixture);
+			}
+		}
+	}
+
+	/**
+	 * Adds the fixture to the closure after its unprocessed dependencies; the
+	 * graph has been checked for cycles by then.
+	 */
+	private void collect(final Class<?> clazz, final Set<Class<?>> visited, final List<Class<?>> closure) {
+		if (processedFixtures.contains(clazz) || !visited.add(clazz)) {
+			return;
+		}
+		// ** A fixture referenced only lazily may not be part of the graph.
+		final Set<Class<?>> dependencies = graph.hasFixture(clazz) ? graph.getDependencies(clazz)
+				: FixtureGraph.getDirectDependencies(clazz);
+		for (final Class<?> dependency : dependencies) {
+			collect(dependency, visited, closure);
+		}
+		closure.add(clazz);
+	}
+
+	protected Logger getLogger() {
+		return logger;
+	}
+
+	/**
+	 * Instantiates the fixture, {@link Class}, resolves its references and
+	 * persists the data it generates, notifying the listener, if any. The
+	 * fixture's declared dependencies are expected to have been generated
+	 * already.
+	 *
+	 * @param clazz the fixture {@code Class}.
+	 */
+	private void process(final Class<?> clazz) {
+		final FixtureRun asyncRun = this.asyncRun;
+		if (asyncRun != null && asyncRun.isStopping()) {
+			throw new CancellationException("The run was cancelled before: " + clazz.getName());
+		}
+
+		final LinkedList<Class<?>> stack = processing.get();
+		final ReentrantLock lock = getProcessLock(clazz);
+		if (lock.isHeldByCurrentThread()) {
+			// ** Only lazy references can lead back to a fixture being processed.
+			final List<Class<?>> cycle = new ArrayList<Class<?>>(stack.subList(stack.indexOf(clazz), stack.size()));
+			cycle.add(clazz);
+			throw new RecursiveDependencyException(cycle);
+		}
+		if (!lock.tryLock()) {
+			awaitLock(clazz, lock, stack);
+		}
+		final Thread thread = Thread.currentThread();
+		lockOwners.put(clazz, thread);
+		stack.addLast(clazz);
+		try {
+			if (!processedFixtures.contains(clazz)) {
+				processLocked(clazz);
+			}
+		}
+		finally {
+			stack.removeLast();
+			lockOwners.remove(clazz);
+			lock.unlock();
+		}
+	}
+
+	/**
+	 * Waits for the lock of the fixture, held by another thread, unless
+	 * that thread is itself waiting, directly or through others, for a
+	 * fixture this thread is processing: lazy references across threads
+	 * have then led back to it, and waiting would deadlock.
+	 *
+	 * Every thread records what it waits for before it looks for a cycle,
+	 * so the last thread to close a cycle always finds it.
+	 *
+	 * @param clazz the fixture {@code Class}.
+	 * @param lock the lock of the fixture.
+	 * @param stack the fixtures this thread is processing.
+	 * @throws RecursiveDependencyException if waiting would deadlock.
+	 */
+	private void awaitLock(final Class<?> clazz, final ReentrantLock lock, final LinkedList<Class<?>> stack) {
+		final Thread thread = Thread.currentThread();
+		lockWaits.put(thread, new LockWait(clazz, new ArrayList<Class<?>>(stack)));
+		try {
+			final List<Class<?>> cycle = findLockCycle(clazz, stack);
+			if (cycle != null) {
+				throw new RecursiveDependencyException(cycle);
+			}
+			lock.lock();
+		}
+		finally {
+			lockWaits.remove(thread);
+		}
+	}
+
+	/**
+	 * Follows the threads holding, and waiting for, the locks of the
+	 * fixtures from the one this thread waits for.
+	 *
+	 * @param clazz the fixture this thread waits for.
+	 * @param stack the fixtures this thread is processing.
+	 * @return the fixtures of the cycle that leads back to this thread,
+	 * 		first and last the same, or <tt>null</tt> if there is none.
+	 */
+	private List<Class<?>> findLockCycle(final Class<?> clazz, final LinkedList<Class<?>> stack) {
+		final Thread thread = Thread.currentThread();
+		final List<Class<?>> path = new ArrayList<Class<?>>();
+		final Set<Thread> visited = new HashSet<Thread>();
+		path.add(clazz);
+		Class<?> fixture = clazz;
+		while (true) {
+			final Thread owner = lockOwners.get(fixture);
+			if (owner == null) {
+				return null;
+			}
+			if (owner == thread) {
+				final List<Class<?>> cycle = new ArrayList<Class<?>>(stack.subList(stack.indexOf(fixture), stack.size()));
+				cycle.addAll(path);
+				return cycle;
+			}
+			final LockWait wait = lockWaits.get(owner);
+			if (wait == null || !visited.add(owner)) {
+				return null;
+			}
+			final int held = wait.stack.indexOf(fixture);
+			path.addAll(wait.stack.subList(held + 1, wait.stack.size()));
+			path.add(wait.fixture);
+			fixture = wait.fixture;
+		}
+	}
+
+	private ReentrantLock getProcessLock(final Class<?> clazz) {
+		ReentrantLock lock = processLocks.get(clazz);
+		if (lock == null) {
+			lock = new ReentrantLock();
+			final ReentrantLock existing = processLocks.putIfAbsent(clazz, lock);
+			if (existing != null) {
+				lock = existing;
+			}
+		}
+		return lock;
+	}
+
+	/**
+	 * Processes the fixture, with its lock held.
+	 *
+	 * @param clazz the fixture {@code Class}.
+	 */
+	private void processLocked(final Class<?> clazz) {
+		final Shard shard = this.shard;
+		if (shard != null && !shard.owns(clazz)) {
+			if (imports.contains(clazz)) {
+				importShared(clazz, shard.getOwner(clazz));
+			}
+			return;
+		}
+
+		final FixtureListener listener = this.listener;
+		if (listener == null && shard == null) {
+			process(clazz, null);
+			return;
+		}
+
+		if (listener != null) {
+			listener.fixtureStarted(clazz);
+		}
+		final long start = listener != null ? System.nanoTime() : 0;
+		try {
+			process(clazz, listener);
+		}
+		catch (final RuntimeException ex) {
+			failed(clazz, listener, ex);
+			throw ex;
+		}
+		catch (final Error ex) {
+			failed(clazz, listener, ex);
+			throw ex;
+		}
+		if (listener != null) {
+			listener.fixtureFinished(clazz, System.nanoTime() - start);
+		}
+	}
+
+	private void failed(final Class<?> clazz, final FixtureListener listener, final Throwable cause) {
+		if (listener != null) {
+			listener.fixtureFailed(clazz, cause);
+		}
+		if (shard != null) {
+			manifest.fail(clazz, shard.getIndex(), cause.toString());
+		}
+	}
+
+	/**
+	 * Registers the references of a fixture generated by another shard, once
+	 * that shard has published them, and marks the fixture as processed.
+	 *
+	 * @param clazz the fixture {@code Class}.
+	 * @param owner the index of the shard generating the fixture.
+	 * @throws ShardException if the other shard failed or timed out.
+	 */
+	private void importShared(final Class<?> clazz, final int owner) {
+		references.registerAll(clazz, manifest.await(clazz, owner, shardTimeout));
+		markProcessed(clazz);
+		finished(clazz);
+	}
+
+	/**
+	 * Waits for the other shards to finish their share of the partitioned
+	 * fixtures the fixture, {@link Class}, depends on.
+	 *
+	 * @param clazz the fixture {@code Class}.
+	 * @throws ShardException if another shard failed or timed out.
+	 */
+	private void awaitPartitions(final Class<?> clazz) {
+		for (final Class<?> dependency : graph.getDependencies(clazz)) {
+			if (Shard.isPartitioned(dependency)) {
+				for (int i = 0; i < shard.getCount(); i++) {
+					if (i != shard.getIndex()) {
+						manifest.await(dependency, i, shardTimeout);
+					}
+				}
+			}
+		}
+	}
+
+	/**
+	 * Instantiates the fixture, {@link Class}, resolves its references and
+	 * persists the data it generates.
+	 *
+	 * @param clazz the fixture {@code Class}.
+	 * @param listener the listener to notify, or <tt>null</tt>.
+	 */
+	private void process(final Class<?> clazz, final FixtureListener listener) {
+		boolean processed = false;
+		try {
+			if (shard != null) {
+				awaitPartitions(clazz);
+			}
+			if (journal != null) {
+				journal.started(clazz);
+			}
+
+			if (snapshot == null || !replay(clazz, listener)) {
+				generate(clazz, listener);
+			}
+			markProcessed(clazz);
+
+			// ** Later fixtures, or whoever awaits this one, may read what it wrote; make sure it's there.
+			// ** Only its own entities: those of fixtures still running stay batched, and discardable.
+			final boolean read = !graph.getDependents(clazz).isEmpty() || lazyTargets.contains(clazz);
+			if (read || journal != null || asyncRun != null) {
+				buffer.flush(clazz);
+			}
+			if (read && shard != null) {
+				manifest.publish(clazz, shard.getIndex(), references.getAll(clazz));
+			}
+			if (state != null) {
+				record(clazz);
+			}
+			if (journal != null) {
+				journal.completed(clazz, references.getAll(clazz));
+			}
+			finished(clazz);
+			processed = true;
+		}
+		catch (final InvocationTargetException ex) {
+			throw new RuntimeException(ex);
+		}
+		finally {
+			if (!processed) {
+				// ** A failed fixture is not persisted in part, save for the full batches already handed over.
+				buffer.discard(clazz);
+			}
+		}
+	}
+
+	/**
+	 * Instantiates the fixture, resolves its references and persists the
+	 * data it generates, recording it in the snapshot if there is one.
+	 *
+	 * @param clazz the fixture {@code Class}.
+	 * @param listener the listener to notify, or <tt>null</tt>.
+	 * @throws InvocationTargetException if a generate method fails.
+	 */
+	@SuppressWarnings("unchecked")
+	private void generate(final Class<?> clazz, final FixtureListener listener) throws InvocationTargetException {
+		final FixtureDescriptor descriptor = getDescriptor(clazz);
+		long start = listener != null ? System.nanoTime() : 0;
+		final Object obj = descriptor.newInstance();
+		if (listener != null) {
+			final long now = System.nanoTime();
+			listener.fixtureInstantiated(clazz, now - start);
+			start = now;
+		}
+
+		final GenerationContext context = new GenerationContext(seed, clazz);
+		if (obj instanceof AbstractFixture) {
+			((AbstractFixture<?>) obj).setReferenceRegistry(references);
+			((AbstractFixture<?>) obj).setContext(context);
+		}
+		getReferences(obj);
+		if (listener != null) {
+			final long now = System.nanoTime();
+			listener.referencesResolved(clazz, descriptor.getReferences().size(), now - start);
+			start = now;
+		}
+
+		// ** Count the entities of this fixture only if someone is listening.
+		final FixtureSink<Object> sink = createSink(clazz);
+		final CountingSink counter = listener != null ? new CountingSink(sink) : null;
+		FixtureSink<Object> target = counter != null ? counter : sink;
+		final FixtureSnapshot.Recorder recorder = snapshot != null
+				? snapshot.record(clazz, fingerprints.get(clazz), target) : null;
+		if (recorder != null) {
+			target = recorder;
+		}
+		final boolean partitioned = shard != null && Shard.isPartitioned(clazz);
+		if (obj instanceof RangeFixture) {
+			generateRanges(clazz, (RangeFixture<Object>) obj, context, partitioned ? shard : null, target);
+		}
+		if (partitioned && shard.getIndex() != 0) {
+			// ** Only the first shard persists the entities of the generate methods.
+			target = new DiscardingSink();
+		}
+
+		// ** Execute the generate method...
+		for (final Method method : descriptor.getGenerateMethods()) {
+			final Object data = descriptor.generate(method, obj, target, context);
+			if (data != null) {
+				add(data, target);
+			}
+		}
+		if (listener != null) {
+			listener.fixtureGenerated(clazz, counter.count, System.nanoTime() - start);
+		}
+
+		// ** Publish references that did not go through addReference(..).
+		for (final Map<?, ?> cache : descriptor.getCaches(obj)) {
+			references.registerAll(clazz, cache);
+		}
+		if (recorder != null) {
+			recorder.complete(references.getAll(clazz));
+		}
+		cache(clazz, obj);
+	}
+
+	/**
+	 * Generates the ranges of the fixture and publishes the references they
+	 * added. In a sharded run, a partitioned fixture is split by range, each
+	 * shard generating the ranges whose index matches its own.
+	 *
+	 * @param clazz the fixture {@code Class}.
+	 * @param fixture the fixture.
+	 * @param context the fixture's {@code GenerationContext}.
+	 * @param shard the shard generating its share of the ranges, or
+	 * 		<tt>null</tt> to generate them all.
+	 * @param target the sink to which the entities are added.
+	 */
+	private void generateRanges(final Class<?> clazz, final RangeFixture<Object> fixture,
+			final GenerationContext context, final Shard shard, final FixtureSink<Object> target) {
+		final List<FixtureRange> ranges = RangeGeneration.split(fixture.getRowCount(), rangeSize, context.getSeed(),
+				shard != null ? shard.getIndex() : 0, shard != null ? shard.getCount() : 1);
+		// ** Hand the entities over in chunks of a batch or more, to keep the ranges from contending.
+		new RangeGeneration(fixture, ranges, target, Math.max(batchSize, 128)).run(rangeExecutor, rangeParallelism);
+
+		for (final FixtureRange range : ranges) {
+			for (final Map.Entry<String, Object> reference : range.getReferences().entrySet()) {
+				if (fixture instanceof AbstractFixture) {
+					((AbstractFixture<?>) fixture).addReference(reference.getKey(), reference.getValue());
+				}
+				else {
+					references.register(clazz, reference.getKey(), reference.getValue());
+				}
+			}
+		}
+	}
+
+	/**
+	 * Replays the fixture from the snapshot, if its fingerprint has not
+	 * changed: its entities are streamed from the snapshot to the buffer and
+	 * its references registered. Should the snapshot turn out not to match
+	 * the entity classes part way through, the entities still in the buffer
+	 * are dropped and the fixture is invalidated, as some may have been
+	 * persisted already.
+	 *
+	 * @param clazz the fixture {@code Class}.
+	 * @param listener the listener to notify, or <tt>null</tt>.
+	 * @return <tt>true</tt> if the fixture was replayed; <tt>false</tt> if it
+	 * 		must be generated.
+	 */
+	private boolean replay(final Class<?> clazz, final FixtureListener listener) {
+		final long start = listener != null ? System.nanoTime() : 0;
+		final String fingerprint = fingerprints.get(clazz);
+		final Map<String, Object> recorded = snapshot.getReferences(clazz, fingerprint);
+		if (recorded == null) {
+			return false;
+		}
+
+		final CountingSink sink = new CountingSink(createSink(clazz));
+		if (!snapshot.replay(clazz, fingerprint, sink)) {
+			if (sink.count > 0) {
+				buffer.discard(clazz);
+				invalidate(clazz);
+			}
+			return false;
+		}
+		references.registerAll(clazz, recorded);
+		if (listener != null) {
+			listener.fixtureGenerated(clazz, sink.count, System.nanoTime() - start);
+		}
+		return true;
+	}
+
+	/**
+	 * Returns the sink through which the entities of the fixture reach the
+	 * buffer, on behalf of the fixture so they can be discarded if it fails.
+	 *
+	 * @param clazz the fixture {@code Class}.
+	 * @return the sink.
+	 */
+	private FixtureSink<Object> createSink(final Class<?> clazz) {
+		return new FixtureSink<Object>() {
+			@Override
+			public void add(final Object entity) {
+				buffer.add(entity, estimateSize(entity), clazz);
+				final FixtureRun asyncRun = AbstractFixtureProcessor.this.asyncRun;
+				if (asyncRun != null) {
+					asyncRun.emit(entity);
+				}
+			}
+		};
+	}
+
+	/**
+	 * Hands the data returned by a generate method to the persistence buffer.
+	 * An {@link Iterator} or an {@link Iterable} is consumed one element at a
+	 * time, so its elements are persisted in batches as they are produced.
+	 *
+	 * @param data the generated data.
+	 * @param sink the sink to which the entities are added.
+	 */
+	private static void add(final Object data, final FixtureSink<Object> sink) {
+		if (data instanceof Iterator) {
+			final Iterator<?> iterator = (Iterator<?>) data;
+			while (iterator.hasNext()) {
+				sink.add(iterator.next());
+			}
+		}
+		else if (data instanceof Iterable) {
+			for (final Object element : (Iterable<?>) data) {
+				sink.add(element);
+			}
+		}
+		else {
+			sink.add(data);
+		}
+	}
+
+	/**
+	 * Returns the {@link FixtureDescriptor} of the fixture, {@link Class},
+	 * scanning the class only the first time it is asked for.
+	 *
+	 * @param clazz the fixture {@code Class}.
+	 * @return the fixture's descriptor.
+	 */
+	protected FixtureDescriptor getDescriptor(final Class<?> clazz) {
+		FixtureDescriptor descriptor = descriptors.get(clazz);
+		if (descriptor == null) {
+			descriptor = new FixtureDescriptor(clazz);
+			final FixtureDescriptor existing = descriptors.putIfAbsent(clazz, descriptor);
+			if (existing != null) {
+				descriptor = existing;
+			}
+		}
+		return descriptor;
+	}
+
+	/**
+	 * Finds all of the data references marked by the {@link FixtureReference}
+	 * annotation and instatiates the field references.
+	 *
+	 * If a fixture references data from another fixture that has not yet been
+	 * run, the fixture is run immediately. Lazy references are set to a
+	 * {@link FixtureSupplier}, or to a proxy of the field's interface, which
+	 * does so when it is first accessed.
+	 *
+	 * If a reference cannot be found, an error will be thrown.
+	 *
+	 * @param clazz the {@code Class}.
+	 * @throws MissingReferenceException if a reference cannot be found.
+	 */
+	protected void getReferences(final Object object) {
+		final FixtureDescriptor descriptor = getDescriptor(object.getClass());
+		for (final FixtureDescriptor.Reference reference : descriptor.getReferences()) {
+			if (reference.isLazy()) {
+				reference.set(object, createLazyReference(reference));
+			}
+			else {
+				reference.set(object, resolve(reference.getFixture(), reference.getName()));
+			}
+		}
+	}
+
+	/**
+	 * Resolves the reference, generating the referenced fixture first if it
+	 * has not been generated yet.
+	 *
+	 * @param fixture the referenced fixture {@code Class}.
+	 * @param name the name of the reference.
+	 * @return the referenced object.
+	 * @throws MissingReferenceException if the reference cannot be found.
+	 */
+	private Object resolve(final Class<?> fixture, final String name) {
+		if (!processedFixtures.contains(fixture) && graph.hasFixture(fixture)) {
+			generate(fixture);
+		}
+		return lookup(fixture, name);
+	}
+
+	/**
+	 * Creates the value of a lazy reference field: a {@link FixtureSupplier},
+	 * or a proxy of the field's interface which delegates every call to the
+	 * object supplied.
+	 *
+	 * @param reference the lazy reference.
+	 * @return the field value.
+	 */
+	private Object createLazyReference(final FixtureDescriptor.Reference reference) {
+		final FixtureSupplier<Object> supplier = new LazyReference(reference.getFixture(), reference.getName(),
+				currentRun);
+		final Class<?> type = reference.getField().getType();
+		if (type == FixtureSupplier.class) {
+			return supplier;
+		}
+
+		return Proxy.newProxyInstance(type.getClassLoader(), new Class<?>[] { type }, new InvocationHandler() {
+			@Override
+			public Object invoke(final Object proxy, final Method method, final Object[] args) throws Throwable {
+				// ** Comparing or printing the proxy must not resolve it.
+				if (method.getDeclaringClass() == Object.class) {
+					final String name = method.getName();
+					if (name.equals("equals")) {
+						return proxy == args[0];
+					}
+					if (name.equals("hashCode")) {
+						return System.identityHashCode(proxy);
+					}
+					return supplier.toString();
+				}
+
+				try {
+					return method.invoke(supplier.get(), args);
+				}
+				catch (final InvocationTargetException ex) {
+					throw ex.getCause();
+				}
+			}
+		});
+	}
+
+	/**
+	 * Resolves a lazy reference on its first use, generating the referenced
+	 * fixture first if it has not been generated yet, or importing it from
+	 * the shard that generates it.
+	 *
+	 * @param fixture the referenced fixture {@code Class}.
+	 * @param name the name of the reference.
+	 * @param run the run that created the reference.
+	 * @return the referenced object.
+	 * @throws MissingReferenceException if the reference cannot be found, or
+	 * 		its run has finished or its fixture has been released.
+	 */
+	private Object resolveLazily(final Class<?> fixture, final String name, final Object run) {
+		if (run == null || run != currentRun) {
+			throw new MissingReferenceException(fixture, name, "The lazy reference: '" + name + "' to the fixture: "
+					+ fixture.getName() + " was first used after the run that created it had finished.");
+		}
+
+		if (!processedFixtures.contains(fixture)) {
+			final Shard shard = this.shard;
+			if (shard != null && !shard.owns(fixture)) {
+				importLazily(fixture, shard);
+			}
+			else {
+				generate(fixture);
+			}
+		}
+		try {
+			return lookup(fixture, name);
+		}
+		catch (final MissingReferenceException ex) {
+			if (releasedFixtures.contains(fixture)) {
+				throw new MissingReferenceException(fixture, name, "The lazy reference: '" + name
+						+ "' to the fixture: " + fixture.getName() + " was first used after the fixture had been "
+						+ "released; see setReleaseFixtures(boolean).");
+			}
+			throw ex;
+		}
+	}
+
+	/**
+	 * Imports a fixture of another shard that is only referenced lazily.
+	 *
+	 * @param fixture the fixture {@code Class}.
+	 * @param shard this shard.
+	 */
+	private void importLazily(final Class<?> fixture, final Shard shard) {
+		final ReentrantLock lock = getProcessLock(fixture);
+		lock.lock();
+		try {
+			if (!processedFixtures.contains(fixture)) {
+				importShared(fixture, shard.getOwner(fixture));
+			}
+		}
+		finally {
+			lock.unlock();
+		}
+	}
+
+	/**
+	 * Returns the reference, by name, of the fixture object.
+	 *
+	 * @param key the name of the reference.
+	 * @param object the fixture object.
+	 * @return the referenced object.
+	 * @throws MissingReferenceException if the fixture has no such reference.
+	 */
+	protected Object lookup(final String key, final Object object) {
+		return lookup(object.getClass(), key);
+	}
+
+	/**
+	 * Returns the reference, by name, of the fixture type.
+	 *
+	 * @param fixture the fixture {@code Class}.
+	 * @param key the name of the reference.
+	 * @return the referenced object.
+	 * @throws MissingReferenceException if the fixture has no such reference.
+	 */
+	protected Object lookup(final Class<?> fixture, final String key) {
+		return references.lookup(fixture, key);
+	}
+
+	/**
+	 * Persists a generated entity; called by the default
+	 * {@link #persistBatch(List)} for every entity of a batch. A processor
+	 * overrides either this method or one of the <tt>persistBatch</tt>
+	 * methods, which need not call it; the default implementation fails.
+	 *
+	 * @param data the entity.
+	 * @param andFlush whether the entity is the last of its batch.
+	 * @throws UnsupportedOperationException unless overridden.
+	 */
+	protected void persist(final Object data, final boolean andFlush) {
+		throw new UnsupportedOperationException(getClass().getName() + " overrides neither persist(Object, boolean) "
+				+ "nor persistBatch(..).");
+	}
+
+	/**
+	 * Persists a batch of generated entities. The default implementation
+	 * calls {@link #persist(Object, boolean)} for every entity, flushing only
+	 * after the last one; subclasses may override this to write the batch
+	 * in a single round trip.
+	 *
+	 * Batches are never persisted concurrently, unless persistence is
+	 * pipelined with more than one thread; with pipelined persistence they
+	 * are persisted on the pipeline's threads rather than the generating
+	 * ones.
+	 *
+	 * @param batch the entities, in the order they were generated.
+	 */
+	protected void persistBatch(final List<?> batch) {
+		final int last = batch.size() - 1;
+		for (int i = 0; i <= last; i++) {
+			persist(batch.get(i), i == last);
+		}
+	}
+
+	/**
+	 * Persists a batch of generated entities, given the fixture that
+	 * generated each of them. The default implementation calls
+	 * {@link #persistBatch(List)}; subclasses that keep the entities of the
+	 * fixtures apart may override this instead.
+	 *
+	 * @param batch the entities, in the order they were generated.
+	 * @param fixtures the fixture {@code Class} of each entity of the batch.
+	 * @see #persistBatch(List)
+	 */
+	protected void persistBatch(final List<?> batch, final List<Class<?>> fixtures) {
+		persistBatch(batch);
+	}
+
+	/**
+	 * Called at the start of every run, before any of its entities is
+	 * persisted. The default implementation does nothing.
+	 *
+	 * @param fixtures the fixtures of the run, in the order to load their
+	 * 		entities: a fixture comes after the fixtures it depends on and,
+	 * 		unless they form a cycle, after those it references lazily.
+	 * @param skipped the fixtures of the run that are not generated again,
+	 * 		as an incremental or resumed run restored them.
+	 * @see #persistenceFinished(boolean)
+	 */
+	protected void persistenceStarted(final List<Class<?>> fixtures, final Set<Class<?>> skipped) {
+	}
+
+	/**
+	 * Called at the end of every run, once the entities it generated have
+	 * been persisted or the persistence failed. The default implementation
+	 * does nothing.
+	 *
+	 * @param completed <tt>true</tt> if every fixture of the run was generated
+	 * 		and persisted.
+	 */
+	protected void persistenceFinished(final boolean completed) {
+	}
+
+	/**
+	 * Estimates the size of the entity in bytes, for the batch byte budget.
+	 * The default implementation returns <tt>0</tt>, i.e. unknown.
+	 *
+	 * @param entity the entity.
+	 * @return the estimated size, in bytes.
+	 */
+	protected long estimateSize(final Object entity) {
+		return 0;
+	}
+
+	/**
+	 * A reference that is resolved on the first call to {@link #get()}.
+	 */
+	private class LazyReference implements FixtureSupplier<Object> {
+
+		private final Class<?> fixture;
+
+		private final String name;
+
+		/**
+		 * The run during which the reference may be resolved.
+		 */
+		private final Object run;
+
+		private boolean resolved;
+
+		private Object value;
+
+		private LazyReference(final Class<?> fixture, final String name, final Object run) {
+			this.fixture = fixture;
+			this.name = name;
+			this.run = run;
+		}
+
+		@Override
+		public synchronized Object get() {
+			if (!resolved) {
+				value = resolveLazily(fixture, name, run);
+				resolved = true;
+			}
+			return value;
+		}
+
+		@Override
+		public String toString() {
+			return "LazyReference[" + fixture.getName() + ", '" + name + "']";
+		}
+	}
+
+	/**
+	 * A sink that drops the entities it is given.
+	 */
+	private static class DiscardingSink implements FixtureSink<Object> {
+
+		@Override
+		public void add(final Object entity) {
+		}
+	}
+
+	/**
+	 * A sink that counts the entities passed on to another.
+	 */
+	private static class CountingSink implements FixtureSink<Object> {
+
+		private final FixtureSink<Object> delegate;
+
+		private long count;
+
+		private CountingSink(final FixtureSink<Object> delegate) {
+			this.delegate = delegate;
+		}
+
+		@Override
+		public void add(final Object entity) {
+			count++;
+			delegate.add(entity);
+		}
+	}
+
+	private void markProcessed(final Class<?> clazz) {
+		processedFixtures.add(clazz);
+	}
+
+	private void cache(final Class<?> clazz, final Object fixture) {
+		fixtureCache.put(clazz, fixture);
+	}
+
+	/**
+	 * The fixture a thread waits to lock, and the fixtures it is processing
+	 * meanwhile, outermost first.
+	 */
+	private static class LockWait {
+
+		private final Class<?> fixture;
+
+		private final List<Class<?>> stack;
+
+		LockWait(final Class<?> fixture, final List<Class<?>> stack) {
+			this.fixture = fixture;
+			this.stack = stack;
+		}
+	}
+}
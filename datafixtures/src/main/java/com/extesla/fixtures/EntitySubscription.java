@@ -0,0 +1,189 @@
+/* Copyright 2014 Extesla Digital Entertainment, Ltd. All rights reserved.
+ *
+ * Licensed under the MIT License (http://opensource.org/licenses/MIT)
+ *
+ * Permission is hereby granted, free of charge, to any
+ * person obtaining a copy of this software and associated
+ * documentation files (the "Software"), to deal in the
+ * Software without restriction, including without limitation
+ * the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software,
+ * and to permit persons to whom the Software is furnished
+ * to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice
+ * shall be included in all copies or substantial portions of
+ * the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY
+ * KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE
+ * WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR
+ * PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS
+ * OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR
+ * OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT
+ * OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE
+ * SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package com.extesla.fixtures;
+
+import java.util.concurrent.CancellationException;
+
+import com.extesla.fixtures.async.Subscriber;
+import com.extesla.fixtures.async.Subscription;
+
+/**
+ * The subscription of a {@link Subscriber} to the entities of a
+ * {@link FixtureRun}. The generating threads deliver the entities one at a
+ * time and, when the subscriber has not requested any more, wait until it
+ * does, so generation runs no faster than the subscriber consumes.
+ * Cancelling the subscription cancels the run.
+ *
+ * @author Sean.Quinn
+ * @since  1.0
+ */
+class EntitySubscription implements Subscription {
+
+	private final Subscriber<? super Object> subscriber;
+
+	/**
+	 * Held while the subscriber is called, so that it is called by one
+	 * thread at a time.
+	 */
+	private final Object signalLock = new Object();
+
+	/**
+	 * The number of entities requested and not yet delivered;
+	 * {@link Long#MAX_VALUE} if unbounded. Guarded by <tt>this</tt>.
+	 */
+	private long demand;
+
+	/**
+	 * Guarded by <tt>this</tt>.
+	 */
+	private boolean cancelled;
+
+	/**
+	 * The failure of an illegal request, to be passed to the subscriber.
+	 * Guarded by <tt>this</tt>.
+	 */
+	private Throwable error;
+
+	/**
+	 * Whether the subscriber has been told that the run ended. Guarded by
+	 * the <tt>signalLock</tt>.
+	 */
+	private boolean finished;
+
+	private FixtureRun run;
+
+	EntitySubscription(final Subscriber<? super Object> subscriber) {
+		this.subscriber = subscriber;
+	}
+
+	/**
+	 * @param run the run of which the entities are delivered.
+	 */
+	void setRun(final FixtureRun run) {
+		this.run = run;
+	}
+
+	@Override
+	public void request(final long n) {
+		final IllegalArgumentException illegal;
+		synchronized (this) {
+			if (cancelled) {
+				return;
+			}
+			if (n <= 0) {
+				illegal = new IllegalArgumentException("The number of entities requested must be positive, was: " + n);
+				error = illegal;
+				cancelled = true;
+			}
+			else {
+				illegal = null;
+				demand = demand + n < 0 ? Long.MAX_VALUE : demand + n;
+			}
+			notifyAll();
+		}
+		if (illegal != null) {
+			run.cancel(false);
+			finish(illegal);
+		}
+	}
+
+	@Override
+	public void cancel() {
+		synchronized (this) {
+			if (cancelled) {
+				return;
+			}
+			cancelled = true;
+			notifyAll();
+		}
+		run.cancel(false);
+	}
+
+	/**
+	 * Delivers the entity, once the subscriber has requested it.
+	 *
+	 * @param entity the entity.
+	 * @throws CancellationException if the thread is interrupted while
+	 * 		waiting for the subscriber.
+	 */
+	void emit(final Object entity) {
+		synchronized (signalLock) {
+			if (finished) {
+				return;
+			}
+			synchronized (this) {
+				while (demand == 0 && !cancelled) {
+					try {
+						wait();
+					}
+					catch (final InterruptedException ex) {
+						Thread.currentThread().interrupt();
+						throw new CancellationException(
+								"Interrupted while waiting for the subscriber to request more entities.");
+					}
+				}
+				if (cancelled) {
+					return;
+				}
+				if (demand != Long.MAX_VALUE) {
+					demand--;
+				}
+			}
+			subscriber.onNext(entity);
+		}
+	}
+
+	/**
+	 * Tells the subscriber that the run has ended, unless it cancelled the
+	 * subscription.
+	 *
+	 * @param cause the cause of the run's failure, or <tt>null</tt> if it
+	 * 		succeeded.
+	 */
+	void finish(final Throwable cause) {
+		synchronized (signalLock) {
+			if (finished) {
+				return;
+			}
+			finished = true;
+
+			final Throwable error;
+			synchronized (this) {
+				if (cancelled && this.error == null) {
+					return;
+				}
+				error = this.error != null ? this.error : cause;
+			}
+			if (error != null) {
+				subscriber.onError(error);
+			}
+			else {
+				subscriber.onComplete();
+			}
+		}
+	}
+}
@@ -0,0 +1,82 @@
+/* Copyright 2014 Extesla Digital Entertainment, Ltd. All rights reserved.
+ *
+ * Licensed under the MIT License (http://opensource.org/licenses/MIT)
+ *
+ * Permission is hereby granted, free of charge, to any
+ * person obtaining a copy of this software and associated
+ * documentation files (the "Software"), to deal in the
+ * Software without restriction, including without limitation
+ * the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software,
+ * and to permit persons to whom the Software is furnished
+ * to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice
+ * shall be included in all copies or substantial portions of
+ * the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY
+ * KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE
+ * WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR
+ * PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS
+ * OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR
+ * OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT
+ * OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE
+ * SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package com.extesla.fixtures;
+
+import java.util.concurrent.Executor;
+
+import com.extesla.fixtures.async.Publisher;
+
+public interface FixtureProcessor {
+
+	void run();
+
+	/**
+	 * Generates the target fixtures and the fixtures they depend on.
+	 *
+	 * @param targets the fixture {@code Classes}.
+	 */
+	void run(Class<?>... targets);
+
+	/**
+	 * Generates the fixtures in the groups and the fixtures they depend on.
+	 *
+	 * @param groups the group names.
+	 */
+	void runGroups(String... groups);
+
+	/**
+	 * Generates the fixtures on the executor, like {@link #run()}, and
+	 * returns at once. Every asynchronous run starts afresh, as after
+	 * {@link #reset()}.
+	 *
+	 * @param executor the {@code Executor} on which the run is started.
+	 * @return the {@code FixtureRun}, whose futures complete as the run
+	 * 		progresses.
+	 * @throws IllegalStateException if a run is already in progress.
+	 */
+	FixtureRun runAsync(Executor executor);
+
+	/**
+	 * Returns a publisher of the generated entities: its subscriber starts a
+	 * run on the executor, like {@link #runAsync(Executor)}, and receives the
+	 * entities as they are generated, no faster than it requests them. The
+	 * publisher takes a single subscriber; call this method again for
+	 * another run.
+	 *
+	 * @param executor the {@code Executor} on which the run is started.
+	 * @return the {@code Publisher}.
+	 */
+	Publisher<Object> publish(Executor executor);
+
+	/**
+	 * Forgets the fixtures generated by the previous runs, so that they are
+	 * generated again by the next one. Each fixture is otherwise generated
+	 * only once per processor, except by the asynchronous runs, which reset
+	 * the processor themselves.
+	 */
+	void reset();
+}
@@ -0,0 +1,129 @@
+/* Copyright 2014 Extesla Digital Entertainment, Ltd. All rights reserved.
+ *
+ * Licensed under the MIT License (http://opensource.org/licenses/MIT)
+ *
+ * Permission is hereby granted, free of charge, to any
+ * person obtaining a copy of this software and associated
+ * documentation files (the "Software"), to deal in the
+ * Software without restriction, including without limitation
+ * the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software,
+ * and to permit persons to whom the Software is furnished
+ * to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice
+ * shall be included in all copies or substantial portions of
+ * the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY
+ * KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE
+ * WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR
+ * PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS
+ * OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR
+ * OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT
+ * OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE
+ * SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package com.extesla.fixtures;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import com.extesla.fixtures.random.GenerationContext;
+
+/**
+ * A range of the rows of a {@link RangeFixture}, from {@link #getStart()},
+ * inclusive, to {@link #getEnd()}, exclusive. A range is generated by a
+ * single thread.
+ *
+ * @author Sean.Quinn
+ * @since  1.0
+ */
+public class FixtureRange {
+
+	private final int index;
+
+	private final long start;
+
+	private final long end;
+
+	private final GenerationContext context;
+
+	/**
+	 * The references added by the range, in the order they were added.
+	 */
+	private final Map<String, Object> references = new LinkedHashMap<String, Object>();
+
+	/**
+	 * @param index the index of the range, from <tt>0</tt>.
+	 * @param start the first row of the range.
+	 * @param end the row after the last row of the range.
+	 * @param fixtureSeed the seed of the fixture's {@link GenerationContext}.
+	 */
+	FixtureRange(final int index, final long start, final long end, final long fixtureSeed) {
+		this.index = index;
+		this.start = start;
+		this.end = end;
+		this.context = new GenerationContext(GenerationContext.derive(fixtureSeed, "range-" + index));
+	}
+
+	/**
+	 * @return the index of the range, from <tt>0</tt>.
+	 */
+	public int getIndex() {
+		return index;
+	}
+
+	/**
+	 * @return the first row of the range, from <tt>0</tt>.
+	 */
+	public long getStart() {
+		return start;
+	}
+
+	/**
+	 * @return the row after the last row of the range.
+	 */
+	public long getEnd() {
+		return end;
+	}
+
+	/**
+	 * @return the number of rows of the range.
+	 */
+	public long size() {
+		return end - start;
+	}
+
+	/**
+	 * Returns the source of the range's random values, seeded from the seed
+	 * of the fixture and the index of the range. Its
+	 * {@link GenerationContext#nextId()} starts from <tt>1</tt> in every
+	 * range; use the row numbers for ids that are unique to the fixture.
+	 *
+	 * @return the {@code GenerationContext}.
+	 */
+	public GenerationContext getContext() {
+		return context;
+	}
+
+	/**
+	 * Adds a reference to the fixture. The references of all the ranges are
+	 * published, in the order of the ranges, once every range has been
+	 * generated; a reference added by a later range replaces a reference of
+	 * the same name added by an earlier one.
+	 *
+	 * @param name the name of the reference.
+	 * @param object the referenced object.
+	 */
+	public void addReference(final String name, final Object object) {
+		references.put(name, object);
+	}
+
+	/**
+	 * @return the references added by the range.
+	 */
+	Map<String, Object> getReferences() {
+		return references;
+	}
+}
@@ -0,0 +1,253 @@
+/* Copyright 2014 Extesla Digital Entertainment, Ltd. All rights reserved.
+ *
+ * Licensed under the MIT License (http://opensource.org/licenses/MIT)
+ *
+ * Permission is hereby granted, free of charge, to any
+ * person obtaining a copy of this software and associated
+ * documentation files (the "Software"), to deal in the
+ * Software without restriction, including without limitation
+ * the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software,
+ * and to permit persons to whom the Software is furnished
+ * to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice
+ * shall be included in all copies or substantial portions of
+ * the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY
+ * KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE
+ * WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR
+ * PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS
+ * OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR
+ * OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT
+ * OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE
+ * SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package com.extesla.fixtures;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CancellationException;
+
+import com.extesla.fixtures.async.FixtureFuture;
+
+/**
+ * A run of a {@link FixtureProcessor} started by
+ * {@link FixtureProcessor#runAsync(java.util.concurrent.Executor)}: the
+ * future of the whole run, which completes once every fixture has been
+ * generated and persisted, and a future per fixture, so that a caller can
+ * wait for only the fixtures it needs.
+ *
+ * Cancelling the run asks it to stop before the next fixture is generated;
+ * the fixtures already generated are still persisted. Unlike most futures,
+ * the run is only done, and cancelled, once it has actually stopped, so
+ * that the processor is free for another run as soon as {@link #get()}
+ * returns; the fixtures being generated when it was cancelled may still
+ * complete in the meantime.
+ *
+ * @author Sean.Quinn
+ * @since  1.0
+ */
+public class FixtureRun extends FixtureFuture<Void> {
+
+	/**
+	 * The future of each fixture that has been asked for.
+	 */
+	private final Map<Class<?>, Completion> fixtures = new HashMap<Class<?>, Completion>();
+
+	/**
+	 * The references of each fixture completed so far.
+	 */
+	private final Map<Class<?>, Map<String, Object>> completed = new HashMap<Class<?>, Map<String, Object>>();
+
+	/**
+	 * Whether the run has ended.
+	 */
+	private boolean ended;
+
+	/**
+	 * The cause of the run's failure, if it has ended and failed.
+	 */
+	private Throwable failure;
+
+	/**
+	 * Whether the run has been asked to stop.
+	 */
+	private volatile boolean stopping;
+
+	/**
+	 * The subscription to the entities of the run, or <tt>null</tt>.
+	 */
+	private final EntitySubscription subscription;
+
+	/**
+	 * @param subscription the subscription to which the generated entities
+	 * 		are delivered, or <tt>null</tt>.
+	 */
+	FixtureRun(final EntitySubscription subscription) {
+		this.subscription = subscription;
+	}
+
+	/**
+	 * Returns the future of the fixture, which completes once the fixture has
+	 * been generated, or skipped by an incremental or resumed run, and its
+	 * entities persisted. Its value is the references the fixture registered.
+	 *
+	 * The future fails if the run fails first, and with an
+	 * {@link IllegalArgumentException} if the run completes without the
+	 * fixture.
+	 *
+	 * @param fixture the fixture {@code Class}.
+	 * @return the future of the fixture.
+	 */
+	public FixtureFuture<Map<String, Object>> getFixture(final Class<?> fixture) {
+		final Completion future;
+		final Map<String, Object> references;
+		final boolean ended;
+		final Throwable failure;
+		synchronized (fixtures) {
+			final Completion existing = fixtures.get(fixture);
+			if (existing != null) {
+				return existing;
+			}
+			future = new Completion(fixture);
+			fixtures.put(fixture, future);
+			references = completed.get(fixture);
+			ended = this.ended;
+			failure = this.failure;
+		}
+
+		if (references != null) {
+			future.complete(references);
+		}
+		else if (ended) {
+			future.abandon(failure);
+		}
+		return future;
+	}
+
+	/**
+	 * Asks the run to stop before the next fixture, unless it has ended. The
+	 * run is cancelled once it has stopped.
+	 *
+	 * @param mayInterruptIfRunning ignored: the fixtures being generated are
+	 * 		never interrupted.
+	 * @return <tt>true</tt> if the run was asked to stop by this call.
+	 */
+	@Override
+	public boolean cancel(final boolean mayInterruptIfRunning) {
+		synchronized (fixtures) {
+			if (ended || stopping) {
+				return false;
+			}
+			stopping = true;
+			return true;
+		}
+	}
+
+	/**
+	 * @return <tt>true</tt> if the run has been asked to stop.
+	 */
+	boolean isStopping() {
+		return stopping;
+	}
+
+	/**
+	 * Completes the future of the fixture.
+	 *
+	 * @param fixture the fixture {@code Class}.
+	 * @param references the references the fixture registered.
+	 */
+	void fixtureCompleted(final Class<?> fixture, final Map<String, Object> references) {
+		final Completion future;
+		synchronized (fixtures) {
+			completed.put(fixture, references);
+			future = fixtures.get(fixture);
+		}
+		if (future != null) {
+			future.complete(references);
+		}
+	}
+
+	/**
+	 * Completes the run, and the futures of the fixtures that were not
+	 * completed; the run is cancelled if it was asked to stop.
+	 *
+	 * @param cause the cause of the run's failure, or <tt>null</tt> if it
+	 * 		succeeded.
+	 */
+	void runCompleted(final Throwable cause) {
+		final List<Completion> pending;
+		synchronized (fixtures) {
+			ended = true;
+			failure = stopping ? new CancellationException() : cause;
+			pending = new ArrayList<Completion>(fixtures.values());
+		}
+		for (final Completion future : pending) {
+			future.abandon(failure);
+		}
+
+		if (stopping) {
+			super.cancel(false);
+		}
+		else if (cause == null) {
+			set(null);
+		}
+		else {
+			setException(cause);
+		}
+		if (subscription != null) {
+			subscription.finish(cause);
+		}
+	}
+
+	/**
+	 * Delivers a generated entity to the subscription, if there is one,
+	 * waiting for the subscriber to request it.
+	 *
+	 * @param entity the entity.
+	 */
+	void emit(final Object entity) {
+		if (subscription != null) {
+			subscription.emit(entity);
+		}
+	}
+
+	/**
+	 * The future of a single fixture.
+	 */
+	private static class Completion extends FixtureFuture<Map<String, Object>> {
+
+		private final Class<?> fixture;
+
+		private Completion(final Class<?> fixture) {
+			this.fixture = fixture;
+		}
+
+		private void complete(final Map<String, Object> references) {
+			set(references);
+		}
+
+		/**
+		 * Fails the future of a fixture the run ended without.
+		 *
+		 * @param cause the cause of the run's failure, or <tt>null</tt> if
+		 * 		it succeeded.
+		 */
+		private void abandon(final Throwable cause) {
+			if (cause instanceof CancellationException) {
+				cancel(false);
+			}
+			else if (cause != null) {
+				setException(cause);
+			}
+			else {
+				setException(new IllegalArgumentException("The fixture: " + fixture.getName()
+						+ " was not part of the run."));
+			}
+		}
+	}
+}
@@ -0,0 +1,48 @@
+/* Copyright 2014 Extesla Digital Entertainment, Ltd. All rights reserved.
+ *
+ * Licensed under the MIT License (http://opensource.org/licenses/MIT)
+ *
+ * Permission is hereby granted, free of charge, to any
+ * person obtaining a copy of this software and associated
+ * documentation files (the "Software"), to deal in the
+ * Software without restriction, including without limitation
+ * the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software,
+ * and to permit persons to whom the Software is furnished
+ * to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice
+ * shall be included in all copies or substantial portions of
+ * the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY
+ * KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE
+ * WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR
+ * PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS
+ * OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR
+ * OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT
+ * OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE
+ * SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package com.extesla.fixtures;
+
+/**
+ * Receives the entities of a fixture one at a time, as they are generated.
+ * A {@link com.extesla.fixtures.annotations.FixtureGenerate} method may take
+ * a {@code FixtureSink} parameter, alongside the fixture's
+ * {@link com.extesla.fixtures.random.GenerationContext} if it needs one,
+ * instead of returning its data, so that a fixture producing a large number
+ * of entities never has to hold them all in memory.
+ *
+ * @author Sean.Quinn
+ * @since  1.0
+ */
+public interface FixtureSink<T> {
+
+	/**
+	 * Adds a generated entity; it will be persisted with the next batch.
+	 *
+	 * @param entity the entity.
+	 */
+	void add(T entity);
+}
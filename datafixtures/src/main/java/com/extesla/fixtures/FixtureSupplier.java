@@ -0,0 +1,50 @@
+/* Copyright 2014 Extesla Digital Entertainment, Ltd. All rights reserved.
+ *
+ * Licensed under the MIT License (http://opensource.org/licenses/MIT)
+ *
+ * Permission is hereby granted, free of charge, to any
+ * person obtaining a copy of this software and associated
+ * documentation files (the "Software"), to deal in the
+ * Software without restriction, including without limitation
+ * the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software,
+ * and to permit persons to whom the Software is furnished
+ * to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice
+ * shall be included in all copies or substantial portions of
+ * the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY
+ * KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE
+ * WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR
+ * PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS
+ * OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR
+ * OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT
+ * OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE
+ * SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package com.extesla.fixtures;
+
+/**
+ * A reference that is resolved on first access. A field annotated with
+ * {@link com.extesla.fixtures.annotations.FixtureReference} and declared as
+ * a {@code FixtureSupplier} is not resolved before the fixture generates its
+ * data; the referenced fixture is generated, if it has not been yet, only
+ * once {@link #get()} is called.
+ *
+ * @author Sean.Quinn
+ * @since  1.0
+ * @see com.extesla.fixtures.annotations.FixtureReference#lazy()
+ */
+public interface FixtureSupplier<T> {
+
+	/**
+	 * Returns the referenced object, resolving it on the first call.
+	 *
+	 * @return the referenced object.
+	 * @throws com.extesla.fixtures.exceptions.MissingReferenceException if
+	 * 		the reference cannot be found.
+	 */
+	T get();
+}
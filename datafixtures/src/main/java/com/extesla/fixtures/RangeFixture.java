@@ -0,0 +1,68 @@
+/* Copyright 2014 Extesla Digital Entertainment, Ltd. All rights reserved.
+ *
+ * Licensed under the MIT License (http://opensource.org/licenses/MIT)
+ *
+ * Permission is hereby granted, free of charge, to any
+ * person obtaining a copy of this software and associated
+ * documentation files (the "Software"), to deal in the
+ * Software without restriction, including without limitation
+ * the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software,
+ * and to permit persons to whom the Software is furnished
+ * to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice
+ * shall be included in all copies or substantial portions of
+ * the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY
+ * KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE
+ * WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR
+ * PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS
+ * OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR
+ * OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT
+ * OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE
+ * SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package com.extesla.fixtures;
+
+/**
+ * A fixture that generates a large number of rows in independent ranges,
+ * so that a single fixture can be generated by several threads. The fixture
+ * declares how many rows it has; the processor splits them into ranges of
+ * a fixed size and calls {@link #generate(FixtureRange, FixtureSink)} once
+ * per range, possibly concurrently, after the fixture's references have
+ * been resolved and before its
+ * {@link com.extesla.fixtures.annotations.FixtureGenerate} methods, if it
+ * has any, are called.
+ *
+ * Every range has its own {@link FixtureRange#getContext() context}, seeded
+ * from the fixture's seed and the index of the range, so the rows are the
+ * same whatever the number of threads. A range must not depend on another
+ * range, and must only read the fixture's fields; references are added to
+ * the range, see {@link FixtureRange#addReference(String, Object)}, and are
+ * published once every range has been generated.
+ *
+ * @author Sean.Quinn
+ * @since  1.0
+ * @see AbstractFixtureProcessor#setRangeExecutor(java.util.concurrent.Executor, int)
+ */
+public interface RangeFixture<T> {
+
+	/**
+	 * Returns the number of rows of the fixture.
+	 *
+	 * @return the number of rows.
+	 */
+	long getRowCount();
+
+	/**
+	 * Generates the rows of the range, adding the entities to the sink. The
+	 * sink belongs to the range, and must not be used once this method has
+	 * returned.
+	 *
+	 * @param range the {@code FixtureRange} to generate.
+	 * @param sink the {@code FixtureSink} of the range.
+	 */
+	void generate(FixtureRange range, FixtureSink<T> sink);
+}
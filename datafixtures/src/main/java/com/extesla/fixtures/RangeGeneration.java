@@ -0,0 +1,315 @@
+/* Copyright 2014 Extesla Digital Entertainment, Ltd. All rights reserved.
+ *
+ * Licensed under the MIT License (http://opensource.org/licenses/MIT)
+ *
+ * Permission is hereby granted, free of charge, to any
+ * person obtaining a copy of this software and associated
+ * documentation files (the "Software"), to deal in the
+ * Software without restriction, including without limitation
+ * the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software,
+ * and to permit persons to whom the Software is furnished
+ * to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice
+ * shall be included in all copies or substantial portions of
+ * the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY
+ * KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE
+ * WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR
+ * PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS
+ * OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR
+ * OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT
+ * OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE
+ * SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package com.extesla.fixtures;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+
+/**
+ * Generates the ranges of a {@link RangeFixture} on the calling thread and
+ * on up to <tt>parallelism - 1</tt> helper tasks of an {@link Executor}.
+ * Each thread claims the next range that no other thread has claimed until
+ * there are none left, so the ranges are balanced however long each takes.
+ *
+ * The calling thread only ever waits for ranges that another thread has
+ * already started; a helper task that starts once every range has been
+ * claimed returns at once. The executor may therefore be the bounded pool
+ * the fixtures themselves are generated on without risk of deadlock.
+ *
+ * The entities of each range are handed to the target sink in chunks, one
+ * chunk at a time, so the target need not be thread safe. They are handed
+ * over in the order of the ranges, as if one thread had generated them all:
+ * the earliest unfinished range streams its chunks to the target, while the
+ * chunks of later ranges are held until every earlier range is done.
+ *
+ * @author Sean.Quinn
+ * @since  1.0
+ */
+class RangeGeneration {
+
+	private final RangeFixture<Object> fixture;
+
+	private final List<FixtureRange> ranges;
+
+	private final FixtureSink<Object> target;
+
+	/**
+	 * The number of entities a range gathers before handing them to the
+	 * target.
+	 */
+	private final int chunkSize;
+
+	/**
+	 * The index of the next range to claim.
+	 */
+	private int next;
+
+	/**
+	 * The number of ranges claimed and not yet finished.
+	 */
+	private int running;
+
+	/**
+	 * The first failure of a range, after which no range is claimed.
+	 */
+	private Throwable failure;
+
+	/**
+	 * The position of the range whose chunks go straight to the target;
+	 * guarded by the target.
+	 */
+	private int turn;
+
+	/**
+	 * The chunks of the later ranges, by position, until it is their turn;
+	 * guarded by the target.
+	 */
+	private final Map<Integer, List<Object>> held = new HashMap<Integer, List<Object>>();
+
+	/**
+	 * The positions of the later ranges that are done; guarded by the
+	 * target.
+	 */
+	private final Set<Integer> done = new HashSet<Integer>();
+
+	/**
+	 * @param fixture the {@code RangeFixture}.
+	 * @param ranges the ranges to generate.
+	 * @param target the {@code FixtureSink} to which the entities are added.
+	 * @param chunkSize the number of entities handed to the target at once.
+	 */
+	RangeGeneration(final RangeFixture<Object> fixture, final List<FixtureRange> ranges,
+			final FixtureSink<Object> target, final int chunkSize) {
+		this.fixture = fixture;
+		this.ranges = ranges;
+		this.target = target;
+		this.chunkSize = chunkSize;
+	}
+
+	/**
+	 * Splits the rows of the fixture into ranges of the given size, keeping
+	 * only every <tt>count</tt>-th range from the <tt>offset</tt>-th.
+	 *
+	 * @param rows the number of rows.
+	 * @param size the number of rows per range.
+	 * @param fixtureSeed the seed of the fixture's context.
+	 * @param offset the index of the first range to keep.
+	 * @param count the stride of the ranges to keep.
+	 * @return the ranges.
+	 */
+	static List<FixtureRange> split(final long rows, final long size, final long fixtureSeed, final int offset,
+			final int count) {
+		final List<FixtureRange> ranges = new ArrayList<FixtureRange>();
+		final long total = (rows + size - 1) / size;
+		for (long index = offset; index < total; index += count) {
+			final long start = index * size;
+			ranges.add(new FixtureRange((int) index, start, Math.min(start + size, rows), fixtureSeed));
+		}
+		return ranges;
+	}
+
+	/**
+	 * Generates every range, returning once all of them are done.
+	 *
+	 * @param executor the {@code Executor} of the helper tasks, or
+	 * 		<tt>null</tt> to generate the ranges on the calling thread.
+	 * @param parallelism the maximum number of threads generating ranges.
+	 * @throws RuntimeException the first failure of a range; the ranges
+	 * 		that had not been started are not generated.
+	 */
+	void run(final Executor executor, final int parallelism) {
+		if (executor != null) {
+			final Runnable helper = new Runnable() {
+				@Override
+				public void run() {
+					work();
+				}
+			};
+			for (int i = Math.min(parallelism, ranges.size()) - 1; i > 0; i--) {
+				try {
+					executor.execute(helper);
+				}
+				catch (final RejectedExecutionException ex) {
+					// ** Generate the ranges with the threads we've got.
+					break;
+				}
+			}
+		}
+		work();
+
+		boolean interrupted = false;
+		synchronized (this) {
+			while (running > 0) {
+				try {
+					wait();
+				}
+				catch (final InterruptedException ex) {
+					// ** The ranges already started will finish regardless.
+					interrupted = true;
+				}
+			}
+		}
+		if (interrupted) {
+			Thread.currentThread().interrupt();
+		}
+
+		if (failure instanceof RuntimeException) {
+			throw (RuntimeException) failure;
+		}
+		if (failure instanceof Error) {
+			throw (Error) failure;
+		}
+		if (failure != null) {
+			throw new RuntimeException(failure);
+		}
+	}
+
+	/**
+	 * Generates ranges until there are none left to claim.
+	 */
+	private void work() {
+		int position;
+		while ((position = claim()) >= 0) {
+			try {
+				final ChunkSink chunk = new ChunkSink(position);
+				fixture.generate(ranges.get(position), chunk);
+				chunk.finish();
+			}
+			catch (final Throwable ex) {
+				failed(ex);
+			}
+			finally {
+				finished();
+			}
+		}
+	}
+
+	/**
+	 * @return the position of the next range, or <tt>-1</tt> if there are
+	 * 		none left to claim.
+	 */
+	private synchronized int claim() {
+		if (failure != null || next == ranges.size()) {
+			return -1;
+		}
+		running++;
+		return next++;
+	}
+
+	private synchronized void finished() {
+		if (--running == 0) {
+			notifyAll();
+		}
+	}
+
+	private synchronized void failed(final Throwable cause) {
+		if (failure == null) {
+			failure = cause;
+		}
+	}
+
+	/**
+	 * Hands the entities to the target; called with the target's lock held.
+	 */
+	private void emit(final List<Object> entities) {
+		for (final Object entity : entities) {
+			target.add(entity);
+		}
+	}
+
+	/**
+	 * Gathers the entities of a range and hands them to the target a chunk
+	 * at a time once it is the range's turn, holding them until then.
+	 */
+	private class ChunkSink implements FixtureSink<Object> {
+
+		private final int position;
+
+		private final List<Object> chunk = new ArrayList<Object>(chunkSize);
+
+		ChunkSink(final int position) {
+			this.position = position;
+		}
+
+		@Override
+		public void add(final Object entity) {
+			chunk.add(entity);
+			if (chunk.size() >= chunkSize) {
+				flush();
+			}
+		}
+
+		private void flush() {
+			if (chunk.isEmpty()) {
+				return;
+			}
+			synchronized (target) {
+				if (position == turn) {
+					emit(chunk);
+				}
+				else {
+					List<Object> pending = held.get(position);
+					if (pending == null) {
+						pending = new ArrayList<Object>();
+						held.put(position, pending);
+					}
+					pending.addAll(chunk);
+				}
+			}
+			chunk.clear();
+		}
+
+		/**
+		 * Hands over the rest of the range and, if it was the range's turn,
+		 * the chunks of the later ranges up to the first one not yet done.
+		 */
+		private void finish() {
+			flush();
+			synchronized (target) {
+				if (position != turn) {
+					done.add(position);
+					return;
+				}
+				while (++turn < ranges.size()) {
+					final List<Object> pending = held.remove(turn);
+					if (pending != null) {
+						emit(pending);
+					}
+					if (!done.remove(turn)) {
+						break;
+					}
+				}
+			}
+		}
+	}
+}
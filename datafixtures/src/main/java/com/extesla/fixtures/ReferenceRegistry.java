@@ -0,0 +1,160 @@
+/* Copyright 2014 Extesla Digital Entertainment, Ltd. All rights reserved.
+ *
+ * Licensed under the MIT License (http://opensource.org/licenses/MIT)
+ *
+ * Permission is hereby granted, free of charge, to any
+ * person obtaining a copy of this software and associated
+ * documentation files (the "Software"), to deal in the
+ * Software without restriction, including without limitation
+ * the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software,
+ * and to permit persons to whom the Software is furnished
+ * to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice
+ * shall be included in all copies or substantial portions of
+ * the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY
+ * KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE
+ * WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR
+ * PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS
+ * OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR
+ * OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT
+ * OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE
+ * SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package com.extesla.fixtures;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import com.extesla.fixtures.exceptions.MissingReferenceException;
+
+/**
+ * The references of every fixture of a run, keyed by the fixture type and
+ * the reference name, so that a {@link com.extesla.fixtures.annotations.FixtureReference}
+ * is resolved in constant time.
+ *
+ * @author Sean.Quinn
+ * @since  1.0
+ */
+public class ReferenceRegistry {
+
+	/**
+	 * Stands in for <tt>null</tt> references, which the maps cannot hold.
+	 */
+	private static final Object NULL = new Object();
+
+	private final ConcurrentMap<Class<?>, ConcurrentMap<String, Object>> references =
+			new ConcurrentHashMap<Class<?>, ConcurrentMap<String, Object>>();
+
+	/**
+	 * Registers a reference of the fixture.
+	 *
+	 * @param fixture the fixture {@code Class}.
+	 * @param name the name of the reference.
+	 * @param object the referenced object.
+	 */
+	public void register(final Class<?> fixture, final String name, final Object object) {
+		getReferences(fixture).put(name, object != null ? object : NULL);
+	}
+
+	/**
+	 * Registers every entry of the fixture's reference cache.
+	 *
+	 * @param fixture the fixture {@code Class}.
+	 * @param cache the reference cache.
+	 */
+	public void registerAll(final Class<?> fixture, final Map<?, ?> cache) {
+		final ConcurrentMap<String, Object> target = getReferences(fixture);
+		for (final Map.Entry<?, ?> entry : cache.entrySet()) {
+			final Object object = entry.getValue();
+			target.put(String.valueOf(entry.getKey()), object != null ? object : NULL);
+		}
+	}
+
+	/**
+	 * Checks to see if the fixture has registered a reference by the name.
+	 *
+	 * @param fixture the fixture {@code Class}.
+	 * @param name the name of the reference.
+	 * @return <tt>true</tt> if the reference exists; otherwise <tt>false</tt>.
+	 */
+	public boolean contains(final Class<?> fixture, final String name) {
+		final Map<String, Object> fixtureReferences = references.get(fixture);
+		return fixtureReferences != null && fixtureReferences.containsKey(name);
+	}
+
+	/**
+	 * Returns the fixture's reference by the name.
+	 *
+	 * @param fixture the fixture {@code Class}.
+	 * @param name the name of the reference.
+	 * @return the referenced object.
+	 * @throws MissingReferenceException if the fixture has not registered a
+	 * 		reference by the name.
+	 */
+	public Object lookup(final Class<?> fixture, final String name) {
+		final Map<String, Object> fixtureReferences = references.get(fixture);
+		if (fixtureReferences == null) {
+			throw new MissingReferenceException(fixture, name, "Unable to resolve the reference: '" + name
+					+ "', the fixture: " + fixture.getName() + " has not registered any references.");
+		}
+
+		final Object object = fixtureReferences.get(name);
+		if (object == null) {
+			throw new MissingReferenceException(fixture, name, "The fixture: " + fixture.getName()
+					+ " has no reference named: '" + name + "'.");
+		}
+		return object != NULL ? object : null;
+	}
+
+	/**
+	 * Returns a copy of all of the fixture's references.
+	 *
+	 * @param fixture the fixture {@code Class}.
+	 * @return the references, by name; empty if the fixture has registered
+	 * 		none.
+	 */
+	public Map<String, Object> getAll(final Class<?> fixture) {
+		final Map<String, Object> result = new HashMap<String, Object>();
+		final Map<String, Object> fixtureReferences = references.get(fixture);
+		if (fixtureReferences != null) {
+			for (final Map.Entry<String, Object> entry : fixtureReferences.entrySet()) {
+				result.put(entry.getKey(), entry.getValue() != NULL ? entry.getValue() : null);
+			}
+		}
+		return result;
+	}
+
+	/**
+	 * Removes all of the fixture's references.
+	 *
+	 * @param fixture the fixture {@code Class}.
+	 */
+	public void remove(final Class<?> fixture) {
+		references.remove(fixture);
+	}
+
+	/**
+	 * Removes all references.
+	 */
+	public void clear() {
+		references.clear();
+	}
+
+	private ConcurrentMap<String, Object> getReferences(final Class<?> fixture) {
+		ConcurrentMap<String, Object> fixtureReferences = references.get(fixture);
+		if (fixtureReferences == null) {
+			fixtureReferences = new ConcurrentHashMap<String, Object>();
+			final ConcurrentMap<String, Object> existing = references.putIfAbsent(fixture, fixtureReferences);
+			if (existing != null) {
+				fixtureReferences = existing;
+			}
+		}
+		return fixtureReferences;
+	}
+}
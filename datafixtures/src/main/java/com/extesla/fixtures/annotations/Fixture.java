@@ -38,9 +38,10 @@ public @interface Fixture {
 
 	/**
 	 * (Optional) The fixture's order, by its priority. Defaults to 1. The
-	 * lower the priority value, the more important the fixture. Fixtures with
-	 * the same priority value, with no additional sort criteria, will be
-	 * ordered as they are read in by the class scanner.
+	 * lower the priority value, the more important the fixture. A fixture
+	 * always comes after the fixtures it depends on; fixtures with the same
+	 * priority value, with no additional sort criteria, are ordered by class
+	 * name.
 	 */
 	int order() default 1;
 
@@ -48,4 +49,19 @@ public @interface Fixture {
 	 * (Optional) The fixtures that this fixture depends on.
 	 */
 	Class<?>[] dependsOn() default {};
+
+	/**
+	 * (Optional) The groups the fixture belongs to, so that a subset of the
+	 * fixtures can be generated by group, along with their dependencies.
+	 */
+	String[] groups() default {};
+
+	/**
+	 * (Optional) Whether, in a sharded run, the fixture is generated by every
+	 * shard, each generating only its share of the ranges, rather than by a
+	 * single shard. Only a {@link com.extesla.fixtures.RangeFixture} can be
+	 * partitioned; the entities of its generate methods are persisted by the
+	 * first shard alone.
+	 */
+	boolean partitioned() default false;
 }
@@ -33,6 +33,13 @@ import java.lang.annotation.RetentionPolicy;
 import java.lang.annotation.Target;
 
 /**
+ * Marks the method(s) of a fixture that generate its data. A generate method
+ * returns the data, where an {@link java.util.Iterator} or
+ * {@link java.lang.Iterable} is persisted element by element, or adds the
+ * entities to a {@link com.extesla.fixtures.FixtureSink} parameter as they
+ * are generated. It may also take the fixture's
+ * {@link com.extesla.fixtures.random.GenerationContext}, the source of its
+ * random values.
  *
  * @author Sean.Quinn
  * @since  1.0
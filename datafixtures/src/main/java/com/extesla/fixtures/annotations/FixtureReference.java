@@ -0,0 +1,65 @@
+/* Copyright 2014 Extesla Digital Entertainment, Ltd. All rights reserved.
+ *
+ * Licensed under the MIT License (http://opensource.org/licenses/MIT)
+ *
+ * Permission is hereby granted, free of charge, to any
+ * person obtaining a copy of this software and associated
+ * documentation files (the "Software"), to deal in the
+ * Software without restriction, including without limitation
+ * the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software,
+ * and to permit persons to whom the Software is furnished
+ * to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice
+ * shall be included in all copies or substantial portions of
+ * the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY
+ * KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE
+ * WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR
+ * PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS
+ * OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR
+ * OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT
+ * OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE
+ * SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package com.extesla.fixtures.annotations;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ *
+ * @author Sean.Quinn
+ * @since  1.0
+ */
+@Target(ElementType.FIELD)
+@Retention(RetentionPolicy.RUNTIME)
+public @interface FixtureReference {
+
+	/**
+	 * The name of the cache entry to lookup.
+	 */
+	String value();
+
+	/**
+	 * The fixture type that the cache entry should be located in.
+	 */
+	Class<?> type();
+
+	/**
+	 * Whether the reference is resolved on first access rather than before
+	 * the fixture generates its data. A lazy reference field must be declared
+	 * as an interface; it is set to a proxy which resolves the reference, and
+	 * generates the referenced fixture if needed, when one of its methods
+	 * other than those of {@code Object} is first called. Fields declared as
+	 * a {@link com.extesla.fixtures.FixtureSupplier} are always lazy.
+	 *
+	 * A lazy reference does not make the referenced fixture a dependency,
+	 * and must be resolved during the run that set it.
+	 */
+	boolean lazy() default false;
+}
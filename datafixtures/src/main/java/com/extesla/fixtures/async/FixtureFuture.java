@@ -0,0 +1,179 @@
+/* Copyright 2014 Extesla Digital Entertainment, Ltd. All rights reserved.
+ *
+ * Licensed under the MIT License (http://opensource.org/licenses/MIT)
+ *
+ * Permission is hereby granted, free of charge, to any
+ * person obtaining a copy of this software and associated
+ * documentation files (the "Software"), to deal in the
+ * Software without restriction, including without limitation
+ * the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software,
+ * and to permit persons to whom the Software is furnished
+ * to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice
+ * shall be included in all copies or substantial portions of
+ * the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY
+ * KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE
+ * WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR
+ * PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS
+ * OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR
+ * OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT
+ * OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE
+ * SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package com.extesla.fixtures.async;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * A {@link Future} that is completed by its subclass, and to which callbacks
+ * can be added to be told of the outcome instead of blocking on
+ * {@link #get()}.
+ *
+ * Callbacks are called on the thread that completes the future, or on the
+ * thread adding them if the future is already done, so they should not
+ * block.
+ *
+ * @author Sean.Quinn
+ * @since  1.0
+ */
+abstract public class FixtureFuture<V> implements Future<V> {
+
+	private enum State { PENDING, SUCCEEDED, FAILED, CANCELLED }
+
+	private State state = State.PENDING;
+
+	private V value;
+
+	private Throwable failure;
+
+	/**
+	 * The callbacks to call once the future is done; <tt>null</tt> once it
+	 * is.
+	 */
+	private List<FixtureCallback<? super V>> callbacks = new ArrayList<FixtureCallback<? super V>>(2);
+
+	/**
+	 * Adds a callback to be called once the future is done, at once if it
+	 * already is.
+	 *
+	 * @param callback the {@code FixtureCallback}.
+	 */
+	public void addCallback(final FixtureCallback<? super V> callback) {
+		synchronized (this) {
+			if (callbacks != null) {
+				callbacks.add(callback);
+				return;
+			}
+		}
+		call(callback);
+	}
+
+	@Override
+	public boolean cancel(final boolean mayInterruptIfRunning) {
+		return complete(State.CANCELLED, null, null);
+	}
+
+	@Override
+	public synchronized boolean isCancelled() {
+		return state == State.CANCELLED;
+	}
+
+	@Override
+	public synchronized boolean isDone() {
+		return state != State.PENDING;
+	}
+
+	@Override
+	public synchronized V get() throws InterruptedException, ExecutionException {
+		while (state == State.PENDING) {
+			wait();
+		}
+		return getValue();
+	}
+
+	@Override
+	public synchronized V get(final long timeout, final TimeUnit unit)
+			throws InterruptedException, ExecutionException, TimeoutException {
+		final long deadline = System.nanoTime() + unit.toNanos(timeout);
+		while (state == State.PENDING) {
+			final long remaining = deadline - System.nanoTime();
+			if (remaining <= 0) {
+				throw new TimeoutException();
+			}
+			TimeUnit.NANOSECONDS.timedWait(this, remaining);
+		}
+		return getValue();
+	}
+
+	/**
+	 * Completes the future successfully, unless it is already done.
+	 *
+	 * @param value the value of the future.
+	 * @return <tt>true</tt> if the future was completed by this call.
+	 */
+	protected boolean set(final V value) {
+		return complete(State.SUCCEEDED, value, null);
+	}
+
+	/**
+	 * Fails the future, unless it is already done.
+	 *
+	 * @param cause the cause of the failure.
+	 * @return <tt>true</tt> if the future was completed by this call.
+	 */
+	protected boolean setException(final Throwable cause) {
+		return complete(State.FAILED, null, cause);
+	}
+
+	private boolean complete(final State state, final V value, final Throwable failure) {
+		final List<FixtureCallback<? super V>> callbacks;
+		synchronized (this) {
+			if (this.state != State.PENDING) {
+				return false;
+			}
+			this.state = state;
+			this.value = value;
+			this.failure = failure;
+			callbacks = this.callbacks;
+			this.callbacks = null;
+			notifyAll();
+		}
+		for (final FixtureCallback<? super V> callback : callbacks) {
+			call(callback);
+		}
+		return true;
+	}
+
+	private void call(final FixtureCallback<? super V> callback) {
+		final State state;
+		synchronized (this) {
+			state = this.state;
+		}
+		if (state == State.SUCCEEDED) {
+			callback.onSuccess(value);
+		}
+		else {
+			callback.onFailure(state == State.CANCELLED ? new CancellationException() : failure);
+		}
+	}
+
+	private V getValue() throws ExecutionException {
+		if (state == State.CANCELLED) {
+			throw new CancellationException();
+		}
+		if (state == State.FAILED) {
+			throw new ExecutionException(failure);
+		}
+		return value;
+	}
+}
@@ -0,0 +1,49 @@
+/* Copyright 2014 Extesla Digital Entertainment, Ltd. All rights reserved.
+ *
+ * Licensed under the MIT License (http://opensource.org/licenses/MIT)
+ *
+ * Permission is hereby granted, free of charge, to any
+ * person obtaining a copy of this software and associated
+ * documentation files (the "Software"), to deal in the
+ * Software without restriction, including without limitation
+ * the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software,
+ * and to permit persons to whom the Software is furnished
+ * to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice
+ * shall be included in all copies or substantial portions of
+ * the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY
+ * KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE
+ * WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR
+ * PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS
+ * OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR
+ * OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT
+ * OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE
+ * SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package com.extesla.fixtures.async;
+
+/**
+ * A source of items that are delivered to a {@link Subscriber} only as fast
+ * as it requests them. The interfaces of this package have the methods and
+ * contract of the Reactive Streams interfaces, and of their
+ * <tt>java.util.concurrent.Flow</tt> counterparts, so they can be adapted
+ * with a few lines to either.
+ *
+ * @author Sean.Quinn
+ * @since  1.0
+ */
+public interface Publisher<T> {
+
+	/**
+	 * Subscribes to the items of the publisher. The subscriber is passed a
+	 * {@link Subscription} through {@link Subscriber#onSubscribe(Subscription)}
+	 * before anything else.
+	 *
+	 * @param subscriber the {@code Subscriber}.
+	 */
+	void subscribe(Subscriber<? super T> subscriber);
+}
@@ -0,0 +1,67 @@
+/* Copyright 2014 Extesla Digital Entertainment, Ltd. All rights reserved.
+ *
+ * Licensed under the MIT License (http://opensource.org/licenses/MIT)
+ *
+ * Permission is hereby granted, free of charge, to any
+ * person obtaining a copy of this software and associated
+ * documentation files (the "Software"), to deal in the
+ * Software without restriction, including without limitation
+ * the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software,
+ * and to permit persons to whom the Software is furnished
+ * to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice
+ * shall be included in all copies or substantial portions of
+ * the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY
+ * KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE
+ * WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR
+ * PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS
+ * OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR
+ * OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT
+ * OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE
+ * SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package com.extesla.fixtures.async;
+
+/**
+ * Receives the items of a {@link Publisher}. The methods are called one at
+ * a time, never concurrently, and {@link #onNext(Object)} is only called as
+ * many times as the subscriber has requested through its
+ * {@link Subscription}.
+ *
+ * @author Sean.Quinn
+ * @since  1.0
+ */
+public interface Subscriber<T> {
+
+	/**
+	 * Called once, before any other method, with the subscription through
+	 * which items are requested.
+	 *
+	 * @param subscription the {@code Subscription}.
+	 */
+	void onSubscribe(Subscription subscription);
+
+	/**
+	 * Called with the next item.
+	 *
+	 * @param item the item.
+	 */
+	void onNext(T item);
+
+	/**
+	 * Called once, when the publisher has failed; nothing is called after.
+	 *
+	 * @param cause the cause of the failure.
+	 */
+	void onError(Throwable cause);
+
+	/**
+	 * Called once, when the publisher has no more items; nothing is called
+	 * after.
+	 */
+	void onComplete();
+}
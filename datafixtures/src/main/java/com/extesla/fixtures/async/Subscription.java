@@ -24,29 +24,26 @@
  * OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE
  * SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
  */
-package com.extesla.fixtures.annotations;
-
-import java.lang.annotation.ElementType;
-import java.lang.annotation.Retention;
-import java.lang.annotation.RetentionPolicy;
-import java.lang.annotation.Target;
+package com.extesla.fixtures.async;
 
 /**
+ * The link between a {@link Publisher} and one of its {@link Subscriber}s.
  *
  * @author Sean.Quinn
  * @since  1.0
  */
-@Target(ElementType.FIELD)
-@Retention(RetentionPolicy.RUNTIME)
-public @interface FixtureReference {
+public interface Subscription {
 
 	/**
-	 * The name of the cache entry to lookup.
+	 * Requests more items. Requests add up; a request that is not positive
+	 * fails the subscription.
+	 *
+	 * @param n the number of items requested.
 	 */
-	String value();
+	void request(long n);
 
 	/**
-	 * The fixture type that the cache entry should be located in.
+	 * Stops the delivery of items. Items may still be delivered for a while.
 	 */
-	Class<?> type();
+	void cancel();
 }
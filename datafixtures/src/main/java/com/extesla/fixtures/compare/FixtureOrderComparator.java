@@ -31,10 +31,13 @@ import java.util.Comparator;
 import com.extesla.fixtures.annotations.Fixture;
 
 /**
+ * Compares fixtures by their {@link Fixture#order()} alone.
  *
  * @author Sean.Quinn
- *
+ * @deprecated the order alone does not respect the dependencies of the
+ * 		fixtures; use {@link com.extesla.fixtures.graph.FixtureScheduler}.
  */
+@Deprecated
 public class FixtureOrderComparator implements Comparator<Class<?>>{
 
 	@Override
@@ -0,0 +1,87 @@
+/* Copyright 2014 Extesla Digital Entertainment, Ltd. All rights reserved.
+ *
+ * Licensed under the MIT License (http://opensource.org/licenses/MIT)
+ *
+ * Permission is hereby granted, free of charge, to any
+ * person obtaining a copy of this software and associated
+ * documentation files (the "Software"), to deal in the
+ * Software without restriction, including without limitation
+ * the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software,
+ * and to permit persons to whom the Software is furnished
+ * to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice
+ * shall be included in all copies or substantial portions of
+ * the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY
+ * KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE
+ * WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR
+ * PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS
+ * OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR
+ * OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT
+ * OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE
+ * SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package com.extesla.fixtures.exceptions;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Thrown when one or more fixtures of a parallel run have failed. Fixtures
+ * depending on a failed fixture are cancelled rather than run.
+ *
+ * @author Sean.Quinn
+ * @since  1.0
+ */
+public class FixtureExecutionException extends RuntimeException {
+
+	/** Serial version UID. */
+	private static final long serialVersionUID = -2739841960251893017L;
+
+	private final Map<Class<?>, Throwable> failures;
+
+	private final Set<Class<?>> cancelled;
+
+	public FixtureExecutionException(final Map<Class<?>, Throwable> failures, final Set<Class<?>> cancelled) {
+		super(buildMessage(failures, cancelled), failures.isEmpty() ? null : failures.values().iterator().next());
+		this.failures = Collections.unmodifiableMap(new LinkedHashMap<Class<?>, Throwable>(failures));
+		this.cancelled = Collections.unmodifiableSet(new LinkedHashSet<Class<?>>(cancelled));
+	}
+
+	/**
+	 * Returns the fixtures that failed, along with the cause of each failure.
+	 * @return the failed fixtures.
+	 */
+	public Map<Class<?>, Throwable> getFailures() {
+		return failures;
+	}
+
+	/**
+	 * Returns the fixtures that were not run because a fixture they depend on
+	 * has failed.
+	 * @return the cancelled fixtures.
+	 */
+	public Set<Class<?>> getCancelled() {
+		return cancelled;
+	}
+
+	private static String buildMessage(final Map<Class<?>, Throwable> failures, final Set<Class<?>> cancelled) {
+		final StringBuilder builder = new StringBuilder();
+		builder.append(failures.size()).append(" fixture(s) failed: ");
+		boolean first = true;
+		for (final Class<?> fixture : failures.keySet()) {
+			builder.append(first ? "" : ", ").append(fixture.getName());
+			first = false;
+		}
+		if (!cancelled.isEmpty()) {
+			builder.append("; ").append(cancelled.size()).append(" dependent fixture(s) cancelled");
+		}
+		return builder.toString();
+	}
+}
@@ -0,0 +1,66 @@
+/* Copyright 2014 Extesla Digital Entertainment, Ltd. All rights reserved.
+ *
+ * Licensed under the MIT License (http://opensource.org/licenses/MIT)
+ *
+ * Permission is hereby granted, free of charge, to any
+ * person obtaining a copy of this software and associated
+ * documentation files (the "Software"), to deal in the
+ * Software without restriction, including without limitation
+ * the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software,
+ * and to permit persons to whom the Software is furnished
+ * to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice
+ * shall be included in all copies or substantial portions of
+ * the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY
+ * KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE
+ * WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR
+ * PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS
+ * OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR
+ * OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT
+ * OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE
+ * SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package com.extesla.fixtures.exceptions;
+
+/**
+ * Thrown when a fixture refers to a reference that the referenced fixture
+ * has not registered.
+ *
+ * @author Sean.Quinn
+ * @since  1.0
+ */
+public class MissingReferenceException extends RuntimeException {
+
+	/** Serial version UID. */
+	private static final long serialVersionUID = 3216597385460738210L;
+
+	private final Class<?> fixture;
+
+	private final String name;
+
+	public MissingReferenceException(final Class<?> fixture, final String name, final String message) {
+		super(message);
+		this.fixture = fixture;
+		this.name = name;
+	}
+
+	/**
+	 * Returns the fixture the reference was looked up in.
+	 * @return the fixture {@code Class}.
+	 */
+	public Class<?> getFixture() {
+		return fixture;
+	}
+
+	/**
+	 * Returns the name of the missing reference.
+	 * @return the reference name.
+	 */
+	public String getName() {
+		return name;
+	}
+}
@@ -0,0 +1,76 @@
+/* Copyright 2014 Extesla Digital Entertainment, Ltd. All rights reserved.
+ *
+ * Licensed under the MIT License (http://opensource.org/licenses/MIT)
+ *
+ * Permission is hereby granted, free of charge, to any
+ * person obtaining a copy of this software and associated
+ * documentation files (the "Software"), to deal in the
+ * Software without restriction, including without limitation
+ * the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software,
+ * and to permit persons to whom the Software is furnished
+ * to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice
+ * shall be included in all copies or substantial portions of
+ * the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY
+ * KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE
+ * WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR
+ * PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS
+ * OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR
+ * OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT
+ * OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE
+ * SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package com.extesla.fixtures.exceptions;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Thrown when fixtures depend on each other in a cycle, so that none of
+ * them can be generated first.
+ *
+ * @author Sean.Quinn
+ *
+ */
+public class RecursiveDependencyException extends RuntimeException {
+
+	/** Serial version UID. */
+	private static final long serialVersionUID = 7750475120634565236L;
+
+	private final List<Class<?>> cycle;
+
+	public RecursiveDependencyException() {
+		this.cycle = Collections.emptyList();
+	}
+
+	/**
+	 * @param cycle the fixtures of the cycle, starting and ending with the
+	 * 		same fixture; each fixture depends on the next.
+	 */
+	public RecursiveDependencyException(final List<Class<?>> cycle) {
+		super(buildMessage(cycle));
+		this.cycle = Collections.unmodifiableList(new ArrayList<Class<?>>(cycle));
+	}
+
+	/**
+	 * Returns the fixtures of the cycle, starting and ending with the same
+	 * fixture, each depending on the next; empty if the cycle is unknown.
+	 * @return the cycle.
+	 */
+	public List<Class<?>> getCycle() {
+		return cycle;
+	}
+
+	private static String buildMessage(final List<Class<?>> cycle) {
+		final StringBuilder builder = new StringBuilder("The fixtures depend on each other: ");
+		for (int i = 0; i < cycle.size(); i++) {
+			builder.append(i > 0 ? " -> " : "").append(cycle.get(i).getName());
+		}
+		return builder.toString();
+	}
+}
@@ -0,0 +1,71 @@
+/* Copyright 2014 Extesla Digital Entertainment, Ltd. All rights reserved.
+ *
+ * Licensed under the MIT License (http://opensource.org/licenses/MIT)
+ *
+ * Permission is hereby granted, free of charge, to any
+ * person obtaining a copy of this software and associated
+ * documentation files (the "Software"), to deal in the
+ * Software without restriction, including without limitation
+ * the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software,
+ * and to permit persons to whom the Software is furnished
+ * to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice
+ * shall be included in all copies or substantial portions of
+ * the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY
+ * KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE
+ * WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR
+ * PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS
+ * OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR
+ * OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT
+ * OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE
+ * SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package com.extesla.fixtures.exceptions;
+
+/**
+ * Thrown when a sharded run cannot obtain the result of a fixture generated
+ * by another shard, because that shard failed or did not publish it in time.
+ *
+ * @author Sean.Quinn
+ * @since  1.0
+ */
+public class ShardException extends RuntimeException {
+
+	/** Serial version UID. */
+	private static final long serialVersionUID = -4127793061534980215L;
+
+	private final Class<?> fixture;
+
+	private final int shard;
+
+	public ShardException(final Class<?> fixture, final int shard, final String message) {
+		this(fixture, shard, message, null);
+	}
+
+	public ShardException(final Class<?> fixture, final int shard, final String message, final Throwable cause) {
+		super(message, cause);
+		this.fixture = fixture;
+		this.shard = shard;
+	}
+
+	/**
+	 * Returns the fixture that could not be obtained.
+	 * @return the fixture {@code Class}, or <tt>null</tt> if it was the
+	 * 		assignment of the fixtures that could not be obtained.
+	 */
+	public Class<?> getFixture() {
+		return fixture;
+	}
+
+	/**
+	 * Returns the index of the shard that was to publish the fixture.
+	 * @return the shard index.
+	 */
+	public int getShard() {
+		return shard;
+	}
+}
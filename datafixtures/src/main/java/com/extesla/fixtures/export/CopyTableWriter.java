@@ -0,0 +1,242 @@
+/* Copyright 2014 Extesla Digital Entertainment, Ltd. All rights reserved.
+ *
+ * Licensed under the MIT License (http://opensource.org/licenses/MIT)
+ *
+ * Permission is hereby granted, free of charge, to any
+ * person obtaining a copy of this software and associated
+ * documentation files (the "Software"), to deal in the
+ * Software without restriction, including without limitation
+ * the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software,
+ * and to permit persons to whom the Software is furnished
+ * to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice
+ * shall be included in all copies or substantial portions of
+ * the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY
+ * KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE
+ * WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR
+ * PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS
+ * OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR
+ * OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT
+ * OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE
+ * SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package com.extesla.fixtures.export;
+
+import java.io.File;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.sql.Timestamp;
+import java.util.Date;
+import java.util.TimeZone;
+import java.util.UUID;
+
+/**
+ * Writes rows in PostgreSQL's binary <tt>COPY</tt> format, loaded with
+ * <tt>COPY ... FROM ... (FORMAT binary)</tt>. The binary format carries no
+ * type information, so every value must be of the Java type matching its
+ * column:
+ *
+ * <ul>
+ * <li>{@code Short}, {@code Byte}: <tt>smallint</tt></li>
+ * <li>{@code Integer}: <tt>integer</tt></li>
+ * <li>{@code Long}: <tt>bigint</tt></li>
+ * <li>{@code Float}, {@code Double}: <tt>real</tt>, <tt>double precision</tt></li>
+ * <li>{@code BigDecimal}, {@code BigInteger}: <tt>numeric</tt></li>
+ * <li>{@code Boolean}: <tt>boolean</tt></li>
+ * <li>{@code String}, {@code Character}, an {@code Enum}'s name: <tt>text</tt>
+ * or <tt>varchar</tt></li>
+ * <li>{@code byte[]}: <tt>bytea</tt></li>
+ * <li>{@code UUID}: <tt>uuid</tt></li>
+ * <li>{@code java.sql.Date}: <tt>date</tt></li>
+ * <li>{@code java.sql.Time}: <tt>time</tt></li>
+ * <li>any other {@code Date}: <tt>timestamp</tt>, in the default time zone
+ * as JDBC would bind it</li>
+ * </ul>
+ *
+ * @author Sean.Quinn
+ * @since  1.0
+ */
+class CopyTableWriter extends TableWriter {
+
+	private static final byte[] SIGNATURE = { 'P', 'G', 'C', 'O', 'P', 'Y', '\n', (byte) 0xFF, '\r', '\n', 0 };
+
+	/**
+	 * The PostgreSQL epoch, 2000-01-01, in days and seconds since 1970-01-01.
+	 */
+	private static final long EPOCH_DAYS = 10957;
+
+	private static final long EPOCH_SECONDS = EPOCH_DAYS * 86400;
+
+	private static final BigInteger TEN_THOUSAND = BigInteger.valueOf(10000);
+
+	private final TimeZone zone = TimeZone.getDefault();
+
+	CopyTableWriter(final File file, final String table, final String[] columns, final int bufferSize)
+			throws IOException {
+		super(file, table, columns, bufferSize);
+	}
+
+	@Override
+	protected void writeHeader() throws IOException {
+		ensure(SIGNATURE.length + 8);
+		buffer.put(SIGNATURE);
+		buffer.putInt(0); // flags
+		buffer.putInt(0); // header extension length
+	}
+
+	@Override
+	protected void writeRow(final Object[] row) throws IOException {
+		ensure(2);
+		buffer.putShort((short) row.length);
+		for (int i = 0; i < row.length; i++) {
+			writeValue(i, row[i]);
+		}
+	}
+
+	@Override
+	protected void writeTrailer() throws IOException {
+		ensure(2);
+		buffer.putShort((short) -1);
+	}
+
+	private void writeValue(final int column, final Object value) throws IOException {
+		if (value == null) {
+			ensure(4);
+			buffer.putInt(-1);
+		}
+		else if (value instanceof Integer) {
+			ensure(8);
+			buffer.putInt(4).putInt((Integer) value);
+		}
+		else if (value instanceof Long) {
+			ensure(12);
+			buffer.putInt(8).putLong((Long) value);
+		}
+		else if (value instanceof Short || value instanceof Byte) {
+			ensure(6);
+			buffer.putInt(2).putShort(((Number) value).shortValue());
+		}
+		else if (value instanceof Double) {
+			ensure(12);
+			buffer.putInt(8).putDouble((Double) value);
+		}
+		else if (value instanceof Float) {
+			ensure(8);
+			buffer.putInt(4).putFloat((Float) value);
+		}
+		else if (value instanceof Boolean) {
+			ensure(5);
+			buffer.putInt(1).put((byte) ((Boolean) value ? 1 : 0));
+		}
+		else if (value instanceof String || value instanceof Character) {
+			writeBytes(value.toString().getBytes(ExportFormat.UTF_8));
+		}
+		else if (value instanceof Enum) {
+			writeBytes(((Enum<?>) value).name().getBytes(ExportFormat.UTF_8));
+		}
+		else if (value instanceof byte[]) {
+			writeBytes((byte[]) value);
+		}
+		else if (value instanceof UUID) {
+			ensure(20);
+			buffer.putInt(16)
+					.putLong(((UUID) value).getMostSignificantBits())
+					.putLong(((UUID) value).getLeastSignificantBits());
+		}
+		else if (value instanceof BigDecimal) {
+			writeNumeric((BigDecimal) value);
+		}
+		else if (value instanceof BigInteger) {
+			writeNumeric(new BigDecimal((BigInteger) value));
+		}
+		else if (value instanceof java.sql.Date) {
+			final long days = floorDiv(toLocalMillis(((Date) value).getTime()), 86400000L);
+			ensure(8);
+			buffer.putInt(4).putInt((int) (days - EPOCH_DAYS));
+		}
+		else if (value instanceof java.sql.Time) {
+			final long millis = toLocalMillis(((Date) value).getTime());
+			ensure(12);
+			buffer.putInt(8).putLong((millis - floorDiv(millis, 86400000L) * 86400000L) * 1000L);
+		}
+		else if (value instanceof Date) {
+			final long millis = toLocalMillis(((Date) value).getTime());
+			final long seconds = floorDiv(millis, 1000);
+			final long micros = value instanceof Timestamp
+					? ((Timestamp) value).getNanos() / 1000
+					: (millis - seconds * 1000) * 1000;
+			ensure(12);
+			buffer.putInt(8).putLong((seconds - EPOCH_SECONDS) * 1000000L + micros);
+		}
+		else {
+			throw new IllegalArgumentException("Column " + getColumns()[column] + " of " + getTable()
+					+ " has a value of type " + value.getClass().getName()
+					+ ", which the binary COPY format does not support; map it to a supported type.");
+		}
+	}
+
+	private void writeBytes(final byte[] bytes) throws IOException {
+		ensure(4);
+		buffer.putInt(bytes.length);
+		put(bytes);
+	}
+
+	/**
+	 * Writes a <tt>numeric</tt>: its base 10000 digits, the weight of the
+	 * first digit, the sign and the display scale.
+	 */
+	private void writeNumeric(final BigDecimal value) throws IOException {
+		BigDecimal abs = value.abs();
+		if (abs.scale() < 0) {
+			abs = abs.setScale(0);
+		}
+		final int scale = abs.scale();
+
+		// ** Align the fraction to whole base 10000 digits.
+		final int padding = (4 - scale % 4) % 4;
+		BigInteger unscaled = abs.unscaledValue().multiply(BigInteger.TEN.pow(padding));
+		final short[] digits = new short[unscaled.toString().length() / 4 + 1];
+		int count = 0;
+		while (unscaled.signum() > 0) {
+			final BigInteger[] division = unscaled.divideAndRemainder(TEN_THOUSAND);
+			digits[count++] = division[1].shortValue();
+			unscaled = division[0];
+		}
+
+		// ** The digits are least significant first; skip the trailing zeros.
+		int lowest = 0;
+		while (lowest < count && digits[lowest] == 0) {
+			lowest++;
+		}
+		final int ndigits = count - lowest;
+		final int weight = ndigits == 0 ? 0 : count - 1 - (scale + padding) / 4;
+
+		ensure(12 + ndigits * 2);
+		buffer.putInt(8 + ndigits * 2)
+				.putShort((short) ndigits)
+				.putShort((short) weight)
+				.putShort((short) (value.signum() < 0 ? 0x4000 : 0))
+				.putShort((short) scale);
+		for (int i = count - 1; i >= lowest; i--) {
+			buffer.putShort(digits[i]);
+		}
+	}
+
+	/**
+	 * Shifts the instant to the wall-clock time of the default time zone, as
+	 * if that were UTC.
+	 */
+	private long toLocalMillis(final long millis) {
+		return millis + zone.getOffset(millis);
+	}
+
+	private static long floorDiv(final long x, final long y) {
+		final long q = x / y;
+		return (x % y != 0 && (x ^ y) < 0) ? q - 1 : q;
+	}
+}
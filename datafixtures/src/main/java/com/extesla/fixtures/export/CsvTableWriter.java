@@ -0,0 +1,153 @@
+/* Copyright 2014 Extesla Digital Entertainment, Ltd. All rights reserved.
+ *
+ * Licensed under the MIT License (http://opensource.org/licenses/MIT)
+ *
+ * Permission is hereby granted, free of charge, to any
+ * person obtaining a copy of this software and associated
+ * documentation files (the "Software"), to deal in the
+ * Software without restriction, including without limitation
+ * the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software,
+ * and to permit persons to whom the Software is furnished
+ * to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice
+ * shall be included in all copies or substantial portions of
+ * the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY
+ * KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE
+ * WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR
+ * PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS
+ * OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR
+ * OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT
+ * OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE
+ * SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package com.extesla.fixtures.export;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.CharBuffer;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CoderResult;
+import java.sql.Timestamp;
+import java.util.Date;
+
+/**
+ * Writes rows as RFC 4180 CSV, in UTF-8, with a header line of the column
+ * names. A <tt>null</tt> is written as an empty, unquoted field and an empty
+ * string as <tt>""</tt>, as PostgreSQL's <tt>COPY ... (FORMAT csv)</tt> and
+ * most other loaders tell them apart. Dates are written in the JDBC escape
+ * format, in the default time zone; byte arrays in PostgreSQL's hex format.
+ *
+ * @author Sean.Quinn
+ * @since  1.0
+ */
+class CsvTableWriter extends TableWriter {
+
+	private static final char[] HEX = "0123456789abcdef".toCharArray();
+
+	private final CharsetEncoder encoder = ExportFormat.UTF_8.newEncoder();
+
+	private final StringBuilder line = new StringBuilder(256);
+
+	CsvTableWriter(final File file, final String table, final String[] columns, final int bufferSize)
+			throws IOException {
+		super(file, table, columns, bufferSize);
+	}
+
+	@Override
+	protected void writeHeader() throws IOException {
+		writeLine(getColumns());
+	}
+
+	@Override
+	protected void writeRow(final Object[] row) throws IOException {
+		writeLine(row);
+	}
+
+	private void writeLine(final Object[] values) throws IOException {
+		line.setLength(0);
+		for (int i = 0; i < values.length; i++) {
+			if (i > 0) {
+				line.append(',');
+			}
+			append(values[i]);
+		}
+		line.append('\n');
+		encode(line);
+	}
+
+	private void append(final Object value) {
+		if (value == null) {
+			return;
+		}
+
+		final String text;
+		if (value instanceof Date && !(value instanceof java.sql.Date || value instanceof java.sql.Time
+				|| value instanceof Timestamp)) {
+			text = new Timestamp(((Date) value).getTime()).toString();
+		}
+		else if (value instanceof Enum) {
+			text = ((Enum<?>) value).name();
+		}
+		else if (value instanceof byte[]) {
+			final byte[] bytes = (byte[]) value;
+			line.append("\\x");
+			for (final byte b : bytes) {
+				line.append(HEX[(b >> 4) & 0xF]).append(HEX[b & 0xF]);
+			}
+			return;
+		}
+		else {
+			text = value.toString();
+		}
+
+		if (!needsQuotes(text)) {
+			line.append(text);
+			return;
+		}
+		line.append('"');
+		for (int i = 0; i < text.length(); i++) {
+			final char c = text.charAt(i);
+			if (c == '"') {
+				line.append('"');
+			}
+			line.append(c);
+		}
+		line.append('"');
+	}
+
+	private static boolean needsQuotes(final String text) {
+		if (text.length() == 0) {
+			return true;
+		}
+		for (int i = 0; i < text.length(); i++) {
+			final char c = text.charAt(i);
+			if (c == ',' || c == '"' || c == '\n' || c == '\r') {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Encodes the characters straight into the buffer, writing it out as
+	 * often as it fills.
+	 */
+	private void encode(final CharSequence text) throws IOException {
+		final CharBuffer chars = CharBuffer.wrap(text);
+		encoder.reset();
+		CoderResult result;
+		while ((result = encoder.encode(chars, buffer, true)).isOverflow()) {
+			drain();
+		}
+		if (result.isError()) {
+			result.throwException();
+		}
+		while (encoder.flush(buffer).isOverflow()) {
+			drain();
+		}
+	}
+}
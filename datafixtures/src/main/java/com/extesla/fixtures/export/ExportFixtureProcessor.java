@@ -0,0 +1,436 @@
+/* Copyright 2014 Extesla Digital Entertainment, Ltd. All rights reserved.
+ *
+ * Licensed under the MIT License (http://opensource.org/licenses/MIT)
+ *
+ * Permission is hereby granted, free of charge, to any
+ * person obtaining a copy of this software and associated
+ * documentation files (the "Software"), to deal in the
+ * Software without restriction, including without limitation
+ * the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software,
+ * and to permit persons to whom the Software is furnished
+ * to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice
+ * shall be included in all copies or substantial portions of
+ * the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY
+ * KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE
+ * WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR
+ * PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS
+ * OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR
+ * OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT
+ * OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE
+ * SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package com.extesla.fixtures.export;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import com.extesla.fixtures.AbstractFixtureProcessor;
+import com.extesla.fixtures.exceptions.FixturePersistenceException;
+import com.extesla.fixtures.persist.RowMapper;
+import com.extesla.fixtures.persist.RowMappers;
+
+/**
+ * A fixture processor that writes the generated entities to load files for
+ * a database's bulk loader instead of inserting them: one file per fixture
+ * and table, <tt>&lt;fixture&gt;.&lt;table&gt;.csv</tt> or
+ * <tt>&lt;fixture&gt;.&lt;table&gt;.bin</tt>, mapped by the
+ * {@link RowMapper} registered for each entity type.
+ *
+ * Once a run completes, a <tt>manifest.txt</tt> lists the files in the order
+ * to load them, one line per file of tab separated fields:
+ *
+ * <pre>
+ * # format=csv
+ * com.example.UserFixture.users.csv	users	1000	id,name,created	com.example.UserFixture
+ * com.example.OrderFixture.orders.csv	orders	25000	id,user_id,total	com.example.OrderFixture
+ * </pre>
+ *
+ * i.e. the file, the table, the number of rows, the columns and the
+ * fixture. The files are listed by fixture, in the order handed to
+ * {@link #persistenceStarted(List, Set)}, so a table is listed after the
+ * tables of the fixtures it depends on; the files of a fixture are listed in
+ * the order their first rows were written.
+ *
+ * Since every fixture has files of its own, the fixtures skipped by an
+ * incremental or resumed run keep the files of the run that generated them,
+ * and stay in the manifest; the files of every other fixture of the run are
+ * deleted when it starts. A run that fails writes a
+ * <tt>manifest.partial</tt> instead, which the next run reads to find the
+ * files of the fixtures it skips; no <tt>manifest.txt</tt> is left until a
+ * run completes.
+ *
+ * @author Sean.Quinn
+ * @since  1.0
+ */
+public class ExportFixtureProcessor extends AbstractFixtureProcessor {
+
+	/**
+	 * The name of the manifest file.
+	 */
+	public static final String MANIFEST = "manifest.txt";
+
+	/**
+	 * The name of the manifest of a failed run.
+	 */
+	public static final String PARTIAL_MANIFEST = "manifest.partial";
+
+	/**
+	 * The default number of entities written per batch.
+	 */
+	public static final int DEFAULT_BATCH_SIZE = 5000;
+
+	private final File directory;
+
+	private final ExportFormat format;
+
+	private final RowMappers mappers = new RowMappers();
+
+	/**
+	 * The writers of this run by fixture and table, in the order their first
+	 * rows were written.
+	 */
+	private final Map<Class<?>, Map<String, TableWriter>> writers
+			= new LinkedHashMap<Class<?>, Map<String, TableWriter>>();
+
+	/**
+	 * The fixtures of this run, in the order to load them.
+	 */
+	private List<Class<?>> fixtures = Collections.emptyList();
+
+	/**
+	 * The manifest lines of the files of the fixtures skipped by this run,
+	 * by fixture name.
+	 */
+	private Map<String, List<String[]>> skippedFiles = Collections.emptyMap();
+
+	private int bufferSize = 256 * 1024;
+
+	/**
+	 * @param packages the Java packages of the fixtures.
+	 * @param directory the directory of the load files.
+	 * @param format the format of the load files.
+	 */
+	public ExportFixtureProcessor(final String[] packages, final File directory, final ExportFormat format) {
+		super(packages);
+		this.directory = directory;
+		this.format = format;
+		setBatchSize(DEFAULT_BATCH_SIZE);
+	}
+
+	/**
+	 * Registers the mapper of the entity type, and of its subclasses unless
+	 * they have mappers of their own.
+	 *
+	 * @param type the entity {@code Class}.
+	 * @param mapper the {@code RowMapper}.
+	 */
+	public <T> void register(final Class<T> type, final RowMapper<? super T> mapper) {
+		mappers.register(type, mapper);
+	}
+
+	/**
+	 * Sets the size of the buffer of each load file. Defaults to 256 KiB.
+	 *
+	 * @param bufferSize the buffer size, in bytes; at least 1 KiB.
+	 */
+	public void setBufferSize(final int bufferSize) {
+		if (bufferSize < 1024) {
+			throw new IllegalArgumentException("The buffer size must be at least 1024 bytes, was: " + bufferSize);
+		}
+		this.bufferSize = bufferSize;
+	}
+
+	/**
+	 * Appends the entities of the batch to the files of their fixtures and
+	 * tables.
+	 *
+	 * @throws FixturePersistenceException if a file cannot be written.
+	 */
+	@Override
+	protected void persistBatch(final List<?> batch, final List<Class<?>> fixtures) {
+		try {
+			int start = 0;
+			while (start < batch.size()) {
+				final RowMapper<Object> mapper = mappers.get(batch.get(start).getClass());
+				final Class<?> fixture = fixtures.get(start);
+				int end = start + 1;
+				while (end < batch.size() && fixtures.get(end) == fixture
+						&& mappers.get(batch.get(end).getClass()) == mapper) {
+					end++;
+				}
+				write(mapper, fixture, batch.subList(start, end));
+				start = end;
+			}
+		}
+		catch (final IOException ex) {
+			throw new FixturePersistenceException("Unable to export a batch of " + batch.size() + " entities.", ex);
+		}
+	}
+
+	/**
+	 * Writes a run of entities of the same type and fixture. With pipelined
+	 * persistence, batches are written concurrently, the rows of each run
+	 * together.
+	 */
+	private void write(final RowMapper<Object> mapper, final Class<?> fixture, final List<?> entities)
+			throws IOException {
+		final TableWriter writer = getWriter(mapper, fixture);
+		synchronized (writer) {
+			final Object[] row = new Object[writer.getColumns().length];
+			for (final Object entity : entities) {
+				Arrays.fill(row, null);
+				mapper.map(entity, row);
+				writer.write(row);
+			}
+		}
+	}
+
+	private TableWriter getWriter(final RowMapper<Object> mapper, final Class<?> fixture) throws IOException {
+		final String table = mapper.getTable();
+		synchronized (writers) {
+			Map<String, TableWriter> tables = writers.get(fixture);
+			if (tables == null) {
+				tables = new LinkedHashMap<String, TableWriter>();
+				writers.put(fixture, tables);
+			}
+
+			TableWriter writer = tables.get(table);
+			if (writer == null) {
+				final File file = new File(directory, fixture.getName() + "." + table + "." + format.getExtension());
+				writer = format.createWriter(file, table, mapper.getColumns(), bufferSize);
+				tables.put(table, writer);
+				writer.writeHeader();
+			}
+			else if (!Arrays.equals(writer.getColumns(), mapper.getColumns())) {
+				throw new IllegalArgumentException("The mappers of the table " + table
+						+ " have different columns: " + Arrays.toString(writer.getColumns()) + " and "
+						+ Arrays.toString(mapper.getColumns()));
+			}
+			return writer;
+		}
+	}
+
+	/**
+	 * Prepares the directory for the files of a new run: keeps the files of
+	 * the skipped fixtures, as listed by the manifest of the previous run,
+	 * and deletes those of the fixtures to generate again.
+	 *
+	 * @throws FixturePersistenceException if the directory cannot be
+	 * 		prepared.
+	 */
+	@Override
+	protected void persistenceStarted(final List<Class<?>> fixtures, final Set<Class<?>> skipped) {
+		try {
+			if (!directory.isDirectory() && !directory.mkdirs()) {
+				throw new IOException("Unable to create the directory: " + directory);
+			}
+
+			final Map<String, List<String[]>> previous = readManifest();
+			final Map<String, List<String[]>> kept = new LinkedHashMap<String, List<String[]>>();
+			for (final Class<?> fixture : fixtures) {
+				final List<String[]> files = previous.get(fixture.getName());
+				if (files == null) {
+					continue;
+				}
+				if (skipped.contains(fixture)) {
+					kept.put(fixture.getName(), files);
+					continue;
+				}
+				for (final String[] file : files) {
+					delete(new File(directory, file[0]));
+				}
+			}
+
+			// ** Record the files kept before the first row is written, should the run not get to the end.
+			final List<String[]> lines = new ArrayList<String[]>();
+			for (final List<String[]> files : kept.values()) {
+				lines.addAll(files);
+			}
+			writeManifest(PARTIAL_MANIFEST, lines);
+			delete(new File(directory, MANIFEST));
+
+			this.fixtures = fixtures;
+			this.skippedFiles = kept;
+		}
+		catch (final IOException ex) {
+			throw new FixturePersistenceException("Unable to start the export to: " + directory, ex);
+		}
+	}
+
+	/**
+	 * Closes the files of the run and writes the manifest or, if the run
+	 * failed, the partial manifest.
+	 *
+	 * @throws FixturePersistenceException if a file cannot be written.
+	 */
+	@Override
+	protected void persistenceFinished(final boolean completed) {
+		final Map<Class<?>, Map<String, TableWriter>> closing;
+		synchronized (writers) {
+			closing = new LinkedHashMap<Class<?>, Map<String, TableWriter>>(writers);
+			writers.clear();
+		}
+
+		IOException failure = null;
+		for (final Map<String, TableWriter> tables : closing.values()) {
+			for (final TableWriter writer : tables.values()) {
+				try {
+					writer.close();
+				}
+				catch (final IOException ex) {
+					if (failure == null) {
+						failure = ex;
+					}
+				}
+			}
+		}
+
+		final List<String[]> lines = new ArrayList<String[]>();
+		for (final Class<?> fixture : fixtures) {
+			final Map<String, TableWriter> tables = closing.remove(fixture);
+			if (tables != null) {
+				addLines(lines, fixture, tables);
+			}
+			else if (skippedFiles.containsKey(fixture.getName())) {
+				lines.addAll(skippedFiles.get(fixture.getName()));
+			}
+		}
+		// ** Should a fixture have been generated outside of the run.
+		for (final Map.Entry<Class<?>, Map<String, TableWriter>> tables : closing.entrySet()) {
+			addLines(lines, tables.getKey(), tables.getValue());
+		}
+		fixtures = Collections.emptyList();
+		skippedFiles = Collections.emptyMap();
+
+		try {
+			if (failure != null) {
+				throw failure;
+			}
+			if (completed) {
+				writeManifest(MANIFEST, lines);
+				delete(new File(directory, PARTIAL_MANIFEST));
+			}
+			else {
+				writeManifest(PARTIAL_MANIFEST, lines);
+			}
+		}
+		catch (final IOException ex) {
+			throw new FixturePersistenceException("Unable to complete the export to: " + directory, ex);
+		}
+	}
+
+	private static void addLines(final List<String[]> lines, final Class<?> fixture,
+			final Map<String, TableWriter> tables) {
+		for (final TableWriter table : tables.values()) {
+			final StringBuilder columns = new StringBuilder();
+			for (final String column : table.getColumns()) {
+				columns.append(columns.length() > 0 ? "," : "").append(column);
+			}
+			lines.add(new String[] { table.getFile().getName(), table.getTable(), String.valueOf(table.getRows()),
+					columns.toString(), fixture.getName() });
+		}
+	}
+
+	/**
+	 * Reads the manifest of the previous run, the partial one if it failed.
+	 *
+	 * @return the lines of the manifest by fixture name; empty if there is
+	 * 		none.
+	 */
+	private Map<String, List<String[]>> readManifest() throws IOException {
+		File file = new File(directory, PARTIAL_MANIFEST);
+		if (!file.isFile()) {
+			file = new File(directory, MANIFEST);
+		}
+		final Map<String, List<String[]>> result = new HashMap<String, List<String[]>>();
+		if (!file.isFile()) {
+			return result;
+		}
+
+		final BufferedReader in = new BufferedReader(new InputStreamReader(new FileInputStream(file),
+				ExportFormat.UTF_8));
+		try {
+			String line;
+			while ((line = in.readLine()) != null) {
+				final String[] fields = line.split("\t", -1);
+				// ** Manifests written before the fixture was listed cannot be resumed.
+				if (line.startsWith("#") || fields.length < 5) {
+					continue;
+				}
+				List<String[]> files = result.get(fields[4]);
+				if (files == null) {
+					files = new ArrayList<String[]>();
+					result.put(fields[4], files);
+				}
+				files.add(fields);
+			}
+		}
+		finally {
+			in.close();
+		}
+		return result;
+	}
+
+	/**
+	 * Writes a manifest to a temporary file which is then renamed, so a
+	 * loader never sees part of it.
+	 */
+	private void writeManifest(final String name, final List<String[]> lines) throws IOException {
+		if (!directory.isDirectory() && !directory.mkdirs()) {
+			throw new IOException("Unable to create the directory: " + directory);
+		}
+		final File file = new File(directory, name);
+		final File temp = File.createTempFile(name, ".tmp", directory);
+		try {
+			final Writer out = new OutputStreamWriter(new FileOutputStream(temp), ExportFormat.UTF_8);
+			try {
+				out.write("# format=" + format.name().toLowerCase() + "\n");
+				for (final String[] line : lines) {
+					for (int i = 0; i < line.length; i++) {
+						out.write(i > 0 ? "\t" + line[i] : line[i]);
+					}
+					out.write("\n");
+				}
+			}
+			finally {
+				out.close();
+			}
+			if (!temp.renameTo(file)) {
+				// ** Some platforms won't rename over an existing file.
+				if (!file.delete() || !temp.renameTo(file)) {
+					throw new IOException("Unable to write the manifest: " + file);
+				}
+			}
+		}
+		finally {
+			if (temp.exists() && !temp.delete()) {
+				temp.deleteOnExit();
+			}
+		}
+	}
+
+	private static void delete(final File file) throws IOException {
+		if (file.exists() && !file.delete()) {
+			throw new IOException("Unable to delete: " + file);
+		}
+	}
+}
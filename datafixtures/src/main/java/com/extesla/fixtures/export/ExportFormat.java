@@ -0,0 +1,80 @@
+/* Copyright 2014 Extesla Digital Entertainment, Ltd. All rights reserved.
+ *
+ * Licensed under the MIT License (http://opensource.org/licenses/MIT)
+ *
+ * Permission is hereby granted, free of charge, to any
+ * person obtaining a copy of this software and associated
+ * documentation files (the "Software"), to deal in the
+ * Software without restriction, including without limitation
+ * the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software,
+ * and to permit persons to whom the Software is furnished
+ * to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice
+ * shall be included in all copies or substantial portions of
+ * the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY
+ * KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE
+ * WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR
+ * PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS
+ * OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR
+ * OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT
+ * OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE
+ * SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package com.extesla.fixtures.export;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.Charset;
+
+/**
+ * The formats of the load files written by the {@link ExportFixtureProcessor}.
+ *
+ * @author Sean.Quinn
+ * @since  1.0
+ */
+public enum ExportFormat {
+
+	/**
+	 * Comma separated values, with a header line; see {@link CsvTableWriter}.
+	 */
+	CSV("csv") {
+		@Override
+		TableWriter createWriter(final File file, final String table, final String[] columns, final int bufferSize)
+				throws IOException {
+			return new CsvTableWriter(file, table, columns, bufferSize);
+		}
+	},
+
+	/**
+	 * PostgreSQL's binary <tt>COPY</tt> format; see {@link CopyTableWriter}.
+	 */
+	BINARY("bin") {
+		@Override
+		TableWriter createWriter(final File file, final String table, final String[] columns, final int bufferSize)
+				throws IOException {
+			return new CopyTableWriter(file, table, columns, bufferSize);
+		}
+	};
+
+	static final Charset UTF_8 = Charset.forName("UTF-8");
+
+	private final String extension;
+
+	private ExportFormat(final String extension) {
+		this.extension = extension;
+	}
+
+	/**
+	 * @return the file name extension of the load files, without the dot.
+	 */
+	public String getExtension() {
+		return extension;
+	}
+
+	abstract TableWriter createWriter(final File file, final String table, final String[] columns,
+			final int bufferSize) throws IOException;
+}
@@ -0,0 +1,210 @@
+/* Copyright 2014 Extesla Digital Entertainment, Ltd. All rights reserved.
+ *
+ * Licensed under the MIT License (http://opensource.org/licenses/MIT)
+ *
+ * Permission is hereby granted, free of charge, to any
+ * person obtaining a copy of this software and associated
+ * documentation files (the "Software"), to deal in the
+ * Software without restriction, including without limitation
+ * the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software,
+ * and to permit persons to whom the Software is furnished
+ * to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice
+ * shall be included in all copies or substantial portions of
+ * the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY
+ * KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE
+ * WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR
+ * PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS
+ * OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR
+ * OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT
+ * OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE
+ * SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package com.extesla.fixtures.export;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+
+/**
+ * Writes the rows of one table to a load file through a {@link FileChannel},
+ * gathering them in a direct buffer so the file is written sequentially in
+ * large blocks. A writer is not thread safe.
+ *
+ * @author Sean.Quinn
+ * @since  1.0
+ */
+abstract class TableWriter {
+
+	private final File file;
+
+	private final String table;
+
+	private final String[] columns;
+
+	private final RandomAccessFile output;
+
+	private final FileChannel channel;
+
+	protected final ByteBuffer buffer;
+
+	private long rows;
+
+	/**
+	 * Creates the file, truncating it if it exists.
+	 *
+	 * @param file the load file.
+	 * @param table the table name.
+	 * @param columns the column names.
+	 * @param bufferSize the size of the buffer, in bytes.
+	 * @throws IOException if the file cannot be created.
+	 */
+	protected TableWriter(final File file, final String table, final String[] columns, final int bufferSize)
+			throws IOException {
+		this.file = file;
+		this.table = table;
+		this.columns = columns.clone();
+		this.output = new RandomAccessFile(file, "rw");
+		this.channel = output.getChannel();
+		this.buffer = ByteBuffer.allocateDirect(bufferSize);
+		try {
+			channel.truncate(0);
+		}
+		catch (final IOException ex) {
+			output.close();
+			throw ex;
+		}
+	}
+
+	/**
+	 * Writes the start of the file, before the first row. The default
+	 * implementation writes nothing.
+	 *
+	 * @throws IOException if the file cannot be written.
+	 */
+	protected void writeHeader() throws IOException {
+	}
+
+	/**
+	 * Writes a row.
+	 *
+	 * @param row the column values, in the order of the columns.
+	 * @throws IOException if the file cannot be written.
+	 */
+	final void write(final Object[] row) throws IOException {
+		writeRow(row);
+		rows++;
+	}
+
+	/**
+	 * Encodes a row into the buffer.
+	 *
+	 * @param row the column values.
+	 * @throws IOException if the file cannot be written.
+	 */
+	abstract protected void writeRow(final Object[] row) throws IOException;
+
+	/**
+	 * Writes the end of the file, after the last row. The default
+	 * implementation writes nothing.
+	 *
+	 * @throws IOException if the file cannot be written.
+	 */
+	protected void writeTrailer() throws IOException {
+	}
+
+	/**
+	 * Makes room for at least the number of bytes in the buffer, writing out
+	 * what it holds if needed.
+	 *
+	 * @param bytes the number of bytes; at most the buffer's capacity.
+	 * @throws IOException if the file cannot be written.
+	 */
+	protected final void ensure(final int bytes) throws IOException {
+		if (buffer.remaining() < bytes) {
+			drain();
+		}
+	}
+
+	/**
+	 * Copies the bytes to the buffer, writing it out as often as it fills.
+	 *
+	 * @param bytes the bytes.
+	 * @throws IOException if the file cannot be written.
+	 */
+	protected final void put(final byte[] bytes) throws IOException {
+		int offset = 0;
+		while (offset < bytes.length) {
+			if (!buffer.hasRemaining()) {
+				drain();
+			}
+			final int length = Math.min(buffer.remaining(), bytes.length - offset);
+			buffer.put(bytes, offset, length);
+			offset += length;
+		}
+	}
+
+	/**
+	 * Writes out the content of the buffer and clears it.
+	 *
+	 * @throws IOException if the file cannot be written.
+	 */
+	protected final void drain() throws IOException {
+		buffer.flip();
+		while (buffer.hasRemaining()) {
+			channel.write(buffer);
+		}
+		buffer.clear();
+	}
+
+	/**
+	 * Writes the trailer and the buffered rows, and closes the file. The
+	 * file is complete even if the run failed, as its fixture may have been
+	 * generated in full and be skipped by the run that resumes it.
+	 *
+	 * @throws IOException if the file cannot be written.
+	 */
+	void close() throws IOException {
+		try {
+			writeTrailer();
+			drain();
+		}
+		finally {
+			output.close();
+		}
+	}
+
+	/**
+	 * @return the load file.
+	 */
+	File getFile() {
+		return file;
+	}
+
+	/**
+	 * @return the table name.
+	 */
+	String getTable() {
+		return table;
+	}
+
+	/**
+	 * @return the column names.
+	 */
+	String[] getColumns() {
+		return columns;
+	}
+
+	/**
+	 * @return the number of rows written.
+	 */
+	long getRows() {
+		return rows;
+	}
+}
@@ -0,0 +1,274 @@
+/* Copyright 2014 Extesla Digital Entertainment, Ltd. All rights reserved.
+ *
+ * Licensed under the MIT License (http://opensource.org/licenses/MIT)
+ *
+ * Permission is hereby granted, free of charge, to any
+ * person obtaining a copy of this software and associated
+ * documentation files (the "Software"), to deal in the
+ * Software without restriction, including without limitation
+ * the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software,
+ * and to permit persons to whom the Software is furnished
+ * to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice
+ * shall be included in all copies or substantial portions of
+ * the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY
+ * KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE
+ * WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR
+ * PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS
+ * OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR
+ * OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT
+ * OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE
+ * SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package com.extesla.fixtures.graph;
+
+import java.lang.reflect.Field;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.reflections.ReflectionUtils;
+
+import com.extesla.fixtures.FixtureSupplier;
+import com.extesla.fixtures.annotations.Dependencies;
+import com.extesla.fixtures.annotations.Fixture;
+import com.extesla.fixtures.annotations.FixtureReference;
+import com.extesla.fixtures.exceptions.RecursiveDependencyException;
+
+/**
+ * The dependency graph of a set of fixtures. An edge is drawn from a fixture
+ * to every fixture named by its {@link Dependencies} annotation, by
+ * {@link Fixture#dependsOn()} and by the {@link FixtureReference#type()} of
+ * its eager reference fields. Fixtures that are only reachable through such
+ * an edge are added to the graph as well.
+ *
+ * {@link FixtureReference#lazy() Lazy} references are not edges: the
+ * referenced fixture is generated when the reference is first used, if it
+ * has not been generated by then. The graph only records them, see
+ * {@link #getLazyReferences(Class)}.
+ *
+ * @author Sean.Quinn
+ * @since  1.0
+ */
+public class FixtureGraph {
+
+	/**
+	 * The fixtures each fixture depends on, in declaration order.
+	 */
+	private final Map<Class<?>, Set<Class<?>>> dependencies = new LinkedHashMap<Class<?>, Set<Class<?>>>();
+
+	/**
+	 * The fixtures depending on each fixture.
+	 */
+	private final Map<Class<?>, Set<Class<?>>> dependents = new LinkedHashMap<Class<?>, Set<Class<?>>>();
+
+	/**
+	 * The fixtures each fixture references lazily.
+	 */
+	private final Map<Class<?>, Set<Class<?>>> lazyReferences = new LinkedHashMap<Class<?>, Set<Class<?>>>();
+
+	/**
+	 * Constructs the graph of the fixtures passed, and of every fixture they
+	 * (transitively) depend on.
+	 *
+	 * @param fixtures the fixture {@code Classes}.
+	 */
+	public FixtureGraph(final Collection<Class<?>> fixtures) {
+		for (final Class<?> fixture : fixtures) {
+			addFixture(fixture);
+		}
+	}
+
+	/**
+	 * Returns the fixtures that the fixture, {@link Class}, declares as its
+	 * dependencies through the {@link Dependencies} annotation or through
+	 * {@link Fixture#dependsOn()}.
+	 *
+	 * @param clazz the fixture {@code Class}.
+	 * @return the declared dependencies, in declaration order.
+	 */
+	public static Set<Class<?>> getDeclaredDependencies(final Class<?> clazz) {
+		final Set<Class<?>> result = new LinkedHashSet<Class<?>>();
+		final Dependencies dependencies = clazz.getAnnotation(Dependencies.class);
+		if (dependencies != null) {
+			Collections.addAll(result, dependencies.value());
+		}
+		final Fixture fixture = clazz.getAnnotation(Fixture.class);
+		if (fixture != null) {
+			Collections.addAll(result, fixture.dependsOn());
+		}
+		return result;
+	}
+
+	/**
+	 * Returns the fixtures that the fixture, {@link Class}, refers to through
+	 * fields annotated with {@link FixtureReference}, lazily or not.
+	 *
+	 * @param clazz the fixture {@code Class}.
+	 * @return the referenced fixtures.
+	 */
+	public static Set<Class<?>> getReferencedFixtures(final Class<?> clazz) {
+		final Set<Class<?>> result = new LinkedHashSet<Class<?>>();
+		for (final Field field : getReferenceFields(clazz)) {
+			result.add(field.getAnnotation(FixtureReference.class).type());
+		}
+		return result;
+	}
+
+	/**
+	 * Returns the fixtures that the fixture, {@link Class}, depends on: its
+	 * declared dependencies and the fixtures it references eagerly.
+	 *
+	 * @param clazz the fixture {@code Class}.
+	 * @return the dependencies, declared ones first.
+	 */
+	public static Set<Class<?>> getDirectDependencies(final Class<?> clazz) {
+		final Set<Class<?>> result = getDeclaredDependencies(clazz);
+		for (final Field field : getReferenceFields(clazz)) {
+			if (!isLazy(field)) {
+				result.add(field.getAnnotation(FixtureReference.class).type());
+			}
+		}
+		return result;
+	}
+
+	/**
+	 * Returns the fixtures that the fixture, {@link Class}, references only
+	 * lazily.
+	 *
+	 * @param clazz the fixture {@code Class}.
+	 * @return the lazily referenced fixtures.
+	 */
+	public static Set<Class<?>> getLazilyReferencedFixtures(final Class<?> clazz) {
+		final Set<Class<?>> result = new LinkedHashSet<Class<?>>();
+		for (final Field field : getReferenceFields(clazz)) {
+			if (isLazy(field)) {
+				result.add(field.getAnnotation(FixtureReference.class).type());
+			}
+		}
+		result.removeAll(getDirectDependencies(clazz));
+		return result;
+	}
+
+	/**
+	 * Checks whether the reference field is resolved on first access: it is
+	 * marked {@link FixtureReference#lazy()} or declared as a
+	 * {@link FixtureSupplier}.
+	 *
+	 * @param field the reference field.
+	 * @return <tt>true</tt> if the reference is lazy.
+	 */
+	public static boolean isLazy(final Field field) {
+		return field.getAnnotation(FixtureReference.class).lazy() || field.getType() == FixtureSupplier.class;
+	}
+
+	@SuppressWarnings("unchecked")
+	private static Set<Field> getReferenceFields(final Class<?> clazz) {
+		return ReflectionUtils.getAllFields(clazz, ReflectionUtils.withAnnotation(FixtureReference.class));
+	}
+
+	/**
+	 * Returns all of the fixtures in this graph.
+	 * @return the fixtures in this graph.
+	 */
+	public Set<Class<?>> getFixtures() {
+		return Collections.unmodifiableSet(dependencies.keySet());
+	}
+
+	/**
+	 * Checks to see if the fixture, {@link Class}, is part of this graph.
+	 *
+	 * @param clazz the fixture {@code Class}.
+	 * @return <tt>true</tt> if the fixture is a node of this graph; otherwise
+	 * 		<tt>false</tt>.
+	 */
+	public boolean hasFixture(final Class<?> clazz) {
+		return dependencies.containsKey(clazz);
+	}
+
+	/**
+	 * Returns the fixtures that the fixture, {@link Class}, depends on.
+	 *
+	 * @param clazz the fixture {@code Class}.
+	 * @return the fixture's direct dependencies.
+	 */
+	public Set<Class<?>> getDependencies(final Class<?> clazz) {
+		return unmodifiable(dependencies.get(clazz));
+	}
+
+	/**
+	 * Returns the fixtures that depend on the fixture, {@link Class}.
+	 *
+	 * @param clazz the fixture {@code Class}.
+	 * @return the fixture's direct dependents.
+	 */
+	public Set<Class<?>> getDependents(final Class<?> clazz) {
+		return unmodifiable(dependents.get(clazz));
+	}
+
+	/**
+	 * Returns the fixtures that the fixture, {@link Class}, references
+	 * lazily; they are not part of the graph unless something depends on
+	 * them.
+	 *
+	 * @param clazz the fixture {@code Class}.
+	 * @return the lazily referenced fixtures.
+	 */
+	public Set<Class<?>> getLazyReferences(final Class<?> clazz) {
+		return unmodifiable(lazyReferences.get(clazz));
+	}
+
+	/**
+	 * Returns the number of fixtures in this graph.
+	 * @return the number of fixtures.
+	 */
+	public int size() {
+		return dependencies.size();
+	}
+
+	/**
+	 * Sorts the fixtures so that every fixture comes after all of its
+	 * dependencies, taking the fixtures whose dependencies are done by their
+	 * {@link Fixture#order()}, then by class name.
+	 *
+	 * @return the fixtures, in dependency order.
+	 * @throws RecursiveDependencyException if the graph contains a cycle.
+	 * @see FixtureScheduler
+	 */
+	public List<Class<?>> sort() {
+		return FixtureScheduler.sortByOrder(this);
+	}
+
+	private void addFixture(final Class<?> clazz) {
+		if (dependencies.containsKey(clazz)) {
+			return;
+		}
+
+		final Set<Class<?>> edges = getDirectDependencies(clazz);
+		dependencies.put(clazz, edges);
+		lazyReferences.put(clazz, getLazilyReferencedFixtures(clazz));
+		if (!dependents.containsKey(clazz)) {
+			dependents.put(clazz, new LinkedHashSet<Class<?>>());
+		}
+
+		for (final Class<?> dependency : edges) {
+			addFixture(dependency);
+			dependents.get(dependency).add(clazz);
+		}
+	}
+
+	private static Set<Class<?>> unmodifiable(final Set<Class<?>> set) {
+		if (set == null) {
+			return Collections.emptySet();
+		}
+		return Collections.unmodifiableSet(set);
+	}
+}
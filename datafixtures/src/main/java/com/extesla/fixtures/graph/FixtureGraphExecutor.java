@@ -0,0 +1,252 @@
+/* Copyright 2014 Extesla Digital Entertainment, Ltd. All rights reserved.
+ *
+ * Licensed under the MIT License (http://opensource.org/licenses/MIT)
+ *
+ * Permission is hereby granted, free of charge, to any
+ * person obtaining a copy of this software and associated
+ * documentation files (the "Software"), to deal in the
+ * Software without restriction, including without limitation
+ * the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software,
+ * and to permit persons to whom the Software is furnished
+ * to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice
+ * shall be included in all copies or substantial portions of
+ * the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY
+ * KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE
+ * WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR
+ * PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS
+ * OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR
+ * OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT
+ * OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE
+ * SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package com.extesla.fixtures.graph;
+
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.PriorityBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import com.extesla.fixtures.annotations.Fixture;
+import com.extesla.fixtures.exceptions.FixtureExecutionException;
+
+/**
+ * Runs the fixtures of a {@link FixtureGraph} concurrently. A fixture is
+ * handed to the {@link Executor} as soon as all of its dependencies have
+ * been processed; if a fixture fails, every fixture that (transitively)
+ * depends on it is cancelled, while independent fixtures are still run.
+ *
+ * Whenever the executor starts a task, it is given the most urgent of the
+ * ready fixtures according to the {@link FixtureScheduler}, whatever the
+ * order in which the executor runs its tasks.
+ *
+ * The calling thread runs ready fixtures too, and only waits while every
+ * fixture that is not done has either been started by another thread or
+ * depends on one that has. The executor may therefore be a bounded pool
+ * that the calling thread itself belongs to, e.g. when a run is started
+ * asynchronously on the pool the fixtures are generated on, without risk of
+ * deadlock; a task the executor rejects leaves its fixture to the calling
+ * thread.
+ *
+ * @author Sean.Quinn
+ * @since  1.0
+ */
+public class FixtureGraphExecutor {
+
+	private final FixtureGraph graph;
+
+	private final FixtureScheduler scheduler;
+
+	private final Executor executor;
+
+	/**
+	 * Runs the ready fixtures by their {@link Fixture#order()}.
+	 *
+	 * @param graph the {@code FixtureGraph}.
+	 * @param executor the {@code Executor}.
+	 */
+	public FixtureGraphExecutor(final FixtureGraph graph, final Executor executor) {
+		this(new FixtureScheduler(graph, FixtureScheduler.Priority.ORDER), executor);
+	}
+
+	/**
+	 * @param scheduler the {@code FixtureScheduler} of the graph.
+	 * @param executor the {@code Executor}.
+	 */
+	public FixtureGraphExecutor(final FixtureScheduler scheduler, final Executor executor) {
+		this.graph = scheduler.getGraph();
+		this.scheduler = scheduler;
+		this.executor = executor;
+	}
+
+	/**
+	 * Processes every fixture of the graph with the {@link FixtureHandler},
+	 * on the executor and the calling thread, returning once all of them
+	 * have completed, failed or been cancelled.
+	 *
+	 * @param handler the {@code FixtureHandler}.
+	 * @throws FixtureExecutionException if any of the fixtures failed.
+	 */
+	public void execute(final FixtureHandler handler) {
+		new Execution(handler).run();
+	}
+
+	/**
+	 * The state of a single call to {@link FixtureGraphExecutor#execute}.
+	 */
+	private class Execution {
+
+		private final FixtureHandler handler;
+
+		/**
+		 * The number of unfinished dependencies of each fixture.
+		 */
+		private final Map<Class<?>, AtomicInteger> pending = new ConcurrentHashMap<Class<?>, AtomicInteger>();
+
+		private final Map<Class<?>, Throwable> failures = new ConcurrentHashMap<Class<?>, Throwable>();
+
+		private final Set<Class<?>> cancelled = Collections.synchronizedSet(new LinkedHashSet<Class<?>>());
+
+		/**
+		 * The fixtures whose dependencies are done, most urgent first; there
+		 * is at most one submitted task for each of them, which finds
+		 * nothing to run if the calling thread got there first.
+		 */
+		private final PriorityBlockingQueue<Class<?>> ready;
+
+		/**
+		 * Counted down once for every fixture that has completed, failed or
+		 * been cancelled. The calling thread waits on the execution for it
+		 * to reach zero or for a fixture to be ready.
+		 */
+		private final CountDownLatch latch = new CountDownLatch(graph.size());
+
+		Execution(final FixtureHandler handler) {
+			this.handler = handler;
+			this.ready = new PriorityBlockingQueue<Class<?>>(Math.max(graph.size(), 1), scheduler.getComparator());
+		}
+
+		void run() {
+			final List<Class<?>> fixtures = scheduler.sort();
+			for (final Class<?> fixture : fixtures) {
+				pending.put(fixture, new AtomicInteger(graph.getDependencies(fixture).size()));
+			}
+			for (final Class<?> fixture : fixtures) {
+				if (graph.getDependencies(fixture).isEmpty()) {
+					submit(fixture);
+				}
+			}
+
+			try {
+				help();
+			}
+			catch (final InterruptedException ex) {
+				Thread.currentThread().interrupt();
+				throw new IllegalStateException("Interrupted while waiting for fixtures to complete.", ex);
+			}
+
+			if (!failures.isEmpty()) {
+				synchronized (cancelled) {
+					throw new FixtureExecutionException(failures, cancelled);
+				}
+			}
+		}
+
+		/**
+		 * Runs the ready fixtures on the calling thread until every fixture
+		 * is done, waiting only while none is ready.
+		 */
+		private void help() throws InterruptedException {
+			while (latch.getCount() > 0) {
+				final Class<?> fixture = ready.poll();
+				if (fixture != null) {
+					process(fixture);
+					continue;
+				}
+				synchronized (this) {
+					while (ready.isEmpty() && latch.getCount() > 0) {
+						wait();
+					}
+				}
+			}
+		}
+
+		private void submit(final Class<?> fixture) {
+			ready.add(fixture);
+			signal();
+			try {
+				executor.execute(new Runnable() {
+					@Override
+					public void run() {
+						final Class<?> fixture = ready.poll();
+						if (fixture != null) {
+							process(fixture);
+						}
+					}
+				});
+			}
+			catch (final RejectedExecutionException ex) {
+				// ** The calling thread will run it.
+			}
+		}
+
+		private void countDown() {
+			latch.countDown();
+			if (latch.getCount() == 0) {
+				signal();
+			}
+		}
+
+		private synchronized void signal() {
+			notifyAll();
+		}
+
+		private void process(final Class<?> fixture) {
+			try {
+				handler.handle(fixture);
+			}
+			catch (final Throwable ex) {
+				fail(fixture, ex);
+				return;
+			}
+
+			countDown();
+			for (final Class<?> dependent : graph.getDependents(fixture)) {
+				if (pending.get(dependent).decrementAndGet() == 0) {
+					submit(dependent);
+				}
+			}
+		}
+
+		/**
+		 * Records the failure of the fixture and cancels its dependents. A
+		 * cancelled fixture can never become ready, since at least one of its
+		 * dependencies will never complete.
+		 */
+		private void fail(final Class<?> fixture, final Throwable cause) {
+			failures.put(fixture, cause);
+			countDown();
+
+			final LinkedList<Class<?>> queue = new LinkedList<Class<?>>(graph.getDependents(fixture));
+			while (!queue.isEmpty()) {
+				final Class<?> dependent = queue.removeFirst();
+				if (cancelled.add(dependent)) {
+					countDown();
+					queue.addAll(graph.getDependents(dependent));
+				}
+			}
+		}
+	}
+}
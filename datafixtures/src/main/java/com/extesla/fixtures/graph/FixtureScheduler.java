@@ -0,0 +1,345 @@
+/* Copyright 2014 Extesla Digital Entertainment, Ltd. All rights reserved.
+ *
+ * Licensed under the MIT License (http://opensource.org/licenses/MIT)
+ *
+ * Permission is hereby granted, free of charge, to any
+ * person obtaining a copy of this software and associated
+ * documentation files (the "Software"), to deal in the
+ * Software without restriction, including without limitation
+ * the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software,
+ * and to permit persons to whom the Software is furnished
+ * to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice
+ * shall be included in all copies or substantial portions of
+ * the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY
+ * KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE
+ * WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR
+ * PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS
+ * OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR
+ * OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT
+ * OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE
+ * SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package com.extesla.fixtures.graph;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+
+import com.extesla.fixtures.annotations.Fixture;
+import com.extesla.fixtures.exceptions.RecursiveDependencyException;
+
+/**
+ * Schedules the fixtures of a {@link FixtureGraph}: every fixture comes after
+ * all of its dependencies and, among the fixtures whose dependencies are
+ * done, the {@link Priority} decides which goes first. Ties are broken by
+ * {@link Fixture#order()} and then by class name, so a schedule is the same
+ * on every run.
+ *
+ * Fixtures may be given an estimated cost, e.g. the time they took on a
+ * previous run, in which case the critical path is the path of the highest
+ * total cost rather than of the most fixtures.
+ *
+ * @author Sean.Quinn
+ * @since  1.0
+ */
+public class FixtureScheduler {
+
+	/**
+	 * Which of the ready fixtures goes first.
+	 */
+	public enum Priority {
+
+		/**
+		 * The fixture with the lowest {@link Fixture#order()}.
+		 */
+		ORDER,
+
+		/**
+		 * The fixture with the costliest chain of fixtures depending on it,
+		 * so that the longest path through the graph is started as early as
+		 * possible and a parallel run finishes sooner.
+		 */
+		CRITICAL_PATH
+	}
+
+	private static final Comparator<Class<?>> BY_ORDER = createComparator(Priority.ORDER, null);
+
+	private final FixtureGraph graph;
+
+	private final Priority priority;
+
+	/**
+	 * The estimated cost of each fixture.
+	 */
+	private final Map<Class<?>, Long> costs;
+
+	/**
+	 * The cost of the costliest path from each fixture to the end of the
+	 * graph, itself included.
+	 */
+	private final Map<Class<?>, Long> paths;
+
+	private final Comparator<Class<?>> comparator;
+
+	/**
+	 * @param graph the {@code FixtureGraph}.
+	 * @param priority the {@code Priority} of the ready fixtures.
+	 * @throws RecursiveDependencyException if the graph contains a cycle.
+	 */
+	public FixtureScheduler(final FixtureGraph graph, final Priority priority) {
+		this(graph, priority, null);
+	}
+
+	/**
+	 * @param graph the {@code FixtureGraph}.
+	 * @param priority the {@code Priority} of the ready fixtures.
+	 * @param costs the estimated cost of the fixtures, in any unit, or
+	 * 		<tt>null</tt> to count every fixture as <tt>1</tt>. A fixture
+	 * 		without a cost is estimated at the mean cost of the others.
+	 * @throws RecursiveDependencyException if the graph contains a cycle.
+	 */
+	public FixtureScheduler(final FixtureGraph graph, final Priority priority, final Map<Class<?>, Long> costs) {
+		this.graph = graph;
+		this.priority = priority;
+
+		final List<Class<?>> sorted = sortByOrder(graph);
+		this.costs = new HashMap<Class<?>, Long>(sorted.size() * 2);
+		long total = 0;
+		int known = 0;
+		for (final Class<?> fixture : sorted) {
+			final Long cost = costs != null ? costs.get(fixture) : Long.valueOf(1);
+			if (cost != null) {
+				this.costs.put(fixture, Math.max(cost, 0));
+				total += Math.max(cost, 0);
+				known++;
+			}
+		}
+		final long mean = known > 0 ? total / known : 1;
+		for (final Class<?> fixture : sorted) {
+			if (!this.costs.containsKey(fixture)) {
+				this.costs.put(fixture, mean);
+			}
+		}
+
+		this.paths = new HashMap<Class<?>, Long>(sorted.size() * 2);
+		for (int i = sorted.size() - 1; i >= 0; i--) {
+			final Class<?> fixture = sorted.get(i);
+			long longest = 0;
+			for (final Class<?> dependent : graph.getDependents(fixture)) {
+				longest = Math.max(longest, paths.get(dependent));
+			}
+			paths.put(fixture, longest + this.costs.get(fixture));
+		}
+		this.comparator = createComparator(priority, paths);
+	}
+
+	/**
+	 * @return the scheduled {@code FixtureGraph}.
+	 */
+	public FixtureGraph getGraph() {
+		return graph;
+	}
+
+	/**
+	 * @return the {@code Priority} of this schedule.
+	 */
+	public Priority getPriority() {
+		return priority;
+	}
+
+	/**
+	 * Returns the order in which the fixtures that are ready at the same time
+	 * should be started; the first is the most urgent.
+	 *
+	 * @return the {@code Comparator}.
+	 */
+	public Comparator<Class<?>> getComparator() {
+		return comparator;
+	}
+
+	/**
+	 * Returns the fixtures of the graph in the order of this schedule.
+	 *
+	 * @return the scheduled fixtures.
+	 */
+	public List<Class<?>> sort() {
+		return sort(graph, comparator);
+	}
+
+	/**
+	 * Returns the estimated cost of the fixture: its own cost if it was given
+	 * one, otherwise the mean cost of the others.
+	 *
+	 * @param fixture the fixture {@code Class}; a node of the graph.
+	 * @return the estimated cost.
+	 */
+	public long getCost(final Class<?> fixture) {
+		final Long cost = costs.get(fixture);
+		return cost != null ? cost : 0;
+	}
+
+	/**
+	 * Returns the cost of the costliest path from the fixture to the end of
+	 * the graph, the fixture included. Without costs, this is the number of
+	 * fixtures on the longest path.
+	 *
+	 * @param fixture the fixture {@code Class}; a node of the graph.
+	 * @return the cost of the fixture's critical path.
+	 */
+	public long getPathCost(final Class<?> fixture) {
+		final Long cost = paths.get(fixture);
+		return cost != null ? cost : 0;
+	}
+
+	/**
+	 * Returns the longest path through the graph, the chain of fixtures that
+	 * no amount of parallelism can shorten.
+	 *
+	 * @return the fixtures of the critical path, in dependency order.
+	 */
+	public List<Class<?>> getCriticalPath() {
+		final List<Class<?>> path = new ArrayList<Class<?>>();
+		Class<?> next = null;
+		for (final Class<?> fixture : graph.getFixtures()) {
+			if (graph.getDependencies(fixture).isEmpty() && longer(fixture, next)) {
+				next = fixture;
+			}
+		}
+		while (next != null) {
+			path.add(next);
+			Class<?> longest = null;
+			for (final Class<?> dependent : graph.getDependents(next)) {
+				if (longer(dependent, longest)) {
+					longest = dependent;
+				}
+			}
+			next = longest;
+		}
+		return path;
+	}
+
+	private boolean longer(final Class<?> fixture, final Class<?> than) {
+		if (than == null) {
+			return true;
+		}
+		final long path1 = paths.get(fixture);
+		final long path2 = paths.get(than);
+		return path1 > path2 || (path1 == path2 && comparator.compare(fixture, than) < 0);
+	}
+
+	/**
+	 * Sorts the graph topologically, taking the ready fixtures by their
+	 * {@link Fixture#order()}.
+	 *
+	 * @throws RecursiveDependencyException if the graph contains a cycle.
+	 */
+	static List<Class<?>> sortByOrder(final FixtureGraph graph) {
+		return sort(graph, BY_ORDER);
+	}
+
+	/**
+	 * Sorts the graph topologically, taking the ready fixtures in the order
+	 * of the comparator.
+	 *
+	 * @throws RecursiveDependencyException if the graph contains a cycle.
+	 */
+	private static List<Class<?>> sort(final FixtureGraph graph, final Comparator<Class<?>> comparator) {
+		final Map<Class<?>, Integer> pending = new HashMap<Class<?>, Integer>(graph.size() * 2);
+		final PriorityQueue<Class<?>> ready = new PriorityQueue<Class<?>>(Math.max(graph.size(), 1), comparator);
+		for (final Class<?> fixture : graph.getFixtures()) {
+			final int dependencies = graph.getDependencies(fixture).size();
+			pending.put(fixture, dependencies);
+			if (dependencies == 0) {
+				ready.add(fixture);
+			}
+		}
+
+		final List<Class<?>> sorted = new ArrayList<Class<?>>(graph.size());
+		while (!ready.isEmpty()) {
+			final Class<?> fixture = ready.poll();
+			sorted.add(fixture);
+			for (final Class<?> dependent : graph.getDependents(fixture)) {
+				final int remaining = pending.get(dependent) - 1;
+				pending.put(dependent, remaining);
+				if (remaining == 0) {
+					ready.add(dependent);
+				}
+			}
+		}
+
+		if (sorted.size() != graph.size()) {
+			throw new RecursiveDependencyException(findCycle(graph, pending));
+		}
+		return sorted;
+	}
+
+	/**
+	 * Finds a cycle among the fixtures that could not be sorted. Every one of
+	 * them has a dependency that could not be sorted either, so following
+	 * those dependencies must eventually come back to a fixture already on
+	 * the path.
+	 *
+	 * @return the cycle, starting and ending with the same fixture; each
+	 * 		fixture depends on the next.
+	 */
+	private static List<Class<?>> findCycle(final FixtureGraph graph, final Map<Class<?>, Integer> pending) {
+		Class<?> fixture = null;
+		for (final Map.Entry<Class<?>, Integer> entry : pending.entrySet()) {
+			if (entry.getValue() > 0) {
+				fixture = entry.getKey();
+				break;
+			}
+		}
+
+		final Map<Class<?>, Integer> positions = new HashMap<Class<?>, Integer>();
+		final List<Class<?>> path = new ArrayList<Class<?>>();
+		while (!positions.containsKey(fixture)) {
+			positions.put(fixture, path.size());
+			path.add(fixture);
+			for (final Class<?> dependency : graph.getDependencies(fixture)) {
+				if (pending.get(dependency) > 0) {
+					fixture = dependency;
+					break;
+				}
+			}
+		}
+
+		final List<Class<?>> cycle = new ArrayList<Class<?>>(path.subList(positions.get(fixture), path.size()));
+		cycle.add(fixture);
+		return cycle;
+	}
+
+	private static Comparator<Class<?>> createComparator(final Priority priority, final Map<Class<?>, Long> paths) {
+		return new Comparator<Class<?>>() {
+			@Override
+			public int compare(final Class<?> fixture1, final Class<?> fixture2) {
+				if (priority == Priority.CRITICAL_PATH) {
+					final long path1 = paths.get(fixture1);
+					final long path2 = paths.get(fixture2);
+					if (path1 != path2) {
+						return path1 > path2 ? -1 : 1;
+					}
+				}
+				final int order1 = getOrder(fixture1);
+				final int order2 = getOrder(fixture2);
+				if (order1 != order2) {
+					return order1 < order2 ? -1 : 1;
+				}
+				return fixture1.getName().compareTo(fixture2.getName());
+			}
+		};
+	}
+
+	private static int getOrder(final Class<?> clazz) {
+		final Fixture fixture = clazz.getAnnotation(Fixture.class);
+		return fixture != null ? fixture.order() : 1;
+	}
+}
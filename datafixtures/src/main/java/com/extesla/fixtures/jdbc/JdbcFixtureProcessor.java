@@ -0,0 +1,485 @@
+/* Copyright 2014 Extesla Digital Entertainment, Ltd. All rights reserved.
+ *
+ * Licensed under the MIT License (http://opensource.org/licenses/MIT)
+ *
+ * Permission is hereby granted, free of charge, to any
+ * person obtaining a copy of this software and associated
+ * documentation files (the "Software"), to deal in the
+ * Software without restriction, including without limitation
+ * the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software,
+ * and to permit persons to whom the Software is furnished
+ * to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice
+ * shall be included in all copies or substantial portions of
+ * the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY
+ * KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE
+ * WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR
+ * PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS
+ * OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR
+ * OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT
+ * OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE
+ * SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package com.extesla.fixtures.jdbc;
+
+import java.sql.Connection;
+import java.sql.ParameterMetaData;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Date;
+import java.util.IdentityHashMap;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+
+import javax.sql.DataSource;
+
+import com.extesla.fixtures.AbstractFixtureProcessor;
+import com.extesla.fixtures.exceptions.FixturePersistenceException;
+import com.extesla.fixtures.persist.RowMapper;
+import com.extesla.fixtures.persist.RowMappers;
+
+/**
+ * A fixture processor that inserts the generated entities into a database
+ * through JDBC. Every entity type is mapped to a table by a registered
+ * {@link RowMapper}; each batch of entities is inserted in a single
+ * transaction with {@link PreparedStatement#addBatch()}. A connection, and
+ * the statements prepared on it for every entity type, are kept for the
+ * whole run; with pipelined persistence, each persisting thread uses a
+ * connection of its own.
+ *
+ * The entities of a batch are inserted in the order they were generated,
+ * except that consecutive entities of the same type are sent together; a
+ * statement is executed before the entities of another type are inserted,
+ * so rows may refer to the rows generated before them.
+ *
+ * For drivers that do not rewrite batches into multi-row inserts by
+ * themselves (e.g. MySQL's <tt>rewriteBatchedStatements</tt>), see
+ * {@link #setRowsPerStatement(int)}.
+ *
+ * @author Sean.Quinn
+ * @since  1.0
+ */
+public class JdbcFixtureProcessor extends AbstractFixtureProcessor {
+
+	/**
+	 * The default number of entities inserted per transaction.
+	 */
+	public static final int DEFAULT_BATCH_SIZE = 5000;
+
+	private final DataSource dataSource;
+
+	private final RowMappers mappers = new RowMappers();
+
+	/**
+	 * The number of statements added to a JDBC batch before it is executed.
+	 */
+	private int jdbcBatchSize = 500;
+
+	/**
+	 * The number of rows inserted by each statement.
+	 */
+	private int rowsPerStatement = 1;
+
+	/**
+	 * The sessions of the current run that are not inserting a batch.
+	 */
+	private final LinkedList<Session> idle = new LinkedList<Session>();
+
+	/**
+	 * @param packages the Java packages of the fixtures.
+	 * @param dataSource the {@code DataSource} of the target database.
+	 */
+	public JdbcFixtureProcessor(final String[] packages, final DataSource dataSource) {
+		super(packages);
+		this.dataSource = dataSource;
+		setBatchSize(DEFAULT_BATCH_SIZE);
+	}
+
+	/**
+	 * Registers the mapper of the entity type, and of its subclasses unless
+	 * they have mappers of their own.
+	 *
+	 * @param type the entity {@code Class}.
+	 * @param mapper the {@code RowMapper}.
+	 */
+	public <T> void register(final Class<T> type, final RowMapper<? super T> mapper) {
+		mappers.register(type, mapper);
+	}
+
+	/**
+	 * Sets the number of statements added to a JDBC batch before it is sent
+	 * to the database. Defaults to 500.
+	 *
+	 * @param jdbcBatchSize the JDBC batch size; at least 1.
+	 */
+	public void setJdbcBatchSize(final int jdbcBatchSize) {
+		if (jdbcBatchSize < 1) {
+			throw new IllegalArgumentException("The JDBC batch size must be at least 1, was: " + jdbcBatchSize);
+		}
+		this.jdbcBatchSize = jdbcBatchSize;
+	}
+
+	/**
+	 * Sets the number of rows inserted by each statement. With more than one,
+	 * consecutive entities of a type are inserted by multi-row statements,
+	 * <tt>INSERT INTO t (..) VALUES (..), (..), ...</tt>, which most
+	 * databases execute much faster than as many single-row statements.
+	 * Defaults to 1.
+	 *
+	 * @param rowsPerStatement the rows per statement; at least 1.
+	 */
+	public void setRowsPerStatement(final int rowsPerStatement) {
+		if (rowsPerStatement < 1) {
+			throw new IllegalArgumentException("The rows per statement must be at least 1, was: " + rowsPerStatement);
+		}
+		this.rowsPerStatement = rowsPerStatement;
+	}
+
+	@Override
+	protected void persist(final Object data, final boolean andFlush) {
+		persistBatch(Collections.singletonList(data));
+	}
+
+	/**
+	 * Inserts the batch in a single transaction.
+	 *
+	 * @throws FixturePersistenceException if the batch cannot be inserted;
+	 * 		the transaction is rolled back.
+	 */
+	@Override
+	protected void persistBatch(final List<?> batch) {
+		Session session = null;
+		try {
+			session = acquire();
+			session.insert(batch);
+			release(session);
+		}
+		catch (final SQLException ex) {
+			discard(session);
+			throw new FixturePersistenceException("Unable to insert a batch of " + batch.size() + " entities.",
+					ex.getNextException() != null ? ex.getNextException() : ex);
+		}
+		catch (final RuntimeException ex) {
+			discard(session);
+			throw ex;
+		}
+	}
+
+	/**
+	 * Closes the connections of the run.
+	 */
+	@Override
+	protected void persistenceFinished(final boolean completed) {
+		final List<Session> sessions;
+		synchronized (idle) {
+			sessions = new ArrayList<Session>(idle);
+			idle.clear();
+		}
+		for (final Session session : sessions) {
+			session.close();
+		}
+	}
+
+	/**
+	 * Takes an idle session of the run, or opens a new one.
+	 */
+	private Session acquire() throws SQLException {
+		synchronized (idle) {
+			if (!idle.isEmpty()) {
+				return idle.removeFirst();
+			}
+		}
+		return new Session(dataSource.getConnection());
+	}
+
+	private void release(final Session session) {
+		synchronized (idle) {
+			idle.addFirst(session);
+		}
+	}
+
+	/**
+	 * Closes a session whose batch failed; its connection may be unusable.
+	 */
+	private static void discard(final Session session) {
+		if (session != null) {
+			session.close();
+		}
+	}
+
+	/**
+	 * Builds the insert statement of the table, for the number of rows.
+	 *
+	 * @param mapper the {@code RowMapper}.
+	 * @param rows the number of rows.
+	 * @return the SQL.
+	 */
+	protected String createInsert(final RowMapper<?> mapper, final int rows) {
+		final String[] columns = mapper.getColumns();
+		final StringBuilder sql = new StringBuilder("INSERT INTO ").append(mapper.getTable()).append(" (");
+		for (int i = 0; i < columns.length; i++) {
+			sql.append(i > 0 ? ", " : "").append(columns[i]);
+		}
+		sql.append(") VALUES ");
+		for (int r = 0; r < rows; r++) {
+			sql.append(r > 0 ? ", (" : "(");
+			for (int i = 0; i < columns.length; i++) {
+				sql.append(i > 0 ? ", ?" : "?");
+			}
+			sql.append(')');
+		}
+		return sql.toString();
+	}
+
+	/**
+	 * Binds a column value, converting the values JDBC drivers do not all
+	 * accept.
+	 *
+	 * @param statement the statement.
+	 * @param index the parameter index.
+	 * @param value the value.
+	 * @param sqlType the SQL type of the parameter, from
+	 * 		{@link java.sql.Types}, used to bind <tt>null</tt>.
+	 * @throws SQLException if the value cannot be bound.
+	 */
+	protected void bind(final PreparedStatement statement, final int index, final Object value, final int sqlType)
+			throws SQLException {
+		if (value == null) {
+			statement.setNull(index, sqlType);
+		}
+		else if (value instanceof Date && !(value instanceof java.sql.Date || value instanceof java.sql.Time
+				|| value instanceof Timestamp)) {
+			statement.setTimestamp(index, new Timestamp(((Date) value).getTime()));
+		}
+		else if (value instanceof Enum) {
+			statement.setString(index, ((Enum<?>) value).name());
+		}
+		else {
+			statement.setObject(index, value);
+		}
+	}
+
+	/**
+	 * Returns the SQL types of the first row of parameters of the statement,
+	 * to bind <tt>null</tt> values with. Drivers that cannot describe the
+	 * parameters get {@link Types#VARCHAR}, which most accept for a
+	 * <tt>null</tt> of any type, unlike {@link Types#NULL}.
+	 */
+	private static int[] getParameterTypes(final PreparedStatement statement, final int columns) {
+		final int[] types = new int[columns];
+		try {
+			final ParameterMetaData metadata = statement.getParameterMetaData();
+			for (int i = 0; i < columns; i++) {
+				final int type = metadata.getParameterType(i + 1);
+				types[i] = type != Types.NULL ? type : Types.VARCHAR;
+			}
+		}
+		catch (final SQLException ex) {
+			Arrays.fill(types, Types.VARCHAR);
+		}
+		catch (final RuntimeException ex) {
+			// ** Some drivers throw unchecked exceptions for unsupported metadata.
+			Arrays.fill(types, Types.VARCHAR);
+		}
+		return types;
+	}
+
+	/**
+	 * A connection of the run and the statements prepared on it.
+	 */
+	private class Session {
+
+		private final Connection connection;
+
+		private final boolean autoCommit;
+
+		private final Map<RowMapper<Object>, Inserter> inserters = new IdentityHashMap<RowMapper<Object>, Inserter>();
+
+		Session(final Connection connection) throws SQLException {
+			this.connection = connection;
+			try {
+				this.autoCommit = connection.getAutoCommit();
+				connection.setAutoCommit(false);
+			}
+			catch (final SQLException ex) {
+				connection.close();
+				throw ex;
+			}
+		}
+
+		/**
+		 * Inserts the entities in a transaction, one run of entities of the
+		 * same type at a time.
+		 */
+		void insert(final List<?> batch) throws SQLException {
+			try {
+				int start = 0;
+				while (start < batch.size()) {
+					final RowMapper<Object> mapper = mappers.get(batch.get(start).getClass());
+					int end = start + 1;
+					while (end < batch.size() && mappers.get(batch.get(end).getClass()) == mapper) {
+						end++;
+					}
+
+					Inserter inserter = inserters.get(mapper);
+					if (inserter == null) {
+						inserter = new Inserter(connection, mapper);
+						inserters.put(mapper, inserter);
+					}
+					inserter.insert(batch.subList(start, end));
+					start = end;
+				}
+				connection.commit();
+			}
+			catch (final SQLException ex) {
+				rollback();
+				throw ex;
+			}
+			catch (final RuntimeException ex) {
+				rollback();
+				throw ex;
+			}
+		}
+
+		private void rollback() {
+			try {
+				connection.rollback();
+			}
+			catch (final SQLException ex) {
+				// ** The failure of the batch is what matters.
+				getLogger().debug("Unable to roll back a failed batch.", ex);
+			}
+		}
+
+		/**
+		 * Closes the statements and the connection, quietly.
+		 */
+		void close() {
+			try {
+				for (final Inserter inserter : inserters.values()) {
+					inserter.close();
+				}
+				connection.setAutoCommit(autoCommit);
+			}
+			catch (final SQLException ex) {
+				getLogger().debug("Unable to close the statements of a connection.", ex);
+			}
+			finally {
+				try {
+					connection.close();
+				}
+				catch (final SQLException ex) {
+					getLogger().warn("Unable to close a connection.", ex);
+				}
+			}
+		}
+	}
+
+	/**
+	 * The statements inserting the entities of one type on a connection.
+	 */
+	private class Inserter {
+
+		private final Connection connection;
+
+		private final RowMapper<Object> mapper;
+
+		private final Object[] row;
+
+		private PreparedStatement single;
+
+		private int[] singleTypes;
+
+		private int singlePending;
+
+		private PreparedStatement multi;
+
+		private int[] multiTypes;
+
+		private int multiPending;
+
+		Inserter(final Connection connection, final RowMapper<Object> mapper) {
+			this.connection = connection;
+			this.mapper = mapper;
+			this.row = new Object[mapper.getColumns().length];
+		}
+
+		/**
+		 * Inserts the entities and executes the pending statements, so that
+		 * they are in the database before the next run of entities.
+		 */
+		void insert(final List<?> entities) throws SQLException {
+			final int size = entities.size();
+			int i = 0;
+			if (rowsPerStatement > 1 && size >= rowsPerStatement) {
+				if (multi == null) {
+					multi = connection.prepareStatement(createInsert(mapper, rowsPerStatement));
+					multiTypes = getParameterTypes(multi, row.length);
+				}
+				for (; i + rowsPerStatement <= size; i += rowsPerStatement) {
+					for (int r = 0; r < rowsPerStatement; r++) {
+						bindRow(multi, multiTypes, r * row.length, entities.get(i + r));
+					}
+					multi.addBatch();
+					if (++multiPending >= jdbcBatchSize) {
+						multi.executeBatch();
+						multiPending = 0;
+					}
+				}
+			}
+
+			if (i < size && single == null) {
+				single = connection.prepareStatement(createInsert(mapper, 1));
+				singleTypes = getParameterTypes(single, row.length);
+			}
+			for (; i < size; i++) {
+				bindRow(single, singleTypes, 0, entities.get(i));
+				single.addBatch();
+				if (++singlePending >= jdbcBatchSize) {
+					single.executeBatch();
+					singlePending = 0;
+				}
+			}
+
+			if (multiPending > 0) {
+				multi.executeBatch();
+				multiPending = 0;
+			}
+			if (singlePending > 0) {
+				single.executeBatch();
+				singlePending = 0;
+			}
+		}
+
+		private void bindRow(final PreparedStatement statement, final int[] types, final int offset,
+				final Object entity) throws SQLException {
+			mapper.map(entity, row);
+			for (int c = 0; c < row.length; c++) {
+				bind(statement, offset + c + 1, row[c], types[c]);
+			}
+		}
+
+		void close() throws SQLException {
+			try {
+				if (single != null) {
+					single.close();
+				}
+			}
+			finally {
+				if (multi != null) {
+					multi.close();
+				}
+			}
+		}
+	}
+}
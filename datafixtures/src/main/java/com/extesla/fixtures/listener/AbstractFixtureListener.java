@@ -0,0 +1,85 @@
+/* Copyright 2014 Extesla Digital Entertainment, Ltd. All rights reserved.
+ *
+ * Licensed under the MIT License (http://opensource.org/licenses/MIT)
+ *
+ * Permission is hereby granted, free of charge, to any
+ * person obtaining a copy of this software and associated
+ * documentation files (the "Software"), to deal in the
+ * Software without restriction, including without limitation
+ * the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software,
+ * and to permit persons to whom the Software is furnished
+ * to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice
+ * shall be included in all copies or substantial portions of
+ * the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY
+ * KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE
+ * WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR
+ * PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS
+ * OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR
+ * OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT
+ * OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE
+ * SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package com.extesla.fixtures.listener;
+
+/**
+ * A {@link FixtureListener} that ignores every event; extend it to handle
+ * only the events of interest.
+ *
+ * @author Sean.Quinn
+ * @since  1.0
+ */
+abstract public class AbstractFixtureListener implements FixtureListener {
+
+	@Override
+	public void loadStarted(final String[] packages) {
+	}
+
+	@Override
+	public void loadFinished(final int fixtures, final long nanos) {
+	}
+
+	@Override
+	public void fixtureStarted(final Class<?> fixture) {
+	}
+
+	@Override
+	public void fixtureInstantiated(final Class<?> fixture, final long nanos) {
+	}
+
+	@Override
+	public void referencesResolved(final Class<?> fixture, final int references, final long nanos) {
+	}
+
+	@Override
+	public void fixtureGenerated(final Class<?> fixture, final long entities, final long nanos) {
+	}
+
+	@Override
+	public void fixtureFinished(final Class<?> fixture, final long nanos) {
+	}
+
+	@Override
+	public void fixtureFailed(final Class<?> fixture, final Throwable cause) {
+	}
+
+	@Override
+	public void batchPersisted(final int entities, final long bytes, final long nanos) {
+	}
+
+	@Override
+	public void batchQueued(final int depth, final long stallNanos) {
+	}
+
+	@Override
+	public void batchDequeued(final int depth, final long idleNanos) {
+	}
+
+	@Override
+	public void runFinished(final long nanos) {
+	}
+}
@@ -0,0 +1,153 @@
+/* Copyright 2014 Extesla Digital Entertainment, Ltd. All rights reserved.
+ *
+ * Licensed under the MIT License (http://opensource.org/licenses/MIT)
+ *
+ * Permission is hereby granted, free of charge, to any
+ * person obtaining a copy of this software and associated
+ * documentation files (the "Software"), to deal in the
+ * Software without restriction, including without limitation
+ * the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software,
+ * and to permit persons to whom the Software is furnished
+ * to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice
+ * shall be included in all copies or substantial portions of
+ * the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY
+ * KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE
+ * WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR
+ * PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS
+ * OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR
+ * OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT
+ * OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE
+ * SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package com.extesla.fixtures.listener;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * Dispatches every event to each of a list of {@link FixtureListener}s, in
+ * the order they were added.
+ *
+ * @author Sean.Quinn
+ * @since  1.0
+ */
+public class CompositeFixtureListener implements FixtureListener {
+
+	private final List<FixtureListener> listeners = new CopyOnWriteArrayList<FixtureListener>();
+
+	/**
+	 * Adds a listener.
+	 *
+	 * @param listener the {@code FixtureListener}.
+	 */
+	public void add(final FixtureListener listener) {
+		listeners.add(listener);
+	}
+
+	/**
+	 * Removes a listener.
+	 *
+	 * @param listener the {@code FixtureListener}.
+	 * @return <tt>true</tt> if the listener had been added.
+	 */
+	public boolean remove(final FixtureListener listener) {
+		return listeners.remove(listener);
+	}
+
+	/**
+	 * Checks to see if no listener has been added.
+	 * @return <tt>true</tt> if there are no listeners.
+	 */
+	public boolean isEmpty() {
+		return listeners.isEmpty();
+	}
+
+	@Override
+	public void loadStarted(final String[] packages) {
+		for (final FixtureListener listener : listeners) {
+			listener.loadStarted(packages);
+		}
+	}
+
+	@Override
+	public void loadFinished(final int fixtures, final long nanos) {
+		for (final FixtureListener listener : listeners) {
+			listener.loadFinished(fixtures, nanos);
+		}
+	}
+
+	@Override
+	public void fixtureStarted(final Class<?> fixture) {
+		for (final FixtureListener listener : listeners) {
+			listener.fixtureStarted(fixture);
+		}
+	}
+
+	@Override
+	public void fixtureInstantiated(final Class<?> fixture, final long nanos) {
+		for (final FixtureListener listener : listeners) {
+			listener.fixtureInstantiated(fixture, nanos);
+		}
+	}
+
+	@Override
+	public void referencesResolved(final Class<?> fixture, final int references, final long nanos) {
+		for (final FixtureListener listener : listeners) {
+			listener.referencesResolved(fixture, references, nanos);
+		}
+	}
+
+	@Override
+	public void fixtureGenerated(final Class<?> fixture, final long entities, final long nanos) {
+		for (final FixtureListener listener : listeners) {
+			listener.fixtureGenerated(fixture, entities, nanos);
+		}
+	}
+
+	@Override
+	public void fixtureFinished(final Class<?> fixture, final long nanos) {
+		for (final FixtureListener listener : listeners) {
+			listener.fixtureFinished(fixture, nanos);
+		}
+	}
+
+	@Override
+	public void fixtureFailed(final Class<?> fixture, final Throwable cause) {
+		for (final FixtureListener listener : listeners) {
+			listener.fixtureFailed(fixture, cause);
+		}
+	}
+
+	@Override
+	public void batchPersisted(final int entities, final long bytes, final long nanos) {
+		for (final FixtureListener listener : listeners) {
+			listener.batchPersisted(entities, bytes, nanos);
+		}
+	}
+
+	@Override
+	public void batchQueued(final int depth, final long stallNanos) {
+		for (final FixtureListener listener : listeners) {
+			listener.batchQueued(depth, stallNanos);
+		}
+	}
+
+	@Override
+	public void batchDequeued(final int depth, final long idleNanos) {
+		for (final FixtureListener listener : listeners) {
+			listener.batchDequeued(depth, idleNanos);
+		}
+	}
+
+	@Override
+	public void runFinished(final long nanos) {
+		for (final FixtureListener listener : listeners) {
+			listener.runFinished(nanos);
+		}
+	}
+}
@@ -0,0 +1,121 @@
+/* Copyright 2014 Extesla Digital Entertainment, Ltd. All rights reserved.
+ *
+ * Licensed under the MIT License (http://opensource.org/licenses/MIT)
+ *
+ * Permission is hereby granted, free of charge, to any
+ * person obtaining a copy of this software and associated
+ * documentation files (the "Software"), to deal in the
+ * Software without restriction, including without limitation
+ * the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software,
+ * and to permit persons to whom the Software is furnished
+ * to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice
+ * shall be included in all copies or substantial portions of
+ * the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY
+ * KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE
+ * WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR
+ * PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS
+ * OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR
+ * OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT
+ * OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE
+ * SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package com.extesla.fixtures.listener;
+
+import java.io.File;
+import java.util.Collections;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import com.extesla.fixtures.plan.FixtureCosts;
+
+/**
+ * A {@link FixtureListener} that records the time every fixture takes, and
+ * the number of entities it generates, in a {@link FixtureCosts} file once
+ * the run has finished, so that later runs can be planned with estimated
+ * costs. Only the fixtures that were instantiated and finished are
+ * recorded: a fixture replayed from a snapshot says nothing of the time it
+ * takes to generate it.
+ *
+ * The runs are applied to the cost file under a file lock, so several
+ * processors, e.g. test forks, may share it, see {@link FixtureCosts}.
+ *
+ * @author Sean.Quinn
+ * @since  1.0
+ */
+public class CostRecorder extends AbstractFixtureListener {
+
+	private final FixtureCosts costs;
+
+	/**
+	 * The fixtures of the current run that were instantiated, rather than
+	 * replayed.
+	 */
+	private final Set<Class<?>> instantiated = Collections.newSetFromMap(new ConcurrentHashMap<Class<?>, Boolean>());
+
+	/**
+	 * The number of entities generated by each fixture of the current run.
+	 */
+	private final ConcurrentMap<Class<?>, Long> entities = new ConcurrentHashMap<Class<?>, Long>();
+
+	/**
+	 * The time each finished fixture of the current run took.
+	 */
+	private final ConcurrentMap<Class<?>, Long> nanos = new ConcurrentHashMap<Class<?>, Long>();
+
+	/**
+	 * @param file the cost file.
+	 */
+	public CostRecorder(final File file) {
+		this.costs = new FixtureCosts(file);
+	}
+
+	/**
+	 * @return the cost file.
+	 */
+	public File getFile() {
+		return costs.getFile();
+	}
+
+	@Override
+	public void loadStarted(final String[] packages) {
+		instantiated.clear();
+		entities.clear();
+		nanos.clear();
+	}
+
+	@Override
+	public void fixtureInstantiated(final Class<?> fixture, final long nanos) {
+		instantiated.add(fixture);
+	}
+
+	@Override
+	public void fixtureGenerated(final Class<?> fixture, final long entities, final long nanos) {
+		this.entities.put(fixture, entities);
+	}
+
+	@Override
+	public void fixtureFinished(final Class<?> fixture, final long nanos) {
+		this.nanos.put(fixture, nanos);
+	}
+
+	@Override
+	public void runFinished(final long nanos) {
+		synchronized (costs) {
+			for (final Map.Entry<Class<?>, Long> entry : this.nanos.entrySet()) {
+				if (!instantiated.contains(entry.getKey())) {
+					continue;
+				}
+				final Long count = entities.get(entry.getKey());
+				costs.record(entry.getKey(), entry.getValue(), count != null ? count : 0);
+			}
+			costs.save();
+		}
+	}
+}
@@ -0,0 +1,144 @@
+/* Copyright 2014 Extesla Digital Entertainment, Ltd. All rights reserved.
+ *
+ * Licensed under the MIT License (http://opensource.org/licenses/MIT)
+ *
+ * Permission is hereby granted, free of charge, to any
+ * person obtaining a copy of this software and associated
+ * documentation files (the "Software"), to deal in the
+ * Software without restriction, including without limitation
+ * the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software,
+ * and to permit persons to whom the Software is furnished
+ * to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice
+ * shall be included in all copies or substantial portions of
+ * the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY
+ * KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE
+ * WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR
+ * PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS
+ * OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR
+ * OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT
+ * OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE
+ * SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package com.extesla.fixtures.listener;
+
+/**
+ * Receives the events of a fixture processor's run. All durations are given
+ * in nanoseconds. When fixtures are generated in parallel the fixture and
+ * reference events arrive concurrently from several threads, so
+ * implementations must be thread-safe.
+ *
+ * @author Sean.Quinn
+ * @since  1.0
+ * @see AbstractFixtureListener
+ */
+public interface FixtureListener {
+
+	/**
+	 * Called before the loader looks for fixtures.
+	 *
+	 * @param packages the Java packages being loaded.
+	 */
+	void loadStarted(String[] packages);
+
+	/**
+	 * Called once the loader has found the fixtures.
+	 *
+	 * @param fixtures the number of fixtures found.
+	 * @param nanos the time taken to load them.
+	 */
+	void loadFinished(int fixtures, long nanos);
+
+	/**
+	 * Called before a fixture is instantiated.
+	 *
+	 * @param fixture the fixture {@code Class}.
+	 */
+	void fixtureStarted(Class<?> fixture);
+
+	/**
+	 * Called once a fixture has been instantiated.
+	 *
+	 * @param fixture the fixture {@code Class}.
+	 * @param nanos the time taken by the constructor.
+	 */
+	void fixtureInstantiated(Class<?> fixture, long nanos);
+
+	/**
+	 * Called once the {@link com.extesla.fixtures.annotations.FixtureReference}
+	 * fields of a fixture have been set.
+	 *
+	 * @param fixture the fixture {@code Class}.
+	 * @param references the number of references resolved.
+	 * @param nanos the time taken, including the generation of referenced
+	 * 		fixtures that had not run yet.
+	 */
+	void referencesResolved(Class<?> fixture, int references, long nanos);
+
+	/**
+	 * Called once a fixture's generate methods have returned.
+	 *
+	 * @param fixture the fixture {@code Class}.
+	 * @param entities the number of entities generated.
+	 * @param nanos the time spent in the generate methods, including any
+	 * 		batches persisted while they ran.
+	 */
+	void fixtureGenerated(Class<?> fixture, long entities, long nanos);
+
+	/**
+	 * Called once a fixture has completed.
+	 *
+	 * @param fixture the fixture {@code Class}.
+	 * @param nanos the time taken from {@link #fixtureStarted(Class)} on.
+	 */
+	void fixtureFinished(Class<?> fixture, long nanos);
+
+	/**
+	 * Called when a fixture has failed.
+	 *
+	 * @param fixture the fixture {@code Class}.
+	 * @param cause the cause of the failure.
+	 */
+	void fixtureFailed(Class<?> fixture, Throwable cause);
+
+	/**
+	 * Called once a batch of entities has been persisted.
+	 *
+	 * @param entities the number of entities in the batch.
+	 * @param bytes the estimated size of the batch in bytes, or <tt>0</tt>
+	 * 		if unknown.
+	 * @param nanos the time taken to persist the batch.
+	 */
+	void batchPersisted(int entities, long bytes, long nanos);
+
+	/**
+	 * Called once a full batch has been queued for the persistence workers,
+	 * when persistence is pipelined.
+	 *
+	 * @param depth the number of batches in the queue.
+	 * @param stallNanos the time the generating thread waited for space in
+	 * 		the queue; persistence is the bottleneck if this is high.
+	 */
+	void batchQueued(int depth, long stallNanos);
+
+	/**
+	 * Called once a persistence worker has taken a batch from the queue,
+	 * when persistence is pipelined.
+	 *
+	 * @param depth the number of batches left in the queue.
+	 * @param idleNanos the time the worker waited for a batch; generation
+	 * 		is the bottleneck if this is high.
+	 */
+	void batchDequeued(int depth, long idleNanos);
+
+	/**
+	 * Called at the end of the run, whether or not it succeeded.
+	 *
+	 * @param nanos the time taken by the whole run.
+	 */
+	void runFinished(long nanos);
+}
@@ -0,0 +1,138 @@
+/* Copyright 2014 Extesla Digital Entertainment, Ltd. All rights reserved.
+ *
+ * Licensed under the MIT License (http://opensource.org/licenses/MIT)
+ *
+ * Permission is hereby granted, free of charge, to any
+ * person obtaining a copy of this software and associated
+ * documentation files (the "Software"), to deal in the
+ * Software without restriction, including without limitation
+ * the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software,
+ * and to permit persons to whom the Software is furnished
+ * to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice
+ * shall be included in all copies or substantial portions of
+ * the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY
+ * KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE
+ * WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR
+ * PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS
+ * OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR
+ * OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT
+ * OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE
+ * SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package com.extesla.fixtures.listener;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * A lock-free histogram of non-negative values, recorded in power-of-two
+ * buckets. Percentiles are reported as the upper bound of the bucket they
+ * fall in, so are accurate to within a factor of two; the count, total,
+ * minimum and maximum are exact.
+ *
+ * @author Sean.Quinn
+ * @since  1.0
+ */
+public class Histogram {
+
+	private final AtomicLongArray buckets = new AtomicLongArray(Long.SIZE);
+
+	private final AtomicLong count = new AtomicLong();
+
+	private final AtomicLong total = new AtomicLong();
+
+	private final AtomicLong min = new AtomicLong(Long.MAX_VALUE);
+
+	private final AtomicLong max = new AtomicLong(Long.MIN_VALUE);
+
+	/**
+	 * Records a value; negative values are recorded as <tt>0</tt>.
+	 *
+	 * @param value the value.
+	 */
+	public void record(final long value) {
+		final long v = Math.max(0, value);
+		buckets.incrementAndGet(Long.SIZE - Long.numberOfLeadingZeros(v) - (v == 0 ? 0 : 1));
+		count.incrementAndGet();
+		total.addAndGet(v);
+
+		long current;
+		while (v < (current = min.get()) && !min.compareAndSet(current, v)) {
+			// retry.
+		}
+		while (v > (current = max.get()) && !max.compareAndSet(current, v)) {
+			// retry.
+		}
+	}
+
+	/**
+	 * @return the number of values recorded.
+	 */
+	public long getCount() {
+		return count.get();
+	}
+
+	/**
+	 * @return the sum of the values recorded.
+	 */
+	public long getTotal() {
+		return total.get();
+	}
+
+	/**
+	 * @return the smallest value recorded, or <tt>0</tt> if none has been.
+	 */
+	public long getMin() {
+		return getCount() == 0 ? 0 : min.get();
+	}
+
+	/**
+	 * @return the largest value recorded, or <tt>0</tt> if none has been.
+	 */
+	public long getMax() {
+		return getCount() == 0 ? 0 : max.get();
+	}
+
+	/**
+	 * @return the mean of the values recorded, or <tt>0</tt> if none has been.
+	 */
+	public double getMean() {
+		final long n = getCount();
+		return n == 0 ? 0 : (double) getTotal() / n;
+	}
+
+	/**
+	 * Returns an approximation of the value below which the given fraction
+	 * of the recorded values fall.
+	 *
+	 * @param quantile the quantile, between <tt>0</tt> and <tt>1</tt>.
+	 * @return the upper bound of the bucket holding the quantile, capped to
+	 * 		the largest value recorded.
+	 */
+	public long getPercentile(final double quantile) {
+		if (quantile < 0 || quantile > 1) {
+			throw new IllegalArgumentException("Quantile must be between 0 and 1: " + quantile);
+		}
+
+		final long n = getCount();
+		if (n == 0) {
+			return 0;
+		}
+
+		final long rank = Math.max(1, (long) Math.ceil(quantile * n));
+		long seen = 0;
+		for (int i = 0; i < buckets.length(); i++) {
+			seen += buckets.get(i);
+			if (seen >= rank) {
+				final long upper = i >= Long.SIZE - 1 ? Long.MAX_VALUE : (1L << (i + 1)) - 1;
+				return Math.min(upper, getMax());
+			}
+		}
+		return getMax();
+	}
+}
@@ -0,0 +1,324 @@
+/* Copyright 2014 Extesla Digital Entertainment, Ltd. All rights reserved.
+ *
+ * Licensed under the MIT License (http://opensource.org/licenses/MIT)
+ *
+ * Permission is hereby granted, free of charge, to any
+ * person obtaining a copy of this software and associated
+ * documentation files (the "Software"), to deal in the
+ * Software without restriction, including without limitation
+ * the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software,
+ * and to permit persons to whom the Software is furnished
+ * to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice
+ * shall be included in all copies or substantial portions of
+ * the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY
+ * KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE
+ * WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR
+ * PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS
+ * OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR
+ * OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT
+ * OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE
+ * SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package com.extesla.fixtures.listener;
+
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Formatter;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * A {@link FixtureListener} that records the timings of a run in memory and
+ * reports a summary once the run has finished: the load time, per-fixture
+ * timings and throughput, and histograms of the fixture and persist batch
+ * durations and, when persistence is pipelined, of the queue depth and of
+ * the time the generating and persisting threads spent waiting on each
+ * other.
+ *
+ * The summary is logged at <tt>INFO</tt> level unless a {@link PrintStream}
+ * is given, and is always available from {@link #getReport()}. The metrics
+ * are reset whenever a new run starts loading.
+ *
+ * @author Sean.Quinn
+ * @since  1.0
+ */
+public class MetricsCollector implements FixtureListener {
+
+	private final Logger logger = LoggerFactory.getLogger(MetricsCollector.class);
+
+	/**
+	 * The stream to which the report is printed; if <tt>null</tt> the report
+	 * is logged.
+	 */
+	private final PrintStream out;
+
+	private volatile Metrics metrics = new Metrics();
+
+	/**
+	 * Creates a collector that logs its report.
+	 */
+	public MetricsCollector() {
+		this(null);
+	}
+
+	/**
+	 * Creates a collector that prints its report to the stream.
+	 *
+	 * @param out the {@code PrintStream}, or <tt>null</tt> to log the report.
+	 */
+	public MetricsCollector(final PrintStream out) {
+		this.out = out;
+	}
+
+	@Override
+	public void loadStarted(final String[] packages) {
+		metrics = new Metrics();
+	}
+
+	@Override
+	public void loadFinished(final int fixtures, final long nanos) {
+		metrics.fixtures = fixtures;
+		metrics.loadNanos = nanos;
+	}
+
+	@Override
+	public void fixtureStarted(final Class<?> fixture) {
+		metrics.get(fixture);
+	}
+
+	@Override
+	public void fixtureInstantiated(final Class<?> fixture, final long nanos) {
+		metrics.get(fixture).instantiateNanos = nanos;
+	}
+
+	@Override
+	public void referencesResolved(final Class<?> fixture, final int references, final long nanos) {
+		final FixtureMetrics m = metrics.get(fixture);
+		m.references = references;
+		m.referenceNanos = nanos;
+	}
+
+	@Override
+	public void fixtureGenerated(final Class<?> fixture, final long entities, final long nanos) {
+		final FixtureMetrics m = metrics.get(fixture);
+		m.entities = entities;
+		m.generateNanos = nanos;
+		metrics.entities.addAndGet(entities);
+	}
+
+	@Override
+	public void fixtureFinished(final Class<?> fixture, final long nanos) {
+		metrics.get(fixture).totalNanos = nanos;
+		metrics.fixtureNanos.record(nanos);
+	}
+
+	@Override
+	public void fixtureFailed(final Class<?> fixture, final Throwable cause) {
+		metrics.get(fixture).failed = true;
+	}
+
+	@Override
+	public void batchPersisted(final int entities, final long bytes, final long nanos) {
+		metrics.batchNanos.record(nanos);
+		metrics.batchEntities.record(entities);
+		metrics.batchBytes.addAndGet(bytes);
+	}
+
+	@Override
+	public void batchQueued(final int depth, final long stallNanos) {
+		metrics.queueDepth.record(depth);
+		metrics.stallNanos.record(stallNanos);
+	}
+
+	@Override
+	public void batchDequeued(final int depth, final long idleNanos) {
+		metrics.idleNanos.record(idleNanos);
+	}
+
+	@Override
+	public void runFinished(final long nanos) {
+		metrics.runNanos = nanos;
+
+		final String report = getReport();
+		if (out != null) {
+			out.print(report);
+			out.flush();
+		}
+		else {
+			logger.info("{}", report);
+		}
+	}
+
+	/**
+	 * @return the histogram of fixture durations, in nanoseconds, of the
+	 * 		current run.
+	 */
+	public Histogram getFixtureHistogram() {
+		return metrics.fixtureNanos;
+	}
+
+	/**
+	 * @return the histogram of persist batch durations, in nanoseconds, of
+	 * 		the current run.
+	 */
+	public Histogram getBatchHistogram() {
+		return metrics.batchNanos;
+	}
+
+	/**
+	 * @return the total number of entities generated in the current run.
+	 */
+	public long getEntityCount() {
+		return metrics.entities.get();
+	}
+
+	/**
+	 * Returns the summary report of the current run.
+	 * @return the report.
+	 */
+	public String getReport() {
+		final Metrics m = metrics;
+		final List<FixtureMetrics> fixtures = new ArrayList<FixtureMetrics>(m.fixtureMetrics.values());
+		Collections.sort(fixtures, new Comparator<FixtureMetrics>() {
+			@Override
+			public int compare(final FixtureMetrics o1, final FixtureMetrics o2) {
+				return o1.totalNanos < o2.totalNanos ? 1 : (o1.totalNanos == o2.totalNanos ? 0 : -1);
+			}
+		});
+
+		final StringBuilder sb = new StringBuilder();
+		final Formatter f = new Formatter(sb, Locale.ROOT);
+		final String nl = String.format("%n");
+
+		f.format("Fixture run: %d fixtures, %d entities in %s (%s entities/s)%n",
+				m.fixtures, m.entities.get(), millis(m.runNanos), rate(m.entities.get(), m.runNanos));
+		f.format("  load:       %s%n", millis(m.loadNanos));
+		f.format("  fixtures:   %s%n", summary(m.fixtureNanos));
+		f.format("  batches:    %s, %d entities/batch mean, %d bytes%n",
+				summary(m.batchNanos), Math.round(m.batchEntities.getMean()), m.batchBytes.get());
+		if (m.queueDepth.getCount() > 0) {
+			f.format("  queue:      depth p50=%d p90=%d max=%d%n", m.queueDepth.getPercentile(0.5),
+					m.queueDepth.getPercentile(0.9), m.queueDepth.getMax());
+			f.format("  waits:      %s generating on a full queue, %s persisting on an empty queue%n",
+					millis(m.stallNanos.getTotal()), millis(m.idleNanos.getTotal()));
+		}
+
+		if (!fixtures.isEmpty()) {
+			f.format("%n  %-48s %10s %10s %10s %10s %10s %12s%n",
+					"fixture", "total", "new", "refs", "generate", "entities", "entities/s");
+			for (final FixtureMetrics fm : fixtures) {
+				f.format("  %-48s %10s %10s %10s %10s %10d %12s%s",
+						abbreviate(fm.fixture.getName(), 48), millis(fm.totalNanos),
+						millis(fm.instantiateNanos), millis(fm.referenceNanos), millis(fm.generateNanos),
+						fm.entities, rate(fm.entities, fm.generateNanos), fm.failed ? " FAILED" + nl : nl);
+			}
+		}
+		f.flush();
+		return sb.toString();
+	}
+
+	private static String summary(final Histogram histogram) {
+		return String.format(Locale.ROOT, "n=%d min=%s p50=%s p90=%s p99=%s max=%s",
+				histogram.getCount(), millis(histogram.getMin()), millis(histogram.getPercentile(0.5)),
+				millis(histogram.getPercentile(0.9)), millis(histogram.getPercentile(0.99)),
+				millis(histogram.getMax()));
+	}
+
+	private static String millis(final long nanos) {
+		return String.format(Locale.ROOT, "%.3fms", nanos / (double) TimeUnit.MILLISECONDS.toNanos(1));
+	}
+
+	private static String rate(final long count, final long nanos) {
+		if (nanos <= 0) {
+			return "-";
+		}
+		return String.format(Locale.ROOT, "%.0f", count * (double) TimeUnit.SECONDS.toNanos(1) / nanos);
+	}
+
+	private static String abbreviate(final String name, final int width) {
+		return name.length() <= width ? name : "..." + name.substring(name.length() - width + 3);
+	}
+
+	/**
+	 * The metrics of a single run.
+	 */
+	private static class Metrics {
+
+		private final ConcurrentMap<Class<?>, FixtureMetrics> fixtureMetrics = new ConcurrentHashMap<Class<?>, FixtureMetrics>();
+
+		private final Histogram fixtureNanos = new Histogram();
+
+		private final Histogram batchNanos = new Histogram();
+
+		private final Histogram batchEntities = new Histogram();
+
+		private final AtomicLong batchBytes = new AtomicLong();
+
+		private final Histogram queueDepth = new Histogram();
+
+		private final Histogram stallNanos = new Histogram();
+
+		private final Histogram idleNanos = new Histogram();
+
+		private final AtomicLong entities = new AtomicLong();
+
+		private volatile int fixtures;
+
+		private volatile long loadNanos;
+
+		private volatile long runNanos;
+
+		private FixtureMetrics get(final Class<?> fixture) {
+			FixtureMetrics m = fixtureMetrics.get(fixture);
+			if (m == null) {
+				m = new FixtureMetrics(fixture);
+				final FixtureMetrics existing = fixtureMetrics.putIfAbsent(fixture, m);
+				if (existing != null) {
+					m = existing;
+				}
+			}
+			return m;
+		}
+	}
+
+	/**
+	 * The metrics of a single fixture; each fixture is generated by a single
+	 * thread.
+	 */
+	private static class FixtureMetrics {
+
+		private final Class<?> fixture;
+
+		private volatile long instantiateNanos;
+
+		private volatile int references;
+
+		private volatile long referenceNanos;
+
+		private volatile long generateNanos;
+
+		private volatile long entities;
+
+		private volatile long totalNanos;
+
+		private volatile boolean failed;
+
+		private FixtureMetrics(final Class<?> fixture) {
+			this.fixture = fixture;
+		}
+	}
+}
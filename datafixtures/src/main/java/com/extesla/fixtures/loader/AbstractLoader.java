@@ -27,14 +27,15 @@
 package com.extesla.fixtures.loader;
 
 import java.util.ArrayList;
-import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
 
-import com.extesla.fixtures.compare.FixtureOrderComparator;
+import com.extesla.fixtures.annotations.Fixture;
+import com.extesla.fixtures.exceptions.RecursiveDependencyException;
+import com.extesla.fixtures.graph.FixtureGraph;
 
 /**
  *
@@ -53,7 +54,7 @@ abstract public class AbstractLoader implements Loader {
 	private final Map<String, Class<?>> fixtures = new HashMap<String, Class<?>>();
 
 	/**
-	 * List of fixtures, ordered by their sort priorty.
+	 * List of fixtures, in dependency order.
 	 */
 	private List<Class<?>> orderedFixtures;
 
@@ -98,11 +99,21 @@ abstract public class AbstractLoader implements Loader {
 	}
 
 	/**
+	 * Orders the loaded fixtures so that every fixture comes after the
+	 * fixtures it depends on, and otherwise by {@link Fixture#order()}.
 	 *
+	 * @throws RecursiveDependencyException if the fixtures depend on each
+	 * 		other in a cycle.
+	 * @see FixtureGraph#sort()
 	 */
 	protected void orderFixtures() {
-		final List<Class<?>> orderedFixtures = new ArrayList<Class<?>>(getFixtures());
-		Collections.sort(orderedFixtures, new FixtureOrderComparator());
+		final List<Class<?>> orderedFixtures = new ArrayList<Class<?>>(fixtures.size());
+		for (final Class<?> fixture : new FixtureGraph(fixtures.values()).sort()) {
+			// ** The graph also holds dependencies from outside the packages.
+			if (fixtures.get(fixture.getName()) == fixture) {
+				orderedFixtures.add(fixture);
+			}
+		}
 		this.orderedFixtures = orderedFixtures;
 	}
 }
@@ -0,0 +1,190 @@
+/* Copyright 2014 Extesla Digital Entertainment, Ltd. All rights reserved.
+ *
+ * Licensed under the MIT License (http://opensource.org/licenses/MIT)
+ *
+ * Permission is hereby granted, free of charge, to any
+ * person obtaining a copy of this software and associated
+ * documentation files (the "Software"), to deal in the
+ * Software without restriction, including without limitation
+ * the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software,
+ * and to permit persons to whom the Software is furnished
+ * to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice
+ * shall be included in all copies or substantial portions of
+ * the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY
+ * KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE
+ * WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR
+ * PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS
+ * OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR
+ * OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT
+ * OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE
+ * SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package com.extesla.fixtures.loader;
+
+import java.io.File;
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+import org.reflections.Reflections;
+import org.reflections.scanners.TypeAnnotationsScanner;
+import org.reflections.util.ClasspathHelper;
+import org.reflections.util.ConfigurationBuilder;
+
+import com.extesla.fixtures.annotations.Fixture;
+
+/**
+ * A {@code DataFixture} is a class of objects which represents data to be
+ * loaded into a persistent storage container, i.e. a database. Data fixtures
+ * are representative of domain-objects and are one option for populating a
+ * database with test, or base-line, data.
+ *
+ * @author Sean.Quinn
+ * @since  1.0
+ */
+public class AnnotationLoader extends AbstractLoader {
+
+	private final String[] packages;
+
+	/**
+	 * The on-disk cache of scan results; <tt>null</tt> if every location is
+	 * scanned.
+	 */
+	private ScanCache scanCache;
+
+	public AnnotationLoader(final String pkg) {
+		this(new String[]{ pkg });
+	}
+
+	public AnnotationLoader(final String[] packages) {
+		this.packages = packages;
+	}
+
+	/**
+	 * Returns the Java packages in which fixtures are looked for.
+	 * @return the packages.
+	 */
+	protected String[] getPackages() {
+		return packages;
+	}
+
+	/**
+	 * Sets the file in which the fixtures found on each classpath location
+	 * are cached, so that later loads only scan the locations that have
+	 * changed. The file may be shared by concurrently running JVMs.
+	 *
+	 * @param file the cache file, or <tt>null</tt> to always scan.
+	 */
+	public void setScanCache(final File file) {
+		this.scanCache = (file != null) ? new ScanCache(file) : null;
+	}
+
+	@Override
+	public void load() {
+		final Set<Class<?>> classes = findFixtures(packages);
+		for (final Class<?> clazz : classes) {
+			addFixture(clazz);
+		}
+		orderFixtures();
+	}
+
+	public Set<Class<?>> findFixtures(final String[] packages) {
+		return findFixtures(getLocations(packages));
+	}
+
+	/**
+	 * Returns the classpath locations, directories or archives, that contain
+	 * the packages.
+	 *
+	 * @param packages the Java packages.
+	 * @return the locations.
+	 */
+	protected Set<URL> getLocations(final String[] packages) {
+		final Set<URL> urls = new HashSet<URL>();
+		for (final String pkg : packages) {
+			urls.addAll(ClasspathHelper.forPackage(pkg));
+		}
+		return urls;
+	}
+
+	/**
+	 * Finds the fixtures of the classpath locations, through the scan cache
+	 * if one was set.
+	 *
+	 * @param urls the locations.
+	 * @return the fixture classes.
+	 */
+	protected Set<Class<?>> findFixtures(final Set<URL> urls) {
+		if (scanCache != null) {
+			return findFixtures(urls, scanCache);
+		}
+		return scan(urls);
+	}
+
+	/**
+	 * Finds the fixtures of every location, scanning only the locations that
+	 * are not in the cache or have changed.
+	 */
+	private Set<Class<?>> findFixtures(final Set<URL> urls, final ScanCache cache) {
+		cache.load();
+
+		final Set<Class<?>> fixtures = new LinkedHashSet<Class<?>>();
+		final ClassLoader classLoader = getClassLoader();
+		for (final URL url : urls) {
+			final String fingerprint = ScanCache.fingerprint(url);
+			final List<IndexEntry> cached = (fingerprint != null) ? cache.get(url, fingerprint) : null;
+			if (cached == null) {
+				final Set<Class<?>> scanned = scan(Collections.singleton(url));
+				fixtures.addAll(scanned);
+				if (fingerprint != null) {
+					final List<IndexEntry> entries = new ArrayList<IndexEntry>(scanned.size());
+					for (final Class<?> clazz : scanned) {
+						entries.add(IndexEntry.of(clazz));
+					}
+					cache.put(url, fingerprint, entries);
+				}
+				continue;
+			}
+
+			for (final IndexEntry entry : cached) {
+				try {
+					fixtures.add(Class.forName(entry.getClassName(), false, classLoader));
+				}
+				catch (final ClassNotFoundException ex) {
+					throw new IllegalStateException("The scan cache lists the class: "
+							+ entry.getClassName() + ", which could not be loaded.", ex);
+				}
+			}
+		}
+
+		cache.save();
+		return fixtures;
+	}
+
+	/**
+	 * Returns the {@link ClassLoader} through which fixture classes are
+	 * loaded by name.
+	 * @return the class loader.
+	 */
+	protected ClassLoader getClassLoader() {
+		final ClassLoader classLoader = Thread.currentThread().getContextClassLoader();
+		return classLoader != null ? classLoader : getClass().getClassLoader();
+	}
+
+	private Set<Class<?>> scan(final Set<URL> urls) {
+		final Reflections reflections = new Reflections(new ConfigurationBuilder()
+				.setUrls(urls)
+				.setScanners(new TypeAnnotationsScanner()));
+		final Set<Class<?>> fixtures = reflections.getTypesAnnotatedWith(Fixture.class);
+		return fixtures;
+	}
+}
@@ -0,0 +1,87 @@
+/* Copyright 2014 Extesla Digital Entertainment, Ltd. All rights reserved.
+ *
+ * Licensed under the MIT License (http://opensource.org/licenses/MIT)
+ *
+ * Permission is hereby granted, free of charge, to any
+ * person obtaining a copy of this software and associated
+ * documentation files (the "Software"), to deal in the
+ * Software without restriction, including without limitation
+ * the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software,
+ * and to permit persons to whom the Software is furnished
+ * to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice
+ * shall be included in all copies or substantial portions of
+ * the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY
+ * KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE
+ * WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR
+ * PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS
+ * OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR
+ * OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT
+ * OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE
+ * SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package com.extesla.fixtures.loader;
+
+/**
+ * A single fixture of the compile-time fixture index, as read by the
+ * {@link IndexLoader}, or of the {@link ScanCache}. Only the class name is
+ * kept: the order and the edges of a fixture are read from its annotations
+ * once the class is loaded, as for a scanned fixture.
+ *
+ * @author Sean.Quinn
+ * @since  1.0
+ */
+public class IndexEntry {
+
+	private final String className;
+
+	public IndexEntry(final String className) {
+		this.className = className;
+	}
+
+	/**
+	 * Parses a line of the index: the class name. Indexes written by earlier
+	 * versions had further tab separated columns, which are ignored.
+	 *
+	 * @param line the line.
+	 * @return the index entry.
+	 */
+	public static IndexEntry parse(final String line) {
+		final int separator = line.indexOf('\t');
+		final String className = (separator < 0) ? line : line.substring(0, separator);
+		if (className.length() == 0) {
+			throw new IllegalArgumentException("Malformed fixture index entry: " + line);
+		}
+		return new IndexEntry(className);
+	}
+
+	/**
+	 * Describes the fixture, {@link Class}.
+	 *
+	 * @param clazz the fixture {@code Class}.
+	 * @return the index entry.
+	 */
+	public static IndexEntry of(final Class<?> clazz) {
+		return new IndexEntry(clazz.getName());
+	}
+
+	/**
+	 * Formats this entry as a line of the index.
+	 * @return the index line.
+	 */
+	public String format() {
+		return className;
+	}
+
+	/**
+	 * Returns the binary name of the fixture class.
+	 * @return the class name.
+	 */
+	public String getClassName() {
+		return className;
+	}
+}
@@ -0,0 +1,212 @@
+/* Copyright 2014 Extesla Digital Entertainment, Ltd. All rights reserved.
+ *
+ * Licensed under the MIT License (http://opensource.org/licenses/MIT)
+ *
+ * Permission is hereby granted, free of charge, to any
+ * person obtaining a copy of this software and associated
+ * documentation files (the "Software"), to deal in the
+ * Software without restriction, including without limitation
+ * the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software,
+ * and to permit persons to whom the Software is furnished
+ * to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice
+ * shall be included in all copies or substantial portions of
+ * the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY
+ * KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE
+ * WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR
+ * PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS
+ * OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR
+ * OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT
+ * OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE
+ * SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package com.extesla.fixtures.loader;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Enumeration;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Loads the fixtures listed in the indexes written at compile time by the
+ * {@code FixtureIndexProcessor} (of the datafixtures-processor module),
+ * keeping those located in the configured packages. Every classpath location
+ * holding the packages is read from its own index; the locations that have
+ * none, e.g. a module built without the processor, are scanned as by the
+ * {@link AnnotationLoader}, through the scan cache if one was set.
+ *
+ * @author Sean.Quinn
+ * @since  1.0
+ */
+public class IndexLoader extends AnnotationLoader {
+
+	/**
+	 * The location of the index on the classpath.
+	 */
+	public static final String INDEX_LOCATION = "META-INF/datafixtures/fixtures.index";
+
+	/**
+	 * The index entries in the packages, by classpath location.
+	 */
+	private final Map<String, List<IndexEntry>> indexes = new LinkedHashMap<String, List<IndexEntry>>();
+
+	/**
+	 * The index entries of the loaded fixtures, by class name.
+	 */
+	private final Map<String, IndexEntry> entries = new LinkedHashMap<String, IndexEntry>();
+
+	private final Logger logger = LoggerFactory.getLogger(IndexLoader.class);
+
+	public IndexLoader(final String pkg) {
+		this(new String[]{ pkg });
+	}
+
+	public IndexLoader(final String[] packages) {
+		super(packages);
+	}
+
+	@Override
+	public void load() {
+		final ClassLoader classLoader = getClassLoader();
+		final Enumeration<URL> urls;
+		try {
+			urls = classLoader.getResources(INDEX_LOCATION);
+		}
+		catch (final IOException ex) {
+			throw new IllegalStateException("Unable to look up the fixture index.", ex);
+		}
+		while (urls.hasMoreElements()) {
+			final URL url = urls.nextElement();
+			final String location = getLocation(url);
+			if (!indexes.containsKey(location)) {
+				indexes.put(location, readIndex(url));
+			}
+		}
+
+		for (final List<IndexEntry> index : indexes.values()) {
+			for (final IndexEntry entry : index) {
+				entries.put(entry.getClassName(), entry);
+			}
+		}
+		for (final IndexEntry entry : entries.values()) {
+			try {
+				addFixture(Class.forName(entry.getClassName(), false, classLoader));
+			}
+			catch (final ClassNotFoundException ex) {
+				throw new IllegalStateException("The fixture index lists the class: "
+						+ entry.getClassName() + ", which could not be loaded.", ex);
+			}
+		}
+
+		final Set<URL> unindexed = new LinkedHashSet<URL>();
+		for (final URL url : getLocations(getPackages())) {
+			if (!indexes.containsKey(normalize(url.toExternalForm()))) {
+				unindexed.add(url);
+			}
+		}
+		if (!unindexed.isEmpty()) {
+			logger.info("No fixture index was found in {} classpath location(s), scanning: {}.",
+					unindexed.size(), unindexed);
+			for (final Class<?> clazz : findFixtures(unindexed)) {
+				if (isInPackages(clazz.getName())) {
+					addFixture(clazz);
+				}
+			}
+		}
+		orderFixtures();
+	}
+
+	/**
+	 * Returns the index entries of the loaded fixtures; the fixtures found by
+	 * scanning the locations without an index have none.
+	 *
+	 * @return the index entries, by class name.
+	 */
+	public Map<String, IndexEntry> getIndexEntries() {
+		return Collections.unmodifiableMap(entries);
+	}
+
+	/**
+	 * Returns the index entries in the packages of every classpath location
+	 * that has an index.
+	 *
+	 * @return the index entries, by location.
+	 */
+	public Map<String, List<IndexEntry>> getIndexes() {
+		return Collections.unmodifiableMap(indexes);
+	}
+
+	/**
+	 * Returns the classpath location of an index, in the form of the
+	 * locations of {@link #getLocations(String[])}: the directory, or the
+	 * archive, without a trailing separator.
+	 */
+	private static String getLocation(final URL index) {
+		final String url = index.toExternalForm();
+		return normalize(url.substring(0, url.length() - INDEX_LOCATION.length()));
+	}
+
+	private static String normalize(final String location) {
+		String normalized = location;
+		if (normalized.startsWith("jar:")) {
+			normalized = normalized.substring("jar:".length());
+		}
+		if (normalized.endsWith("!/")) {
+			normalized = normalized.substring(0, normalized.length() - 2);
+		}
+		if (normalized.endsWith("/")) {
+			normalized = normalized.substring(0, normalized.length() - 1);
+		}
+		return normalized;
+	}
+
+	private List<IndexEntry> readIndex(final URL url) {
+		final List<IndexEntry> index = new ArrayList<IndexEntry>();
+		try {
+			final BufferedReader reader = new BufferedReader(new InputStreamReader(url.openStream(), "UTF-8"));
+			try {
+				String line;
+				while ((line = reader.readLine()) != null) {
+					if (line.length() == 0 || line.charAt(0) == '#') {
+						continue;
+					}
+					final IndexEntry entry = IndexEntry.parse(line);
+					if (isInPackages(entry.getClassName())) {
+						index.add(entry);
+					}
+				}
+			}
+			finally {
+				reader.close();
+			}
+		}
+		catch (final IOException ex) {
+			throw new IllegalStateException("Unable to read the fixture index: " + url, ex);
+		}
+		return index;
+	}
+
+	private boolean isInPackages(final String className) {
+		for (final String pkg : getPackages()) {
+			if (className.startsWith(pkg + PACKAGE_SEPARATOR)) {
+				return true;
+			}
+		}
+		return false;
+	}
+}
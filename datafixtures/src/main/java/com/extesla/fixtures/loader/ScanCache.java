@@ -0,0 +1,431 @@
+/* Copyright 2014 Extesla Digital Entertainment, Ltd. All rights reserved.
+ *
+ * Licensed under the MIT License (http://opensource.org/licenses/MIT)
+ *
+ * Permission is hereby granted, free of charge, to any
+ * person obtaining a copy of this software and associated
+ * documentation files (the "Software"), to deal in the
+ * Software without restriction, including without limitation
+ * the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software,
+ * and to permit persons to whom the Software is furnished
+ * to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice
+ * shall be included in all copies or substantial portions of
+ * the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY
+ * KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE
+ * WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR
+ * PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS
+ * OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR
+ * OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT
+ * OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE
+ * SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package com.extesla.fixtures.loader;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.InterruptedIOException;
+import java.io.OutputStreamWriter;
+import java.io.RandomAccessFile;
+import java.io.Writer;
+import java.net.URISyntaxException;
+import java.net.URL;
+import java.nio.channels.FileLock;
+import java.nio.channels.OverlappingFileLockException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Enumeration;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.zip.CRC32;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * An on-disk cache of the fixtures found by scanning classpath locations.
+ * The fixtures of every location (a jar or a directory) are stored along
+ * with a fingerprint of the location's contents, so that only the locations
+ * that have changed since the cache was written need to be scanned again.
+ *
+ * The cache file may be shared by several JVMs at once, or by copies of
+ * this class in several class loaders of one JVM: it is read under a shared
+ * lock and replaced, never rewritten in place, under an exclusive lock; on
+ * save the entries written by others in the meantime are kept.
+ *
+ * @author Sean.Quinn
+ * @since  1.0
+ */
+public class ScanCache {
+
+	private static final String LOCATION_PREFIX = "@";
+
+	private static final String ENCODING = "UTF-8";
+
+	private static final long FNV_OFFSET = 0xcbf29ce484222325L;
+
+	/**
+	 * How long to wait before trying again for a file lock that another
+	 * class loader of this JVM holds, in milliseconds.
+	 */
+	private static final long LOCK_RETRY = 10;
+
+	/**
+	 * Guards the file locks, which are held on behalf of the whole JVM.
+	 */
+	private static final Object JVM_LOCK = new Object();
+
+	private final File file;
+
+	/**
+	 * The cached locations, by URL.
+	 */
+	private final Map<String, Location> locations = new TreeMap<String, Location>();
+
+	/**
+	 * The URLs of the locations that were scanned since the cache was read.
+	 */
+	private final Map<String, Location> updated = new HashMap<String, Location>();
+
+	private final Logger logger = LoggerFactory.getLogger(ScanCache.class);
+
+	public ScanCache(final File file) {
+		this.file = file;
+	}
+
+	/**
+	 * Returns the fingerprint of the classpath location's contents: the
+	 * name, size and CRC of every entry of a jar, as listed in its central
+	 * directory, or the path and CRC of the contents of every file below a
+	 * directory. A rebuilt location that keeps its sizes and modification
+	 * times still changes its fingerprint.
+	 *
+	 * @param url the classpath location.
+	 * @return the fingerprint, or <tt>null</tt> if the location is not a
+	 * 		local file and cannot be cached.
+	 */
+	public static String fingerprint(final URL url) {
+		final File location = toFile(url);
+		if (location == null || !location.exists()) {
+			return null;
+		}
+		try {
+			if (location.isFile()) {
+				return "f" + Long.toHexString(hashJar(location, FNV_OFFSET));
+			}
+			return "d" + Long.toHexString(hashDirectory(location, "", FNV_OFFSET));
+		}
+		catch (final IOException ex) {
+			// ** Scanned every time, then.
+			return null;
+		}
+	}
+
+	/**
+	 * Returns the cached fixtures of the classpath location.
+	 *
+	 * @param url the classpath location.
+	 * @param fingerprint the current fingerprint of the location.
+	 * @return the fixtures, or <tt>null</tt> if the location is not cached or
+	 * 		has changed.
+	 */
+	public List<IndexEntry> get(final URL url, final String fingerprint) {
+		final Location location = locations.get(url.toExternalForm());
+		if (location == null || !location.fingerprint.equals(fingerprint)) {
+			return null;
+		}
+		return location.entries;
+	}
+
+	/**
+	 * Caches the fixtures found in the classpath location.
+	 *
+	 * @param url the classpath location.
+	 * @param fingerprint the fingerprint of the location.
+	 * @param entries the fixtures.
+	 */
+	public void put(final URL url, final String fingerprint, final List<IndexEntry> entries) {
+		final Location location = new Location(fingerprint, entries);
+		locations.put(url.toExternalForm(), location);
+		updated.put(url.toExternalForm(), location);
+	}
+
+	/**
+	 * Reads the cache file, if there is one. A cache file that cannot be read
+	 * is ignored.
+	 */
+	public void load() {
+		synchronized (JVM_LOCK) {
+			try {
+				final FileLock lock = lock(true);
+				try {
+					locations.clear();
+					locations.putAll(read());
+				}
+				finally {
+					lock.channel().close();
+				}
+			}
+			catch (final IOException ex) {
+				logger.warn("Unable to read the scan cache: {}, the classpath will be scanned.", file, ex);
+			}
+			catch (final RuntimeException ex) {
+				logger.warn("Ignoring the malformed scan cache: {}.", file, ex);
+			}
+		}
+	}
+
+	/**
+	 * Writes the locations scanned since the cache was read to the cache
+	 * file, keeping the locations written by others in the meantime.
+	 */
+	public void save() {
+		if (updated.isEmpty()) {
+			return;
+		}
+
+		synchronized (JVM_LOCK) {
+			try {
+				final FileLock lock = lock(false);
+				try {
+					Map<String, Location> merged;
+					try {
+						merged = read();
+					}
+					catch (final RuntimeException ex) {
+						merged = new TreeMap<String, Location>();
+					}
+					merged.putAll(updated);
+					write(merged);
+					updated.clear();
+				}
+				finally {
+					lock.channel().close();
+				}
+			}
+			catch (final IOException ex) {
+				logger.warn("Unable to write the scan cache: {}.", file, ex);
+			}
+		}
+	}
+
+	private FileLock lock(final boolean shared) throws IOException {
+		final File parent = file.getAbsoluteFile().getParentFile();
+		if (parent != null && !parent.isDirectory() && !parent.mkdirs() && !parent.isDirectory()) {
+			throw new IOException("Unable to create the directory: " + parent);
+		}
+		final RandomAccessFile lockFile = new RandomAccessFile(new File(file.getPath() + ".lock"), "rw");
+		try {
+			while (true) {
+				try {
+					return lockFile.getChannel().lock(0, Long.MAX_VALUE, shared);
+				}
+				catch (final OverlappingFileLockException ex) {
+					// ** Held by a copy of this class in another class loader, which JVM_LOCK doesn't guard.
+					Thread.sleep(LOCK_RETRY);
+				}
+			}
+		}
+		catch (final InterruptedException ex) {
+			lockFile.close();
+			Thread.currentThread().interrupt();
+			throw new InterruptedIOException("Interrupted while waiting for the lock of the scan cache: " + file);
+		}
+		catch (final IOException ex) {
+			lockFile.close();
+			throw ex;
+		}
+	}
+
+	private Map<String, Location> read() throws IOException {
+		final Map<String, Location> result = new TreeMap<String, Location>();
+		if (!file.isFile()) {
+			return result;
+		}
+
+		final BufferedReader reader = new BufferedReader(new InputStreamReader(new FileInputStream(file), ENCODING));
+		try {
+			List<IndexEntry> entries = null;
+			String line;
+			while ((line = reader.readLine()) != null) {
+				if (line.length() == 0 || line.charAt(0) == '#') {
+					continue;
+				}
+				if (line.startsWith(LOCATION_PREFIX)) {
+					final int separator = line.lastIndexOf('\t');
+					entries = new ArrayList<IndexEntry>();
+					result.put(line.substring(LOCATION_PREFIX.length(), separator),
+							new Location(line.substring(separator + 1), entries));
+				}
+				else if (entries != null) {
+					entries.add(IndexEntry.parse(line));
+				}
+				else {
+					throw new IllegalStateException("Fixture listed outside of a location: " + line);
+				}
+			}
+		}
+		finally {
+			reader.close();
+		}
+		return result;
+	}
+
+	/**
+	 * Writes the locations to a temporary file, which then replaces the
+	 * cache file; readers see either the old or the new cache.
+	 */
+	private void write(final Map<String, Location> contents) throws IOException {
+		final File directory = file.getAbsoluteFile().getParentFile();
+		final File temp = File.createTempFile(file.getName(), ".tmp", directory);
+		try {
+			final Writer writer = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(temp), ENCODING));
+			try {
+				writer.write("# datafixtures scan cache; do not edit.\n");
+				for (final Map.Entry<String, Location> entry : contents.entrySet()) {
+					writer.write(LOCATION_PREFIX + entry.getKey() + '\t' + entry.getValue().fingerprint + '\n');
+					for (final IndexEntry fixture : entry.getValue().entries) {
+						writer.write(fixture.format());
+						writer.write('\n');
+					}
+				}
+			}
+			finally {
+				writer.close();
+			}
+
+			if (!temp.renameTo(file)) {
+				// ** Some platforms won't rename over an existing file.
+				if (!file.delete() || !temp.renameTo(file)) {
+					throw new IOException("Unable to replace the scan cache: " + file);
+				}
+			}
+		}
+		finally {
+			if (temp.exists() && !temp.delete()) {
+				temp.deleteOnExit();
+			}
+		}
+	}
+
+	private static File toFile(final URL url) {
+		String spec = url.toExternalForm();
+		if (spec.startsWith("jar:")) {
+			final int separator = spec.indexOf("!/");
+			spec = spec.substring("jar:".length(), separator < 0 ? spec.length() : separator);
+		}
+		if (!spec.startsWith("file:")) {
+			return null;
+		}
+		try {
+			return new File(new URL(spec).toURI());
+		}
+		catch (final IOException ex) {
+			return null;
+		}
+		catch (final URISyntaxException ex) {
+			return null;
+		}
+		catch (final IllegalArgumentException ex) {
+			return null;
+		}
+	}
+
+	/**
+	 * Hashes the entries of the jar; the central directory holds the CRC of
+	 * each, so nothing is decompressed.
+	 */
+	private static long hashJar(final File jar, final long seed) throws IOException {
+		final ZipFile zip = new ZipFile(jar);
+		try {
+			long hash = seed;
+			final Enumeration<? extends ZipEntry> entries = zip.entries();
+			while (entries.hasMoreElements()) {
+				final ZipEntry entry = entries.nextElement();
+				hash = hash(hash, entry.getName());
+				hash = hash(hash, Long.toString(entry.getSize()));
+				hash = hash(hash, Long.toString(entry.getCrc()));
+			}
+			return hash;
+		}
+		finally {
+			zip.close();
+		}
+	}
+
+	private static long hashDirectory(final File directory, final String path, final long seed) throws IOException {
+		long hash = seed;
+		final File[] files = directory.listFiles();
+		if (files == null) {
+			return hash;
+		}
+		Arrays.sort(files);
+		final byte[] buffer = new byte[8192];
+		for (final File child : files) {
+			final String name = path + '/' + child.getName();
+			if (child.isDirectory()) {
+				hash = hashDirectory(child, name, hash);
+			}
+			else {
+				hash = hash(hash, name);
+				hash = hash(hash, Long.toString(crc(child, buffer)));
+			}
+		}
+		return hash;
+	}
+
+	private static long crc(final File file, final byte[] buffer) throws IOException {
+		final CRC32 crc = new CRC32();
+		final InputStream in = new FileInputStream(file);
+		try {
+			int read;
+			while ((read = in.read(buffer)) != -1) {
+				crc.update(buffer, 0, read);
+			}
+		}
+		finally {
+			in.close();
+		}
+		return crc.getValue();
+	}
+
+	/**
+	 * 64 bit FNV-1a.
+	 */
+	private static long hash(long hash, final String value) {
+		for (int i = 0; i < value.length(); i++) {
+			hash ^= value.charAt(i);
+			hash *= 0x100000001b3L;
+		}
+		return hash;
+	}
+
+	/**
+	 * The cached fixtures of a single classpath location.
+	 */
+	private static class Location {
+
+		private final String fingerprint;
+
+		private final List<IndexEntry> entries;
+
+		Location(final String fingerprint, final List<IndexEntry> entries) {
+			this.fingerprint = fingerprint;
+			this.entries = entries;
+		}
+	}
+}
@@ -0,0 +1,308 @@
+/* Copyright 2014 Extesla Digital Entertainment, Ltd. All rights reserved.
+ *
+ * Licensed under the MIT License (http://opensource.org/licenses/MIT)
+ *
+ * Permission is hereby granted, free of charge, to any
+ * person obtaining a copy of this software and associated
+ * documentation files (the "Software"), to deal in the
+ * Software without restriction, including without limitation
+ * the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software,
+ * and to permit persons to whom the Software is furnished
+ * to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice
+ * shall be included in all copies or substantial portions of
+ * the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY
+ * KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE
+ * WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR
+ * PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS
+ * OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR
+ * OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT
+ * OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE
+ * SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package com.extesla.fixtures.metadata;
+
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Field;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.reflections.ReflectionUtils;
+
+import com.extesla.fixtures.FixtureSink;
+import com.extesla.fixtures.annotations.FixtureCache;
+import com.extesla.fixtures.annotations.FixtureGenerate;
+import com.extesla.fixtures.annotations.FixtureReference;
+import com.extesla.fixtures.graph.FixtureGraph;
+import com.extesla.fixtures.random.GenerationContext;
+
+/**
+ * The reflective metadata of a fixture {@link Class}: its constructor, its
+ * {@link FixtureGenerate} methods (taking no parameters, or a
+ * {@link FixtureSink} and/or a {@link GenerationContext}), its
+ * {@link FixtureReference} fields and its {@link FixtureCache} fields. The
+ * class hierarchy is scanned once, when the descriptor is created, and every
+ * member is made accessible up front so that a descriptor can be reused for
+ * any number of fixture instances.
+ *
+ * @author Sean.Quinn
+ * @since  1.0
+ */
+public class FixtureDescriptor {
+
+	private final Class<?> type;
+
+	private final Constructor<?> constructor;
+
+	private final List<Method> generateMethods;
+
+	private final List<Reference> references;
+
+	private final List<Field> cacheFields;
+
+	/**
+	 * Scans the fixture, {@link Class}, for its metadata.
+	 *
+	 * @param type the fixture {@code Class}.
+	 * @throws IllegalArgumentException if the fixture has no constructor
+	 * 		without arguments, or a lazy reference field that is not declared
+	 * 		as an interface.
+	 */
+	@SuppressWarnings("unchecked")
+	public FixtureDescriptor(final Class<?> type) {
+		this.type = type;
+
+		try {
+			constructor = type.getDeclaredConstructor();
+			constructor.setAccessible(true);
+		}
+		catch (final NoSuchMethodException ex) {
+			throw new IllegalArgumentException("The fixture: " + type.getName()
+					+ " does not declare a constructor without arguments.", ex);
+		}
+
+		final Set<Method> methods = ReflectionUtils.getAllMethods(type,
+				ReflectionUtils.withAnnotation(FixtureGenerate.class));
+		final List<Method> generateMethods = new ArrayList<Method>(methods.size());
+		for (final Method method : methods) {
+			if (isGenerateMethod(method)) {
+				method.setAccessible(true);
+				generateMethods.add(method);
+			}
+		}
+		this.generateMethods = Collections.unmodifiableList(generateMethods);
+
+		final Set<Field> referenceFields = ReflectionUtils.getAllFields(type,
+				ReflectionUtils.withAnnotation(FixtureReference.class));
+		final List<Reference> references = new ArrayList<Reference>(referenceFields.size());
+		for (final Field field : referenceFields) {
+			final Reference reference = new Reference(field, field.getAnnotation(FixtureReference.class));
+			if (reference.isLazy() && !field.getType().isInterface()) {
+				throw new IllegalArgumentException("The lazy reference: " + field.getName() + " of the fixture: "
+						+ type.getName() + " must be declared as an interface.");
+			}
+			field.setAccessible(true);
+			references.add(reference);
+		}
+		this.references = Collections.unmodifiableList(references);
+
+		final Set<Field> caches = ReflectionUtils.getAllFields(type,
+				ReflectionUtils.withAnnotation(FixtureCache.class),
+				ReflectionUtils.withTypeAssignableTo(Map.class));
+		final List<Field> cacheFields = new ArrayList<Field>(caches.size());
+		for (final Field field : caches) {
+			field.setAccessible(true);
+			cacheFields.add(field);
+		}
+		this.cacheFields = Collections.unmodifiableList(cacheFields);
+	}
+
+	/**
+	 * Checks to see if each of the method's parameters is either a
+	 * {@link FixtureSink} or a {@link GenerationContext}, at most once.
+	 */
+	private static boolean isGenerateMethod(final Method method) {
+		final Class<?>[] parameters = method.getParameterTypes();
+		boolean sink = false;
+		boolean context = false;
+		for (final Class<?> parameter : parameters) {
+			if (parameter == FixtureSink.class && !sink) {
+				sink = true;
+			}
+			else if (parameter == GenerationContext.class && !context) {
+				context = true;
+			}
+			else {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Returns the fixture {@link Class} described.
+	 * @return the fixture {@code Class}.
+	 */
+	public Class<?> getType() {
+		return type;
+	}
+
+	/**
+	 * Returns the methods annotated with {@link FixtureGenerate}.
+	 * @return the generate methods.
+	 */
+	public List<Method> getGenerateMethods() {
+		return generateMethods;
+	}
+
+	/**
+	 * Returns the fields annotated with {@link FixtureReference}.
+	 * @return the reference fields.
+	 */
+	public List<Reference> getReferences() {
+		return references;
+	}
+
+	/**
+	 * Creates a new instance of the fixture.
+	 *
+	 * @return the fixture instance.
+	 * @throws InvocationTargetException if the constructor throws.
+	 */
+	public Object newInstance() throws InvocationTargetException {
+		try {
+			return constructor.newInstance();
+		}
+		catch (final InstantiationException ex) {
+			throw new IllegalStateException("The fixture: " + type.getName() + " cannot be instantiated.", ex);
+		}
+		catch (final IllegalAccessException ex) {
+			throw new IllegalStateException(ex);
+		}
+	}
+
+	/**
+	 * Invokes the generate method on the fixture instance.
+	 *
+	 * @param method one of the {@link #getGenerateMethods() generate methods}.
+	 * @param fixture the fixture instance.
+	 * @param sink the sink handed to generate methods that take one.
+	 * @param context the context handed to generate methods that take one.
+	 * @return the generated data, or <tt>null</tt>.
+	 * @throws InvocationTargetException if the generate method throws.
+	 */
+	public Object generate(final Method method, final Object fixture, final FixtureSink<?> sink,
+			final GenerationContext context) throws InvocationTargetException {
+		try {
+			final Class<?>[] parameters = method.getParameterTypes();
+			final Object[] args = new Object[parameters.length];
+			for (int i = 0; i < parameters.length; i++) {
+				args[i] = parameters[i] == FixtureSink.class ? sink : context;
+			}
+			return method.invoke(fixture, args);
+		}
+		catch (final IllegalAccessException ex) {
+			throw new IllegalStateException(ex);
+		}
+	}
+
+	/**
+	 * Returns the {@link FixtureCache} maps of the fixture instance, skipping
+	 * those that are <tt>null</tt>.
+	 *
+	 * @param fixture the fixture instance.
+	 * @return the fixture's reference caches.
+	 */
+	public List<Map<?, ?>> getCaches(final Object fixture) {
+		final List<Map<?, ?>> caches = new ArrayList<Map<?, ?>>(cacheFields.size());
+		for (final Field field : cacheFields) {
+			try {
+				final Map<?, ?> cache = (Map<?, ?>) field.get(fixture);
+				if (cache != null) {
+					caches.add(cache);
+				}
+			}
+			catch (final IllegalAccessException ex) {
+				throw new IllegalStateException(ex);
+			}
+		}
+		return caches;
+	}
+
+	/**
+	 * A field annotated with {@link FixtureReference}.
+	 */
+	public static class Reference {
+
+		private final Field field;
+
+		private final String name;
+
+		private final Class<?> fixture;
+
+		private final boolean lazy;
+
+		Reference(final Field field, final FixtureReference metadata) {
+			this.field = field;
+			this.name = metadata.value();
+			this.fixture = metadata.type();
+			this.lazy = FixtureGraph.isLazy(field);
+		}
+
+		/**
+		 * Returns the field.
+		 * @return the field.
+		 */
+		public Field getField() {
+			return field;
+		}
+
+		/**
+		 * Returns the name of the cache entry to look up.
+		 * @return the reference name.
+		 */
+		public String getName() {
+			return name;
+		}
+
+		/**
+		 * Returns the fixture type the cache entry is located in.
+		 * @return the referenced fixture {@code Class}.
+		 */
+		public Class<?> getFixture() {
+			return fixture;
+		}
+
+		/**
+		 * Checks to see if the reference is resolved on first access.
+		 * @return <tt>true</tt> if the reference is lazy.
+		 */
+		public boolean isLazy() {
+			return lazy;
+		}
+
+		/**
+		 * Sets the field on the fixture instance.
+		 *
+		 * @param target the fixture instance.
+		 * @param value the referenced object.
+		 */
+		public void set(final Object target, final Object value) {
+			try {
+				field.set(target, value);
+			}
+			catch (final IllegalAccessException ex) {
+				throw new IllegalStateException(ex);
+			}
+		}
+	}
+}
@@ -0,0 +1,49 @@
+/* Copyright 2014 Extesla Digital Entertainment, Ltd. All rights reserved.
+ *
+ * Licensed under the MIT License (http://opensource.org/licenses/MIT)
+ *
+ * Permission is hereby granted, free of charge, to any
+ * person obtaining a copy of this software and associated
+ * documentation files (the "Software"), to deal in the
+ * Software without restriction, including without limitation
+ * the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software,
+ * and to permit persons to whom the Software is furnished
+ * to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice
+ * shall be included in all copies or substantial portions of
+ * the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY
+ * KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE
+ * WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR
+ * PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS
+ * OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR
+ * OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT
+ * OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE
+ * SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package com.extesla.fixtures.persist;
+
+import java.util.List;
+
+/**
+ * Persists a batch of entities gathered by a {@link PersistenceBuffer}.
+ *
+ * @author Sean.Quinn
+ * @since  1.0
+ */
+public interface BatchPersister {
+
+	/**
+	 * Persists the entities of the batch, in order.
+	 *
+	 * @param batch the entities.
+	 * @param owners the owner of each entity of the batch, see
+	 * 		{@link PersistenceBuffer#add(Object, long, Object)}.
+	 * @param bytes the estimated size of the batch in bytes, or <tt>0</tt>
+	 * 		if unknown.
+	 */
+	void persistBatch(final List<?> batch, final List<?> owners, final long bytes);
+}
@@ -0,0 +1,231 @@
+/* Copyright 2014 Extesla Digital Entertainment, Ltd. All rights reserved.
+ *
+ * Licensed under the MIT License (http://opensource.org/licenses/MIT)
+ *
+ * Permission is hereby granted, free of charge, to any
+ * person obtaining a copy of this software and associated
+ * documentation files (the "Software"), to deal in the
+ * Software without restriction, including without limitation
+ * the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software,
+ * and to permit persons to whom the Software is furnished
+ * to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice
+ * shall be included in all copies or substantial portions of
+ * the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY
+ * KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE
+ * WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR
+ * PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS
+ * OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR
+ * OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT
+ * OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE
+ * SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package com.extesla.fixtures.persist;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Gathers generated entities and hands them to a {@link BatchPersister} once
+ * the batch reaches its configured size or byte budget, or when it is
+ * explicitly flushed. The buffer may be shared between threads; batches are
+ * persisted one at a time, so a {@link #flush()} only returns once every
+ * entity added before it has been persisted.
+ *
+ * Every entity is added on behalf of an owner, the fixture that generated
+ * it, so that the entities of a fixture that fails can be dropped with
+ * {@link #discard(Object)} before they are persisted, and those of a fixture
+ * that finishes can be persisted with {@link #flush(Object)} without handing
+ * over the partial work of the others.
+ *
+ * @author Sean.Quinn
+ * @since  1.0
+ */
+public class PersistenceBuffer {
+
+	private final BatchPersister persister;
+
+	/**
+	 * The maximum number of entities per batch.
+	 */
+	private final int batchSize;
+
+	/**
+	 * The maximum estimated size of a batch, in bytes; <tt>0</tt> if batches
+	 * are limited only by their size.
+	 */
+	private final long byteBudget;
+
+	private List<Object> batch;
+
+	/**
+	 * The owner of each entity of the batch.
+	 */
+	private List<Object> owners;
+
+	private long batchBytes;
+
+	/**
+	 * @param persister the {@code BatchPersister}.
+	 * @param batchSize the maximum number of entities per batch.
+	 * @param byteBudget the maximum estimated size of a batch in bytes, or
+	 * 		<tt>0</tt> for no limit.
+	 */
+	public PersistenceBuffer(final BatchPersister persister, final int batchSize, final long byteBudget) {
+		if (batchSize < 1) {
+			throw new IllegalArgumentException("The batch size must be at least 1, was: " + batchSize);
+		}
+		if (byteBudget < 0) {
+			throw new IllegalArgumentException("The byte budget must not be negative, was: " + byteBudget);
+		}
+		this.persister = persister;
+		this.batchSize = batchSize;
+		this.byteBudget = byteBudget;
+		this.batch = new ArrayList<Object>(Math.min(batchSize, 1024));
+		this.owners = new ArrayList<Object>(Math.min(batchSize, 1024));
+	}
+
+	/**
+	 * Adds the entity to the current batch, persisting the batch if it is
+	 * full.
+	 *
+	 * @param entity the entity.
+	 * @param bytes the estimated size of the entity in bytes, or <tt>0</tt>
+	 * 		if unknown.
+	 * @param owner the owner of the entity, or <tt>null</tt>.
+	 */
+	public synchronized void add(final Object entity, final long bytes, final Object owner) {
+		batch.add(entity);
+		owners.add(owner);
+		batchBytes += bytes;
+		if (batch.size() >= batchSize || (byteBudget > 0 && batchBytes >= byteBudget)) {
+			handOver();
+		}
+	}
+
+	/**
+	 * Persists the entities of the current batch, if there are any.
+	 */
+	public synchronized void flush() {
+		handOver();
+	}
+
+	/**
+	 * Dispatches the current batch, if there is one, without waiting for it
+	 * to be persisted.
+	 */
+	private void handOver() {
+		if (batch.isEmpty()) {
+			return;
+		}
+
+		final List<Object> full = batch;
+		final List<Object> fullOwners = owners;
+		final long bytes = batchBytes;
+		batch = new ArrayList<Object>(Math.min(batchSize, 1024));
+		owners = new ArrayList<Object>(Math.min(batchSize, 1024));
+		batchBytes = 0;
+		dispatch(full, fullOwners, bytes);
+	}
+
+	/**
+	 * Persists the entities of the owner that are still in the current batch,
+	 * leaving those of other owners to be batched further; returns once every
+	 * entity of the owner added before it has been persisted.
+	 *
+	 * @param owner the owner.
+	 */
+	public synchronized void flush(final Object owner) {
+		final List<Object> own = new ArrayList<Object>();
+		final long bytes = remove(owner, own);
+		if (own.isEmpty()) {
+			return;
+		}
+
+		dispatch(own, new ArrayList<Object>(Collections.nCopies(own.size(), owner)), bytes);
+	}
+
+	/**
+	 * Drops the entities of the owner that are still in the current batch.
+	 * Entities already handed over in a full batch are persisted regardless.
+	 *
+	 * @param owner the owner.
+	 * @return the number of entities dropped.
+	 */
+	public synchronized int discard(final Object owner) {
+		final int size = batch.size();
+		remove(owner, null);
+		return size - batch.size();
+	}
+
+	/**
+	 * Takes the entities of the owner out of the current batch.
+	 *
+	 * @param owner the owner.
+	 * @param removed the list the entities are added to, or <tt>null</tt>.
+	 * @return the estimated size of the entities in bytes.
+	 */
+	private long remove(final Object owner, final List<Object> removed) {
+		final int size = batch.size();
+		int kept = 0;
+		for (int i = 0; i < size; i++) {
+			if (owners.get(i) != owner) {
+				batch.set(kept, batch.get(i));
+				owners.set(kept, owners.get(i));
+				kept++;
+			}
+			else if (removed != null) {
+				removed.add(batch.get(i));
+			}
+		}
+		if (kept == size) {
+			return 0;
+		}
+
+		batch.subList(kept, size).clear();
+		owners.subList(kept, size).clear();
+		// ** The sizes of the entities are not kept; assume they were alike.
+		final long bytes = batchBytes * (size - kept) / size;
+		batchBytes -= bytes;
+		return bytes;
+	}
+
+	/**
+	 * Hands a full batch to the persister; called with the buffer's lock
+	 * held. The default implementation persists it on the calling thread.
+	 *
+	 * @param batch the entities.
+	 * @param owners the owner of each entity of the batch.
+	 * @param bytes the estimated size of the batch in bytes.
+	 */
+	protected void dispatch(final List<Object> batch, final List<Object> owners, final long bytes) {
+		persister.persistBatch(batch, owners, bytes);
+	}
+
+	/**
+	 * Releases the resources of the buffer, after it has been flushed. The
+	 * default implementation does nothing.
+	 */
+	public void close() {
+	}
+
+	/**
+	 * @return the {@code BatchPersister} of this buffer.
+	 */
+	protected BatchPersister getPersister() {
+		return persister;
+	}
+
+	/**
+	 * Returns the number of entities waiting to be persisted.
+	 * @return the number of buffered entities.
+	 */
+	public synchronized int size() {
+		return batch.size();
+	}
+}
@@ -0,0 +1,304 @@
+/* Copyright 2014 Extesla Digital Entertainment, Ltd. All rights reserved.
+ *
+ * Licensed under the MIT License (http://opensource.org/licenses/MIT)
+ *
+ * Permission is hereby granted, free of charge, to any
+ * person obtaining a copy of this software and associated
+ * documentation files (the "Software"), to deal in the
+ * Software without restriction, including without limitation
+ * the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software,
+ * and to permit persons to whom the Software is furnished
+ * to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice
+ * shall be included in all copies or substantial portions of
+ * the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY
+ * KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE
+ * WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR
+ * PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS
+ * OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR
+ * OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT
+ * OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE
+ * SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package com.extesla.fixtures.persist;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+
+import com.extesla.fixtures.listener.FixtureListener;
+
+/**
+ * A {@link PersistenceBuffer} that persists its batches on background
+ * threads, so that fixtures keep generating while earlier entities are
+ * written. Full batches wait in a bounded queue; once it is full, the
+ * generating threads block until a persistence worker takes a batch, which
+ * bounds the memory held by the pipeline to the queue capacity times the
+ * batch size.
+ *
+ * {@link #flush()} still only returns once every entity added before it has
+ * been persisted, and {@link #flush(Object)} once every entity of the owner
+ * has. With more than one worker, batches are persisted
+ * concurrently and out of order, so the {@link BatchPersister} must be
+ * thread-safe. The first failure of a worker is rethrown by the next
+ * {@link #add(Object, long, Object)} or {@link #flush()}; batches still
+ * queued at that point are discarded.
+ *
+ * @author Sean.Quinn
+ * @since  1.0
+ */
+public class PipelinedPersistenceBuffer extends PersistenceBuffer {
+
+	/**
+	 * Tells a worker to stop.
+	 */
+	private static final Batch STOP = new Batch(null, null, 0);
+
+	private final BlockingQueue<Batch> queue;
+
+	private final List<Thread> workers;
+
+	private final FixtureListener listener;
+
+	/**
+	 * Guards the counts of batches handed over but not yet persisted.
+	 */
+	private final Object lock = new Object();
+
+	private int pending;
+
+	/**
+	 * The number of batches handed over but not yet persisted, per owner of
+	 * any of their entities.
+	 */
+	private final Map<Object, Integer> pendingOwners = new HashMap<Object, Integer>();
+
+	private volatile Throwable failure;
+
+	/**
+	 * @param persister the {@code BatchPersister}.
+	 * @param batchSize the maximum number of entities per batch.
+	 * @param byteBudget the maximum estimated size of a batch in bytes, or
+	 * 		<tt>0</tt> for no limit.
+	 * @param threads the number of persistence workers.
+	 * @param capacity the maximum number of full batches waiting to be
+	 * 		persisted.
+	 * @param listener the listener told of the queue depth and of the time
+	 * 		producers and workers spend waiting, or <tt>null</tt>.
+	 */
+	public PipelinedPersistenceBuffer(final BatchPersister persister, final int batchSize, final long byteBudget,
+			final int threads, final int capacity, final FixtureListener listener) {
+		super(persister, batchSize, byteBudget);
+		if (threads < 1) {
+			throw new IllegalArgumentException("At least one persistence thread is required, was: " + threads);
+		}
+		if (capacity < 1) {
+			throw new IllegalArgumentException("The queue capacity must be at least 1, was: " + capacity);
+		}
+
+		this.queue = new ArrayBlockingQueue<Batch>(capacity);
+		this.listener = listener;
+		this.workers = new ArrayList<Thread>(threads);
+		for (int i = 0; i < threads; i++) {
+			final Thread worker = new Thread(new Worker(), "fixture-persist-" + i);
+			worker.setDaemon(true);
+			workers.add(worker);
+			worker.start();
+		}
+	}
+
+	@Override
+	public synchronized void add(final Object entity, final long bytes, final Object owner) {
+		checkFailure();
+		super.add(entity, bytes, owner);
+	}
+
+	/**
+	 * Hands the current batch to the workers and waits until every batch
+	 * handed to them has been persisted.
+	 *
+	 * @throws IllegalStateException if a batch failed to persist.
+	 */
+	@Override
+	public synchronized void flush() {
+		super.flush();
+		synchronized (lock) {
+			while (pending > 0 && failure == null) {
+				try {
+					lock.wait();
+				}
+				catch (final InterruptedException ex) {
+					Thread.currentThread().interrupt();
+					throw new IllegalStateException("Interrupted while waiting for the entities to be persisted.", ex);
+				}
+			}
+		}
+		checkFailure();
+	}
+
+	/**
+	 * Hands the entities of the owner to the workers and waits until every
+	 * batch holding any of its entities has been persisted. The buffer is
+	 * not locked while waiting, so other owners keep adding entities.
+	 *
+	 * @throws IllegalStateException if a batch failed to persist.
+	 */
+	@Override
+	public void flush(final Object owner) {
+		checkFailure();
+		super.flush(owner);
+		synchronized (lock) {
+			while (pendingOwners.containsKey(owner) && failure == null) {
+				try {
+					lock.wait();
+				}
+				catch (final InterruptedException ex) {
+					Thread.currentThread().interrupt();
+					throw new IllegalStateException("Interrupted while waiting for the entities to be persisted.", ex);
+				}
+			}
+		}
+		checkFailure();
+	}
+
+	/**
+	 * Stops the workers once they have persisted the queued batches.
+	 */
+	@Override
+	public void close() {
+		try {
+			for (int i = 0; i < workers.size(); i++) {
+				queue.put(STOP);
+			}
+			for (final Thread worker : workers) {
+				worker.join();
+			}
+		}
+		catch (final InterruptedException ex) {
+			Thread.currentThread().interrupt();
+		}
+	}
+
+	/**
+	 * Queues the batch, waiting for space if the queue is full.
+	 */
+	@Override
+	protected void dispatch(final List<Object> batch, final List<Object> owners, final long bytes) {
+		final Batch queued = new Batch(batch, owners, bytes);
+		synchronized (lock) {
+			pending++;
+			for (final Object owner : queued.distinctOwners) {
+				final Integer count = pendingOwners.get(owner);
+				pendingOwners.put(owner, count == null ? 1 : count + 1);
+			}
+		}
+
+		final long start = System.nanoTime();
+		try {
+			queue.put(queued);
+		}
+		catch (final InterruptedException ex) {
+			done(queued);
+			Thread.currentThread().interrupt();
+			throw new IllegalStateException("Interrupted while waiting to queue a batch.", ex);
+		}
+		if (listener != null) {
+			listener.batchQueued(queue.size(), System.nanoTime() - start);
+		}
+	}
+
+	private void done(final Batch batch) {
+		synchronized (lock) {
+			pending--;
+			for (final Object owner : batch.distinctOwners) {
+				final int count = pendingOwners.get(owner);
+				if (count == 1) {
+					pendingOwners.remove(owner);
+				}
+				else {
+					pendingOwners.put(owner, count - 1);
+				}
+			}
+			lock.notifyAll();
+		}
+	}
+
+	private void checkFailure() {
+		final Throwable cause = failure;
+		if (cause != null) {
+			throw new IllegalStateException("Unable to persist a batch of entities.", cause);
+		}
+	}
+
+	/**
+	 * Persists the queued batches until told to stop.
+	 */
+	private class Worker implements Runnable {
+
+		@Override
+		public void run() {
+			while (true) {
+				final Batch batch;
+				final long start = System.nanoTime();
+				try {
+					batch = queue.take();
+				}
+				catch (final InterruptedException ex) {
+					return;
+				}
+				if (batch == STOP) {
+					return;
+				}
+				if (listener != null) {
+					listener.batchDequeued(queue.size(), System.nanoTime() - start);
+				}
+
+				try {
+					if (failure == null) {
+						getPersister().persistBatch(batch.entities, batch.owners, batch.bytes);
+					}
+				}
+				catch (final Throwable ex) {
+					synchronized (lock) {
+						if (failure == null) {
+							failure = ex;
+						}
+					}
+				}
+				finally {
+					done(batch);
+				}
+			}
+		}
+	}
+
+	/**
+	 * A full batch.
+	 */
+	private static class Batch {
+
+		private final List<Object> entities;
+
+		private final List<Object> owners;
+
+		private final long bytes;
+
+		private final Set<Object> distinctOwners;
+
+		Batch(final List<Object> entities, final List<Object> owners, final long bytes) {
+			this.entities = entities;
+			this.owners = owners;
+			this.bytes = bytes;
+			this.distinctOwners = owners != null ? new HashSet<Object>(owners) : null;
+		}
+	}
+}
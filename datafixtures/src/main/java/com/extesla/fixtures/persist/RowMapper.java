@@ -0,0 +1,60 @@
+/* Copyright 2014 Extesla Digital Entertainment, Ltd. All rights reserved.
+ *
+ * Licensed under the MIT License (http://opensource.org/licenses/MIT)
+ *
+ * Permission is hereby granted, free of charge, to any
+ * person obtaining a copy of this software and associated
+ * documentation files (the "Software"), to deal in the
+ * Software without restriction, including without limitation
+ * the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software,
+ * and to permit persons to whom the Software is furnished
+ * to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice
+ * shall be included in all copies or substantial portions of
+ * the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY
+ * KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE
+ * WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR
+ * PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS
+ * OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR
+ * OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT
+ * OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE
+ * SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package com.extesla.fixtures.persist;
+
+/**
+ * Maps entities of a type to the rows of a table, for the persisters that
+ * write rows rather than objects.
+ *
+ * @author Sean.Quinn
+ * @since  1.0
+ */
+public interface RowMapper<T> {
+
+	/**
+	 * Returns the name of the table the entities are written to.
+	 * @return the table name.
+	 */
+	String getTable();
+
+	/**
+	 * Returns the names of the columns written, in the order of the values
+	 * of {@link #map(Object, Object[])}.
+	 *
+	 * @return the column names.
+	 */
+	String[] getColumns();
+
+	/**
+	 * Writes the column values of the entity to the row; the row is reused
+	 * between entities.
+	 *
+	 * @param entity the entity.
+	 * @param row the row, with one element per column.
+	 */
+	void map(T entity, Object[] row);
+}
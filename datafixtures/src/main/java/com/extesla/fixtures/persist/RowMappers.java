@@ -0,0 +1,100 @@
+/* Copyright 2014 Extesla Digital Entertainment, Ltd. All rights reserved.
+ *
+ * Licensed under the MIT License (http://opensource.org/licenses/MIT)
+ *
+ * Permission is hereby granted, free of charge, to any
+ * person obtaining a copy of this software and associated
+ * documentation files (the "Software"), to deal in the
+ * Software without restriction, including without limitation
+ * the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software,
+ * and to permit persons to whom the Software is furnished
+ * to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice
+ * shall be included in all copies or substantial portions of
+ * the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY
+ * KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE
+ * WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR
+ * PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS
+ * OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR
+ * OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT
+ * OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE
+ * SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package com.extesla.fixtures.persist;
+
+import java.util.LinkedList;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * The {@link RowMapper}s of the entity types. An entity is mapped by the
+ * mapper registered for its class or, failing that, for the nearest of its
+ * superclasses and interfaces; the lookup is cached per class.
+ *
+ * @author Sean.Quinn
+ * @since  1.0
+ */
+public class RowMappers {
+
+	private final ConcurrentMap<Class<?>, RowMapper<?>> registered = new ConcurrentHashMap<Class<?>, RowMapper<?>>();
+
+	private final ConcurrentMap<Class<?>, RowMapper<?>> resolved = new ConcurrentHashMap<Class<?>, RowMapper<?>>();
+
+	/**
+	 * Registers the mapper of the entity type.
+	 *
+	 * @param type the entity {@code Class}.
+	 * @param mapper the {@code RowMapper}.
+	 */
+	public <T> void register(final Class<T> type, final RowMapper<? super T> mapper) {
+		registered.put(type, mapper);
+		resolved.clear();
+	}
+
+	/**
+	 * Returns the mapper of the entity type.
+	 *
+	 * @param type the entity {@code Class}.
+	 * @return the {@code RowMapper}.
+	 * @throws IllegalArgumentException if no mapper is registered for the
+	 * 		type or any of its supertypes.
+	 */
+	@SuppressWarnings("unchecked")
+	public RowMapper<Object> get(final Class<?> type) {
+		RowMapper<?> mapper = resolved.get(type);
+		if (mapper == null) {
+			mapper = find(type);
+			if (mapper == null) {
+				throw new IllegalArgumentException("No RowMapper is registered for the entity type: " + type.getName());
+			}
+			resolved.put(type, mapper);
+		}
+		return (RowMapper<Object>) mapper;
+	}
+
+	/**
+	 * Searches the type, then its supertypes breadth first.
+	 */
+	private RowMapper<?> find(final Class<?> type) {
+		final LinkedList<Class<?>> pending = new LinkedList<Class<?>>();
+		pending.add(type);
+		while (!pending.isEmpty()) {
+			final Class<?> candidate = pending.removeFirst();
+			final RowMapper<?> mapper = registered.get(candidate);
+			if (mapper != null) {
+				return mapper;
+			}
+			if (candidate.getSuperclass() != null) {
+				pending.add(candidate.getSuperclass());
+			}
+			for (final Class<?> iface : candidate.getInterfaces()) {
+				pending.add(iface);
+			}
+		}
+		return null;
+	}
+}
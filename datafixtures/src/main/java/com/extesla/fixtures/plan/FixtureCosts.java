@@ -0,0 +1,359 @@
+/* Copyright 2014 Extesla Digital Entertainment, Ltd. All rights reserved.
+ *
+ * Licensed under the MIT License (http://opensource.org/licenses/MIT)
+ *
+ * Permission is hereby granted, free of charge, to any
+ * person obtaining a copy of this software and associated
+ * documentation files (the "Software"), to deal in the
+ * Software without restriction, including without limitation
+ * the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software,
+ * and to permit persons to whom the Software is furnished
+ * to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice
+ * shall be included in all copies or substantial portions of
+ * the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY
+ * KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE
+ * WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR
+ * PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS
+ * OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR
+ * OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT
+ * OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE
+ * SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package com.extesla.fixtures.plan;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.RandomAccessFile;
+import java.io.Writer;
+import java.nio.channels.FileLock;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * The costs of the fixtures recorded on previous runs, kept in a local text
+ * file so that a run can be planned before it is started, see
+ * {@link FixturePlan}. Every line of the file holds the class name of a
+ * fixture, its estimated time in nanoseconds, its estimated number of
+ * entities and the number of runs recorded, separated by tabs.
+ *
+ * The estimates are exponentially weighted means, the latest run weighing as
+ * much as all the earlier ones together, so that they follow a fixture that
+ * has changed within a few runs.
+ *
+ * The cost file may be shared by several JVMs at once, e.g. test forks: it is
+ * read under a shared lock and replaced under an exclusive lock, and on save
+ * the runs recorded since the file was read are applied to its current
+ * contents, so that the runs recorded by others in the meantime are kept.
+ *
+ * @author Sean.Quinn
+ * @since  1.0
+ */
+public class FixtureCosts {
+
+	private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+	private static final String HEADER = "# datafixtures costs 1";
+
+	/**
+	 * Guards the file locks, which are held on behalf of the whole JVM.
+	 */
+	private static final Object JVM_LOCK = new Object();
+
+	private final File file;
+
+	/**
+	 * The cost of each fixture, by class name.
+	 */
+	private final Map<String, Cost> costs = new TreeMap<String, Cost>();
+
+	/**
+	 * The runs recorded since the cost file was read, in order.
+	 */
+	private final List<Run> recorded = new ArrayList<Run>();
+
+	private final Logger logger = LoggerFactory.getLogger(FixtureCosts.class);
+
+	public FixtureCosts(final File file) {
+		this.file = file;
+	}
+
+	/**
+	 * @return the cost file.
+	 */
+	public File getFile() {
+		return file;
+	}
+
+	/**
+	 * Returns the recorded cost of the fixture.
+	 *
+	 * @param fixture the fixture {@code Class}.
+	 * @return the {@code Cost}, or <tt>null</tt> if the fixture has never
+	 * 		been recorded.
+	 */
+	public Cost get(final Class<?> fixture) {
+		return costs.get(fixture.getName());
+	}
+
+	/**
+	 * Returns the estimated time of each of the fixtures that have been
+	 * recorded, e.g. for a {@link com.extesla.fixtures.graph.FixtureScheduler}.
+	 *
+	 * @param fixtures the fixture {@code Classes}.
+	 * @return the estimated times, in nanoseconds, by fixture.
+	 */
+	public Map<Class<?>, Long> getNanos(final Collection<Class<?>> fixtures) {
+		final Map<Class<?>, Long> nanos = new HashMap<Class<?>, Long>(fixtures.size() * 2);
+		for (final Class<?> fixture : fixtures) {
+			final Cost cost = get(fixture);
+			if (cost != null) {
+				nanos.put(fixture, cost.getNanos());
+			}
+		}
+		return nanos;
+	}
+
+	/**
+	 * Records a run of the fixture.
+	 *
+	 * @param fixture the fixture {@code Class}.
+	 * @param nanos the time the fixture took, in nanoseconds.
+	 * @param entities the number of entities the fixture generated.
+	 */
+	public void record(final Class<?> fixture, final long nanos, final long entities) {
+		final Run run = new Run(fixture.getName(), nanos, entities);
+		run.applyTo(costs);
+		recorded.add(run);
+	}
+
+	/**
+	 * Reads the cost file, if there is one. Lines that cannot be parsed are
+	 * ignored, and so is a file that cannot be read. The runs recorded
+	 * since the file was last read are dropped.
+	 */
+	public void load() {
+		costs.clear();
+		recorded.clear();
+
+		synchronized (JVM_LOCK) {
+			try {
+				final FileLock lock = lock(true);
+				try {
+					costs.putAll(read());
+				}
+				finally {
+					lock.channel().close();
+				}
+			}
+			catch (final IOException ex) {
+				costs.clear();
+				logger.warn("Unable to read the fixture costs: {}.", file, ex);
+			}
+		}
+	}
+
+	/**
+	 * Writes the runs recorded since the cost file was read to the cost
+	 * file, applying them to its current contents so that the runs written
+	 * by others in the meantime are kept. The costs are written to a
+	 * temporary file which then replaces the cost file, so that an
+	 * interrupted write does not leave a truncated file behind.
+	 */
+	public void save() {
+		if (recorded.isEmpty()) {
+			return;
+		}
+
+		synchronized (JVM_LOCK) {
+			try {
+				final FileLock lock = lock(false);
+				try {
+					final Map<String, Cost> merged = read();
+					for (final Run run : recorded) {
+						run.applyTo(merged);
+					}
+					write(merged);
+					recorded.clear();
+					costs.clear();
+					costs.putAll(merged);
+				}
+				finally {
+					lock.channel().close();
+				}
+			}
+			catch (final IOException ex) {
+				logger.warn("Unable to write the fixture costs: {}.", file, ex);
+			}
+		}
+	}
+
+	private FileLock lock(final boolean shared) throws IOException {
+		final File directory = file.getAbsoluteFile().getParentFile();
+		if (directory != null && !directory.isDirectory() && !directory.mkdirs() && !directory.isDirectory()) {
+			throw new IOException("Unable to create the directory: " + directory);
+		}
+		final RandomAccessFile lockFile = new RandomAccessFile(new File(file.getPath() + ".lock"), "rw");
+		try {
+			return lockFile.getChannel().lock(0, Long.MAX_VALUE, shared);
+		}
+		catch (final IOException ex) {
+			lockFile.close();
+			throw ex;
+		}
+	}
+
+	private Map<String, Cost> read() throws IOException {
+		final Map<String, Cost> result = new TreeMap<String, Cost>();
+		if (!file.isFile()) {
+			return result;
+		}
+
+		final BufferedReader in = new BufferedReader(new InputStreamReader(new FileInputStream(file), UTF_8));
+		try {
+			String line;
+			while ((line = in.readLine()) != null) {
+				if (line.length() == 0 || line.charAt(0) == '#') {
+					continue;
+				}
+				final String[] fields = line.split("\t");
+				try {
+					if (fields.length == 4) {
+						result.put(fields[0], new Cost(Long.parseLong(fields[1]), Long.parseLong(fields[2]),
+								Integer.parseInt(fields[3])));
+						continue;
+					}
+				}
+				catch (final NumberFormatException ex) {
+					// ** Fall through and ignore the line.
+				}
+				logger.debug("Ignoring the line: {} of the fixture costs: {}.", line, file);
+			}
+		}
+		finally {
+			in.close();
+		}
+		return result;
+	}
+
+	private void write(final Map<String, Cost> contents) throws IOException {
+		final File directory = file.getAbsoluteFile().getParentFile();
+		final File temp = File.createTempFile(file.getName(), ".tmp", directory);
+		try {
+			final Writer out = new OutputStreamWriter(new FileOutputStream(temp), UTF_8);
+			try {
+				out.write(HEADER);
+				out.write('\n');
+				for (final Map.Entry<String, Cost> entry : contents.entrySet()) {
+					final Cost cost = entry.getValue();
+					out.write(entry.getKey() + '\t' + cost.nanos + '\t' + cost.entities + '\t' + cost.runs + '\n');
+				}
+			}
+			finally {
+				out.close();
+			}
+
+			if (!temp.renameTo(file)) {
+				// ** Some platforms won't rename over an existing file.
+				if (!file.delete() || !temp.renameTo(file)) {
+					throw new IOException("Unable to replace the fixture costs: " + file);
+				}
+			}
+		}
+		finally {
+			if (temp.exists() && !temp.delete()) {
+				temp.deleteOnExit();
+			}
+		}
+	}
+
+	/**
+	 * A run of a fixture, recorded but not yet saved.
+	 */
+	private static class Run {
+
+		private final String fixture;
+
+		private final long nanos;
+
+		private final long entities;
+
+		Run(final String fixture, final long nanos, final long entities) {
+			this.fixture = fixture;
+			this.nanos = nanos;
+			this.entities = entities;
+		}
+
+		/**
+		 * Folds the run into the cost of its fixture.
+		 *
+		 * @param costs the costs, by class name.
+		 */
+		void applyTo(final Map<String, Cost> costs) {
+			final Cost cost = costs.get(fixture);
+			if (cost == null) {
+				costs.put(fixture, new Cost(nanos, entities, 1));
+			}
+			else {
+				costs.put(fixture, new Cost(cost.nanos + (nanos - cost.nanos) / 2,
+						cost.entities + (entities - cost.entities) / 2, cost.runs + 1));
+			}
+		}
+	}
+
+	/**
+	 * The recorded cost of a single fixture.
+	 */
+	public static class Cost {
+
+		private final long nanos;
+
+		private final long entities;
+
+		private final int runs;
+
+		Cost(final long nanos, final long entities, final int runs) {
+			this.nanos = nanos;
+			this.entities = entities;
+			this.runs = runs;
+		}
+
+		/**
+		 * @return the estimated time of the fixture, in nanoseconds.
+		 */
+		public long getNanos() {
+			return nanos;
+		}
+
+		/**
+		 * @return the estimated number of entities of the fixture.
+		 */
+		public long getEntities() {
+			return entities;
+		}
+
+		/**
+		 * @return the number of runs recorded.
+		 */
+		public int getRuns() {
+			return runs;
+		}
+	}
+}
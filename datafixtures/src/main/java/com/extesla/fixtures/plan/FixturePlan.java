@@ -0,0 +1,375 @@
+/* Copyright 2014 Extesla Digital Entertainment, Ltd. All rights reserved.
+ *
+ * Licensed under the MIT License (http://opensource.org/licenses/MIT)
+ *
+ * Permission is hereby granted, free of charge, to any
+ * person obtaining a copy of this software and associated
+ * documentation files (the "Software"), to deal in the
+ * Software without restriction, including without limitation
+ * the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software,
+ * and to permit persons to whom the Software is furnished
+ * to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice
+ * shall be included in all copies or substantial portions of
+ * the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY
+ * KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE
+ * WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR
+ * PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS
+ * OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR
+ * OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT
+ * OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE
+ * SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package com.extesla.fixtures.plan;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Formatter;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+import com.extesla.fixtures.graph.FixtureGraph;
+import com.extesla.fixtures.graph.FixtureScheduler;
+
+/**
+ * The plan of a run, worked out without generating anything: the fixtures
+ * in the order they would be generated, the stages in which they could be
+ * generated in parallel, i.e. the fixtures whose dependencies are all in
+ * earlier stages, and the critical path through the graph.
+ *
+ * With {@link FixtureCosts} from previous runs, every fixture carries its
+ * estimated time and number of entities, the critical path is the one that
+ * takes the longest, and the plan estimates the time of a serial run and
+ * the time no amount of parallelism can beat. Fixtures that have never been
+ * recorded are estimated at the mean time of the others.
+ *
+ * The plan is rendered as text by {@link #toText()} and as JSON by
+ * {@link #toJson()}.
+ *
+ * @author Sean.Quinn
+ * @since  1.0
+ */
+public class FixturePlan {
+
+	private final FixtureGraph graph;
+
+	private final FixtureScheduler scheduler;
+
+	private final List<Class<?>> fixtures;
+
+	/**
+	 * The recorded cost of each fixture that has one.
+	 */
+	private final Map<Class<?>, FixtureCosts.Cost> costs = new HashMap<Class<?>, FixtureCosts.Cost>();
+
+	/**
+	 * The position of each fixture in a serial run, starting from <tt>1</tt>.
+	 */
+	private final Map<Class<?>, Integer> positions = new HashMap<Class<?>, Integer>();
+
+	/**
+	 * The stage of each fixture, starting from <tt>1</tt>.
+	 */
+	private final Map<Class<?>, Integer> stages = new HashMap<Class<?>, Integer>();
+
+	private final List<List<Class<?>>> stageList = new ArrayList<List<Class<?>>>();
+
+	private final List<Class<?>> criticalPath;
+
+	private final Set<Class<?>> critical;
+
+	/**
+	 * @param graph the {@code FixtureGraph} of the run.
+	 * @param priority the {@code Priority} of the run.
+	 * @param costs the {@code FixtureCosts} of previous runs, loaded, or
+	 * 		<tt>null</tt>.
+	 * @throws com.extesla.fixtures.exceptions.RecursiveDependencyException
+	 * 		if the graph contains a cycle.
+	 */
+	public FixturePlan(final FixtureGraph graph, final FixtureScheduler.Priority priority, final FixtureCosts costs) {
+		this.graph = graph;
+		if (costs != null) {
+			for (final Class<?> fixture : graph.getFixtures()) {
+				final FixtureCosts.Cost cost = costs.get(fixture);
+				if (cost != null) {
+					this.costs.put(fixture, cost);
+				}
+			}
+		}
+		this.scheduler = new FixtureScheduler(graph, priority,
+				costs != null ? costs.getNanos(graph.getFixtures()) : null);
+		this.fixtures = Collections.unmodifiableList(scheduler.sort());
+
+		for (final Class<?> fixture : fixtures) {
+			int stage = 1;
+			for (final Class<?> dependency : graph.getDependencies(fixture)) {
+				stage = Math.max(stage, stages.get(dependency) + 1);
+			}
+			positions.put(fixture, positions.size() + 1);
+			stages.put(fixture, stage);
+			if (stageList.size() < stage) {
+				stageList.add(new ArrayList<Class<?>>());
+			}
+			stageList.get(stage - 1).add(fixture);
+		}
+
+		this.criticalPath = Collections.unmodifiableList(scheduler.getCriticalPath());
+		this.critical = new HashSet<Class<?>>(criticalPath);
+	}
+
+	/**
+	 * @return the {@code FixtureGraph} of the run.
+	 */
+	public FixtureGraph getGraph() {
+		return graph;
+	}
+
+	/**
+	 * @return the {@code Priority} of the run.
+	 */
+	public FixtureScheduler.Priority getPriority() {
+		return scheduler.getPriority();
+	}
+
+	/**
+	 * @return the fixtures, in the order a serial run generates them.
+	 */
+	public List<Class<?>> getFixtures() {
+		return fixtures;
+	}
+
+	/**
+	 * Returns the stages of the run: the fixtures of a stage depend only on
+	 * fixtures of earlier stages, so they could all be generated at once.
+	 *
+	 * @return the fixtures of each stage.
+	 */
+	public List<List<Class<?>>> getStages() {
+		return Collections.unmodifiableList(stageList);
+	}
+
+	/**
+	 * @param fixture the fixture {@code Class}.
+	 * @return the fixture's stage, starting from <tt>1</tt>, or <tt>0</tt> if
+	 * 		it is not part of the plan.
+	 */
+	public int getStage(final Class<?> fixture) {
+		final Integer stage = stages.get(fixture);
+		return stage != null ? stage : 0;
+	}
+
+	/**
+	 * @return the fixtures of the critical path, in dependency order.
+	 */
+	public List<Class<?>> getCriticalPath() {
+		return criticalPath;
+	}
+
+	/**
+	 * @return <tt>true</tt> if any of the fixtures has a recorded cost, i.e.
+	 * 		if the plan has time estimates.
+	 */
+	public boolean hasCosts() {
+		return !costs.isEmpty();
+	}
+
+	/**
+	 * @param fixture the fixture {@code Class}.
+	 * @return the recorded cost of the fixture, or <tt>null</tt>.
+	 */
+	public FixtureCosts.Cost getCost(final Class<?> fixture) {
+		return costs.get(fixture);
+	}
+
+	/**
+	 * @param fixture the fixture {@code Class}.
+	 * @return the estimated time of the fixture, in nanoseconds, or
+	 * 		<tt>-1</tt> if the plan has no time estimates.
+	 */
+	public long getEstimatedNanos(final Class<?> fixture) {
+		return hasCosts() ? scheduler.getCost(fixture) : -1;
+	}
+
+	/**
+	 * @return the estimated time of a serial run, in nanoseconds, or
+	 * 		<tt>-1</tt> if the plan has no time estimates.
+	 */
+	public long getSerialNanos() {
+		if (!hasCosts()) {
+			return -1;
+		}
+		long nanos = 0;
+		for (final Class<?> fixture : fixtures) {
+			nanos += scheduler.getCost(fixture);
+		}
+		return nanos;
+	}
+
+	/**
+	 * @return the estimated time of the critical path, the shortest a run
+	 * 		can take however many threads it uses, in nanoseconds, or
+	 * 		<tt>-1</tt> if the plan has no time estimates.
+	 */
+	public long getCriticalPathNanos() {
+		if (!hasCosts()) {
+			return -1;
+		}
+		return criticalPath.isEmpty() ? 0 : scheduler.getPathCost(criticalPath.get(0));
+	}
+
+	/**
+	 * Renders the plan as text, one line per fixture grouped by stage, with
+	 * its position in a serial run; the fixtures on the critical path are
+	 * marked with <tt>*</tt> and the estimates of the fixtures without a
+	 * recorded cost with <tt>~</tt>.
+	 *
+	 * @return the plan as text.
+	 */
+	public String toText() {
+		final int unrecorded = fixtures.size() - costs.size();
+		final Formatter f = new Formatter(new StringBuilder(), Locale.ROOT);
+		f.format("Fixture plan: %d fixtures in %d stages, %s priority%n", fixtures.size(), stageList.size(),
+				getPriority());
+		if (hasCosts()) {
+			f.format("Estimated time: %s serial, %s on the critical path", seconds(getSerialNanos()),
+					seconds(getCriticalPathNanos()));
+			if (unrecorded > 0) {
+				f.format(" (%d fixtures without recorded costs)", unrecorded);
+			}
+			f.format("%n");
+		}
+		else {
+			f.format("Estimated time: no recorded costs%n");
+		}
+
+		for (int i = 0; i < stageList.size(); i++) {
+			f.format("%nStage %d%n", i + 1);
+			for (final Class<?> fixture : stageList.get(i)) {
+				final FixtureCosts.Cost cost = costs.get(fixture);
+				f.format("  %4d %s %-48s %10s %10s entities", positions.get(fixture),
+						critical.contains(fixture) ? "*" : " ", fixture.getName(),
+						hasCosts() ? seconds(scheduler.getCost(fixture)) + (cost == null ? "~" : " ") : "-",
+						cost != null ? String.valueOf(cost.getEntities()) : "?");
+				final Set<Class<?>> dependencies = graph.getDependencies(fixture);
+				if (!dependencies.isEmpty()) {
+					f.format("  after %s", simpleNames(dependencies));
+				}
+				f.format("%n");
+			}
+		}
+
+		f.format("%nCritical path");
+		if (hasCosts()) {
+			f.format(" (%s)", seconds(getCriticalPathNanos()));
+		}
+		f.format(": ");
+		for (int i = 0; i < criticalPath.size(); i++) {
+			f.format(i > 0 ? " -> %s" : "%s", criticalPath.get(i).getSimpleName());
+		}
+		f.format("%n");
+		return f.toString();
+	}
+
+	/**
+	 * Renders the plan as a JSON object. Times are in nanoseconds, and are
+	 * <tt>null</tt> if the plan has no time estimates.
+	 *
+	 * @return the plan as JSON.
+	 */
+	public String toJson() {
+		final StringBuilder json = new StringBuilder();
+		json.append("{\n  \"priority\": ").append(quote(getPriority().name()));
+		json.append(",\n  \"estimatedSerialNanos\": ").append(nanos(getSerialNanos()));
+		json.append(",\n  \"estimatedCriticalPathNanos\": ").append(nanos(getCriticalPathNanos()));
+		json.append(",\n  \"fixtures\": [");
+		for (int i = 0; i < fixtures.size(); i++) {
+			final Class<?> fixture = fixtures.get(i);
+			final FixtureCosts.Cost cost = costs.get(fixture);
+			json.append(i > 0 ? ",\n    {" : "\n    {");
+			json.append("\"name\": ").append(quote(fixture.getName()));
+			json.append(", \"position\": ").append(positions.get(fixture));
+			json.append(", \"stage\": ").append(stages.get(fixture));
+			json.append(", \"critical\": ").append(critical.contains(fixture));
+			json.append(", \"recorded\": ").append(cost != null);
+			json.append(", \"estimatedNanos\": ").append(nanos(getEstimatedNanos(fixture)));
+			json.append(", \"entities\": ").append(cost != null ? String.valueOf(cost.getEntities()) : "null");
+			json.append(", \"dependencies\": ");
+			names(json, graph.getDependencies(fixture));
+			json.append('}');
+		}
+		json.append(fixtures.isEmpty() ? "]" : "\n  ]");
+		json.append(",\n  \"stages\": [");
+		for (int i = 0; i < stageList.size(); i++) {
+			json.append(i > 0 ? ",\n    " : "\n    ");
+			names(json, stageList.get(i));
+		}
+		json.append(stageList.isEmpty() ? "]" : "\n  ]");
+		json.append(",\n  \"criticalPath\": ");
+		names(json, criticalPath);
+		json.append("\n}\n");
+		return json.toString();
+	}
+
+	@Override
+	public String toString() {
+		return toText();
+	}
+
+	private static String seconds(final long nanos) {
+		return String.format(Locale.ROOT, "%.3fs", nanos / (double) TimeUnit.SECONDS.toNanos(1));
+	}
+
+	private static String nanos(final long nanos) {
+		return nanos >= 0 ? String.valueOf(nanos) : "null";
+	}
+
+	private static String simpleNames(final Iterable<Class<?>> fixtures) {
+		final StringBuilder names = new StringBuilder();
+		for (final Class<?> fixture : fixtures) {
+			if (names.length() > 0) {
+				names.append(", ");
+			}
+			names.append(fixture.getSimpleName());
+		}
+		return names.toString();
+	}
+
+	private static void names(final StringBuilder json, final Iterable<Class<?>> fixtures) {
+		json.append('[');
+		boolean first = true;
+		for (final Class<?> fixture : fixtures) {
+			if (!first) {
+				json.append(", ");
+			}
+			json.append(quote(fixture.getName()));
+			first = false;
+		}
+		json.append(']');
+	}
+
+	private static String quote(final String value) {
+		final StringBuilder quoted = new StringBuilder(value.length() + 2).append('"');
+		for (int i = 0; i < value.length(); i++) {
+			final char c = value.charAt(i);
+			if (c == '"' || c == '\\') {
+				quoted.append('\\').append(c);
+			}
+			else if (c < 0x20) {
+				quoted.append(String.format("\\u%04x", (int) c));
+			}
+			else {
+				quoted.append(c);
+			}
+		}
+		return quoted.append('"').toString();
+	}
+}
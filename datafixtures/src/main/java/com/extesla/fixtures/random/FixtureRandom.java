@@ -0,0 +1,259 @@
+/* Copyright 2014 Extesla Digital Entertainment, Ltd. All rights reserved.
+ *
+ * Licensed under the MIT License (http://opensource.org/licenses/MIT)
+ *
+ * Permission is hereby granted, free of charge, to any
+ * person obtaining a copy of this software and associated
+ * documentation files (the "Software"), to deal in the
+ * Software without restriction, including without limitation
+ * the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software,
+ * and to permit persons to whom the Software is furnished
+ * to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice
+ * shall be included in all copies or substantial portions of
+ * the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY
+ * KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE
+ * WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR
+ * PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS
+ * OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR
+ * OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT
+ * OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE
+ * SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package com.extesla.fixtures.random;
+
+/**
+ * A fast, splittable pseudo-random number generator using the SplitMix64
+ * algorithm (Steele, Lea and Flood, "Fast Splittable Pseudorandom Number
+ * Generators"), as used by {@code java.util.SplittableRandom}. Its whole
+ * state is two longs and no method allocates; the sequence of values is
+ * fully determined by the seed, on every JVM. Every method but
+ * {@link #nextGaussian()} returns the same values as the method of the same
+ * name of a {@code SplittableRandom} created with the same seed.
+ *
+ * Instances are not thread-safe; use {@link #split()} to hand independent
+ * generators to other threads.
+ *
+ * @author Sean.Quinn
+ * @since  1.0
+ */
+public class FixtureRandom {
+
+	private static final long GOLDEN_GAMMA = 0x9e3779b97f4a7c15L;
+
+	private static final double DOUBLE_UNIT = 1.0 / (1L << 53);
+
+	private long seed;
+
+	private final long gamma;
+
+	/**
+	 * Creates a generator from the seed.
+	 *
+	 * @param seed the seed.
+	 */
+	public FixtureRandom(final long seed) {
+		this(seed, GOLDEN_GAMMA);
+	}
+
+	private FixtureRandom(final long seed, final long gamma) {
+		this.seed = seed;
+		this.gamma = gamma;
+	}
+
+	/**
+	 * Scrambles the bits of a value; a bijection, so distinct inputs give
+	 * distinct outputs. Useful to derive seeds.
+	 *
+	 * @param value the value.
+	 * @return the scrambled value.
+	 */
+	public static long mix64(long value) {
+		value = (value ^ (value >>> 30)) * 0xbf58476d1ce4e5b9L;
+		value = (value ^ (value >>> 27)) * 0x94d049bb133111ebL;
+		return value ^ (value >>> 31);
+	}
+
+	private static int mix32(long value) {
+		value = (value ^ (value >>> 33)) * 0x62a9d9ed799705f5L;
+		return (int) (((value ^ (value >>> 28)) * 0xcb24d0a5c88c35b3L) >>> 32);
+	}
+
+	private static long mixGamma(long value) {
+		value = (value ^ (value >>> 33)) * 0xff51afd7ed558ccdL;
+		value = (value ^ (value >>> 33)) * 0xc4ceb9fe1a85ec53L;
+		value = (value ^ (value >>> 33)) | 1L;
+		final int n = Long.bitCount(value ^ (value >>> 1));
+		return (n < 24) ? value ^ 0xaaaaaaaaaaaaaaaaL : value;
+	}
+
+	private long nextSeed() {
+		return seed += gamma;
+	}
+
+	/**
+	 * Returns a new generator, whose values are independent of those of this
+	 * one, and advances this generator.
+	 *
+	 * @return the new generator.
+	 */
+	public FixtureRandom split() {
+		return new FixtureRandom(nextLong(), mixGamma(nextSeed()));
+	}
+
+	/**
+	 * @return a uniformly distributed {@code long}.
+	 */
+	public long nextLong() {
+		return mix64(nextSeed());
+	}
+
+	/**
+	 * @return a uniformly distributed {@code int}.
+	 */
+	public int nextInt() {
+		return mix32(nextSeed());
+	}
+
+	/**
+	 * Returns a uniformly distributed {@code int} between <tt>0</tt>,
+	 * inclusive, and the bound, exclusive.
+	 *
+	 * @param bound the upper bound; positive.
+	 * @return the value.
+	 */
+	public int nextInt(final int bound) {
+		if (bound <= 0) {
+			throw new IllegalArgumentException("The bound must be positive, was: " + bound);
+		}
+
+		final int m = bound - 1;
+		int r = nextInt();
+		if ((bound & m) == 0) {
+			// ** A power of two, just mask.
+			return r & m;
+		}
+		// ** Reject the values of the incomplete last interval.
+		for (int u = r >>> 1; u + m - (r = u % bound) < 0; u = nextInt() >>> 1) {
+			// retry.
+		}
+		return r;
+	}
+
+	/**
+	 * Returns a uniformly distributed {@code int} between the origin,
+	 * inclusive, and the bound, exclusive.
+	 *
+	 * @param origin the lower bound.
+	 * @param bound the upper bound; greater than the origin.
+	 * @return the value.
+	 */
+	public int nextInt(final int origin, final int bound) {
+		if (origin >= bound) {
+			throw new IllegalArgumentException("The bound: " + bound + " must be greater than the origin: " + origin);
+		}
+
+		final int range = bound - origin;
+		if (range > 0) {
+			return origin + nextInt(range);
+		}
+		// ** The range overflows an int, reject the values outside it.
+		int r;
+		do {
+			r = nextInt();
+		}
+		while (r < origin || r >= bound);
+		return r;
+	}
+
+	/**
+	 * Returns a uniformly distributed {@code long} between <tt>0</tt>,
+	 * inclusive, and the bound, exclusive.
+	 *
+	 * @param bound the upper bound; positive.
+	 * @return the value.
+	 */
+	public long nextLong(final long bound) {
+		if (bound <= 0) {
+			throw new IllegalArgumentException("The bound must be positive, was: " + bound);
+		}
+
+		final long m = bound - 1;
+		long r = nextLong();
+		if ((bound & m) == 0L) {
+			// ** A power of two, just mask.
+			return r & m;
+		}
+		// ** Reject the values of the incomplete last interval.
+		for (long u = r >>> 1; u + m - (r = u % bound) < 0L; u = nextLong() >>> 1) {
+			// retry.
+		}
+		return r;
+	}
+
+	/**
+	 * Returns a uniformly distributed {@code long} between the origin,
+	 * inclusive, and the bound, exclusive.
+	 *
+	 * @param origin the lower bound.
+	 * @param bound the upper bound; greater than the origin.
+	 * @return the value.
+	 */
+	public long nextLong(final long origin, final long bound) {
+		if (origin >= bound) {
+			throw new IllegalArgumentException("The bound: " + bound + " must be greater than the origin: " + origin);
+		}
+
+		final long range = bound - origin;
+		if (range > 0) {
+			return origin + nextLong(range);
+		}
+		// ** The range overflows a long, reject the values outside it.
+		long r;
+		do {
+			r = nextLong();
+		}
+		while (r < origin || r >= bound);
+		return r;
+	}
+
+	/**
+	 * @return a uniformly distributed {@code double} between <tt>0</tt>,
+	 * 		inclusive, and <tt>1</tt>, exclusive.
+	 */
+	public double nextDouble() {
+		return (nextLong() >>> 11) * DOUBLE_UNIT;
+	}
+
+	/**
+	 * @return a uniformly distributed {@code boolean}.
+	 */
+	public boolean nextBoolean() {
+		return nextInt() < 0;
+	}
+
+	/**
+	 * Returns a normally distributed {@code double} with a mean of
+	 * <tt>0</tt> and a standard deviation of <tt>1</tt>, using the polar
+	 * method. Unlike {@link java.util.Random#nextGaussian()} the second value
+	 * of each pair is discarded, so that the state stays a single seed.
+	 *
+	 * @return the value.
+	 */
+	public double nextGaussian() {
+		double v1;
+		double v2;
+		double s;
+		do {
+			v1 = 2 * nextDouble() - 1;
+			v2 = 2 * nextDouble() - 1;
+			s = v1 * v1 + v2 * v2;
+		}
+		while (s >= 1 || s == 0);
+		return v1 * StrictMath.sqrt(-2 * StrictMath.log(s) / s);
+	}
+}
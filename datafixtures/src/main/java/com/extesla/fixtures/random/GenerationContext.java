@@ -0,0 +1,296 @@
+/* Copyright 2014 Extesla Digital Entertainment, Ltd. All rights reserved.
+ *
+ * Licensed under the MIT License (http://opensource.org/licenses/MIT)
+ *
+ * Permission is hereby granted, free of charge, to any
+ * person obtaining a copy of this software and associated
+ * documentation files (the "Software"), to deal in the
+ * Software without restriction, including without limitation
+ * the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software,
+ * and to permit persons to whom the Software is furnished
+ * to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice
+ * shall be included in all copies or substantial portions of
+ * the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY
+ * KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE
+ * WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR
+ * PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS
+ * OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR
+ * OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT
+ * OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE
+ * SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package com.extesla.fixtures.random;
+
+import java.util.Date;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * The source of every random value a fixture generates. The processor gives
+ * each fixture its own context, seeded from the run seed and the fixture's
+ * class name, so a fixture generates the same data whatever the order in
+ * which, or the thread on which, the fixtures run; the same run seed gives
+ * the same dataset.
+ *
+ * A context is not thread-safe; a fixture that generates on several threads
+ * should {@link #fork(String) fork} a generator for each.
+ *
+ * @author Sean.Quinn
+ * @since  1.0
+ */
+public class GenerationContext {
+
+	private static final String ALPHABETIC = "abcdefghijklmnopqrstuvwxyzABCDEFGHIJKLMNOPQRSTUVWXYZ";
+
+	private static final String ALPHANUMERIC = ALPHABETIC + "0123456789";
+
+	private static final String NUMERIC = "0123456789";
+
+	private final long seed;
+
+	private final FixtureRandom random;
+
+	private long sequence;
+
+	/**
+	 * Creates the context of the fixture.
+	 *
+	 * @param runSeed the seed of the run.
+	 * @param fixture the fixture {@code Class}.
+	 */
+	public GenerationContext(final long runSeed, final Class<?> fixture) {
+		this(derive(runSeed, fixture.getName()));
+	}
+
+	/**
+	 * Creates a context from its own seed.
+	 *
+	 * @param seed the seed.
+	 */
+	public GenerationContext(final long seed) {
+		this.seed = seed;
+		this.random = new FixtureRandom(seed);
+	}
+
+	/**
+	 * Derives a seed from another seed and a name.
+	 *
+	 * @param seed the seed.
+	 * @param name the name.
+	 * @return the derived seed.
+	 */
+	public static long derive(final long seed, final String name) {
+		// ** 64 bit FNV-1a; a 32 bit hash of the name would collide too easily.
+		long hash = 0xcbf29ce484222325L;
+		for (int i = 0; i < name.length(); i++) {
+			hash ^= name.charAt(i);
+			hash *= 0x100000001b3L;
+		}
+		return FixtureRandom.mix64(seed ^ FixtureRandom.mix64(hash));
+	}
+
+	/**
+	 * @return the seed of this context.
+	 */
+	public long getSeed() {
+		return seed;
+	}
+
+	/**
+	 * @return the generator of this context.
+	 */
+	public FixtureRandom getRandom() {
+		return random;
+	}
+
+	/**
+	 * Returns a generator derived from this context's seed and the name,
+	 * whose values do not depend on how much of this context's generator has
+	 * been used.
+	 *
+	 * @param name the name of the generator, e.g. of a partition.
+	 * @return the generator.
+	 */
+	public FixtureRandom fork(final String name) {
+		return new FixtureRandom(derive(seed, name));
+	}
+
+	/**
+	 * Returns the next identifier of the fixture: 1, 2, 3...
+	 * @return the identifier.
+	 */
+	public long nextId() {
+		return ++sequence;
+	}
+
+	/**
+	 * Returns a random, version 4 {@link UUID}.
+	 * @return the UUID.
+	 */
+	public UUID uuid() {
+		final long most = (random.nextLong() & ~0xf000L) | 0x4000L;
+		final long least = (random.nextLong() & ~(3L << 62)) | (1L << 63);
+		return new UUID(most, least);
+	}
+
+	/**
+	 * Returns a random {@code int} between the origin, inclusive, and the
+	 * bound, exclusive.
+	 *
+	 * @param origin the lower bound.
+	 * @param bound the upper bound.
+	 * @return the value.
+	 */
+	public int between(final int origin, final int bound) {
+		return random.nextInt(origin, bound);
+	}
+
+	/**
+	 * Returns a random {@code long} between the origin, inclusive, and the
+	 * bound, exclusive.
+	 *
+	 * @param origin the lower bound.
+	 * @param bound the upper bound.
+	 * @return the value.
+	 */
+	public long between(final long origin, final long bound) {
+		return random.nextLong(origin, bound);
+	}
+
+	/**
+	 * Returns <tt>true</tt> with the probability.
+	 *
+	 * @param probability the probability, between <tt>0</tt> and <tt>1</tt>.
+	 * @return <tt>true</tt> or <tt>false</tt>.
+	 */
+	public boolean chance(final double probability) {
+		return random.nextDouble() < probability;
+	}
+
+	/**
+	 * Returns a random string of the letters <tt>a-z</tt> and <tt>A-Z</tt>.
+	 *
+	 * @param length the length of the string.
+	 * @return the string.
+	 */
+	public String alphabetic(final int length) {
+		return string(ALPHABETIC, length);
+	}
+
+	/**
+	 * Returns a random string of letters and digits.
+	 *
+	 * @param length the length of the string.
+	 * @return the string.
+	 */
+	public String alphanumeric(final int length) {
+		return string(ALPHANUMERIC, length);
+	}
+
+	/**
+	 * Returns a random string of digits.
+	 *
+	 * @param length the length of the string.
+	 * @return the string.
+	 */
+	public String numeric(final int length) {
+		return string(NUMERIC, length);
+	}
+
+	/**
+	 * Returns a random string of the characters of the alphabet.
+	 *
+	 * @param alphabet the characters to choose from.
+	 * @param length the length of the string.
+	 * @return the string.
+	 */
+	public String string(final String alphabet, final int length) {
+		final char[] chars = new char[length];
+		final int size = alphabet.length();
+		for (int i = 0; i < length; i++) {
+			chars[i] = alphabet.charAt(random.nextInt(size));
+		}
+		return new String(chars);
+	}
+
+	/**
+	 * Returns a random date between the two dates.
+	 *
+	 * @param from the earliest date, inclusive.
+	 * @param to the latest date, exclusive.
+	 * @return the date.
+	 */
+	public Date date(final Date from, final Date to) {
+		return new Date(random.nextLong(from.getTime(), to.getTime()));
+	}
+
+	/**
+	 * Returns a random element of the values.
+	 *
+	 * @param values the values to choose from.
+	 * @return the value.
+	 */
+	public <T> T pick(final T[] values) {
+		return values[random.nextInt(values.length)];
+	}
+
+	/**
+	 * Returns a random element of the list.
+	 *
+	 * @param values the values to choose from.
+	 * @return the value.
+	 */
+	public <T> T pick(final List<T> values) {
+		return values.get(random.nextInt(values.size()));
+	}
+
+	/**
+	 * Returns a random index of the weights, each index being chosen with a
+	 * probability proportional to its weight.
+	 *
+	 * @param weights the non-negative weights.
+	 * @return the index.
+	 */
+	public int weighted(final double[] weights) {
+		double total = 0;
+		for (final double weight : weights) {
+			total += weight;
+		}
+
+		double target = random.nextDouble() * total;
+		for (int i = 0; i < weights.length; i++) {
+			target -= weights[i];
+			if (target < 0) {
+				return i;
+			}
+		}
+		return weights.length - 1;
+	}
+
+	/**
+	 * Returns a normally distributed value.
+	 *
+	 * @param mean the mean.
+	 * @param deviation the standard deviation.
+	 * @return the value.
+	 */
+	public double gaussian(final double mean, final double deviation) {
+		return mean + random.nextGaussian() * deviation;
+	}
+
+	/**
+	 * Returns an exponentially distributed value, e.g. the time between
+	 * events.
+	 *
+	 * @param mean the mean.
+	 * @return the value.
+	 */
+	public double exponential(final double mean) {
+		return -mean * StrictMath.log(1 - random.nextDouble());
+	}
+}
@@ -0,0 +1,232 @@
+/* Copyright 2014 Extesla Digital Entertainment, Ltd. All rights reserved.
+ *
+ * Licensed under the MIT License (http://opensource.org/licenses/MIT)
+ *
+ * Permission is hereby granted, free of charge, to any
+ * person obtaining a copy of this software and associated
+ * documentation files (the "Software"), to deal in the
+ * Software without restriction, including without limitation
+ * the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software,
+ * and to permit persons to whom the Software is furnished
+ * to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice
+ * shall be included in all copies or substantial portions of
+ * the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY
+ * KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE
+ * WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR
+ * PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS
+ * OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR
+ * OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT
+ * OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE
+ * SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package com.extesla.fixtures.shard;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import com.extesla.fixtures.annotations.Fixture;
+
+/**
+ * Identifies one of the processes of a sharded run and decides which shard
+ * generates each fixture. The fixtures of a run are assigned by
+ * {@link #balance(Collection, Map, int)}, from their estimated costs, so
+ * that every shard gets about the same amount of work; the first shard
+ * computes the assignment and the others take it from the
+ * {@link ShardManifest}, so every process uses the same one. A fixture
+ * missing from the assignment, e.g. one only referenced lazily, goes to the
+ * shard chosen by its class name.
+ *
+ * A fixture marked {@link Fixture#partitioned()}, which must be a
+ * {@link com.extesla.fixtures.RangeFixture}, is generated by every shard,
+ * each generating the ranges whose index, modulo the number of shards,
+ * equals its own.
+ *
+ * @author Sean.Quinn
+ * @since  1.0
+ */
+public class Shard {
+
+	private final int index;
+
+	private final int count;
+
+	/**
+	 * The shard of each fixture, by class name.
+	 */
+	private final Map<String, Integer> owners;
+
+	/**
+	 * @param index the index of this shard, from <tt>0</tt>.
+	 * @param count the number of shards.
+	 */
+	public Shard(final int index, final int count) {
+		this(index, count, Collections.<String, Integer>emptyMap());
+	}
+
+	/**
+	 * @param index the index of this shard, from <tt>0</tt>.
+	 * @param count the number of shards.
+	 * @param owners the shard of each fixture, by class name.
+	 */
+	public Shard(final int index, final int count, final Map<String, Integer> owners) {
+		if (count < 1) {
+			throw new IllegalArgumentException("The shard count must be at least 1, was: " + count);
+		}
+		if (index < 0 || index >= count) {
+			throw new IllegalArgumentException("The shard index must be between 0 and " + (count - 1)
+					+ ", was: " + index);
+		}
+		for (final Map.Entry<String, Integer> owner : owners.entrySet()) {
+			if (owner.getValue() < 0 || owner.getValue() >= count) {
+				throw new IllegalArgumentException("The fixture: " + owner.getKey() + " is assigned to shard "
+						+ owner.getValue() + " of " + count + ".");
+			}
+		}
+		this.index = index;
+		this.count = count;
+		this.owners = Collections.unmodifiableMap(new HashMap<String, Integer>(owners));
+	}
+
+	/**
+	 * Assigns the fixtures to the shards so that their estimated costs are
+	 * spread as evenly as possible: the costliest fixture first, each to the
+	 * shard with the least work so far. Fixtures without an estimate are
+	 * counted at the mean of the others, or all alike if none has one.
+	 * Partitioned fixtures are left out, as every shard generates them.
+	 *
+	 * The assignment depends only on the arguments, and ties are broken by
+	 * class name and shard index.
+	 *
+	 * @param fixtures the fixture {@code Classes}.
+	 * @param costs the estimated cost of the fixtures, e.g. in nanoseconds.
+	 * @param count the number of shards.
+	 * @return the shard of each fixture, by class name.
+	 */
+	public static Map<String, Integer> balance(final Collection<Class<?>> fixtures, final Map<Class<?>, Long> costs,
+			final int count) {
+		long known = 0;
+		long total = 0;
+		for (final Class<?> fixture : fixtures) {
+			final Long cost = costs.get(fixture);
+			if (cost != null && !isPartitioned(fixture)) {
+				known++;
+				total += Math.max(cost, 1);
+			}
+		}
+		final long unknown = known > 0 ? Math.max(total / known, 1) : 1;
+
+		final List<Class<?>> sorted = new ArrayList<Class<?>>(fixtures.size());
+		final Map<Class<?>, Long> estimates = new HashMap<Class<?>, Long>();
+		for (final Class<?> fixture : fixtures) {
+			if (!isPartitioned(fixture)) {
+				final Long cost = costs.get(fixture);
+				estimates.put(fixture, cost != null ? Math.max(cost, 1) : unknown);
+				sorted.add(fixture);
+			}
+		}
+		Collections.sort(sorted, new Comparator<Class<?>>() {
+			@Override
+			public int compare(final Class<?> left, final Class<?> right) {
+				final int byCost = estimates.get(right).compareTo(estimates.get(left));
+				return byCost != 0 ? byCost : left.getName().compareTo(right.getName());
+			}
+		});
+
+		final long[] loads = new long[count];
+		final Map<String, Integer> owners = new HashMap<String, Integer>();
+		for (final Class<?> fixture : sorted) {
+			int least = 0;
+			for (int i = 1; i < count; i++) {
+				if (loads[i] < loads[least]) {
+					least = i;
+				}
+			}
+			loads[least] += estimates.get(fixture);
+			owners.put(fixture.getName(), least);
+		}
+		return owners;
+	}
+
+	/**
+	 * Returns this shard with the assignment of the fixtures.
+	 *
+	 * @param owners the shard of each fixture, by class name.
+	 * @return the assigned {@code Shard}.
+	 */
+	public Shard assign(final Map<String, Integer> owners) {
+		return new Shard(index, count, owners);
+	}
+
+	/**
+	 * @return the index of this shard.
+	 */
+	public int getIndex() {
+		return index;
+	}
+
+	/**
+	 * @return the number of shards.
+	 */
+	public int getCount() {
+		return count;
+	}
+
+	/**
+	 * Returns the assignment of the fixtures to the shards.
+	 * @return the shard of each fixture, by class name.
+	 */
+	public Map<String, Integer> getOwners() {
+		return owners;
+	}
+
+	/**
+	 * Checks to see if the fixture is split across every shard.
+	 *
+	 * @param fixture the fixture {@code Class}.
+	 * @return <tt>true</tt> if the fixture is partitioned.
+	 */
+	public static boolean isPartitioned(final Class<?> fixture) {
+		final Fixture annotation = fixture.getAnnotation(Fixture.class);
+		return annotation != null && annotation.partitioned();
+	}
+
+	/**
+	 * Returns the shard that generates the fixture; meaningless for a
+	 * partitioned fixture.
+	 *
+	 * @param fixture the fixture {@code Class}.
+	 * @return the index of the owning shard.
+	 */
+	public int getOwner(final Class<?> fixture) {
+		final Integer owner = owners.get(fixture.getName());
+		if (owner != null) {
+			return owner;
+		}
+		return (fixture.getName().hashCode() & Integer.MAX_VALUE) % count;
+	}
+
+	/**
+	 * Checks to see if this shard generates the fixture, or its share of it.
+	 *
+	 * @param fixture the fixture {@code Class}.
+	 * @return <tt>true</tt> if this shard generates the fixture.
+	 */
+	public boolean owns(final Class<?> fixture) {
+		return isPartitioned(fixture) || getOwner(fixture) == index;
+	}
+
+	@Override
+	public String toString() {
+		return "shard " + index + " of " + count;
+	}
+}
@@ -0,0 +1,280 @@
+/* Copyright 2014 Extesla Digital Entertainment, Ltd. All rights reserved.
+ *
+ * Licensed under the MIT License (http://opensource.org/licenses/MIT)
+ *
+ * Permission is hereby granted, free of charge, to any
+ * person obtaining a copy of this software and associated
+ * documentation files (the "Software"), to deal in the
+ * Software without restriction, including without limitation
+ * the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software,
+ * and to permit persons to whom the Software is furnished
+ * to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice
+ * shall be included in all copies or substantial portions of
+ * the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY
+ * KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE
+ * WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR
+ * PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS
+ * OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR
+ * OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT
+ * OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE
+ * SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package com.extesla.fixtures.shard;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.TreeMap;
+
+import com.extesla.fixtures.exceptions.ShardException;
+import com.extesla.fixtures.state.ReferenceCodec;
+
+/**
+ * The files through which the shards of a run hand their results to each
+ * other. The first shard publishes the assignment of the fixtures to the
+ * shards, which the others wait for. Once a shard has generated and
+ * persisted a fixture it publishes the fixture's references; a shard whose
+ * fixtures depend on it waits for them to appear. A shard that fails to
+ * generate a fixture publishes the failure instead, so that the shards
+ * waiting on it fail as well rather than wait for the timeout.
+ *
+ * Every file is written to a temporary file first and then renamed, so a
+ * reader never sees a partial file. The directory must be local to, or
+ * shared by, every shard, and must not hold the files of a previous run.
+ *
+ * @author Sean.Quinn
+ * @since  1.0
+ */
+public class ShardManifest {
+
+	private static final String DONE = ".done";
+
+	private static final String FAILED = ".failed";
+
+	private static final String ASSIGNMENT = "assignment";
+
+	private static final String ENCODING = "UTF-8";
+
+	private static final long MAX_POLL_MILLIS = 250;
+
+	private final File directory;
+
+	public ShardManifest(final File directory) {
+		this.directory = directory;
+	}
+
+	/**
+	 * Publishes the references of a fixture generated, or partially
+	 * generated, by the shard. References that cannot be serialized are
+	 * published as a failure.
+	 *
+	 * @param fixture the fixture {@code Class}.
+	 * @param shard the index of the publishing shard.
+	 * @param references the fixture's references, by name.
+	 */
+	public void publish(final Class<?> fixture, final int shard, final Map<String, Object> references) {
+		final byte[] bytes;
+		try {
+			bytes = ReferenceCodec.encode(references);
+		}
+		catch (final IOException ex) {
+			fail(fixture, shard, "The references of the fixture: " + fixture.getName()
+					+ " cannot be shared with other shards: " + ex);
+			return;
+		}
+		write(file(fixture, shard, DONE), bytes);
+	}
+
+	/**
+	 * Publishes the failure of the shard to generate a fixture, unless the
+	 * fixture has already been published.
+	 *
+	 * @param fixture the fixture {@code Class}.
+	 * @param shard the index of the failed shard.
+	 * @param reason the cause of the failure.
+	 */
+	public void fail(final Class<?> fixture, final int shard, final String reason) {
+		if (file(fixture, shard, DONE).exists()) {
+			return;
+		}
+		try {
+			write(file(fixture, shard, FAILED), String.valueOf(reason).getBytes(ENCODING));
+		}
+		catch (final IOException ex) {
+			throw new IllegalStateException(ex);
+		}
+	}
+
+	/**
+	 * Publishes the assignment of the fixtures to the shards.
+	 *
+	 * @param owners the shard of each fixture, by class name.
+	 */
+	public void publishAssignment(final Map<String, Integer> owners) {
+		final StringBuilder text = new StringBuilder();
+		for (final Map.Entry<String, Integer> owner : new TreeMap<String, Integer>(owners).entrySet()) {
+			text.append(owner.getKey()).append('\t').append(owner.getValue()).append('\n');
+		}
+		try {
+			write(new File(directory, ASSIGNMENT + DONE), text.toString().getBytes(ENCODING));
+		}
+		catch (final IOException ex) {
+			throw new IllegalStateException(ex);
+		}
+	}
+
+	/**
+	 * Waits for the first shard to publish the assignment of the fixtures.
+	 *
+	 * @param timeout the maximum time to wait, in milliseconds.
+	 * @return the shard of each fixture, by class name.
+	 * @throws ShardException if the assignment was not published in time.
+	 */
+	public Map<String, Integer> awaitAssignment(final long timeout) {
+		final File done = new File(directory, ASSIGNMENT + DONE);
+		final long deadline = System.currentTimeMillis() + timeout;
+
+		long poll = 1;
+		while (!done.exists()) {
+			poll = sleep(null, 0, deadline, poll, "the assignment of the fixtures");
+		}
+
+		final Map<String, Integer> owners = new HashMap<String, Integer>();
+		try {
+			for (final String line : new String(read(done), ENCODING).split("\n")) {
+				final int tab = line.indexOf('\t');
+				if (tab > 0) {
+					owners.put(line.substring(0, tab), Integer.valueOf(line.substring(tab + 1)));
+				}
+			}
+		}
+		catch (final IOException ex) {
+			throw new ShardException(null, 0, "Unable to read the assignment of the fixtures.", ex);
+		}
+		return owners;
+	}
+
+	/**
+	 * Waits for the shard to publish the fixture.
+	 *
+	 * @param fixture the fixture {@code Class}.
+	 * @param shard the index of the publishing shard.
+	 * @param timeout the maximum time to wait, in milliseconds.
+	 * @return the fixture's references, by name.
+	 * @throws ShardException if the shard published a failure, or did not
+	 * 		publish the fixture in time.
+	 */
+	public Map<String, Object> await(final Class<?> fixture, final int shard, final long timeout) {
+		final File done = file(fixture, shard, DONE);
+		final File failed = file(fixture, shard, FAILED);
+		final long deadline = System.currentTimeMillis() + timeout;
+
+		long poll = 1;
+		while (true) {
+			try {
+				if (done.exists()) {
+					return ReferenceCodec.decode(read(done), fixture.getClassLoader());
+				}
+				if (failed.exists()) {
+					throw new ShardException(fixture, shard, "Shard " + shard + " failed to generate the fixture: "
+							+ fixture.getName() + ": " + new String(read(failed), ENCODING));
+				}
+			}
+			catch (final IOException ex) {
+				throw new ShardException(fixture, shard, "Unable to read the fixture: " + fixture.getName()
+						+ " published by shard " + shard + ".", ex);
+			}
+			catch (final ClassNotFoundException ex) {
+				throw new ShardException(fixture, shard, "Unable to read the fixture: " + fixture.getName()
+						+ " published by shard " + shard + ".", ex);
+			}
+
+			poll = sleep(fixture, shard, deadline, poll, "the fixture: " + fixture.getName());
+		}
+	}
+
+	/**
+	 * Sleeps until the next poll, backing off up to a maximum.
+	 *
+	 * @return the time to sleep before the poll after.
+	 * @throws ShardException if the deadline has passed.
+	 */
+	private static long sleep(final Class<?> fixture, final int shard, final long deadline, final long poll,
+			final String awaited) {
+		final long remaining = deadline - System.currentTimeMillis();
+		if (remaining <= 0) {
+			throw new ShardException(fixture, shard, "Timed out waiting for shard " + shard + " to publish "
+					+ awaited + ".");
+		}
+		try {
+			Thread.sleep(Math.min(poll, remaining));
+		}
+		catch (final InterruptedException ex) {
+			Thread.currentThread().interrupt();
+			throw new ShardException(fixture, shard, "Interrupted waiting for shard " + shard + " to publish "
+					+ awaited + ".", ex);
+		}
+		return Math.min(poll * 2, MAX_POLL_MILLIS);
+	}
+
+	private File file(final Class<?> fixture, final int shard, final String suffix) {
+		return new File(directory, fixture.getName() + '.' + shard + suffix);
+	}
+
+	private void write(final File file, final byte[] bytes) {
+		try {
+			if (!directory.isDirectory() && !directory.mkdirs() && !directory.isDirectory()) {
+				throw new IOException("Unable to create the directory: " + directory);
+			}
+
+			final File temp = File.createTempFile(file.getName(), ".tmp", directory);
+			try {
+				final OutputStream out = new FileOutputStream(temp);
+				try {
+					out.write(bytes);
+				}
+				finally {
+					out.close();
+				}
+				if (!temp.renameTo(file)) {
+					throw new IOException("Unable to publish: " + file);
+				}
+			}
+			finally {
+				if (temp.exists() && !temp.delete()) {
+					temp.deleteOnExit();
+				}
+			}
+		}
+		catch (final IOException ex) {
+			throw new IllegalStateException("Unable to write to the shard manifest: " + directory, ex);
+		}
+	}
+
+	private static byte[] read(final File file) throws IOException {
+		final ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+		final InputStream in = new FileInputStream(file);
+		try {
+			final byte[] chunk = new byte[8192];
+			int read;
+			while ((read = in.read(chunk)) != -1) {
+				buffer.write(chunk, 0, read);
+			}
+		}
+		finally {
+			in.close();
+		}
+		return buffer.toByteArray();
+	}
+}
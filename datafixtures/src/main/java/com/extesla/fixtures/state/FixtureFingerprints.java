@@ -0,0 +1,203 @@
+/* Copyright 2014 Extesla Digital Entertainment, Ltd. All rights reserved.
+ *
+ * Licensed under the MIT License (http://opensource.org/licenses/MIT)
+ *
+ * Permission is hereby granted, free of charge, to any
+ * person obtaining a copy of this software and associated
+ * documentation files (the "Software"), to deal in the
+ * Software without restriction, including without limitation
+ * the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software,
+ * and to permit persons to whom the Software is furnished
+ * to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice
+ * shall be included in all copies or substantial portions of
+ * the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY
+ * KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE
+ * WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR
+ * PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS
+ * OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR
+ * OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT
+ * OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE
+ * SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package com.extesla.fixtures.state;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+import com.extesla.fixtures.RangeFixture;
+import com.extesla.fixtures.exceptions.RecursiveDependencyException;
+import com.extesla.fixtures.graph.FixtureGraph;
+
+/**
+ * Computes the fingerprints of the fixtures of a {@link FixtureGraph}. The
+ * fingerprint of a fixture is a digest of its bytecode, of the bytecode of
+ * its nested, anonymous and super classes, of the settings its data depends
+ * on (the seed of the run and, for a {@link RangeFixture}, the range size),
+ * of the bytecode of the fixtures it references lazily and of the
+ * fingerprints of the fixtures it depends on; it changes whenever
+ * the fixture, or anything upstream of it, is recompiled with a change or
+ * generated with different settings.
+ *
+ * @author Sean.Quinn
+ * @since  1.0
+ */
+public class FixtureFingerprints {
+
+	private static final String ALGORITHM = "SHA-1";
+
+	private static final char[] HEX = "0123456789abcdef".toCharArray();
+
+	private final FixtureGraph graph;
+
+	private final long seed;
+
+	private final long rangeSize;
+
+	private final Map<Class<?>, String> fingerprints = new HashMap<Class<?>, String>();
+
+	/**
+	 * @param graph the {@code FixtureGraph}.
+	 * @param seed the seed of the run.
+	 * @param rangeSize the number of rows per range of a
+	 * 		{@link RangeFixture}.
+	 */
+	public FixtureFingerprints(final FixtureGraph graph, final long seed, final long rangeSize) {
+		this.graph = graph;
+		this.seed = seed;
+		this.rangeSize = rangeSize;
+	}
+
+	/**
+	 * Returns the fingerprint of the fixture, {@link Class}.
+	 *
+	 * @param fixture the fixture {@code Class}; a node of the graph, or a
+	 * 		fixture referenced lazily.
+	 * @return the fingerprint, as a hexadecimal string.
+	 * @throws RecursiveDependencyException if the fixture depends on itself.
+	 */
+	public synchronized String get(final Class<?> fixture) {
+		String fingerprint = fingerprints.get(fixture);
+		if (fingerprint == null) {
+			if (fingerprints.containsKey(fixture)) {
+				throw new RecursiveDependencyException();
+			}
+			fingerprints.put(fixture, null);
+
+			final MessageDigest digest = newDigest();
+			digestClass(digest, fixture, new HashSet<Class<?>>());
+			digestLong(digest, seed);
+			if (RangeFixture.class.isAssignableFrom(fixture)) {
+				digestLong(digest, rangeSize);
+			}
+			// ** Lazy references may form cycles; only their own bytecode is digested.
+			for (final Class<?> reference : FixtureGraph.getLazilyReferencedFixtures(fixture)) {
+				digestClass(digest, reference, new HashSet<Class<?>>());
+			}
+			final Set<Class<?>> dependencies = graph.hasFixture(fixture) ? graph.getDependencies(fixture)
+					: FixtureGraph.getDirectDependencies(fixture);
+			for (final Class<?> dependency : dependencies) {
+				digest.update(get(dependency).getBytes());
+			}
+			fingerprint = toHex(digest.digest());
+			fingerprints.put(fixture, fingerprint);
+		}
+		return fingerprint;
+	}
+
+	/**
+	 * Digests the bytecode of the class, of its nested and anonymous classes
+	 * and of its superclasses, up to the first JDK class. A nested class may
+	 * extend the class that encloses it, so each class is digested once.
+	 *
+	 * @param visited the classes already digested.
+	 */
+	private static void digestClass(final MessageDigest digest, final Class<?> clazz, final Set<Class<?>> visited) {
+		for (Class<?> type = clazz; type != null && !isPlatformClass(type); type = type.getSuperclass()) {
+			if (!visited.add(type)) {
+				// ** Its superclasses are digested, or being digested, too.
+				return;
+			}
+			digest.update(type.getName().getBytes());
+			digestResource(digest, type.getClassLoader(), type.getName());
+			for (final Class<?> member : type.getDeclaredClasses()) {
+				digestClass(digest, member, visited);
+			}
+			// ** Anonymous classes are numbered from 1 without gaps.
+			for (int i = 1; digestResource(digest, type.getClassLoader(), type.getName() + '$' + i); i++) {
+				// next.
+			}
+		}
+	}
+
+	private static void digestLong(final MessageDigest digest, final long value) {
+		for (int shift = 56; shift >= 0; shift -= 8) {
+			digest.update((byte) (value >>> shift));
+		}
+	}
+
+	/**
+	 * Digests the bytecode of the class by the name.
+	 *
+	 * @return <tt>true</tt> if the class file was found.
+	 */
+	private static boolean digestResource(final MessageDigest digest, final ClassLoader loader, final String name) {
+		if (loader == null) {
+			return false;
+		}
+
+		final InputStream in = loader.getResourceAsStream(name.replace('.', '/') + ".class");
+		if (in == null) {
+			return false;
+		}
+		try {
+			try {
+				final byte[] buffer = new byte[8192];
+				int read;
+				while ((read = in.read(buffer)) != -1) {
+					digest.update(buffer, 0, read);
+				}
+			}
+			finally {
+				in.close();
+			}
+		}
+		catch (final IOException ex) {
+			throw new IllegalStateException("Unable to read the bytecode of: " + name, ex);
+		}
+		return true;
+	}
+
+	private static boolean isPlatformClass(final Class<?> clazz) {
+		final String name = clazz.getName();
+		return clazz.getClassLoader() == null || name.startsWith("java.") || name.startsWith("javax.");
+	}
+
+	private static MessageDigest newDigest() {
+		try {
+			return MessageDigest.getInstance(ALGORITHM);
+		}
+		catch (final NoSuchAlgorithmException ex) {
+			throw new IllegalStateException(ALGORITHM + " is not available.", ex);
+		}
+	}
+
+	private static String toHex(final byte[] bytes) {
+		final char[] chars = new char[bytes.length * 2];
+		for (int i = 0; i < bytes.length; i++) {
+			chars[i * 2] = HEX[(bytes[i] >> 4) & 0xf];
+			chars[i * 2 + 1] = HEX[bytes[i] & 0xf];
+		}
+		return new String(chars);
+	}
+}
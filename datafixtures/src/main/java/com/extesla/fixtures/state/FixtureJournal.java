@@ -0,0 +1,337 @@
+/* Copyright 2014 Extesla Digital Entertainment, Ltd. All rights reserved.
+ *
+ * Licensed under the MIT License (http://opensource.org/licenses/MIT)
+ *
+ * Permission is hereby granted, free of charge, to any
+ * person obtaining a copy of this software and associated
+ * documentation files (the "Software"), to deal in the
+ * Software without restriction, including without limitation
+ * the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software,
+ * and to permit persons to whom the Software is furnished
+ * to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice
+ * shall be included in all copies or substantial portions of
+ * the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY
+ * KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE
+ * WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR
+ * PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS
+ * OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR
+ * OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT
+ * OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE
+ * SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package com.extesla.fixtures.state;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.LinkedHashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.zip.CRC32;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.extesla.fixtures.exceptions.FixtureJournalException;
+
+/**
+ * The checkpoint journal of a run: the fixtures that have been generated
+ * and persisted so far, each with the references it registered, appended
+ * and forced to disk as every fixture completes. A run that fails can then
+ * be resumed from the journal instead of starting over. The start of every
+ * fixture is journaled as well, so that the fixtures which were cut short,
+ * and may have persisted part of their entities, are known.
+ *
+ * Every record carries a checksum; a record cut short by a crash is
+ * dropped, along with anything after it, when the journal is resumed.
+ * References are stored using Java serialization, as in the
+ * {@link FixtureState}.
+ *
+ * @author Sean.Quinn
+ * @since  1.0
+ */
+public class FixtureJournal {
+
+	private static final int MAGIC = 0x44464a4c;
+
+	private static final int VERSION = 1;
+
+	private static final int HEADER_LENGTH = 8;
+
+	private static final byte STARTED = 1;
+
+	private static final byte COMPLETED = 2;
+
+	private final File file;
+
+	/**
+	 * The serialized references of the journaled fixtures, by class name; an
+	 * entry is <tt>null</tt> if the references could not be serialized.
+	 */
+	private final Map<String, byte[]> entries = new LinkedHashMap<String, byte[]>();
+
+	/**
+	 * The names of the fixtures that were started.
+	 */
+	private final Set<String> started = new HashSet<String>();
+
+	private FileOutputStream out;
+
+	private final Logger logger = LoggerFactory.getLogger(FixtureJournal.class);
+
+	public FixtureJournal(final File file) {
+		this.file = file;
+	}
+
+	/**
+	 * Opens the journal for appending. When resuming, the fixtures journaled
+	 * by the previous run are read first and the journal is appended to;
+	 * otherwise, or if there is no journal yet, it is started anew.
+	 *
+	 * @param resume whether to resume the previous run.
+	 * @throws FixtureJournalException if the journal cannot be opened, or
+	 * 		the journal to resume was not written by this version.
+	 */
+	public synchronized void open(final boolean resume) {
+		entries.clear();
+		started.clear();
+		try {
+			final File directory = file.getAbsoluteFile().getParentFile();
+			if (directory != null && !directory.isDirectory() && !directory.mkdirs() && !directory.isDirectory()) {
+				throw new IOException("Unable to create the directory: " + directory);
+			}
+
+			if (resume && file.isFile() && file.length() >= HEADER_LENGTH) {
+				final long length = read();
+				final RandomAccessFile raf = new RandomAccessFile(file, "rw");
+				try {
+					raf.setLength(length);
+				}
+				finally {
+					raf.close();
+				}
+				out = new FileOutputStream(file, true);
+			}
+			else {
+				out = new FileOutputStream(file);
+				final DataOutputStream header = new DataOutputStream(out);
+				header.writeInt(MAGIC);
+				header.writeInt(VERSION);
+				header.flush();
+				out.getChannel().force(false);
+			}
+		}
+		catch (final IOException ex) {
+			throw new FixtureJournalException("Unable to open the journal: " + file, ex);
+		}
+	}
+
+	/**
+	 * Reads the records of the journal, up to the first incomplete or
+	 * corrupt one.
+	 *
+	 * @return the length of the valid part of the journal.
+	 */
+	private long read() throws IOException {
+		final DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file)));
+		try {
+			if (in.readInt() != MAGIC || in.readInt() != VERSION) {
+				throw new IOException("The journal was written by another version.");
+			}
+
+			long length = HEADER_LENGTH;
+			final CRC32 crc = new CRC32();
+			try {
+				for (;;) {
+					final int size = in.readInt();
+					if (size < 0 || size > file.length()) {
+						break;
+					}
+					final byte[] record = new byte[size];
+					in.readFully(record);
+					crc.reset();
+					crc.update(record, 0, size);
+					if (in.readLong() != crc.getValue()) {
+						break;
+					}
+					decode(record);
+					length += 4 + size + 8;
+				}
+			}
+			catch (final EOFException ex) {
+				// ** The last record was cut short.
+			}
+			if (length < file.length()) {
+				logger.warn("Dropping the incomplete end of the journal: {}.", file);
+			}
+			return length;
+		}
+		finally {
+			in.close();
+		}
+	}
+
+	private void decode(final byte[] record) throws IOException {
+		final DataInputStream in = new DataInputStream(new ByteArrayInputStream(record));
+		final byte type = in.readByte();
+		final String name = in.readUTF();
+		if (type == STARTED) {
+			started.add(name);
+			return;
+		}
+		final int length = in.readInt();
+		byte[] references = null;
+		if (length >= 0) {
+			references = new byte[length];
+			in.readFully(references);
+		}
+		entries.put(name, references);
+	}
+
+	/**
+	 * Checks to see if the previous run journaled the fixture.
+	 *
+	 * @param fixture the fixture {@code Class}.
+	 * @return <tt>true</tt> if the fixture was completed.
+	 */
+	public synchronized boolean contains(final Class<?> fixture) {
+		return entries.containsKey(fixture.getName());
+	}
+
+	/**
+	 * Checks to see if the previous run started the fixture but did not
+	 * complete it, in which case it may have persisted part of its entities.
+	 *
+	 * @param fixture the fixture {@code Class}.
+	 * @return <tt>true</tt> if the fixture was cut short.
+	 */
+	public synchronized boolean isInterrupted(final Class<?> fixture) {
+		return started.contains(fixture.getName()) && !entries.containsKey(fixture.getName());
+	}
+
+	/**
+	 * Returns the journaled references of the fixture.
+	 *
+	 * @param fixture the fixture {@code Class}.
+	 * @return the references, by name, or <tt>null</tt> if the fixture was
+	 * 		not journaled or its references could not be stored or restored.
+	 */
+	public synchronized Map<String, Object> getReferences(final Class<?> fixture) {
+		final byte[] references = entries.get(fixture.getName());
+		if (references == null) {
+			return null;
+		}
+
+		try {
+			return ReferenceCodec.decode(references, fixture.getClassLoader());
+		}
+		catch (final ClassNotFoundException ex) {
+			logger.info("Unable to restore the references of: {}, it will be generated.", fixture.getName(), ex);
+		}
+		catch (final IOException ex) {
+			logger.info("Unable to restore the references of: {}, it will be generated.", fixture.getName(), ex);
+		}
+		return null;
+	}
+
+	/**
+	 * Journals the start of a fixture, returning once the record is on disk.
+	 *
+	 * @param fixture the fixture {@code Class}.
+	 * @throws FixtureJournalException if the journal cannot be written.
+	 */
+	public synchronized void started(final Class<?> fixture) {
+		write(STARTED, fixture, null);
+		started.add(fixture.getName());
+	}
+
+	/**
+	 * Journals a completed fixture, returning once the record is on disk.
+	 *
+	 * @param fixture the fixture {@code Class}.
+	 * @param references the fixture's references, by name.
+	 * @throws FixtureJournalException if the journal cannot be written.
+	 */
+	public synchronized void completed(final Class<?> fixture, final Map<String, Object> references) {
+		byte[] encoded = null;
+		try {
+			encoded = ReferenceCodec.encode(references);
+		}
+		catch (final IOException ex) {
+			logger.info("Unable to journal the references of: {}, it will be generated again on resume.",
+					fixture.getName(), ex);
+		}
+
+		write(COMPLETED, fixture, encoded);
+		entries.put(fixture.getName(), encoded);
+	}
+
+	/**
+	 * Appends a record and forces it to disk.
+	 */
+	private void write(final byte type, final Class<?> fixture, final byte[] references) {
+		try {
+			final ByteArrayOutputStream payload = new ByteArrayOutputStream();
+			final DataOutputStream data = new DataOutputStream(payload);
+			data.writeByte(type);
+			data.writeUTF(fixture.getName());
+			if (type == COMPLETED) {
+				data.writeInt(references != null ? references.length : -1);
+				if (references != null) {
+					data.write(references);
+				}
+			}
+			final byte[] bytes = payload.toByteArray();
+			final CRC32 crc = new CRC32();
+			crc.update(bytes, 0, bytes.length);
+
+			// ** The record is written at once: its size, payload and checksum.
+			final ByteArrayOutputStream record = new ByteArrayOutputStream(bytes.length + 12);
+			final DataOutputStream framed = new DataOutputStream(record);
+			framed.writeInt(bytes.length);
+			framed.write(bytes);
+			framed.writeLong(crc.getValue());
+			out.write(record.toByteArray());
+			out.getChannel().force(false);
+		}
+		catch (final IOException ex) {
+			throw new FixtureJournalException("Unable to journal the fixture: " + fixture.getName(), ex);
+		}
+	}
+
+	/**
+	 * Closes the journal, deleting it if the run completed so the next run
+	 * starts anew.
+	 *
+	 * @param completed <tt>true</tt> if the run completed.
+	 */
+	public synchronized void close(final boolean completed) {
+		if (out == null) {
+			return;
+		}
+		try {
+			out.close();
+		}
+		catch (final IOException ex) {
+			logger.warn("Unable to close the journal: {}.", file, ex);
+		}
+		out = null;
+		if (completed && !file.delete()) {
+			logger.warn("Unable to delete the journal of the completed run: {}.", file);
+		}
+	}
+}
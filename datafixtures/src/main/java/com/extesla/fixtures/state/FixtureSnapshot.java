@@ -0,0 +1,557 @@
+/* Copyright 2014 Extesla Digital Entertainment, Ltd. All rights reserved.
+ *
+ * Licensed under the MIT License (http://opensource.org/licenses/MIT)
+ *
+ * Permission is hereby granted, free of charge, to any
+ * person obtaining a copy of this software and associated
+ * documentation files (the "Software"), to deal in the
+ * Software without restriction, including without limitation
+ * the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software,
+ * and to permit persons to whom the Software is furnished
+ * to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice
+ * shall be included in all copies or substantial portions of
+ * the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY
+ * KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE
+ * WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR
+ * PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS
+ * OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR
+ * OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT
+ * OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE
+ * SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package com.extesla.fixtures.state;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.RandomAccessFile;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.extesla.fixtures.FixtureSink;
+
+/**
+ * A snapshot of the generated fixtures: the entities every fixture
+ * generated and the references it registered, keyed by the fixture's
+ * fingerprint. A fixture whose fingerprint has not changed can then be
+ * replayed from the snapshot instead of being generated again.
+ *
+ * The entities of a fixture are written as a Java serialization stream, so
+ * they must be {@link java.io.Serializable}; a fixture whose entities or
+ * references cannot be serialized is not kept in the snapshot. While a
+ * fixture is recorded its entities are spooled to a temporary file, and the
+ * stream is reset every {@link #RESET_INTERVAL} entities so that it does not
+ * hold on to them: an object shared by entities on either side of a reset is
+ * replayed as two copies. Replayed entities are read one at a time from
+ * memory-mapped windows of the file and handed straight to the sink, so
+ * neither recording nor replaying a fixture keeps its entities in memory.
+ *
+ * @author Sean.Quinn
+ * @since  1.0
+ */
+public class FixtureSnapshot {
+
+	/**
+	 * The number of entities between two resets of a recording stream.
+	 */
+	public static final int RESET_INTERVAL = 1024;
+
+	private static final int MAGIC = 0x4446534e;
+
+	private static final int VERSION = 1;
+
+	/**
+	 * The size of the windows of the file mapped to replay the entities.
+	 */
+	private static final long WINDOW = 64L * 1024 * 1024;
+
+	private final File file;
+
+	/**
+	 * The fixtures in the snapshot file, by class name.
+	 */
+	private final Map<String, Entry> entries = new LinkedHashMap<String, Entry>();
+
+	/**
+	 * The fixtures recorded by this run, by class name.
+	 */
+	private final Map<String, Entry> recorded = new LinkedHashMap<String, Entry>();
+
+	/**
+	 * The recorders of this run, whose spool files are deleted once the
+	 * snapshot is saved.
+	 */
+	private final List<Recorder> recorders = new ArrayList<Recorder>();
+
+	private RandomAccessFile input;
+
+	private FileChannel channel;
+
+	private final Logger logger = LoggerFactory.getLogger(FixtureSnapshot.class);
+
+	public FixtureSnapshot(final File file) {
+		this.file = file;
+	}
+
+	/**
+	 * Reads the index of the snapshot file, if there is one; the entities are
+	 * only read when a fixture is replayed. A snapshot that cannot be read is
+	 * ignored, i.e. every fixture is generated.
+	 */
+	public synchronized void load() {
+		entries.clear();
+		recorded.clear();
+		discardRecorders();
+		if (!file.isFile()) {
+			return;
+		}
+
+		try {
+			input = new RandomAccessFile(file, "r");
+			channel = input.getChannel();
+			if (input.readInt() != MAGIC || input.readInt() != VERSION) {
+				logger.warn("Ignoring the fixture snapshot: {}, it was written by another version.", file);
+				close();
+				return;
+			}
+			for (int i = input.readInt(); i > 0; i--) {
+				final String name = input.readUTF();
+				final String fingerprint = input.readUTF();
+				final byte[] references = new byte[input.readInt()];
+				input.readFully(references);
+				final int count = input.readInt();
+				final long length = input.readLong();
+				final long position = input.getFilePointer();
+				entries.put(name, new Entry(fingerprint, references, count, null, position, length));
+				input.seek(position + length);
+			}
+		}
+		catch (final IOException ex) {
+			entries.clear();
+			close();
+			logger.warn("Unable to read the fixture snapshot: {}, every fixture will be generated.", file, ex);
+		}
+	}
+
+	/**
+	 * Returns the recorded references of the fixture.
+	 *
+	 * @param fixture the fixture {@code Class}.
+	 * @param fingerprint the fixture's current fingerprint.
+	 * @return the references, by name, or <tt>null</tt> if the fixture cannot
+	 * 		be replayed.
+	 */
+	public Map<String, Object> getReferences(final Class<?> fixture, final String fingerprint) {
+		final Entry entry = get(fixture, fingerprint);
+		if (entry == null) {
+			return null;
+		}
+
+		try {
+			return ReferenceCodec.decode(entry.references, fixture.getClassLoader());
+		}
+		catch (final ClassNotFoundException ex) {
+			logger.info("Unable to replay the references of: {}, it will be generated.", fixture.getName(), ex);
+		}
+		catch (final IOException ex) {
+			logger.info("Unable to replay the references of: {}, it will be generated.", fixture.getName(), ex);
+		}
+		return null;
+	}
+
+	/**
+	 * Replays the recorded entities of the fixture, reading them one at a
+	 * time from the file and adding each to the sink. If the snapshot no
+	 * longer matches the entity classes, this is only found out when the
+	 * entity that does not match is read; the entities before it have then
+	 * been added to the sink already.
+	 *
+	 * @param fixture the fixture {@code Class}.
+	 * @param fingerprint the fixture's current fingerprint.
+	 * @param sink the sink to which the entities are added, in the order
+	 * 		they were generated.
+	 * @return <tt>true</tt> if every entity was replayed, <tt>false</tt> if
+	 * 		the fixture cannot be replayed.
+	 */
+	public boolean replay(final Class<?> fixture, final String fingerprint, final FixtureSink<Object> sink) {
+		final Entry entry = get(fixture, fingerprint);
+		if (entry == null) {
+			return false;
+		}
+
+		try {
+			final ObjectInputStream in = new ReferenceCodec.FixtureObjectInputStream(
+					new MappedInputStream(getChannel(), entry.position, entry.length), fixture.getClassLoader());
+			try {
+				for (int i = 0; i < entry.count; i++) {
+					sink.add(in.readObject());
+				}
+				return true;
+			}
+			finally {
+				in.close();
+			}
+		}
+		catch (final ClassNotFoundException ex) {
+			logger.info("Unable to replay the entities of: {}, it will be generated.", fixture.getName(), ex);
+		}
+		catch (final IOException ex) {
+			logger.info("Unable to replay the entities of: {}, it will be generated.", fixture.getName(), ex);
+		}
+		return false;
+	}
+
+	private synchronized Entry get(final Class<?> fixture, final String fingerprint) {
+		final Entry entry = entries.get(fixture.getName());
+		return entry != null && entry.fingerprint.equals(fingerprint) ? entry : null;
+	}
+
+	private synchronized FileChannel getChannel() {
+		return channel;
+	}
+
+	/**
+	 * Starts recording the entities of a fixture as they are added to the
+	 * sink.
+	 *
+	 * @param fixture the fixture {@code Class}.
+	 * @param fingerprint the fixture's fingerprint.
+	 * @param sink the sink to which the entities are passed on.
+	 * @return the {@code Recorder}, a sink which records every entity.
+	 */
+	public Recorder record(final Class<?> fixture, final String fingerprint, final FixtureSink<Object> sink) {
+		final Recorder recorder = new Recorder(fixture, fingerprint, sink);
+		synchronized (this) {
+			recorders.add(recorder);
+		}
+		return recorder;
+	}
+
+	/**
+	 * Writes the snapshot file, if any fixture was recorded by this run. The
+	 * snapshot is written to a temporary file which then replaces the
+	 * snapshot file; the fixtures of the previous snapshot which were not
+	 * recorded again are kept.
+	 */
+	public synchronized void save() {
+		if (recorded.isEmpty()) {
+			close();
+			discardRecorders();
+			return;
+		}
+
+		final Map<String, Entry> snapshot = new LinkedHashMap<String, Entry>(entries);
+		snapshot.putAll(recorded);
+		try {
+			final File directory = file.getAbsoluteFile().getParentFile();
+			if (directory != null && !directory.isDirectory() && !directory.mkdirs() && !directory.isDirectory()) {
+				throw new IOException("Unable to create the directory: " + directory);
+			}
+
+			final File temp = File.createTempFile(file.getName(), ".tmp", directory);
+			try {
+				final FileOutputStream stream = new FileOutputStream(temp);
+				final DataOutputStream out = new DataOutputStream(new BufferedOutputStream(stream));
+				try {
+					out.writeInt(MAGIC);
+					out.writeInt(VERSION);
+					out.writeInt(snapshot.size());
+					for (final Map.Entry<String, Entry> entry : snapshot.entrySet()) {
+						final Entry value = entry.getValue();
+						out.writeUTF(entry.getKey());
+						out.writeUTF(value.fingerprint);
+						out.writeInt(value.references.length);
+						out.write(value.references);
+						out.writeInt(value.count);
+						out.writeLong(value.length);
+						out.flush();
+						if (value.spool != null) {
+							// ** Copy the entities spooled by this run.
+							final FileInputStream spool = new FileInputStream(value.spool);
+							try {
+								transfer(spool.getChannel(), 0, value.length, stream.getChannel());
+							}
+							finally {
+								spool.close();
+							}
+						}
+						else {
+							// ** Copy the entities of the previous snapshot as they are.
+							transfer(channel, value.position, value.length, stream.getChannel());
+						}
+					}
+				}
+				finally {
+					out.close();
+				}
+				close();
+
+				if (!temp.renameTo(file)) {
+					// ** Some platforms won't rename over an existing file.
+					if (!file.delete() || !temp.renameTo(file)) {
+						throw new IOException("Unable to replace the fixture snapshot: " + file);
+					}
+				}
+			}
+			finally {
+				if (temp.exists() && !temp.delete()) {
+					temp.deleteOnExit();
+				}
+			}
+		}
+		catch (final IOException ex) {
+			logger.warn("Unable to write the fixture snapshot: {}.", file, ex);
+		}
+		finally {
+			close();
+			entries.clear();
+			recorded.clear();
+			discardRecorders();
+		}
+	}
+
+	private static void transfer(final FileChannel from, final long start, final long length, final FileChannel to)
+			throws IOException {
+		long position = start;
+		final long end = start + length;
+		while (position < end) {
+			position += from.transferTo(position, end - position, to);
+		}
+	}
+
+	private void close() {
+		if (input != null) {
+			try {
+				input.close();
+			}
+			catch (final IOException ex) {
+				logger.debug("Unable to close the fixture snapshot: {}.", file, ex);
+			}
+			input = null;
+			channel = null;
+		}
+	}
+
+	private void discardRecorders() {
+		for (final Recorder recorder : recorders) {
+			recorder.discard();
+		}
+		recorders.clear();
+	}
+
+	private synchronized void put(final String name, final Entry entry) {
+		recorded.put(name, entry);
+	}
+
+	/**
+	 * A sink that records the entities of a fixture while passing them on,
+	 * spooling them to a temporary file. Recording stops, without failing
+	 * the fixture, as soon as an entity cannot be serialized.
+	 */
+	public class Recorder implements FixtureSink<Object> {
+
+		private final Class<?> fixture;
+
+		private final String fingerprint;
+
+		private final FixtureSink<Object> sink;
+
+		private File spool;
+
+		private ObjectOutputStream out;
+
+		private int count;
+
+		private Recorder(final Class<?> fixture, final String fingerprint, final FixtureSink<Object> sink) {
+			this.fixture = fixture;
+			this.fingerprint = fingerprint;
+			this.sink = sink;
+			try {
+				this.spool = File.createTempFile("fixture", ".spool");
+				this.out = new ObjectOutputStream(new BufferedOutputStream(new FileOutputStream(spool), 64 * 1024));
+			}
+			catch (final IOException ex) {
+				discard();
+				logger.info("Unable to record the entities of: {}, it will always be generated.",
+						fixture.getName(), ex);
+			}
+		}
+
+		@Override
+		public synchronized void add(final Object entity) {
+			sink.add(entity);
+			if (out == null) {
+				return;
+			}
+			try {
+				out.writeObject(entity);
+				if (++count % RESET_INTERVAL == 0) {
+					// ** Let go of the entities written so far, which the stream would keep to the end.
+					out.reset();
+				}
+			}
+			catch (final IOException ex) {
+				discard();
+				logger.info("Unable to record the entities of: {}, it will always be generated.",
+						fixture.getName(), ex);
+			}
+		}
+
+		/**
+		 * Adds the fixture to the snapshot, once it has been generated.
+		 *
+		 * @param references the fixture's references, by name.
+		 */
+		public void complete(final Map<String, Object> references) {
+			final Entry entry;
+			synchronized (this) {
+				if (out == null) {
+					return;
+				}
+				try {
+					out.close();
+					out = null;
+					entry = new Entry(fingerprint, ReferenceCodec.encode(references), count, spool, 0, spool.length());
+				}
+				catch (final IOException ex) {
+					discard();
+					logger.info("Unable to record the references of: {}, it will always be generated.",
+							fixture.getName(), ex);
+					return;
+				}
+			}
+			// ** Outside of the recorder's lock, which the snapshot takes while holding its own.
+			put(fixture.getName(), entry);
+		}
+
+		/**
+		 * Stops recording and deletes the spool file.
+		 */
+		private synchronized void discard() {
+			if (out != null) {
+				try {
+					out.close();
+				}
+				catch (final IOException ex) {
+					logger.debug("Unable to close the spool file: {}.", spool, ex);
+				}
+				out = null;
+			}
+			if (spool != null && spool.exists() && !spool.delete()) {
+				spool.deleteOnExit();
+			}
+			spool = null;
+		}
+	}
+
+	/**
+	 * A fixture of the snapshot.
+	 */
+	private static class Entry {
+
+		private final String fingerprint;
+
+		private final byte[] references;
+
+		private final int count;
+
+		/**
+		 * The file to which the entities were spooled, if they were recorded
+		 * by this run; otherwise they are read from the snapshot file.
+		 */
+		private final File spool;
+
+		private final long position;
+
+		private final long length;
+
+		Entry(final String fingerprint, final byte[] references, final int count, final File spool,
+				final long position, final long length) {
+			this.fingerprint = fingerprint;
+			this.references = references;
+			this.count = count;
+			this.spool = spool;
+			this.position = position;
+			this.length = length;
+		}
+	}
+
+	/**
+	 * Reads a region of a file through successive memory-mapped windows.
+	 */
+	private static class MappedInputStream extends InputStream {
+
+		private final FileChannel channel;
+
+		private long position;
+
+		private final long end;
+
+		private MappedByteBuffer window;
+
+		MappedInputStream(final FileChannel channel, final long position, final long length) {
+			this.channel = channel;
+			this.position = position;
+			this.end = position + length;
+		}
+
+		/**
+		 * Maps the next window once the current one has been read.
+		 *
+		 * @return <tt>false</tt> at the end of the region.
+		 */
+		private boolean fill() throws IOException {
+			if (window != null && window.hasRemaining()) {
+				return true;
+			}
+			if (position >= end) {
+				return false;
+			}
+			final long size = Math.min(WINDOW, end - position);
+			window = channel.map(FileChannel.MapMode.READ_ONLY, position, size);
+			position += size;
+			return true;
+		}
+
+		@Override
+		public int read() throws IOException {
+			return fill() ? window.get() & 0xFF : -1;
+		}
+
+		@Override
+		public int read(final byte[] bytes, final int offset, final int length) throws IOException {
+			if (length == 0) {
+				return 0;
+			}
+			if (!fill()) {
+				return -1;
+			}
+			final int count = Math.min(length, window.remaining());
+			window.get(bytes, offset, count);
+			return count;
+		}
+
+		@Override
+		public int available() {
+			return window != null ? window.remaining() : 0;
+		}
+	}
+}
@@ -0,0 +1,256 @@
+/* Copyright 2014 Extesla Digital Entertainment, Ltd. All rights reserved.
+ *
+ * Licensed under the MIT License (http://opensource.org/licenses/MIT)
+ *
+ * Permission is hereby granted, free of charge, to any
+ * person obtaining a copy of this software and associated
+ * documentation files (the "Software"), to deal in the
+ * Software without restriction, including without limitation
+ * the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software,
+ * and to permit persons to whom the Software is furnished
+ * to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice
+ * shall be included in all copies or substantial portions of
+ * the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY
+ * KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE
+ * WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR
+ * PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS
+ * OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR
+ * OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT
+ * OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE
+ * SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package com.extesla.fixtures.state;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.Map;
+import java.util.TreeMap;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * The state of the fixtures generated by previous runs: the fingerprint of
+ * every fixture and the references it registered, so that a fixture that
+ * has not changed need not be generated again.
+ *
+ * References are stored using Java serialization; the references of a
+ * fixture that are not all {@link java.io.Serializable} cannot be stored,
+ * and such a fixture is always generated again.
+ *
+ * @author Sean.Quinn
+ * @since  1.0
+ */
+public class FixtureState {
+
+	private static final int MAGIC = 0x44465354;
+
+	private static final int VERSION = 1;
+
+	private final File file;
+
+	/**
+	 * The state of each fixture, by class name.
+	 */
+	private final Map<String, Entry> entries = new TreeMap<String, Entry>();
+
+	private final Logger logger = LoggerFactory.getLogger(FixtureState.class);
+
+	public FixtureState(final File file) {
+		this.file = file;
+	}
+
+	/**
+	 * Returns the recorded fingerprint of the fixture.
+	 *
+	 * @param fixture the fixture {@code Class}.
+	 * @return the fingerprint, or <tt>null</tt> if the fixture has no state.
+	 */
+	public String getFingerprint(final Class<?> fixture) {
+		final Entry entry = entries.get(fixture.getName());
+		return entry != null ? entry.fingerprint : null;
+	}
+
+	/**
+	 * Checks to see if the fixture has been recorded.
+	 *
+	 * @param fixture the fixture {@code Class}.
+	 * @return <tt>true</tt> if the fixture has state.
+	 */
+	public boolean contains(final Class<?> fixture) {
+		return entries.containsKey(fixture.getName());
+	}
+
+	/**
+	 * Returns the recorded references of the fixture.
+	 *
+	 * @param fixture the fixture {@code Class}.
+	 * @return the references, by name, or <tt>null</tt> if the fixture has
+	 * 		no state or its references could not be stored or restored.
+	 */
+	public Map<String, Object> getReferences(final Class<?> fixture) {
+		final Entry entry = entries.get(fixture.getName());
+		if (entry == null || entry.references == null) {
+			return null;
+		}
+
+		try {
+			return ReferenceCodec.decode(entry.references, fixture.getClassLoader());
+		}
+		catch (final ClassNotFoundException ex) {
+			logger.info("Unable to restore the references of: {}, it will be generated.", fixture.getName(), ex);
+		}
+		catch (final IOException ex) {
+			logger.info("Unable to restore the references of: {}, it will be generated.", fixture.getName(), ex);
+		}
+		return null;
+	}
+
+	/**
+	 * Records the fingerprint and references of the fixture.
+	 *
+	 * @param fixture the fixture {@code Class}.
+	 * @param fingerprint the fixture's fingerprint.
+	 * @param references the fixture's references, by name.
+	 */
+	public void put(final Class<?> fixture, final String fingerprint, final Map<String, Object> references) {
+		byte[] bytes = null;
+		try {
+			bytes = ReferenceCodec.encode(references);
+		}
+		catch (final IOException ex) {
+			logger.info("Unable to store the references of: {}, it will always be generated.",
+					fixture.getName(), ex);
+		}
+		entries.put(fixture.getName(), new Entry(fingerprint, bytes));
+	}
+
+	/**
+	 * Forgets the fixture.
+	 *
+	 * @param fixture the fixture {@code Class}.
+	 */
+	public void remove(final Class<?> fixture) {
+		entries.remove(fixture.getName());
+	}
+
+	/**
+	 * Reads the state file, if there is one. A state file that cannot be read
+	 * is ignored, i.e. every fixture is generated.
+	 */
+	public void load() {
+		entries.clear();
+		if (!file.isFile()) {
+			return;
+		}
+
+		try {
+			final DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file)));
+			try {
+				if (in.readInt() != MAGIC || in.readInt() != VERSION) {
+					logger.warn("Ignoring the fixture state: {}, it was written by another version.", file);
+					return;
+				}
+				for (int i = in.readInt(); i > 0; i--) {
+					final String name = in.readUTF();
+					final String fingerprint = in.readUTF();
+					final int length = in.readInt();
+					byte[] references = null;
+					if (length >= 0) {
+						references = new byte[length];
+						in.readFully(references);
+					}
+					entries.put(name, new Entry(fingerprint, references));
+				}
+			}
+			finally {
+				in.close();
+			}
+		}
+		catch (final IOException ex) {
+			entries.clear();
+			logger.warn("Unable to read the fixture state: {}, every fixture will be generated.", file, ex);
+		}
+	}
+
+	/**
+	 * Writes the state file. The state is written to a temporary file which
+	 * then replaces the state file, so that an interrupted write does not
+	 * leave a corrupt state behind.
+	 */
+	public void save() {
+		try {
+			final File directory = file.getAbsoluteFile().getParentFile();
+			if (directory != null && !directory.isDirectory() && !directory.mkdirs() && !directory.isDirectory()) {
+				throw new IOException("Unable to create the directory: " + directory);
+			}
+
+			final File temp = File.createTempFile(file.getName(), ".tmp", directory);
+			try {
+				final DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(temp)));
+				try {
+					out.writeInt(MAGIC);
+					out.writeInt(VERSION);
+					out.writeInt(entries.size());
+					for (final Map.Entry<String, Entry> entry : entries.entrySet()) {
+						out.writeUTF(entry.getKey());
+						out.writeUTF(entry.getValue().fingerprint);
+						final byte[] references = entry.getValue().references;
+						out.writeInt(references != null ? references.length : -1);
+						if (references != null) {
+							out.write(references);
+						}
+					}
+				}
+				finally {
+					out.close();
+				}
+
+				if (!temp.renameTo(file)) {
+					// ** Some platforms won't rename over an existing file.
+					if (!file.delete() || !temp.renameTo(file)) {
+						throw new IOException("Unable to replace the fixture state: " + file);
+					}
+				}
+			}
+			finally {
+				if (temp.exists() && !temp.delete()) {
+					temp.deleteOnExit();
+				}
+			}
+		}
+		catch (final IOException ex) {
+			logger.warn("Unable to write the fixture state: {}.", file, ex);
+		}
+	}
+
+	/**
+	 * The recorded state of a single fixture.
+	 */
+	private static class Entry {
+
+		private final String fingerprint;
+
+		/**
+		 * The serialized references, or <tt>null</tt> if they could not be
+		 * serialized.
+		 */
+		private final byte[] references;
+
+		Entry(final String fingerprint, final byte[] references) {
+			this.fingerprint = fingerprint;
+			this.references = references;
+		}
+	}
+}
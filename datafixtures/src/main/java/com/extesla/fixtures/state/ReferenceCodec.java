@@ -0,0 +1,118 @@
+/* Copyright 2014 Extesla Digital Entertainment, Ltd. All rights reserved.
+ *
+ * Licensed under the MIT License (http://opensource.org/licenses/MIT)
+ *
+ * Permission is hereby granted, free of charge, to any
+ * person obtaining a copy of this software and associated
+ * documentation files (the "Software"), to deal in the
+ * Software without restriction, including without limitation
+ * the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software,
+ * and to permit persons to whom the Software is furnished
+ * to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice
+ * shall be included in all copies or substantial portions of
+ * the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY
+ * KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE
+ * WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR
+ * PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS
+ * OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR
+ * OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT
+ * OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE
+ * SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package com.extesla.fixtures.state;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.ObjectStreamClass;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Encodes the references of a fixture, by name, using Java serialization,
+ * so that they can be kept on disk or shared with other processes.
+ *
+ * @author Sean.Quinn
+ * @since  1.0
+ */
+public final class ReferenceCodec {
+
+	private ReferenceCodec() {
+	}
+
+	/**
+	 * Encodes the references.
+	 *
+	 * @param references the references, by name.
+	 * @return the encoded references.
+	 * @throws IOException if a reference is not serializable.
+	 */
+	public static byte[] encode(final Map<String, Object> references) throws IOException {
+		final ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+		final ObjectOutputStream out = new ObjectOutputStream(buffer);
+		try {
+			out.writeObject(new HashMap<String, Object>(references));
+		}
+		finally {
+			out.close();
+		}
+		return buffer.toByteArray();
+	}
+
+	/**
+	 * Decodes references encoded by {@link #encode(Map)}.
+	 *
+	 * @param bytes the encoded references.
+	 * @param loader the class loader of the fixture, through which the
+	 * 		classes of the references are resolved first.
+	 * @return the references, by name.
+	 * @throws IOException if the references cannot be decoded.
+	 * @throws ClassNotFoundException if the class of a reference is missing.
+	 */
+	@SuppressWarnings("unchecked")
+	public static Map<String, Object> decode(final byte[] bytes, final ClassLoader loader)
+			throws IOException, ClassNotFoundException {
+		final ObjectInputStream in = new FixtureObjectInputStream(new ByteArrayInputStream(bytes), loader);
+		try {
+			return (Map<String, Object>) in.readObject();
+		}
+		finally {
+			in.close();
+		}
+	}
+
+	/**
+	 * Resolves the classes of the references through the fixture's class
+	 * loader, which the default resolution may not see.
+	 */
+	static class FixtureObjectInputStream extends ObjectInputStream {
+
+		private final ClassLoader loader;
+
+		FixtureObjectInputStream(final InputStream in, final ClassLoader loader) throws IOException {
+			super(in);
+			this.loader = loader;
+		}
+
+		@Override
+		protected Class<?> resolveClass(final ObjectStreamClass desc) throws IOException, ClassNotFoundException {
+			if (loader != null) {
+				try {
+					return Class.forName(desc.getName(), false, loader);
+				}
+				catch (final ClassNotFoundException ex) {
+					// ** Fall back to the default resolution.
+				}
+			}
+			return super.resolveClass(desc);
+		}
+	}
+}
@@ -0,0 +1,294 @@
+/* Copyright 2014 Extesla Digital Entertainment, Ltd. All rights reserved.
+ *
+ * Licensed under the MIT License (http://opensource.org/licenses/MIT)
+ *
+ * Permission is hereby granted, free of charge, to any
+ * person obtaining a copy of this software and associated
+ * documentation files (the "Software"), to deal in the
+ * Software without restriction, including without limitation
+ * the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software,
+ * and to permit persons to whom the Software is furnished
+ * to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice
+ * shall be included in all copies or substantial portions of
+ * the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY
+ * KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE
+ * WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR
+ * PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS
+ * OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR
+ * OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT
+ * OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE
+ * SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package com.extesla.fixtures;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.fail;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Test;
+
+import com.extesla.fixtures.annotations.Fixture;
+
+/**
+ * Tests how the {@link AbstractFixtureProcessor} persists the entities of
+ * the fixtures it generates, resumes the runs that failed and replays
+ * snapshots.
+ *
+ * @author Sean.Quinn
+ * @since  1.0
+ */
+public class AbstractFixtureProcessorTest {
+
+	@Test
+	public void persistsTheEntitiesOfTheFixtures() {
+		final RecordingProcessor processor = new RecordingProcessor();
+		processor.setBatchSize(3);
+		processor.run(Letters.class, Digits.class);
+
+		final List<Object> persisted = new ArrayList<Object>(processor.persisted);
+		Collections.sort(persisted, new Comparator<Object>() {
+			@Override
+			public int compare(final Object left, final Object right) {
+				return left.toString().compareTo(right.toString());
+			}
+		});
+		assertEquals(Arrays.<Object>asList("1", "2", "a", "b"), persisted);
+	}
+
+	@Test
+	public void discardsThePendingEntitiesOfAFailedFixture() {
+		final RecordingProcessor processor = new RecordingProcessor();
+		processor.setBatchSize(10);
+		try {
+			processor.run(Letters.class, Failing.class);
+			fail("The failing fixture completed.");
+		}
+		catch (final RuntimeException ex) {
+			// ** Expected.
+		}
+
+		assertEquals(Arrays.<Object>asList("a", "b"), processor.persisted);
+	}
+
+	@Test
+	public void resumesAFailedRunFromTheJournal() throws IOException {
+		final File journal = File.createTempFile("fixtures", ".journal");
+		try {
+			Flaky.failing = true;
+			final RecordingProcessor failed = new RecordingProcessor();
+			failed.setJournal(journal, false);
+			try {
+				failed.run(Letters.class, Flaky.class);
+				fail("The flaky fixture completed.");
+			}
+			catch (final RuntimeException ex) {
+				// ** Expected.
+			}
+			assertEquals(Arrays.<Object>asList("a", "b"), failed.persisted);
+
+			Flaky.failing = false;
+			final RecordingProcessor resumed = new RecordingProcessor();
+			resumed.setJournal(journal, true);
+			resumed.run(Letters.class, Flaky.class);
+
+			assertEquals(Arrays.<Object>asList("f"), resumed.persisted);
+			assertEquals(Arrays.<Class<?>>asList(Flaky.class), resumed.invalidated);
+			assertFalse(journal.exists());
+		}
+		finally {
+			Flaky.failing = false;
+			journal.delete();
+		}
+	}
+
+	@Test
+	public void generatesAFixtureWhoseReplayFailsPartWay() throws IOException {
+		final File file = File.createTempFile("fixtures", ".snapshot");
+		file.delete();
+		try {
+			final RecordingProcessor recording = new RecordingProcessor();
+			recording.setSnapshotFile(file);
+			recording.run(Numbers.class);
+			final int generated = Numbers.generated.get();
+
+			final RecordingProcessor replaying = new RecordingProcessor();
+			replaying.setSnapshotFile(file);
+			replaying.run(Numbers.class);
+			assertEquals(recording.persisted, replaying.persisted);
+			assertEquals(generated, Numbers.generated.get());
+
+			// ** Break the stream in the middle of the entities: replace the string tag of one with an invalid one.
+			final byte[] bytes = read(file);
+			final byte[] entity = { 0x74, 0, 5, 'n', '2', '5', '0', '0' };
+			bytes[indexOf(bytes, entity)] = 0;
+			write(file, bytes);
+
+			final RecordingProcessor failing = new RecordingProcessor();
+			failing.setSnapshotFile(file);
+			failing.setBatchSize(2 * Numbers.COUNT);
+			failing.run(Numbers.class);
+			assertEquals(recording.persisted, failing.persisted);
+			assertEquals(Arrays.<Class<?>>asList(Numbers.class), failing.invalidated);
+			assertEquals(generated + 1, Numbers.generated.get());
+		}
+		finally {
+			file.delete();
+		}
+	}
+
+	private static int indexOf(final byte[] bytes, final byte[] pattern) {
+		for (int i = 0; i + pattern.length <= bytes.length; i++) {
+			if (Arrays.equals(Arrays.copyOfRange(bytes, i, i + pattern.length), pattern)) {
+				return i;
+			}
+		}
+		throw new IllegalArgumentException("The pattern is not in the bytes.");
+	}
+
+	private static byte[] read(final File file) throws IOException {
+		final RandomAccessFile in = new RandomAccessFile(file, "r");
+		try {
+			final byte[] bytes = new byte[(int) in.length()];
+			in.readFully(bytes);
+			return bytes;
+		}
+		finally {
+			in.close();
+		}
+	}
+
+	private static void write(final File file, final byte[] bytes) throws IOException {
+		final RandomAccessFile out = new RandomAccessFile(file, "rw");
+		try {
+			out.write(bytes);
+		}
+		finally {
+			out.close();
+		}
+	}
+
+	/**
+	 * A processor that records the entities it persists.
+	 */
+	static class RecordingProcessor extends AbstractFixtureProcessor {
+
+		final List<Object> persisted = Collections.synchronizedList(new ArrayList<Object>());
+
+		final List<Class<?>> invalidated = Collections.synchronizedList(new ArrayList<Class<?>>());
+
+		RecordingProcessor() {
+			super(new String[] { "com.extesla.fixtures" });
+		}
+
+		@Override
+		protected void persist(final Object data, final boolean andFlush) {
+			persisted.add(data);
+		}
+
+		@Override
+		protected void invalidate(final Class<?> fixture) {
+			invalidated.add(fixture);
+		}
+	}
+
+	@Fixture(order = 1)
+	public static class Letters extends AbstractFixture<List<String>> {
+
+		@Override
+		protected List<String> getData() {
+			return Arrays.asList("a", "b");
+		}
+	}
+
+	@Fixture(order = 2)
+	public static class Digits extends AbstractFixture<List<String>> {
+
+		@Override
+		protected List<String> getData() {
+			return Arrays.asList("1", "2");
+		}
+	}
+
+	@Fixture(order = 1)
+	public static class Numbers extends AbstractFixture<List<String>> {
+
+		static final int COUNT = 3000;
+
+		static final AtomicInteger generated = new AtomicInteger();
+
+		@Override
+		protected List<String> getData() {
+			generated.incrementAndGet();
+			final List<String> numbers = new ArrayList<String>(COUNT);
+			for (int i = 0; i < COUNT; i++) {
+				numbers.add("n" + i);
+			}
+			return numbers;
+		}
+	}
+
+	@Fixture(order = 2)
+	public static class Flaky extends AbstractFixture<List<String>> {
+
+		static volatile boolean failing;
+
+		@Override
+		protected List<String> getData() {
+			if (failing) {
+				throw new IllegalStateException("Failed on purpose.");
+			}
+			return Arrays.asList("f");
+		}
+	}
+
+	@Fixture(order = 2)
+	public static class Failing extends AbstractFixture<Iterable<String>> {
+
+		@Override
+		protected Iterable<String> getData() {
+			return new Iterable<String>() {
+				@Override
+				public Iterator<String> iterator() {
+					return new Iterator<String>() {
+
+						private int next;
+
+						@Override
+						public boolean hasNext() {
+							return true;
+						}
+
+						@Override
+						public String next() {
+							if (next == 2) {
+								throw new IllegalStateException("Failed after two entities.");
+							}
+							return "x" + next++;
+						}
+
+						@Override
+						public void remove() {
+							throw new UnsupportedOperationException();
+						}
+					};
+				}
+			};
+		}
+	}
+}
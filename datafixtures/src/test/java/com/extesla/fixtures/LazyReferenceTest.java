@@ -0,0 +1,362 @@
+/* Copyright 2014 Extesla Digital Entertainment, Ltd. All rights reserved.
+ *
+ * Licensed under the MIT License (http://opensource.org/licenses/MIT)
+ *
+ * Permission is hereby granted, free of charge, to any
+ * person obtaining a copy of this software and associated
+ * documentation files (the "Software"), to deal in the
+ * Software without restriction, including without limitation
+ * the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software,
+ * and to permit persons to whom the Software is furnished
+ * to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice
+ * shall be included in all copies or substantial portions of
+ * the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY
+ * KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE
+ * WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR
+ * PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS
+ * OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR
+ * OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT
+ * OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE
+ * SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package com.extesla.fixtures;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import com.extesla.fixtures.annotations.Fixture;
+import com.extesla.fixtures.annotations.FixtureReference;
+import com.extesla.fixtures.exceptions.MissingReferenceException;
+import com.extesla.fixtures.exceptions.RecursiveDependencyException;
+import com.extesla.fixtures.graph.FixtureGraph;
+
+/**
+ * Tests the lazy {@link FixtureReference references} of the
+ * {@link AbstractFixtureProcessor}.
+ *
+ * @author Sean.Quinn
+ * @since  1.0
+ */
+public class LazyReferenceTest {
+
+	/**
+	 * The references kept by the fixtures, to be used after they ran.
+	 */
+	static final List<Object> kept = Collections.synchronizedList(new ArrayList<Object>());
+
+	/**
+	 * Counted down by {@link Ping} and {@link Pong} before they resolve their
+	 * lazy references, if set.
+	 */
+	static volatile CountDownLatch rendezvous;
+
+	private RecordingProcessor processor;
+
+	@Before
+	public void setUp() {
+		kept.clear();
+		processor = new RecordingProcessor();
+	}
+
+	@Test
+	public void lazyReferencesAreNotEdges() {
+		final FixtureGraph graph = new FixtureGraph(Arrays.<Class<?>>asList(UsingReader.class));
+
+		assertFalse(graph.hasFixture(Users.class));
+		assertTrue(graph.getDependencies(UsingReader.class).isEmpty());
+		assertEquals(Collections.<Class<?>>singleton(Users.class), graph.getLazyReferences(UsingReader.class));
+	}
+
+	@Test
+	public void generatesTheReferencedFixtureOnFirstUse() {
+		processor.run(UsingReader.class);
+
+		assertEquals(Arrays.<Object>asList("user:admin", "reader of admin"), processor.persisted);
+	}
+
+	@Test
+	public void doesNotGenerateAnUnusedReference() {
+		processor.run(IdleReader.class);
+
+		assertEquals(Arrays.<Object>asList("idle reader"), processor.persisted);
+	}
+
+	@Test
+	public void comparesAndPrintsTheProxyWithoutResolvingIt() {
+		processor.run(IdleReader.class);
+
+		final Named proxy = (Named) kept.get(0);
+		assertTrue(proxy.equals(proxy));
+		assertFalse(proxy.equals(kept.get(1)));
+		assertEquals(System.identityHashCode(proxy), proxy.hashCode());
+		assertTrue(proxy.toString(), proxy.toString().contains(Users.class.getName()));
+		assertEquals(Arrays.<Object>asList("idle reader"), processor.persisted);
+	}
+
+	@Test
+	public void failsToResolveAfterTheRun() {
+		processor.run(IdleReader.class);
+
+		try {
+			((Named) kept.get(0)).getName();
+			fail("The reference was resolved after the run.");
+		}
+		catch (final MissingReferenceException ex) {
+			assertTrue(ex.getMessage(), ex.getMessage().contains("after the run"));
+			assertEquals(Users.class, ex.getFixture());
+			assertEquals("admin", ex.getName());
+		}
+	}
+
+	@Test
+	public void failsToResolveAReleasedFixture() {
+		processor.setReleaseFixtures(true);
+		try {
+			processor.run(Users.class, IdleReader.class, LateReader.class);
+			fail("The released reference was resolved.");
+		}
+		catch (final RuntimeException ex) {
+			final MissingReferenceException missing = find(ex, MissingReferenceException.class);
+			assertNotNull(ex.toString(), missing);
+			assertTrue(missing.getMessage(), missing.getMessage().contains("released"));
+		}
+	}
+
+	@Test
+	public void keepsEveryFixtureByDefault() {
+		processor.run(Users.class, IdleReader.class, LateReader.class);
+
+		assertTrue(processor.persisted.toString(), processor.persisted.contains("late reader of admin"));
+	}
+
+	@Test
+	public void keepsAFixtureUntilItsLazyReadersFinish() {
+		processor.setReleaseFixtures(true);
+		processor.run(Users.class, UsingReader.class);
+
+		assertEquals(Arrays.<Object>asList("user:admin", "reader of admin"), processor.persisted);
+	}
+
+	@Test
+	public void generatesAFixtureOnceWhenScheduledAndReferencedConcurrently() throws InterruptedException {
+		final ExecutorService executor = Executors.newFixedThreadPool(4);
+		try {
+			for (int i = 0; i < 20; i++) {
+				final RecordingProcessor processor = new RecordingProcessor();
+				processor.setExecutor(executor);
+				processor.run(Users.class, UsingReader.class);
+
+				final List<Object> persisted = new ArrayList<Object>(processor.persisted);
+				Collections.sort(persisted, new Comparator<Object>() {
+					@Override
+					public int compare(final Object left, final Object right) {
+						return left.toString().compareTo(right.toString());
+					}
+				});
+				assertEquals(Arrays.<Object>asList("reader of admin", "user:admin"), persisted);
+			}
+		}
+		finally {
+			executor.shutdown();
+		}
+	}
+
+	@Test
+	public void detectsLazyCycles() {
+		try {
+			processor.run(Ping.class);
+			fail("The cycle was not detected.");
+		}
+		catch (final RuntimeException ex) {
+			final RecursiveDependencyException cycle = find(ex, RecursiveDependencyException.class);
+			assertNotNull(ex.toString(), cycle);
+			assertEquals(Arrays.<Class<?>>asList(Ping.class, Pong.class, Ping.class), cycle.getCycle());
+		}
+	}
+
+	@Test(timeout = 30000)
+	public void detectsLazyCyclesAcrossThreads() {
+		final ExecutorService executor = Executors.newFixedThreadPool(2);
+		try {
+			for (int i = 0; i < 10; i++) {
+				// ** Both fixtures hold their own lock before either asks for the other.
+				rendezvous = new CountDownLatch(2);
+				final RecordingProcessor processor = new RecordingProcessor();
+				processor.setExecutor(executor);
+				try {
+					processor.run(Ping.class, Pong.class);
+					fail("The cycle was not detected.");
+				}
+				catch (final RuntimeException ex) {
+					final RecursiveDependencyException cycle = find(ex, RecursiveDependencyException.class);
+					assertNotNull(ex.toString(), cycle);
+					assertEquals(cycle.getCycle().toString(), 3, cycle.getCycle().size());
+					assertEquals(cycle.getCycle().get(0), cycle.getCycle().get(2));
+				}
+			}
+		}
+		finally {
+			rendezvous = null;
+			executor.shutdown();
+		}
+	}
+
+	/**
+	 * Waits, if a test asks for it, until both {@link Ping} and {@link Pong}
+	 * are being generated.
+	 */
+	private static void meet() {
+		final CountDownLatch rendezvous = LazyReferenceTest.rendezvous;
+		if (rendezvous != null) {
+			rendezvous.countDown();
+			try {
+				rendezvous.await(5, TimeUnit.SECONDS);
+			}
+			catch (final InterruptedException ex) {
+				Thread.currentThread().interrupt();
+			}
+		}
+	}
+
+	private static <T extends Throwable> T find(final Throwable ex, final Class<T> type) {
+		for (Throwable cause = ex; cause != null; cause = cause.getCause()) {
+			if (type.isInstance(cause)) {
+				return type.cast(cause);
+			}
+		}
+		return null;
+	}
+
+	/**
+	 * A processor that records the entities it persists.
+	 */
+	static class RecordingProcessor extends AbstractFixtureProcessor {
+
+		final List<Object> persisted = Collections.synchronizedList(new ArrayList<Object>());
+
+		RecordingProcessor() {
+			super(new String[] { "com.extesla.fixtures" });
+		}
+
+		@Override
+		protected void persist(final Object data, final boolean andFlush) {
+			persisted.add(data);
+		}
+	}
+
+	public interface Named {
+
+		String getName();
+	}
+
+	public static class User implements Named {
+
+		private final String name;
+
+		User(final String name) {
+			this.name = name;
+		}
+
+		@Override
+		public String getName() {
+			return name;
+		}
+	}
+
+	@Fixture(order = 1)
+	public static class Users extends AbstractFixture<String> {
+
+		@Override
+		protected String getData() {
+			addReference("admin", new User("admin"));
+			return "user:admin";
+		}
+	}
+
+	@Fixture(order = 2)
+	public static class UsingReader extends AbstractFixture<String> {
+
+		@FixtureReference(value = "admin", type = Users.class)
+		private FixtureSupplier<Named> admin;
+
+		@Override
+		protected String getData() {
+			return "reader of " + admin.get().getName();
+		}
+	}
+
+	@Fixture(order = 2)
+	public static class IdleReader extends AbstractFixture<String> {
+
+		@FixtureReference(value = "admin", type = Users.class, lazy = true)
+		private Named admin;
+
+		@FixtureReference(value = "admin", type = Users.class)
+		private FixtureSupplier<Named> supplier;
+
+		@Override
+		protected String getData() {
+			kept.add(admin);
+			kept.add(supplier);
+			return "idle reader";
+		}
+	}
+
+	@Fixture(order = 3, dependsOn = IdleReader.class)
+	public static class LateReader extends AbstractFixture<String> {
+
+		@Override
+		protected String getData() {
+			return "late reader of " + ((Named) kept.get(0)).getName();
+		}
+	}
+
+	@Fixture
+	public static class Ping extends AbstractFixture<String> {
+
+		@FixtureReference(value = "pong", type = Pong.class)
+		private FixtureSupplier<Object> pong;
+
+		@Override
+		protected String getData() {
+			meet();
+			addReference("ping", pong.get());
+			return "ping";
+		}
+	}
+
+	@Fixture
+	public static class Pong extends AbstractFixture<String> {
+
+		@FixtureReference(value = "ping", type = Ping.class)
+		private FixtureSupplier<Object> ping;
+
+		@Override
+		protected String getData() {
+			meet();
+			addReference("pong", ping.get());
+			return "pong";
+		}
+	}
+}
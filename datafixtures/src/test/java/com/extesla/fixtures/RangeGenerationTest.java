@@ -0,0 +1,110 @@
+/* Copyright 2014 Extesla Digital Entertainment, Ltd. All rights reserved.
+ *
+ * Licensed under the MIT License (http://opensource.org/licenses/MIT)
+ *
+ * Permission is hereby granted, free of charge, to any
+ * person obtaining a copy of this software and associated
+ * documentation files (the "Software"), to deal in the
+ * Software without restriction, including without limitation
+ * the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software,
+ * and to permit persons to whom the Software is furnished
+ * to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice
+ * shall be included in all copies or substantial portions of
+ * the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY
+ * KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE
+ * WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR
+ * PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS
+ * OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR
+ * OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT
+ * OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE
+ * SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package com.extesla.fixtures;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import org.junit.Test;
+
+/**
+ * Tests the {@link RangeGeneration}.
+ *
+ * @author Sean.Quinn
+ * @since  1.0
+ */
+public class RangeGenerationTest {
+
+	@Test
+	public void handsOverTheRangesInOrderWhateverTheThreads() throws Exception {
+		final List<Object> serial = generate(null, 1);
+		assertEquals(40, serial.size());
+		for (int i = 0; i < serial.size(); i++) {
+			assertEquals(i, ((long[]) serial.get(i))[0]);
+		}
+
+		final ExecutorService executor = Executors.newFixedThreadPool(3);
+		try {
+			for (int attempt = 0; attempt < 5; attempt++) {
+				assertEquals(describe(serial), describe(generate(executor, 4)));
+			}
+		}
+		finally {
+			executor.shutdown();
+		}
+	}
+
+	private List<Object> generate(final ExecutorService executor, final int parallelism) {
+		final List<Object> entities = new ArrayList<Object>();
+		final FixtureSink<Object> target = new FixtureSink<Object>() {
+			@Override
+			public void add(final Object entity) {
+				entities.add(entity);
+			}
+		};
+		new RangeGeneration(new Rows(), RangeGeneration.split(40, 4, 7, 0, 1), target, 3).run(executor, parallelism);
+		return entities;
+	}
+
+	private static List<String> describe(final List<Object> entities) {
+		final List<String> described = new ArrayList<String>();
+		for (final Object entity : entities) {
+			final long[] row = (long[]) entity;
+			described.add(row[0] + ":" + row[1]);
+		}
+		return described;
+	}
+
+	/**
+	 * Generates a row and a random value per row; the earlier ranges take
+	 * the longest, so they finish last when run concurrently.
+	 */
+	private static class Rows implements RangeFixture<Object> {
+
+		@Override
+		public long getRowCount() {
+			return 40;
+		}
+
+		@Override
+		public void generate(final FixtureRange range, final FixtureSink<Object> sink) {
+			for (long row = range.getStart(); row < range.getEnd(); row++) {
+				sink.add(new long[] { row, range.getContext().between(0L, 1000L) });
+				try {
+					Thread.sleep(10 - range.getIndex());
+				}
+				catch (final InterruptedException ex) {
+					Thread.currentThread().interrupt();
+				}
+			}
+		}
+	}
+}
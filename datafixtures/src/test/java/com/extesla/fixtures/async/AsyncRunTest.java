@@ -0,0 +1,253 @@
+/* Copyright 2014 Extesla Digital Entertainment, Ltd. All rights reserved.
+ *
+ * Licensed under the MIT License (http://opensource.org/licenses/MIT)
+ *
+ * Permission is hereby granted, free of charge, to any
+ * person obtaining a copy of this software and associated
+ * documentation files (the "Software"), to deal in the
+ * Software without restriction, including without limitation
+ * the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software,
+ * and to permit persons to whom the Software is furnished
+ * to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice
+ * shall be included in all copies or substantial portions of
+ * the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY
+ * KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE
+ * WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR
+ * PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS
+ * OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR
+ * OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT
+ * OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE
+ * SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package com.extesla.fixtures.async;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.extesla.fixtures.AbstractFixture;
+import com.extesla.fixtures.AbstractFixtureProcessor;
+import com.extesla.fixtures.FixtureRun;
+import com.extesla.fixtures.annotations.Fixture;
+
+/**
+ * Tests the asynchronous runs of an {@link AbstractFixtureProcessor}: that
+ * every run and every publisher gets all of the fixtures, a publisher only
+ * once, that a cancelled run is only done once it has stopped, and that a
+ * run may be started on the bounded pool its fixtures are generated on.
+ *
+ * @author Sean.Quinn
+ * @since  1.0
+ */
+public class AsyncRunTest {
+
+	private static final int ENTITIES = 4;
+
+	private ExecutorService executor;
+
+	private RecordingProcessor processor;
+
+	@Before
+	public void createProcessor() {
+		executor = Executors.newCachedThreadPool();
+		processor = new RecordingProcessor();
+		Blocking.started = new CountDownLatch(1);
+		Blocking.released = new CountDownLatch(0);
+	}
+
+	@After
+	public void shutdownExecutor() {
+		executor.shutdownNow();
+	}
+
+	@Test
+	public void everyRunGeneratesEveryFixture() throws Exception {
+		processor.runAsync(executor).get(10, TimeUnit.SECONDS);
+		assertEquals(ENTITIES, processor.persisted.size());
+
+		processor.runAsync(executor).get(10, TimeUnit.SECONDS);
+		assertEquals(2 * ENTITIES, processor.persisted.size());
+	}
+
+	@Test
+	public void everyPublisherReceivesEveryEntity() throws InterruptedException {
+		for (int i = 0; i < 2; i++) {
+			final CollectingSubscriber subscriber = new CollectingSubscriber();
+			processor.publish(executor).subscribe(subscriber);
+			assertTrue(subscriber.done.await(10, TimeUnit.SECONDS));
+
+			assertTrue(subscriber.completed);
+			assertEquals(Arrays.<Object>asList("a", "b", "blocked", "last"), subscriber.received);
+		}
+	}
+
+	@Test
+	public void aPublisherSeedsTheDataOnce() throws InterruptedException {
+		final Publisher<Object> publisher = processor.publish(executor);
+		final CollectingSubscriber first = new CollectingSubscriber();
+		publisher.subscribe(first);
+		assertTrue(first.done.await(10, TimeUnit.SECONDS));
+
+		final CollectingSubscriber second = new CollectingSubscriber();
+		publisher.subscribe(second);
+		assertTrue(second.done.await(10, TimeUnit.SECONDS));
+
+		assertTrue(first.completed);
+		assertTrue(String.valueOf(second.failure), second.failure instanceof IllegalStateException);
+		assertTrue(second.received.isEmpty());
+		assertEquals(ENTITIES, processor.persisted.size());
+	}
+
+	@Test
+	public void aCancelledRunIsDoneOnceItHasStopped() throws Exception {
+		Blocking.released = new CountDownLatch(1);
+		final FixtureRun run = processor.runAsync(executor);
+		assertTrue(Blocking.started.await(10, TimeUnit.SECONDS));
+
+		assertTrue(run.cancel(true));
+		assertFalse(run.cancel(true));
+		assertFalse(run.isDone());
+		assertFalse(run.isCancelled());
+
+		Blocking.released.countDown();
+		try {
+			run.get(10, TimeUnit.SECONDS);
+			fail("The cancelled run completed.");
+		}
+		catch (final CancellationException ex) {
+			// ** Expected.
+		}
+		assertTrue(run.isCancelled());
+		assertFalse(processor.persisted.contains("last"));
+
+		// ** The processor is free again once the cancelled run is done.
+		Blocking.started = new CountDownLatch(1);
+		Blocking.released = new CountDownLatch(0);
+		processor.runAsync(executor).get(10, TimeUnit.SECONDS);
+		assertTrue(processor.persisted.contains("last"));
+	}
+
+	@Test
+	public void runsOnTheBoundedPoolItGeneratesOn() throws Exception {
+		final ExecutorService pool = Executors.newFixedThreadPool(1);
+		try {
+			processor.setExecutor(pool);
+			processor.runAsync(pool).get(10, TimeUnit.SECONDS);
+			assertEquals(ENTITIES, processor.persisted.size());
+		}
+		finally {
+			pool.shutdownNow();
+		}
+	}
+
+	/**
+	 * A processor that records the entities it persists.
+	 */
+	static class RecordingProcessor extends AbstractFixtureProcessor {
+
+		final List<Object> persisted = Collections.synchronizedList(new ArrayList<Object>());
+
+		RecordingProcessor() {
+			super(new String[] { "com.extesla.fixtures.async" });
+		}
+
+		@Override
+		protected void persist(final Object data, final boolean andFlush) {
+			persisted.add(data);
+		}
+	}
+
+	/**
+	 * A subscriber that requests every entity and collects them.
+	 */
+	static class CollectingSubscriber implements Subscriber<Object> {
+
+		final List<Object> received = Collections.synchronizedList(new ArrayList<Object>());
+
+		final CountDownLatch done = new CountDownLatch(1);
+
+		volatile boolean completed;
+
+		volatile Throwable failure;
+
+		@Override
+		public void onSubscribe(final Subscription subscription) {
+			subscription.request(Long.MAX_VALUE);
+		}
+
+		@Override
+		public void onNext(final Object item) {
+			received.add(item);
+		}
+
+		@Override
+		public void onError(final Throwable cause) {
+			failure = cause;
+			done.countDown();
+		}
+
+		@Override
+		public void onComplete() {
+			completed = true;
+			done.countDown();
+		}
+	}
+
+	@Fixture(order = 1)
+	public static class First extends AbstractFixture<List<String>> {
+
+		@Override
+		protected List<String> getData() {
+			return Arrays.asList("a", "b");
+		}
+	}
+
+	@Fixture(order = 2)
+	public static class Blocking extends AbstractFixture<List<String>> {
+
+		static volatile CountDownLatch started;
+
+		static volatile CountDownLatch released;
+
+		@Override
+		protected List<String> getData() {
+			started.countDown();
+			try {
+				released.await();
+			}
+			catch (final InterruptedException ex) {
+				Thread.currentThread().interrupt();
+			}
+			return Arrays.asList("blocked");
+		}
+	}
+
+	@Fixture(order = 3)
+	public static class Last extends AbstractFixture<List<String>> {
+
+		@Override
+		protected List<String> getData() {
+			return Arrays.asList("last");
+		}
+	}
+}
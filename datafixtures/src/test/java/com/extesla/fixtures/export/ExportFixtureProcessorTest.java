@@ -0,0 +1,228 @@
+/* Copyright 2014 Extesla Digital Entertainment, Ltd. All rights reserved.
+ *
+ * Licensed under the MIT License (http://opensource.org/licenses/MIT)
+ *
+ * Permission is hereby granted, free of charge, to any
+ * person obtaining a copy of this software and associated
+ * documentation files (the "Software"), to deal in the
+ * Software without restriction, including without limitation
+ * the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software,
+ * and to permit persons to whom the Software is furnished
+ * to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice
+ * shall be included in all copies or substantial portions of
+ * the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY
+ * KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE
+ * WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR
+ * PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS
+ * OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR
+ * OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT
+ * OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE
+ * SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package com.extesla.fixtures.export;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.extesla.fixtures.AbstractFixture;
+import com.extesla.fixtures.annotations.Fixture;
+import com.extesla.fixtures.annotations.FixtureReference;
+import com.extesla.fixtures.persist.RowMapper;
+
+/**
+ * Tests the load files and manifest written by the
+ * {@link ExportFixtureProcessor}, across resumed and incremental runs.
+ *
+ * @author Sean.Quinn
+ * @since  1.0
+ */
+public class ExportFixtureProcessorTest {
+
+	private File directory;
+
+	@Before
+	public void createDirectory() throws IOException {
+		directory = File.createTempFile("export", "");
+		directory.delete();
+		directory.mkdirs();
+		Orders.failing = false;
+	}
+
+	@After
+	public void deleteDirectory() {
+		final File[] files = directory.listFiles();
+		if (files != null) {
+			for (final File file : files) {
+				file.delete();
+			}
+		}
+		directory.delete();
+	}
+
+	@Test
+	public void listsTheFilesByFixtureInDependencyOrder() throws IOException {
+		createProcessor().run(Orders.class, Users.class);
+
+		assertEquals(Arrays.asList("# format=csv",
+				line(Users.class, "users", 2),
+				line(Orders.class, "orders", 1)), lines(ExportFixtureProcessor.MANIFEST));
+		assertEquals("id\nuser-0\nuser-1\n", read(new File(directory, file(Users.class, "users"))));
+		assertFalse(new File(directory, ExportFixtureProcessor.PARTIAL_MANIFEST).exists());
+	}
+
+	@Test
+	public void keepsTheFilesOfTheFixturesSkippedOnResume() throws IOException {
+		final File journal = new File(directory, "fixtures.journal");
+		Orders.failing = true;
+		final ExportFixtureProcessor failed = createProcessor();
+		failed.setJournal(journal, false);
+		try {
+			failed.run(Orders.class, Users.class);
+			fail("The failing fixture completed.");
+		}
+		catch (final RuntimeException ex) {
+			// ** Expected.
+		}
+		assertFalse(new File(directory, ExportFixtureProcessor.MANIFEST).exists());
+		assertEquals(Arrays.asList("# format=csv", line(Users.class, "users", 2)),
+				lines(ExportFixtureProcessor.PARTIAL_MANIFEST));
+
+		Orders.failing = false;
+		final ExportFixtureProcessor resumed = createProcessor();
+		resumed.setJournal(journal, true);
+		resumed.run(Orders.class, Users.class);
+
+		assertEquals(Arrays.asList("# format=csv",
+				line(Users.class, "users", 2),
+				line(Orders.class, "orders", 1)), lines(ExportFixtureProcessor.MANIFEST));
+		assertEquals("id\nuser-0\nuser-1\n", read(new File(directory, file(Users.class, "users"))));
+		assertFalse(new File(directory, ExportFixtureProcessor.PARTIAL_MANIFEST).exists());
+	}
+
+	@Test
+	public void keepsTheFilesOfTheFixturesSkippedByAnIncrementalRun() throws IOException {
+		final File state = new File(directory, "fixtures.state");
+		final ExportFixtureProcessor first = createProcessor();
+		first.setStateFile(state);
+		first.run(Orders.class, Users.class);
+
+		final ExportFixtureProcessor second = createProcessor();
+		second.setStateFile(state);
+		second.run(Orders.class, Users.class);
+
+		assertEquals(Arrays.asList("# format=csv",
+				line(Users.class, "users", 2),
+				line(Orders.class, "orders", 1)), lines(ExportFixtureProcessor.MANIFEST));
+		assertTrue(new File(directory, file(Users.class, "users")).isFile());
+		assertTrue(new File(directory, file(Orders.class, "orders")).isFile());
+	}
+
+	private ExportFixtureProcessor createProcessor() {
+		final ExportFixtureProcessor processor = new ExportFixtureProcessor(
+				new String[] { "com.extesla.fixtures.export" }, directory, ExportFormat.CSV);
+		processor.register(String.class, new IdMapper<String>("users"));
+		processor.register(Integer.class, new IdMapper<Integer>("orders"));
+		return processor;
+	}
+
+	private static String file(final Class<?> fixture, final String table) {
+		return fixture.getName() + "." + table + ".csv";
+	}
+
+	private static String line(final Class<?> fixture, final String table, final int rows) {
+		return file(fixture, table) + "\t" + table + "\t" + rows + "\tid\t" + fixture.getName();
+	}
+
+	private List<String> lines(final String manifest) throws IOException {
+		return Arrays.asList(read(new File(directory, manifest)).split("\n"));
+	}
+
+	private static String read(final File file) throws IOException {
+		final InputStream in = new FileInputStream(file);
+		try {
+			final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+			final byte[] buffer = new byte[4096];
+			int read;
+			while ((read = in.read(buffer)) != -1) {
+				bytes.write(buffer, 0, read);
+			}
+			return new String(bytes.toByteArray(), "UTF-8");
+		}
+		finally {
+			in.close();
+		}
+	}
+
+	/**
+	 * Maps an entity to its string form, in a single <tt>id</tt> column.
+	 */
+	private static class IdMapper<T> implements RowMapper<T> {
+
+		private final String table;
+
+		IdMapper(final String table) {
+			this.table = table;
+		}
+
+		@Override
+		public String getTable() {
+			return table;
+		}
+
+		@Override
+		public String[] getColumns() {
+			return new String[] { "id" };
+		}
+
+		@Override
+		public void map(final T entity, final Object[] row) {
+			row[0] = entity.toString();
+		}
+	}
+
+	@Fixture
+	public static class Users extends AbstractFixture<List<String>> {
+
+		@Override
+		protected List<String> getData() {
+			addReference("admin", "user-0");
+			return Arrays.asList("user-0", "user-1");
+		}
+	}
+
+	@Fixture
+	public static class Orders extends AbstractFixture<List<Integer>> {
+
+		static volatile boolean failing;
+
+		@FixtureReference(value = "admin", type = Users.class)
+		private String admin;
+
+		@Override
+		protected List<Integer> getData() {
+			if (failing) {
+				throw new IllegalStateException("Failed for " + admin + ".");
+			}
+			return Arrays.asList(admin.length());
+		}
+	}
+}
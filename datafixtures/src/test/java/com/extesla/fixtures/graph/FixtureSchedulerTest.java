@@ -0,0 +1,195 @@
+/* Copyright 2014 Extesla Digital Entertainment, Ltd. All rights reserved.
+ *
+ * Licensed under the MIT License (http://opensource.org/licenses/MIT)
+ *
+ * Permission is hereby granted, free of charge, to any
+ * person obtaining a copy of this software and associated
+ * documentation files (the "Software"), to deal in the
+ * Software without restriction, including without limitation
+ * the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software,
+ * and to permit persons to whom the Software is furnished
+ * to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice
+ * shall be included in all copies or substantial portions of
+ * the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY
+ * KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE
+ * WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR
+ * PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS
+ * OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR
+ * OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT
+ * OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE
+ * SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package com.extesla.fixtures.graph;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+
+import org.junit.Test;
+
+import com.extesla.fixtures.annotations.Fixture;
+import com.extesla.fixtures.exceptions.FixtureExecutionException;
+import com.extesla.fixtures.exceptions.RecursiveDependencyException;
+
+/**
+ * Tests the order in which the {@link FixtureScheduler} schedules the
+ * fixtures of a graph, and in which the {@link FixtureGraphExecutor} starts
+ * them.
+ *
+ * @author Sean.Quinn
+ * @since  1.0
+ */
+public class FixtureSchedulerTest {
+
+	private static final FixtureGraph GRAPH = new FixtureGraph(Arrays.<Class<?>>asList(Single.class, End.class));
+
+	@Test
+	public void schedulesTheReadyFixturesByOrder() {
+		final FixtureScheduler scheduler = new FixtureScheduler(GRAPH, FixtureScheduler.Priority.ORDER);
+
+		assertEquals(Arrays.<Class<?>>asList(Single.class, Start.class, Middle.class, End.class), scheduler.sort());
+	}
+
+	@Test
+	public void schedulesTheLongestChainFirst() {
+		final FixtureScheduler scheduler = new FixtureScheduler(GRAPH, FixtureScheduler.Priority.CRITICAL_PATH);
+
+		assertEquals(Arrays.<Class<?>>asList(Start.class, Middle.class, Single.class, End.class), scheduler.sort());
+		assertEquals(Arrays.<Class<?>>asList(Start.class, Middle.class, End.class), scheduler.getCriticalPath());
+		assertEquals(3, scheduler.getPathCost(Start.class));
+	}
+
+	@Test
+	public void weighsTheChainsByTheirCosts() {
+		final Map<Class<?>, Long> costs = new HashMap<Class<?>, Long>();
+		costs.put(Single.class, 100L);
+		costs.put(Start.class, 10L);
+		costs.put(Middle.class, 10L);
+		costs.put(End.class, 10L);
+		final FixtureScheduler scheduler = new FixtureScheduler(GRAPH, FixtureScheduler.Priority.CRITICAL_PATH,
+				costs);
+
+		assertEquals(Single.class, scheduler.sort().get(0));
+		assertEquals(Arrays.<Class<?>>asList(Single.class), scheduler.getCriticalPath());
+		assertEquals(100, scheduler.getPathCost(Single.class));
+	}
+
+	@Test
+	public void estimatesMissingCostsAtTheMean() {
+		final Map<Class<?>, Long> costs = new HashMap<Class<?>, Long>();
+		costs.put(Single.class, 10L);
+		costs.put(Start.class, 30L);
+		final FixtureScheduler scheduler = new FixtureScheduler(GRAPH, FixtureScheduler.Priority.CRITICAL_PATH,
+				costs);
+
+		assertEquals(20, scheduler.getCost(Middle.class));
+		assertEquals(70, scheduler.getPathCost(Start.class));
+	}
+
+	@Test
+	public void reportsTheCycle() {
+		try {
+			new FixtureScheduler(new FixtureGraph(Arrays.<Class<?>>asList(Chicken.class)),
+					FixtureScheduler.Priority.ORDER);
+			fail("A cyclic graph was scheduled.");
+		}
+		catch (final RecursiveDependencyException ex) {
+			final List<Class<?>> cycle = ex.getCycle();
+			assertEquals(3, cycle.size());
+			assertEquals(cycle.get(0), cycle.get(2));
+		}
+	}
+
+	@Test
+	public void handlesTheMostUrgentReadyFixtureFirst() {
+		final FixtureScheduler scheduler = new FixtureScheduler(GRAPH, FixtureScheduler.Priority.CRITICAL_PATH);
+		final List<Class<?>> handled = Collections.synchronizedList(new ArrayList<Class<?>>());
+		// ** The calling thread helps; with no other thread, the fixtures are handled in priority order.
+		final Executor rejecting = new Executor() {
+			@Override
+			public void execute(final Runnable task) {
+				throw new RejectedExecutionException();
+			}
+		};
+		new FixtureGraphExecutor(scheduler, rejecting).execute(new FixtureHandler() {
+			@Override
+			public void handle(final Class<?> fixture) {
+				handled.add(fixture);
+			}
+		});
+
+		assertEquals(scheduler.sort(), handled);
+	}
+
+	@Test
+	public void executorCancelsTheDependentsOfAFailedFixture() {
+		final List<Class<?>> handled = Collections.synchronizedList(new ArrayList<Class<?>>());
+		final ExecutorService executor = Executors.newFixedThreadPool(2);
+		try {
+			new FixtureGraphExecutor(GRAPH, executor).execute(new FixtureHandler() {
+				@Override
+				public void handle(final Class<?> fixture) {
+					handled.add(fixture);
+					if (fixture == Middle.class) {
+						throw new IllegalStateException("Failed.");
+					}
+				}
+			});
+			fail("The failed fixture was not reported.");
+		}
+		catch (final FixtureExecutionException ex) {
+			// ** Expected.
+		}
+		finally {
+			executor.shutdown();
+		}
+
+		Collections.sort(handled, new Comparator<Class<?>>() {
+			@Override
+			public int compare(final Class<?> left, final Class<?> right) {
+				return left.getName().compareTo(right.getName());
+			}
+		});
+		assertEquals(Arrays.<Class<?>>asList(Middle.class, Single.class, Start.class), handled);
+	}
+
+	@Fixture(order = 1)
+	public static class Single {
+	}
+
+	@Fixture(order = 2)
+	public static class Start {
+	}
+
+	@Fixture(order = 2, dependsOn = Start.class)
+	public static class Middle {
+	}
+
+	@Fixture(order = 2, dependsOn = Middle.class)
+	public static class End {
+	}
+
+	@Fixture(dependsOn = Egg.class)
+	public static class Chicken {
+	}
+
+	@Fixture(dependsOn = Chicken.class)
+	public static class Egg {
+	}
+}
@@ -0,0 +1,282 @@
+/* Copyright 2014 Extesla Digital Entertainment, Ltd. All rights reserved.
+ *
+ * Licensed under the MIT License (http://opensource.org/licenses/MIT)
+ *
+ * Permission is hereby granted, free of charge, to any
+ * person obtaining a copy of this software and associated
+ * documentation files (the "Software"), to deal in the
+ * Software without restriction, including without limitation
+ * the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software,
+ * and to permit persons to whom the Software is furnished
+ * to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice
+ * shall be included in all copies or substantial portions of
+ * the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY
+ * KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE
+ * WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR
+ * PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS
+ * OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR
+ * OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT
+ * OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE
+ * SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package com.extesla.fixtures.jdbc;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.sql.DataSource;
+
+import org.h2.jdbcx.JdbcDataSource;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.extesla.fixtures.AbstractFixture;
+import com.extesla.fixtures.annotations.Fixture;
+import com.extesla.fixtures.persist.RowMapper;
+
+/**
+ * Tests the {@link JdbcFixtureProcessor} against an in-memory H2 database.
+ *
+ * @author Sean.Quinn
+ * @since  1.0
+ */
+public class JdbcFixtureProcessorTest {
+
+	private static final AtomicInteger DATABASES = new AtomicInteger();
+
+	private final AtomicInteger connections = new AtomicInteger();
+
+	private final List<Integer> statementRows = new ArrayList<Integer>();
+
+	private JdbcDataSource database;
+
+	private Connection connection;
+
+	private JdbcFixtureProcessor processor;
+
+	@Before
+	public void setUp() throws SQLException {
+		database = new JdbcDataSource();
+		database.setURL("jdbc:h2:mem:fixtures" + DATABASES.incrementAndGet());
+		connection = database.getConnection();
+		final Statement statement = connection.createStatement();
+		statement.execute("CREATE TABLE item (id INT PRIMARY KEY, name VARCHAR(20), score INT)");
+		statement.close();
+
+		processor = new JdbcFixtureProcessor(new String[] { "com.extesla.fixtures.jdbc" }, countConnections(database)) {
+			@Override
+			protected String createInsert(final RowMapper<?> mapper, final int rows) {
+				statementRows.add(rows);
+				return super.createInsert(mapper, rows);
+			}
+		};
+		processor.register(Item.class, new ItemMapper());
+	}
+
+	@After
+	public void tearDown() throws SQLException {
+		connection.close();
+	}
+
+	@Test
+	public void insertsMultiRowStatementsAndTheRemainderRowByRow() throws SQLException {
+		processor.setRowsPerStatement(3);
+		processor.run(SevenItems.class);
+
+		assertEquals(Arrays.asList(3, 1), statementRows);
+		final List<String> rows = select();
+		assertEquals(7, rows.size());
+		for (int i = 0; i < 7; i++) {
+			assertEquals((i + 1) + ",item" + (i + 1) + "," + (i * 10), rows.get(i));
+		}
+	}
+
+	@Test
+	public void insertsNullColumns() throws SQLException {
+		processor.setRowsPerStatement(2);
+		processor.run(NullItems.class);
+
+		assertEquals(Arrays.asList("1,null,null", "2,two,null", "3,null,30"), select());
+	}
+
+	@Test
+	public void keepsTheConnectionAndStatementsForTheRun() throws SQLException {
+		processor.setBatchSize(2);
+		processor.run(SevenItems.class);
+
+		assertEquals(7, select().size());
+		assertEquals(1, connections.get());
+		assertEquals(Arrays.asList(1), statementRows);
+	}
+
+	@Test
+	public void rollsBackAFailedBatch() throws SQLException {
+		try {
+			processor.run(DuplicateItems.class);
+			fail("The duplicate key was inserted.");
+		}
+		catch (final RuntimeException ex) {
+			assertTrue(ex.toString(), hasCause(ex, SQLException.class));
+		}
+		assertTrue(select().isEmpty());
+	}
+
+	@Test
+	public void closesTheConnectionsAfterTheRun() throws SQLException {
+		final List<Connection> opened = new ArrayList<Connection>();
+		final DataSource dataSource = (DataSource) Proxy.newProxyInstance(getClass().getClassLoader(),
+				new Class<?>[] { DataSource.class }, new InvocationHandler() {
+					@Override
+					public Object invoke(final Object proxy, final Method method, final Object[] args)
+							throws Throwable {
+						final Object result = invokeOn(database, method, args);
+						if (result instanceof Connection) {
+							opened.add((Connection) result);
+						}
+						return result;
+					}
+				});
+		final JdbcFixtureProcessor processor = new JdbcFixtureProcessor(new String[] { "com.extesla.fixtures.jdbc" },
+				dataSource);
+		processor.register(Item.class, new ItemMapper());
+		processor.run(SevenItems.class);
+
+		assertEquals(1, opened.size());
+		assertTrue(opened.get(0).isClosed());
+	}
+
+	private List<String> select() throws SQLException {
+		final List<String> rows = new ArrayList<String>();
+		final Statement statement = connection.createStatement();
+		try {
+			final ResultSet result = statement.executeQuery("SELECT id, name, score FROM item ORDER BY id");
+			while (result.next()) {
+				final Object score = result.getObject(3);
+				rows.add(result.getInt(1) + "," + result.getString(2) + "," + score);
+			}
+		}
+		finally {
+			statement.close();
+		}
+		return rows;
+	}
+
+	private DataSource countConnections(final DataSource dataSource) {
+		return (DataSource) Proxy.newProxyInstance(getClass().getClassLoader(), new Class<?>[] { DataSource.class },
+				new InvocationHandler() {
+					@Override
+					public Object invoke(final Object proxy, final Method method, final Object[] args)
+							throws Throwable {
+						if (method.getName().equals("getConnection")) {
+							connections.incrementAndGet();
+						}
+						return invokeOn(dataSource, method, args);
+					}
+				});
+	}
+
+	private static Object invokeOn(final Object target, final Method method, final Object[] args) throws Throwable {
+		try {
+			return method.invoke(target, args);
+		}
+		catch (final InvocationTargetException ex) {
+			throw ex.getCause();
+		}
+	}
+
+	private static boolean hasCause(final Throwable ex, final Class<? extends Throwable> type) {
+		for (Throwable cause = ex; cause != null; cause = cause.getCause()) {
+			if (type.isInstance(cause)) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	public static class Item {
+
+		final int id;
+
+		final String name;
+
+		final Integer score;
+
+		Item(final int id, final String name, final Integer score) {
+			this.id = id;
+			this.name = name;
+			this.score = score;
+		}
+	}
+
+	static class ItemMapper implements RowMapper<Item> {
+
+		@Override
+		public String getTable() {
+			return "item";
+		}
+
+		@Override
+		public String[] getColumns() {
+			return new String[] { "id", "name", "score" };
+		}
+
+		@Override
+		public void map(final Item entity, final Object[] row) {
+			row[0] = entity.id;
+			row[1] = entity.name;
+			row[2] = entity.score;
+		}
+	}
+
+	@Fixture
+	public static class SevenItems extends AbstractFixture<List<Item>> {
+
+		@Override
+		protected List<Item> getData() {
+			final List<Item> items = new ArrayList<Item>();
+			for (int i = 1; i <= 7; i++) {
+				items.add(new Item(i, "item" + i, (i - 1) * 10));
+			}
+			return items;
+		}
+	}
+
+	@Fixture
+	public static class NullItems extends AbstractFixture<List<Item>> {
+
+		@Override
+		protected List<Item> getData() {
+			return Arrays.asList(new Item(1, null, null), new Item(2, "two", null), new Item(3, null, 30));
+		}
+	}
+
+	@Fixture
+	public static class DuplicateItems extends AbstractFixture<List<Item>> {
+
+		@Override
+		protected List<Item> getData() {
+			return Arrays.asList(new Item(1, "one", 10), new Item(2, "two", 20), new Item(1, "again", 30));
+		}
+	}
+}
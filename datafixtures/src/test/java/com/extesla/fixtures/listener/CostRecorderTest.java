@@ -0,0 +1,109 @@
+/* Copyright 2014 Extesla Digital Entertainment, Ltd. All rights reserved.
+ *
+ * Licensed under the MIT License (http://opensource.org/licenses/MIT)
+ *
+ * Permission is hereby granted, free of charge, to any
+ * person obtaining a copy of this software and associated
+ * documentation files (the "Software"), to deal in the
+ * Software without restriction, including without limitation
+ * the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software,
+ * and to permit persons to whom the Software is furnished
+ * to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice
+ * shall be included in all copies or substantial portions of
+ * the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY
+ * KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE
+ * WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR
+ * PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS
+ * OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR
+ * OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT
+ * OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE
+ * SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package com.extesla.fixtures.listener;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+
+import java.io.File;
+import java.io.IOException;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.extesla.fixtures.plan.FixtureCosts;
+
+/**
+ * Tests that a {@link CostRecorder} records the fixtures that were generated,
+ * and not those replayed from a snapshot.
+ *
+ * @author Sean.Quinn
+ * @since  1.0
+ */
+public class CostRecorderTest {
+
+	private File file;
+
+	@Before
+	public void createFile() throws IOException {
+		file = File.createTempFile("fixtures", ".costs");
+		file.delete();
+	}
+
+	@After
+	public void deleteFile() {
+		file.delete();
+		new File(file.getPath() + ".lock").delete();
+	}
+
+	@Test
+	public void recordsOnlyTheInstantiatedFixtures() {
+		final CostRecorder recorder = new CostRecorder(file);
+		recorder.loadStarted(new String[] { "com.extesla.fixtures" });
+
+		recorder.fixtureStarted(Generated.class);
+		recorder.fixtureInstantiated(Generated.class, 10);
+		recorder.fixtureGenerated(Generated.class, 5, 90);
+		recorder.fixtureFinished(Generated.class, 100);
+
+		recorder.fixtureStarted(Replayed.class);
+		recorder.fixtureGenerated(Replayed.class, 5, 1);
+		recorder.fixtureFinished(Replayed.class, 2);
+
+		recorder.runFinished(102);
+
+		final FixtureCosts costs = new FixtureCosts(file);
+		costs.load();
+		assertNotNull(costs.get(Generated.class));
+		assertEquals(100, costs.get(Generated.class).getNanos());
+		assertEquals(5, costs.get(Generated.class).getEntities());
+		assertNull(costs.get(Replayed.class));
+	}
+
+	@Test
+	public void recordsEveryRunOnce() {
+		final CostRecorder recorder = new CostRecorder(file);
+		for (int run = 0; run < 3; run++) {
+			recorder.loadStarted(new String[] { "com.extesla.fixtures" });
+			recorder.fixtureInstantiated(Generated.class, 10);
+			recorder.fixtureFinished(Generated.class, 100);
+			recorder.runFinished(100);
+		}
+
+		final FixtureCosts costs = new FixtureCosts(file);
+		costs.load();
+		assertEquals(3, costs.get(Generated.class).getRuns());
+	}
+
+	static class Generated {
+	}
+
+	static class Replayed {
+	}
+}
@@ -0,0 +1,161 @@
+/* Copyright 2014 Extesla Digital Entertainment, Ltd. All rights reserved.
+ *
+ * Licensed under the MIT License (http://opensource.org/licenses/MIT)
+ *
+ * Permission is hereby granted, free of charge, to any
+ * person obtaining a copy of this software and associated
+ * documentation files (the "Software"), to deal in the
+ * Software without restriction, including without limitation
+ * the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software,
+ * and to permit persons to whom the Software is furnished
+ * to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice
+ * shall be included in all copies or substantial portions of
+ * the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY
+ * KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE
+ * WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR
+ * PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS
+ * OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR
+ * OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT
+ * OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE
+ * SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package com.extesla.fixtures.listener;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Test;
+
+/**
+ * Tests the buckets, percentiles and exact statistics of a {@link Histogram}.
+ *
+ * @author Sean.Quinn
+ * @since  1.0
+ */
+public class HistogramTest {
+
+	@Test
+	public void reportsZerosWhenEmpty() {
+		final Histogram histogram = new Histogram();
+
+		assertEquals(0, histogram.getCount());
+		assertEquals(0, histogram.getMin());
+		assertEquals(0, histogram.getMax());
+		assertEquals(0, histogram.getMean(), 0);
+		assertEquals(0, histogram.getPercentile(0.5));
+	}
+
+	@Test
+	public void keepsTheStatisticsExact() {
+		final Histogram histogram = record(1, 100);
+
+		assertEquals(100, histogram.getCount());
+		assertEquals(5050, histogram.getTotal());
+		assertEquals(1, histogram.getMin());
+		assertEquals(100, histogram.getMax());
+		assertEquals(50.5, histogram.getMean(), 0);
+	}
+
+	@Test
+	public void reportsTheUpperBoundOfThePercentileBucket() {
+		final Histogram histogram = record(1, 100);
+
+		// 1 | 2-3 | 4-7 | 8-15 | 16-31 | 32-63 | 64-127.
+		assertEquals(1, histogram.getPercentile(0));
+		assertEquals(1, histogram.getPercentile(0.01));
+		assertEquals(3, histogram.getPercentile(0.02));
+		assertEquals(31, histogram.getPercentile(0.31));
+		assertEquals(63, histogram.getPercentile(0.32));
+		assertEquals(63, histogram.getPercentile(0.5));
+		assertEquals(63, histogram.getPercentile(0.63));
+	}
+
+	@Test
+	public void capsThePercentileToTheMaximum() {
+		final Histogram histogram = record(1, 100);
+
+		assertEquals(100, histogram.getPercentile(0.64));
+		assertEquals(100, histogram.getPercentile(0.99));
+		assertEquals(100, histogram.getPercentile(1));
+	}
+
+	@Test
+	public void bucketsThePowersOfTwoWithTheValuesBelowThem() {
+		final Histogram histogram = new Histogram();
+		histogram.record(0);
+		histogram.record(1);
+		histogram.record(1024);
+		histogram.record(2047);
+
+		assertEquals(1, histogram.getPercentile(0.5));
+		assertEquals(2047, histogram.getPercentile(0.75));
+	}
+
+	@Test
+	public void recordsNegativeValuesAsZero() {
+		final Histogram histogram = new Histogram();
+		histogram.record(-5);
+
+		assertEquals(0, histogram.getMin());
+		assertEquals(0, histogram.getMax());
+		assertEquals(0, histogram.getTotal());
+		assertEquals(0, histogram.getPercentile(1));
+	}
+
+	@Test
+	public void recordsTheLargestValue() {
+		final Histogram histogram = new Histogram();
+		histogram.record(Long.MAX_VALUE);
+
+		assertEquals(Long.MAX_VALUE, histogram.getMax());
+		assertEquals(Long.MAX_VALUE, histogram.getPercentile(1));
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void rejectsAQuantileAboveOne() {
+		new Histogram().getPercentile(1.5);
+	}
+
+	@Test
+	public void recordsFromManyThreads() throws InterruptedException {
+		final Histogram histogram = new Histogram();
+		final List<Thread> threads = new ArrayList<Thread>();
+		for (int t = 0; t < 4; t++) {
+			final int offset = t * 10000;
+			threads.add(new Thread() {
+				@Override
+				public void run() {
+					for (int i = 1; i <= 10000; i++) {
+						histogram.record(offset + i);
+					}
+				}
+			});
+		}
+		for (final Thread thread : threads) {
+			thread.start();
+		}
+		for (final Thread thread : threads) {
+			thread.join();
+		}
+
+		assertEquals(40000, histogram.getCount());
+		assertEquals(40000L * 40001 / 2, histogram.getTotal());
+		assertEquals(1, histogram.getMin());
+		assertEquals(40000, histogram.getMax());
+	}
+
+	private static Histogram record(final long from, final long to) {
+		final Histogram histogram = new Histogram();
+		for (long value = from; value <= to; value++) {
+			histogram.record(value);
+		}
+		return histogram;
+	}
+}
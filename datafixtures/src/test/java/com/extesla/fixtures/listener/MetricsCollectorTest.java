@@ -0,0 +1,191 @@
+/* Copyright 2014 Extesla Digital Entertainment, Ltd. All rights reserved.
+ *
+ * Licensed under the MIT License (http://opensource.org/licenses/MIT)
+ *
+ * Permission is hereby granted, free of charge, to any
+ * person obtaining a copy of this software and associated
+ * documentation files (the "Software"), to deal in the
+ * Software without restriction, including without limitation
+ * the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software,
+ * and to permit persons to whom the Software is furnished
+ * to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice
+ * shall be included in all copies or substantial portions of
+ * the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY
+ * KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE
+ * WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR
+ * PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS
+ * OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR
+ * OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT
+ * OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE
+ * SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package com.extesla.fixtures.listener;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayOutputStream;
+import java.io.PrintStream;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import com.extesla.fixtures.AbstractFixture;
+import com.extesla.fixtures.AbstractFixtureProcessor;
+import com.extesla.fixtures.annotations.Fixture;
+
+/**
+ * Tests the metrics that a {@link MetricsCollector} records and the summary
+ * report it prints.
+ *
+ * @author Sean.Quinn
+ * @since  1.0
+ */
+public class MetricsCollectorTest {
+
+	private static final long MS = 1000000L;
+
+	private ByteArrayOutputStream bytes;
+
+	private MetricsCollector collector;
+
+	@Before
+	public void setUp() {
+		bytes = new ByteArrayOutputStream();
+		collector = new MetricsCollector(new PrintStream(bytes, true));
+	}
+
+	@Test
+	public void recordsTheFixturesAndBatchesOfARun() {
+		simulateRun();
+
+		assertEquals(30, collector.getEntityCount());
+		assertEquals(2, collector.getFixtureHistogram().getCount());
+		assertEquals(6 * MS, collector.getFixtureHistogram().getTotal());
+		assertEquals(2, collector.getBatchHistogram().getCount());
+		assertEquals(3 * MS, collector.getBatchHistogram().getMax());
+	}
+
+	@Test
+	public void printsTheSummaryWhenTheRunFinishes() {
+		simulateRun();
+
+		final String[] lines = bytes.toString().split("\\r?\\n");
+		assertEquals("Fixture run: 2 fixtures, 30 entities in 10.000ms (3000 entities/s)", lines[0]);
+		assertEquals("  load:       1.000ms", lines[1]);
+		assertTrue(lines[2], lines[2].startsWith("  fixtures:   n=2 min=2.000ms "));
+		assertTrue(lines[2], lines[2].endsWith(" max=4.000ms"));
+		assertTrue(lines[3], lines[3].startsWith("  batches:    n=2 min=1.000ms "));
+		assertTrue(lines[3], lines[3].endsWith(", 15 entities/batch mean, 2048 bytes"));
+		assertEquals(bytes.toString(), collector.getReport());
+	}
+
+	@Test
+	public void listsTheSlowestFixtureFirst() {
+		simulateRun();
+
+		final String report = collector.getReport();
+		final int slow = report.indexOf("MetricsCollectorTest$Slow ");
+		final int fast = report.indexOf("MetricsCollectorTest$Fast ");
+		assertTrue(report, fast > 0 && slow > 0 && slow < fast);
+		final String row = report.substring(slow, report.indexOf('\n', slow)).trim();
+		assertTrue(row, row.matches(".* 4\\.000ms +20 +5000"));
+	}
+
+	@Test
+	public void marksTheFailedFixtures() {
+		collector.loadStarted(new String[0]);
+		collector.fixtureStarted(Fast.class);
+		collector.fixtureFailed(Fast.class, new IllegalStateException());
+		collector.fixtureFinished(Fast.class, MS);
+		collector.runFinished(MS);
+
+		assertTrue(bytes.toString(), bytes.toString().contains(" FAILED"));
+	}
+
+	@Test
+	public void reportsTheQueueOnlyWhenPersistenceIsPipelined() {
+		simulateRun();
+		assertFalse(collector.getReport().contains("queue:"));
+
+		collector.batchQueued(2, 3 * MS);
+		collector.batchQueued(4, 0);
+		collector.batchDequeued(1, 5 * MS);
+
+		final String report = collector.getReport();
+		assertTrue(report, report.contains("  queue:      depth p50=3 p90=4 max=4"));
+		assertTrue(report, report.contains("  waits:      3.000ms generating on a full queue, "
+				+ "5.000ms persisting on an empty queue"));
+	}
+
+	@Test
+	public void resetsWhenANewRunStarts() {
+		simulateRun();
+		collector.loadStarted(new String[0]);
+
+		assertEquals(0, collector.getEntityCount());
+		assertEquals(0, collector.getFixtureHistogram().getCount());
+		assertFalse(collector.getReport().contains(Slow.class.getName()));
+	}
+
+	@Test
+	public void collectsTheMetricsOfAProcessorRun() {
+		final AbstractFixtureProcessor processor = new AbstractFixtureProcessor(new String[0]) {
+			@Override
+			protected void persist(final Object data, final boolean andFlush) {
+			}
+		};
+		processor.addListener(collector);
+		processor.run(Fast.class, Slow.class);
+
+		assertEquals(3, collector.getEntityCount());
+		assertEquals(2, collector.getFixtureHistogram().getCount());
+		assertTrue(collector.getBatchHistogram().getCount() > 0);
+		assertTrue(bytes.toString(), bytes.toString().startsWith("Fixture run: 2 fixtures, 3 entities in "));
+	}
+
+	private void simulateRun() {
+		collector.loadStarted(new String[] { "com.extesla.fixtures" });
+		collector.loadFinished(2, MS);
+
+		collector.fixtureStarted(Fast.class);
+		collector.fixtureInstantiated(Fast.class, MS / 10);
+		collector.fixtureGenerated(Fast.class, 10, MS);
+		collector.fixtureFinished(Fast.class, 2 * MS);
+
+		collector.fixtureStarted(Slow.class);
+		collector.referencesResolved(Slow.class, 1, MS / 10);
+		collector.fixtureGenerated(Slow.class, 20, 4 * MS);
+		collector.fixtureFinished(Slow.class, 4 * MS);
+
+		collector.batchPersisted(10, 1024, MS);
+		collector.batchPersisted(20, 1024, 3 * MS);
+		collector.runFinished(10 * MS);
+	}
+
+	@Fixture(order = 1)
+	public static class Fast extends AbstractFixture<List<String>> {
+
+		@Override
+		protected List<String> getData() {
+			return Arrays.asList("a");
+		}
+	}
+
+	@Fixture(order = 2)
+	public static class Slow extends AbstractFixture<List<String>> {
+
+		@Override
+		protected List<String> getData() {
+			return Arrays.asList("b", "c");
+		}
+	}
+}
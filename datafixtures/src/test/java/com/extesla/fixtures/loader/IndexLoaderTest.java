@@ -0,0 +1,145 @@
+/* Copyright 2014 Extesla Digital Entertainment, Ltd. All rights reserved.
+ *
+ * Licensed under the MIT License (http://opensource.org/licenses/MIT)
+ *
+ * Permission is hereby granted, free of charge, to any
+ * person obtaining a copy of this software and associated
+ * documentation files (the "Software"), to deal in the
+ * Software without restriction, including without limitation
+ * the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software,
+ * and to permit persons to whom the Software is furnished
+ * to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice
+ * shall be included in all copies or substantial portions of
+ * the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY
+ * KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE
+ * WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR
+ * PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS
+ * OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR
+ * OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT
+ * OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE
+ * SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package com.extesla.fixtures.loader;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import com.extesla.fixtures.loader.sample.Listed;
+import com.extesla.fixtures.loader.sample.Scanned;
+
+/**
+ * Tests the {@link IndexLoader} on a classpath where only some locations
+ * have a fixture index.
+ *
+ * @author Sean.Quinn
+ * @since  1.0
+ */
+public class IndexLoaderTest {
+
+	private static final String PACKAGE = "com.extesla.fixtures.loader.sample";
+
+	@Rule
+	public final TemporaryFolder folder = new TemporaryFolder();
+
+	private ClassLoader contextClassLoader;
+
+	@Before
+	public void setUp() {
+		contextClassLoader = Thread.currentThread().getContextClassLoader();
+	}
+
+	@After
+	public void tearDown() {
+		Thread.currentThread().setContextClassLoader(contextClassLoader);
+	}
+
+	@Test
+	public void scansTheClasspathWithoutAnIndex() {
+		final IndexLoader loader = new IndexLoader(PACKAGE);
+		loader.load();
+
+		assertEquals(new HashSet<Class<?>>(Arrays.<Class<?>>asList(Scanned.class)), loader.getFixtures());
+		assertTrue(loader.getIndexEntries().isEmpty());
+	}
+
+	@Test
+	public void scansTheLocationsWithoutAnIndex() throws IOException {
+		final File location = createIndexedLocation(Listed.class.getName() + "\n");
+		final IndexLoader loader = new IndexLoader(PACKAGE);
+		loader.load();
+
+		assertEquals(new HashSet<Class<?>>(Arrays.<Class<?>>asList(Listed.class, Scanned.class)),
+				loader.getFixtures());
+		assertEquals(Arrays.asList(Listed.class.getName()),
+				Arrays.asList(loader.getIndexEntries().keySet().toArray()));
+
+		final Map<String, List<IndexEntry>> indexes = loader.getIndexes();
+		assertEquals(1, indexes.size());
+		final String key = indexes.keySet().iterator().next();
+		assertTrue(key, key.endsWith(location.getName()));
+	}
+
+	@Test
+	public void ignoresTheEntriesOutsideThePackages() throws IOException {
+		createIndexedLocation(Listed.class.getName() + "\n" + "com.example.Other\n");
+		final IndexLoader loader = new IndexLoader(PACKAGE);
+		loader.load();
+
+		assertEquals(1, loader.getIndexEntries().size());
+	}
+
+	@Test
+	public void readsTheIndexesOfEarlierVersions() throws IOException {
+		createIndexedLocation("# An index that also listed the order and the edges.\n"
+				+ Listed.class.getName() + "\t2\tcom.example.Other\t\n");
+		final IndexLoader loader = new IndexLoader(PACKAGE);
+		loader.load();
+
+		assertTrue(loader.getFixtures().contains(Listed.class));
+		assertEquals(Listed.class.getName(), loader.getIndexEntries().get(Listed.class.getName()).format());
+	}
+
+	/**
+	 * Puts a classpath location, holding the package and an index, in front
+	 * of the test classes.
+	 */
+	private File createIndexedLocation(final String index) throws IOException {
+		final File location = folder.newFolder("indexed");
+		assertTrue(new File(location, PACKAGE.replace('.', '/')).mkdirs());
+		final File file = new File(location, IndexLoader.INDEX_LOCATION);
+		assertTrue(file.getParentFile().mkdirs());
+		final OutputStream out = new FileOutputStream(file);
+		try {
+			out.write(index.getBytes("UTF-8"));
+		}
+		finally {
+			out.close();
+		}
+
+		Thread.currentThread().setContextClassLoader(
+				new URLClassLoader(new URL[] { location.toURI().toURL() }, contextClassLoader));
+		return location;
+	}
+}
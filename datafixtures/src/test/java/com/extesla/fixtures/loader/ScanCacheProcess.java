@@ -0,0 +1,82 @@
+/* Copyright 2014 Extesla Digital Entertainment, Ltd. All rights reserved.
+ *
+ * Licensed under the MIT License (http://opensource.org/licenses/MIT)
+ *
+ * Permission is hereby granted, free of charge, to any
+ * person obtaining a copy of this software and associated
+ * documentation files (the "Software"), to deal in the
+ * Software without restriction, including without limitation
+ * the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software,
+ * and to permit persons to whom the Software is furnished
+ * to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice
+ * shall be included in all copies or substantial portions of
+ * the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY
+ * KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE
+ * WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR
+ * PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS
+ * OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR
+ * OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT
+ * OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE
+ * SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package com.extesla.fixtures.loader;
+
+import java.io.File;
+import java.net.MalformedURLException;
+import java.net.URL;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * A writer of the {@link ScanCache} shared by the concurrent runs of
+ * {@link ScanCacheTest}, run in a process or a class loader of its own.
+ * Every round it reads the cache, checks the locations it cached in the
+ * earlier rounds are still there, and caches one more.
+ *
+ * @author Sean.Quinn
+ * @since  1.0
+ */
+public class ScanCacheProcess {
+
+	/**
+	 * @param args the cache file, the name of the writer and the number of
+	 * 		rounds.
+	 */
+	public static void main(final String[] args) throws MalformedURLException {
+		write(args[0], args[1], Integer.parseInt(args[2]));
+	}
+
+	/**
+	 * @param file the cache file.
+	 * @param name the name of the writer.
+	 * @param rounds the number of rounds.
+	 * @throws IllegalStateException if a location cached earlier is lost.
+	 */
+	public static void write(final String file, final String name, final int rounds) throws MalformedURLException {
+		final List<IndexEntry> entries = Collections.singletonList(IndexEntry.of(ScanCacheProcess.class));
+		for (int round = 0; round < rounds; round++) {
+			final ScanCache cache = new ScanCache(new File(file));
+			cache.load();
+			for (int earlier = 0; earlier < round; earlier++) {
+				if (cache.get(location(name, earlier), fingerprint(earlier)) == null) {
+					throw new IllegalStateException("Lost round " + earlier + " of " + name + " in round " + round);
+				}
+			}
+			cache.put(location(name, round), fingerprint(round), entries);
+			cache.save();
+		}
+	}
+
+	static URL location(final String name, final int round) throws MalformedURLException {
+		return new URL("file:/" + name + "/" + round + ".jar");
+	}
+
+	static String fingerprint(final int round) {
+		return "f" + round;
+	}
+}
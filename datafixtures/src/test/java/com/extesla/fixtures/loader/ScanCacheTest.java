@@ -0,0 +1,232 @@
+/* Copyright 2014 Extesla Digital Entertainment, Ltd. All rights reserved.
+ *
+ * Licensed under the MIT License (http://opensource.org/licenses/MIT)
+ *
+ * Permission is hereby granted, free of charge, to any
+ * person obtaining a copy of this software and associated
+ * documentation files (the "Software"), to deal in the
+ * Software without restriction, including without limitation
+ * the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software,
+ * and to permit persons to whom the Software is furnished
+ * to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice
+ * shall be included in all copies or substantial portions of
+ * the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY
+ * KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE
+ * WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR
+ * PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS
+ * OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR
+ * OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT
+ * OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE
+ * SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package com.extesla.fixtures.loader;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNotSame;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.FilenameFilter;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+/**
+ * Tests the {@link ScanCache}.
+ *
+ * @author Sean.Quinn
+ * @since  1.0
+ */
+public class ScanCacheTest {
+
+	private static final int ROUNDS = 10;
+
+	@Rule
+	public final TemporaryFolder folder = new TemporaryFolder();
+
+	@Test
+	public void fingerprintsTheContentsOfAJar() throws IOException {
+		final File jar = folder.newFile("fixtures.jar");
+		writeJar(jar, "one");
+		final String fingerprint = ScanCache.fingerprint(jar.toURI().toURL());
+		final long modified = jar.lastModified();
+
+		writeJar(jar, "one");
+		assertEquals(fingerprint, ScanCache.fingerprint(jar.toURI().toURL()));
+
+		// ** Same size, same modification time, other contents.
+		writeJar(jar, "two");
+		jar.setLastModified(modified);
+		assertFalse(fingerprint.equals(ScanCache.fingerprint(jar.toURI().toURL())));
+	}
+
+	@Test
+	public void fingerprintsTheContentsOfADirectory() throws IOException {
+		final File directory = folder.newFolder("classes");
+		final File file = new File(directory, "Fixture.class");
+		write(file, "one");
+		final String fingerprint = ScanCache.fingerprint(directory.toURI().toURL());
+		final long modified = file.lastModified();
+
+		write(file, "two");
+		file.setLastModified(modified);
+		assertFalse(fingerprint.equals(ScanCache.fingerprint(directory.toURI().toURL())));
+	}
+
+	@Test
+	public void keepsTheWritesOfConcurrentProcesses() throws Exception {
+		final File file = new File(folder.getRoot(), "scan.cache");
+		final List<Process> processes = new ArrayList<Process>();
+		for (int index = 0; index < 3; index++) {
+			processes.add(new ProcessBuilder(System.getProperty("java.home") + File.separator + "bin"
+					+ File.separator + "java", "-cp", System.getProperty("java.class.path"),
+					ScanCacheProcess.class.getName(), file.getPath(), "process-" + index, String.valueOf(ROUNDS))
+					.redirectErrorStream(true).start());
+		}
+		for (int index = 0; index < processes.size(); index++) {
+			final Process process = processes.get(index);
+			final String output = read(process.getInputStream());
+			assertEquals("Process " + index + " failed: " + output, 0, process.waitFor());
+		}
+
+		assertCached(file, "process-", processes.size());
+	}
+
+	@Test
+	public void keepsTheWritesOfConcurrentClassLoaders() throws Exception {
+		final File file = new File(folder.getRoot(), "scan.cache");
+		final URL[] classpath = classpath();
+		final List<Method> writers = new ArrayList<Method>();
+		for (int index = 0; index < 3; index++) {
+			// ** A copy of the cache with a JVM_LOCK of its own, as in an application server.
+			final ClassLoader loader = new URLClassLoader(classpath, ClassLoader.getSystemClassLoader().getParent());
+			final Class<?> copy = loader.loadClass(ScanCacheProcess.class.getName());
+			assertNotSame(ScanCacheProcess.class, copy);
+			writers.add(copy.getMethod("write", String.class, String.class, int.class));
+		}
+		// ** Two writers share this class loader, and so its JVM_LOCK.
+		for (int index = 0; index < 2; index++) {
+			writers.add(ScanCacheProcess.class.getMethod("write", String.class, String.class, int.class));
+		}
+
+		final List<Throwable> failures = new ArrayList<Throwable>();
+		final List<Thread> threads = new ArrayList<Thread>();
+		for (int index = 0; index < writers.size(); index++) {
+			final Method writer = writers.get(index);
+			final String name = "loader-" + index;
+			threads.add(new Thread() {
+				@Override
+				public void run() {
+					try {
+						writer.invoke(null, file.getPath(), name, ROUNDS);
+					}
+					catch (final InvocationTargetException ex) {
+						synchronized (failures) {
+							failures.add(ex.getCause());
+						}
+					}
+					catch (final IllegalAccessException ex) {
+						synchronized (failures) {
+							failures.add(ex);
+						}
+					}
+				}
+			});
+		}
+		for (final Thread thread : threads) {
+			thread.start();
+		}
+		for (final Thread thread : threads) {
+			thread.join();
+		}
+
+		assertEquals(new ArrayList<Throwable>(), failures);
+		assertCached(file, "loader-", writers.size());
+	}
+
+	/**
+	 * Asserts that every round of every writer is in the cache file.
+	 */
+	private static void assertCached(final File file, final String prefix, final int writers) throws IOException {
+		final ScanCache cache = new ScanCache(file);
+		cache.load();
+		for (int index = 0; index < writers; index++) {
+			for (int round = 0; round < ROUNDS; round++) {
+				assertNotNull(prefix + index + " round " + round, cache.get(
+						ScanCacheProcess.location(prefix + index, round), ScanCacheProcess.fingerprint(round)));
+			}
+		}
+		assertEquals(0, file.getAbsoluteFile().getParentFile().listFiles(new FilenameFilter() {
+			@Override
+			public boolean accept(final File directory, final String name) {
+				return name.endsWith(".tmp");
+			}
+		}).length);
+	}
+
+	private static URL[] classpath() throws IOException {
+		final String[] paths = System.getProperty("java.class.path").split(File.pathSeparator);
+		final URL[] urls = new URL[paths.length];
+		for (int i = 0; i < paths.length; i++) {
+			urls[i] = new File(paths[i]).toURI().toURL();
+		}
+		return urls;
+	}
+
+	private static void writeJar(final File jar, final String contents) throws IOException {
+		final ZipOutputStream out = new ZipOutputStream(new FileOutputStream(jar));
+		try {
+			out.putNextEntry(new ZipEntry("Fixture.class"));
+			out.write(contents.getBytes("UTF-8"));
+			out.closeEntry();
+		}
+		finally {
+			out.close();
+		}
+	}
+
+	private static void write(final File file, final String contents) throws IOException {
+		final OutputStream out = new FileOutputStream(file);
+		try {
+			out.write(contents.getBytes("UTF-8"));
+		}
+		finally {
+			out.close();
+		}
+	}
+
+	private static String read(final InputStream in) throws IOException {
+		try {
+			final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+			final byte[] buffer = new byte[4096];
+			int read;
+			while ((read = in.read(buffer)) != -1) {
+				bytes.write(buffer, 0, read);
+			}
+			return new String(bytes.toByteArray(), "UTF-8");
+		}
+		finally {
+			in.close();
+		}
+	}
+}
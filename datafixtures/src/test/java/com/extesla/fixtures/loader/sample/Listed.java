@@ -24,16 +24,20 @@
  * OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE
  * SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
  */
-package com.extesla.fixtures.exceptions;
+package com.extesla.fixtures.loader.sample;
+
+import com.extesla.fixtures.AbstractFixture;
 
 /**
+ * A fixture without the annotation, found only through an index.
  *
  * @author Sean.Quinn
- *
+ * @since  1.0
  */
-public class RecursiveDependencyException extends RuntimeException {
-
-	/** Serial version UID. */
-	private static final long serialVersionUID = 7750475120634565236L;
+public class Listed extends AbstractFixture<String> {
 
+	@Override
+	protected String getData() {
+		return "Listed";
+	}
 }
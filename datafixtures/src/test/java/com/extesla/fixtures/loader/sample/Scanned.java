@@ -24,9 +24,22 @@
  * OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE
  * SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
  */
-package com.extesla.fixtures;
+package com.extesla.fixtures.loader.sample;
 
-public interface FixtureProcessor {
+import com.extesla.fixtures.AbstractFixture;
+import com.extesla.fixtures.annotations.Fixture;
 
-	void run();
+/**
+ * A fixture found by scanning the test classes, which have no index.
+ *
+ * @author Sean.Quinn
+ * @since  1.0
+ */
+@Fixture
+public class Scanned extends AbstractFixture<String> {
+
+	@Override
+	protected String getData() {
+		return "Scanned";
+	}
 }
@@ -0,0 +1,220 @@
+/* Copyright 2014 Extesla Digital Entertainment, Ltd. All rights reserved.
+ *
+ * Licensed under the MIT License (http://opensource.org/licenses/MIT)
+ *
+ * Permission is hereby granted, free of charge, to any
+ * person obtaining a copy of this software and associated
+ * documentation files (the "Software"), to deal in the
+ * Software without restriction, including without limitation
+ * the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software,
+ * and to permit persons to whom the Software is furnished
+ * to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice
+ * shall be included in all copies or substantial portions of
+ * the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY
+ * KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE
+ * WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR
+ * PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS
+ * OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR
+ * OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT
+ * OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE
+ * SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package com.extesla.fixtures.parallel;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.extesla.fixtures.AbstractFixture;
+import com.extesla.fixtures.AbstractFixtureProcessor;
+import com.extesla.fixtures.FixtureRange;
+import com.extesla.fixtures.FixtureSink;
+import com.extesla.fixtures.RangeFixture;
+import com.extesla.fixtures.annotations.Fixture;
+import com.extesla.fixtures.annotations.FixtureReference;
+
+/**
+ * Tests that a parallel run of an {@link AbstractFixtureProcessor}
+ * persists the same entities, fixture by fixture and in the same order, and
+ * publishes the same references as a serial run.
+ *
+ * @author Sean.Quinn
+ * @since  1.0
+ */
+public class ParallelRunTest {
+
+	private static final long SEED = 20140301L;
+
+	private ExecutorService executor;
+
+	@Before
+	public void createExecutor() {
+		executor = Executors.newFixedThreadPool(4);
+	}
+
+	@After
+	public void shutdownExecutor() {
+		executor.shutdownNow();
+	}
+
+	@Test
+	public void persistsWhatASerialRunPersists() {
+		final RecordingProcessor serial = new RecordingProcessor();
+		serial.run();
+		assertEquals(5, serial.persisted.size());
+		assertEquals(96, serial.persisted.get(Rows.class.getName()).size());
+
+		for (int attempt = 0; attempt < 5; attempt++) {
+			final RecordingProcessor parallel = new RecordingProcessor();
+			parallel.setExecutor(executor);
+			parallel.setRangeExecutor(executor, 4);
+			parallel.setBatchSize(7);
+			parallel.run();
+
+			assertEquals(serial.sorted(), parallel.sorted());
+			assertEquals(serial.references(), parallel.references());
+		}
+	}
+
+	/**
+	 * A processor that records the entities it persists by fixture.
+	 */
+	static class RecordingProcessor extends AbstractFixtureProcessor {
+
+		final Map<String, List<Object>> persisted = new LinkedHashMap<String, List<Object>>();
+
+		RecordingProcessor() {
+			super(new String[] { "com.extesla.fixtures.parallel" });
+			setSeed(SEED);
+			setRangeSize(10);
+		}
+
+		@Override
+		protected synchronized void persistBatch(final List<?> batch, final List<Class<?>> fixtures) {
+			for (int i = 0; i < batch.size(); i++) {
+				List<Object> entities = persisted.get(fixtures.get(i).getName());
+				if (entities == null) {
+					entities = new ArrayList<Object>();
+					persisted.put(fixtures.get(i).getName(), entities);
+				}
+				entities.add(batch.get(i));
+			}
+		}
+
+		synchronized Map<String, List<Object>> sorted() {
+			return new TreeMap<String, List<Object>>(persisted);
+		}
+
+		Map<String, Object> references() {
+			final Map<String, Object> references = new TreeMap<String, Object>();
+			for (int i = 0; i < Users.COUNT; i++) {
+				references.put("user-" + i, lookup(Users.class, "user-" + i));
+			}
+			references.put("best-seller", lookup(Products.class, "best-seller"));
+			references.put("first-order", lookup(Orders.class, "first-order"));
+			references.put("rows", lookup(Rows.class, "rows"));
+			return references;
+		}
+	}
+
+	@Fixture(order = 1)
+	public static class Users extends AbstractFixture<List<String>> {
+
+		static final int COUNT = 20;
+
+		@Override
+		protected List<String> getData() {
+			final List<String> users = new ArrayList<String>();
+			for (int i = 0; i < COUNT; i++) {
+				final String user = "user-" + i + "-" + getContext().between(0, 1000);
+				addReference("user-" + i, user);
+				users.add(user);
+			}
+			return users;
+		}
+	}
+
+	@Fixture(order = 2)
+	public static class Products extends AbstractFixture<List<String>> {
+
+		@Override
+		protected List<String> getData() {
+			final List<String> products = new ArrayList<String>();
+			for (int i = 0; i < 15; i++) {
+				products.add("product-" + i + "-" + getContext().between(0, 1000));
+			}
+			addReference("best-seller", products.get(getContext().between(0, products.size())));
+			return products;
+		}
+	}
+
+	@Fixture(order = 3, dependsOn = Users.class)
+	public static class Orders extends AbstractFixture<List<String>> {
+
+		@FixtureReference(value = "user-3", type = Users.class)
+		private String user;
+
+		@Override
+		protected List<String> getData() {
+			final List<String> orders = new ArrayList<String>();
+			for (int i = 0; i < 30; i++) {
+				orders.add("order-" + i + "-of-" + user + "-" + getContext().between(0, 1000));
+			}
+			addReference("first-order", orders.get(0));
+			return orders;
+		}
+	}
+
+	@Fixture(order = 1)
+	public static class Rows extends AbstractFixture<List<String>> implements RangeFixture<String> {
+
+		@Override
+		protected List<String> getData() {
+			addReference("rows", "rows-summary");
+			return Arrays.asList("rows-summary");
+		}
+
+		@Override
+		public long getRowCount() {
+			return 95;
+		}
+
+		@Override
+		public void generate(final FixtureRange range, final FixtureSink<String> sink) {
+			for (long row = range.getStart(); row < range.getEnd(); row++) {
+				sink.add("row-" + row + "-" + range.getContext().between(0, 1000));
+			}
+		}
+	}
+
+	@Fixture(order = 4)
+	public static class Lines extends AbstractFixture<List<String>> {
+
+		@FixtureReference(value = "first-order", type = Orders.class)
+		private String order;
+
+		@FixtureReference(value = "best-seller", type = Products.class)
+		private String product;
+
+		@Override
+		protected List<String> getData() {
+			return Arrays.asList(order + "/" + product + "-" + getContext().between(0, 1000));
+		}
+	}
+}
@@ -0,0 +1,206 @@
+/* Copyright 2014 Extesla Digital Entertainment, Ltd. All rights reserved.
+ *
+ * Licensed under the MIT License (http://opensource.org/licenses/MIT)
+ *
+ * Permission is hereby granted, free of charge, to any
+ * person obtaining a copy of this software and associated
+ * documentation files (the "Software"), to deal in the
+ * Software without restriction, including without limitation
+ * the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software,
+ * and to permit persons to whom the Software is furnished
+ * to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice
+ * shall be included in all copies or substantial portions of
+ * the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY
+ * KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE
+ * WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR
+ * PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS
+ * OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR
+ * OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT
+ * OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE
+ * SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package com.extesla.fixtures.persist;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+
+/**
+ * Tests the {@link PersistenceBuffer}.
+ *
+ * @author Sean.Quinn
+ * @since  1.0
+ */
+public class PersistenceBufferTest {
+
+	private final List<List<?>> batches = new ArrayList<List<?>>();
+
+	private final List<Long> bytes = new ArrayList<Long>();
+
+	private final BatchPersister persister = new BatchPersister() {
+		@Override
+		public void persistBatch(final List<?> batch, final List<?> owners, final long size) {
+			batches.add(new ArrayList<Object>(batch));
+			bytes.add(size);
+		}
+	};
+
+	@Test
+	public void persistsFullBatches() {
+		final PersistenceBuffer buffer = new PersistenceBuffer(persister, 2, 0);
+		for (int i = 0; i < 5; i++) {
+			buffer.add(i, 10, "a");
+		}
+		assertEquals(1, buffer.size());
+		buffer.flush();
+
+		assertEquals(Arrays.<List<?>>asList(Arrays.asList(0, 1), Arrays.asList(2, 3), Arrays.asList(4)), batches);
+	}
+
+	@Test
+	public void persistsBatchesOverTheByteBudget() {
+		final PersistenceBuffer buffer = new PersistenceBuffer(persister, 100, 25);
+		for (int i = 0; i < 4; i++) {
+			buffer.add(i, 10, "a");
+		}
+		buffer.flush();
+
+		assertEquals(Arrays.<List<?>>asList(Arrays.asList(0, 1, 2), Arrays.asList(3)), batches);
+		assertEquals(Arrays.asList(30L, 10L), bytes);
+	}
+
+	@Test
+	public void discardsTheEntitiesOfAnOwner() {
+		final PersistenceBuffer buffer = new PersistenceBuffer(persister, 100, 0);
+		buffer.add("a1", 10, "a");
+		buffer.add("b1", 10, "b");
+		buffer.add("a2", 10, "a");
+		buffer.add("b2", 10, "b");
+
+		assertEquals(2, buffer.discard("b"));
+		assertEquals(0, buffer.discard("c"));
+		buffer.flush();
+
+		assertEquals(Arrays.<List<?>>asList(Arrays.asList("a1", "a2")), batches);
+		assertEquals(Arrays.asList(20L), bytes);
+	}
+
+	@Test
+	public void keepsTheBatchesAlreadyHandedOver() {
+		final PersistenceBuffer buffer = new PersistenceBuffer(persister, 2, 0);
+		buffer.add("b1", 0, "b");
+		buffer.add("b2", 0, "b");
+		buffer.add("b3", 0, "b");
+
+		assertEquals(1, buffer.discard("b"));
+		buffer.flush();
+
+		assertEquals(Arrays.<List<?>>asList(Arrays.asList("b1", "b2")), batches);
+	}
+
+	@Test
+	public void flushesOnlyTheEntitiesOfAnOwner() {
+		final PersistenceBuffer buffer = new PersistenceBuffer(persister, 100, 0);
+		buffer.add("a1", 10, "a");
+		buffer.add("b1", 10, "b");
+		buffer.add("a2", 10, "a");
+		buffer.add("b2", 10, "b");
+
+		buffer.flush("a");
+		assertEquals(Arrays.<List<?>>asList(Arrays.asList("a1", "a2")), batches);
+		assertEquals(Arrays.asList(20L), bytes);
+		assertEquals(2, buffer.size());
+
+		// ** What the other owner added is still batched, so it can still be dropped.
+		buffer.flush("c");
+		assertEquals(2, buffer.discard("b"));
+		buffer.flush();
+		assertEquals(1, batches.size());
+	}
+
+	@Test(timeout = 30000)
+	public void pipelinedBufferPersistsTheEntitiesOfAnOwnerBeforeFlushReturns() throws Exception {
+		final CountDownLatch blocked = new CountDownLatch(1);
+		final CountDownLatch release = new CountDownLatch(1);
+		final List<Object> persisted = new ArrayList<Object>();
+		final PersistenceBuffer buffer = new PipelinedPersistenceBuffer(new BatchPersister() {
+			@Override
+			public void persistBatch(final List<?> batch, final List<?> owners, final long size) {
+				if (owners.contains("b")) {
+					blocked.countDown();
+					try {
+						release.await();
+					}
+					catch (final InterruptedException ex) {
+						Thread.currentThread().interrupt();
+					}
+				}
+				synchronized (persisted) {
+					persisted.addAll(batch);
+				}
+			}
+		}, 3, 0, 2, 4, null);
+		try {
+			buffer.add("b1", 0, "b");
+			buffer.add("b2", 0, "b");
+			buffer.add("b3", 0, "b");
+			assertTrue(blocked.await(10, TimeUnit.SECONDS));
+
+			// ** The batch of the other owner is still being persisted; it is not waited for.
+			buffer.add("a1", 0, "a");
+			buffer.add("b4", 0, "b");
+			buffer.flush("a");
+			synchronized (persisted) {
+				assertEquals(Arrays.asList("a1"), persisted);
+			}
+			assertEquals(1, buffer.size());
+
+			release.countDown();
+			buffer.flush();
+			synchronized (persisted) {
+				assertEquals(5, persisted.size());
+			}
+		}
+		finally {
+			release.countDown();
+			buffer.close();
+		}
+	}
+
+	@Test
+	public void pipelinedBufferPersistsEveryBatchBeforeFlushReturns() {
+		final List<Object> persisted = new ArrayList<Object>();
+		final PersistenceBuffer buffer = new PipelinedPersistenceBuffer(new BatchPersister() {
+			@Override
+			public void persistBatch(final List<?> batch, final List<?> owners, final long size) {
+				synchronized (persisted) {
+					persisted.addAll(batch);
+				}
+			}
+		}, 3, 0, 2, 1, null);
+		try {
+			for (int i = 0; i < 100; i++) {
+				buffer.add(i, 0, "a");
+			}
+			buffer.flush();
+			synchronized (persisted) {
+				assertEquals(100, persisted.size());
+			}
+		}
+		finally {
+			buffer.close();
+		}
+	}
+}
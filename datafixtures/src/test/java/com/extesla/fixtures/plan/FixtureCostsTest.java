@@ -0,0 +1,142 @@
+/* Copyright 2014 Extesla Digital Entertainment, Ltd. All rights reserved.
+ *
+ * Licensed under the MIT License (http://opensource.org/licenses/MIT)
+ *
+ * Permission is hereby granted, free of charge, to any
+ * person obtaining a copy of this software and associated
+ * documentation files (the "Software"), to deal in the
+ * Software without restriction, including without limitation
+ * the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software,
+ * and to permit persons to whom the Software is furnished
+ * to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice
+ * shall be included in all copies or substantial portions of
+ * the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY
+ * KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE
+ * WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR
+ * PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS
+ * OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR
+ * OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT
+ * OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE
+ * SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package com.extesla.fixtures.plan;
+
+import static org.junit.Assert.assertEquals;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Tests that {@link FixtureCosts} sharing a cost file keep each other's
+ * runs.
+ *
+ * @author Sean.Quinn
+ * @since  1.0
+ */
+public class FixtureCostsTest {
+
+	private File file;
+
+	@Before
+	public void createFile() throws IOException {
+		file = File.createTempFile("fixtures", ".costs");
+		file.delete();
+	}
+
+	@After
+	public void deleteFile() {
+		file.delete();
+		new File(file.getPath() + ".lock").delete();
+	}
+
+	@Test
+	public void keepsTheFixturesSavedByOthers() {
+		final FixtureCosts first = loaded();
+		final FixtureCosts second = loaded();
+		first.record(First.class, 100, 10);
+		second.record(Second.class, 200, 20);
+		first.save();
+		second.save();
+
+		final FixtureCosts costs = loaded();
+		assertEquals(100, costs.get(First.class).getNanos());
+		assertEquals(10, costs.get(First.class).getEntities());
+		assertEquals(200, costs.get(Second.class).getNanos());
+		assertEquals(20, costs.get(Second.class).getEntities());
+	}
+
+	@Test
+	public void appliesTheRunsToTheCostsSavedByOthers() {
+		final FixtureCosts first = loaded();
+		final FixtureCosts second = loaded();
+		first.record(First.class, 100, 10);
+		second.record(First.class, 300, 30);
+		first.save();
+		second.save();
+
+		final FixtureCosts.Cost cost = loaded().get(First.class);
+		assertEquals(2, cost.getRuns());
+		assertEquals(200, cost.getNanos());
+		assertEquals(20, cost.getEntities());
+	}
+
+	@Test
+	public void loadDropsTheRunsNotSaved() {
+		final FixtureCosts costs = loaded();
+		costs.record(First.class, 100, 10);
+		costs.load();
+		costs.save();
+
+		assertEquals(null, loaded().get(First.class));
+	}
+
+	@Test
+	public void keepsEveryRunSavedConcurrently() throws InterruptedException {
+		final int threads = 8;
+		final int runs = 25;
+		final List<Thread> workers = new ArrayList<Thread>();
+		for (int i = 0; i < threads; i++) {
+			workers.add(new Thread() {
+				@Override
+				public void run() {
+					for (int run = 0; run < runs; run++) {
+						final FixtureCosts costs = loaded();
+						costs.record(First.class, 100, 10);
+						costs.save();
+					}
+				}
+			});
+		}
+		for (final Thread worker : workers) {
+			worker.start();
+		}
+		for (final Thread worker : workers) {
+			worker.join();
+		}
+
+		assertEquals(threads * runs, loaded().get(First.class).getRuns());
+	}
+
+	private FixtureCosts loaded() {
+		final FixtureCosts costs = new FixtureCosts(file);
+		costs.load();
+		return costs;
+	}
+
+	static class First {
+	}
+
+	static class Second {
+	}
+}
@@ -0,0 +1,134 @@
+/* Copyright 2014 Extesla Digital Entertainment, Ltd. All rights reserved.
+ *
+ * Licensed under the MIT License (http://opensource.org/licenses/MIT)
+ *
+ * Permission is hereby granted, free of charge, to any
+ * person obtaining a copy of this software and associated
+ * documentation files (the "Software"), to deal in the
+ * Software without restriction, including without limitation
+ * the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software,
+ * and to permit persons to whom the Software is furnished
+ * to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice
+ * shall be included in all copies or substantial portions of
+ * the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY
+ * KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE
+ * WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR
+ * PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS
+ * OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR
+ * OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT
+ * OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE
+ * SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package com.extesla.fixtures.random;
+
+import static org.junit.Assert.assertEquals;
+
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Method;
+
+import org.junit.Assume;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Tests that a {@link FixtureRandom} returns the values of a
+ * {@code java.util.SplittableRandom} with the same seed. The JDK class is
+ * reached through reflection, and the tests are skipped on a JVM without it.
+ *
+ * @author Sean.Quinn
+ * @since  1.0
+ */
+public class FixtureRandomTest {
+
+	private static final long[] SEEDS = { 0L, 1L, -1L, 42L, 0x9e3779b97f4a7c15L, Long.MIN_VALUE };
+
+	private static final int[] INT_BOUNDS = { 1, 2, 3, 7, 64, 1000, (1 << 30) + 1, Integer.MAX_VALUE };
+
+	private static final long[] LONG_BOUNDS = { 1L, 3L, 1024L, (1L << 62) + 1, Long.MAX_VALUE };
+
+	private Constructor<?> constructor;
+
+	@Before
+	public void findSplittableRandom() {
+		try {
+			constructor = Class.forName("java.util.SplittableRandom").getConstructor(long.class);
+		}
+		catch (final ClassNotFoundException ex) {
+			Assume.assumeNoException(ex);
+		}
+		catch (final NoSuchMethodException ex) {
+			throw new IllegalStateException(ex);
+		}
+	}
+
+	@Test
+	public void matchesUnboundedValues() throws Exception {
+		for (final long seed : SEEDS) {
+			final FixtureRandom random = new FixtureRandom(seed);
+			final Object expected = constructor.newInstance(seed);
+			for (int i = 0; i < 100; i++) {
+				assertEquals(call(expected, "nextInt"), random.nextInt());
+				assertEquals(call(expected, "nextLong"), random.nextLong());
+				assertEquals(call(expected, "nextDouble"), random.nextDouble());
+				assertEquals(call(expected, "nextBoolean"), random.nextBoolean());
+			}
+		}
+	}
+
+	@Test
+	public void matchesBoundedInts() throws Exception {
+		for (final long seed : SEEDS) {
+			final FixtureRandom random = new FixtureRandom(seed);
+			final Object expected = constructor.newInstance(seed);
+			for (int i = 0; i < 100; i++) {
+				for (final int bound : INT_BOUNDS) {
+					assertEquals(call(expected, "nextInt", bound), random.nextInt(bound));
+					assertEquals(call(expected, "nextInt", -bound, bound), random.nextInt(-bound, bound));
+				}
+				assertEquals(call(expected, "nextInt", Integer.MIN_VALUE, Integer.MAX_VALUE),
+						random.nextInt(Integer.MIN_VALUE, Integer.MAX_VALUE));
+			}
+		}
+	}
+
+	@Test
+	public void matchesBoundedLongs() throws Exception {
+		for (final long seed : SEEDS) {
+			final FixtureRandom random = new FixtureRandom(seed);
+			final Object expected = constructor.newInstance(seed);
+			for (int i = 0; i < 100; i++) {
+				for (final long bound : LONG_BOUNDS) {
+					assertEquals(call(expected, "nextLong", bound), random.nextLong(bound));
+					assertEquals(call(expected, "nextLong", -bound, bound), random.nextLong(-bound, bound));
+				}
+			}
+		}
+	}
+
+	@Test
+	public void matchesSplitGenerators() throws Exception {
+		for (final long seed : SEEDS) {
+			final FixtureRandom random = new FixtureRandom(seed).split().split();
+			final Object expected = call(call(constructor.newInstance(seed), "split"), "split");
+			for (int i = 0; i < 100; i++) {
+				assertEquals(call(expected, "nextLong"), random.nextLong());
+				assertEquals(call(expected, "nextInt", 1000), random.nextInt(1000));
+			}
+		}
+	}
+
+	private static Object call(final Object target, final String name, final Object... args) throws Exception {
+		final Class<?>[] types = new Class<?>[args.length];
+		for (int i = 0; i < args.length; i++) {
+			types[i] = args[i] instanceof Integer ? int.class : long.class;
+		}
+		final Method method = target.getClass().getMethod(name, types);
+		method.setAccessible(true);
+		return method.invoke(target, args);
+	}
+}
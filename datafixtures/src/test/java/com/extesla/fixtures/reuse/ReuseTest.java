@@ -0,0 +1,180 @@
+/* Copyright 2014 Extesla Digital Entertainment, Ltd. All rights reserved.
+ *
+ * Licensed under the MIT License (http://opensource.org/licenses/MIT)
+ *
+ * Permission is hereby granted, free of charge, to any
+ * person obtaining a copy of this software and associated
+ * documentation files (the "Software"), to deal in the
+ * Software without restriction, including without limitation
+ * the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software,
+ * and to permit persons to whom the Software is furnished
+ * to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice
+ * shall be included in all copies or substantial portions of
+ * the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY
+ * KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE
+ * WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR
+ * PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS
+ * OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR
+ * OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT
+ * OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE
+ * SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package com.extesla.fixtures.reuse;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import com.extesla.fixtures.AbstractFixture;
+import com.extesla.fixtures.AbstractFixtureProcessor;
+import com.extesla.fixtures.annotations.Fixture;
+import com.extesla.fixtures.annotations.FixtureReference;
+import com.extesla.fixtures.loader.AbstractLoader;
+
+/**
+ * Tests that an {@link AbstractFixtureProcessor} that is
+ * {@link AbstractFixtureProcessor#reset() reset} between runs scans its
+ * packages once and generates the same data on every run.
+ *
+ * @author Sean.Quinn
+ * @since  1.0
+ */
+public class ReuseTest {
+
+	/**
+	 * The number of {@link Users} instances created.
+	 */
+	static final AtomicInteger instances = new AtomicInteger();
+
+	private CountingProcessor processor;
+
+	@Before
+	public void setUp() {
+		instances.set(0);
+		processor = new CountingProcessor();
+	}
+
+	@Test
+	public void generatesTheSameDataAfterAReset() {
+		processor.run();
+		final List<Object> first = new ArrayList<Object>(processor.persisted);
+		final Object admin = processor.reference(Users.class, "admin");
+
+		processor.reset();
+		processor.persisted.clear();
+		processor.run();
+
+		assertEquals(1, processor.loads.get());
+		assertEquals(2, instances.get());
+		assertEquals(first, processor.persisted);
+		assertEquals(admin, processor.reference(Users.class, "admin"));
+	}
+
+	@Test
+	public void generatesNothingAgainWithoutAReset() {
+		processor.run();
+		processor.persisted.clear();
+		processor.run();
+
+		assertEquals(1, processor.loads.get());
+		assertEquals(1, instances.get());
+		assertTrue(processor.persisted.isEmpty());
+	}
+
+	@Test
+	public void scansOnceForEveryKindOfRun() {
+		processor.run();
+		final List<Object> first = new ArrayList<Object>(processor.persisted);
+
+		processor.reset();
+		processor.persisted.clear();
+		processor.runGroups("accounts");
+		assertEquals(first.subList(0, 1), processor.persisted);
+
+		final ExecutorService executor = Executors.newFixedThreadPool(2);
+		try {
+			processor.reset();
+			processor.persisted.clear();
+			processor.setExecutor(executor);
+			processor.run();
+			assertEquals(first, processor.persisted);
+		}
+		finally {
+			executor.shutdownNow();
+		}
+		assertEquals(1, processor.loads.get());
+	}
+
+	/**
+	 * A processor that counts the loaders it creates and records the
+	 * entities it persists.
+	 */
+	static class CountingProcessor extends AbstractFixtureProcessor {
+
+		final AtomicInteger loads = new AtomicInteger();
+
+		final List<Object> persisted = new ArrayList<Object>();
+
+		CountingProcessor() {
+			super(new String[] { "com.extesla.fixtures.reuse" });
+			setSeed(42);
+		}
+
+		@Override
+		protected AbstractLoader createLoader(final String[] packages) {
+			loads.incrementAndGet();
+			return super.createLoader(packages);
+		}
+
+		@Override
+		protected synchronized void persist(final Object data, final boolean andFlush) {
+			persisted.add(data);
+		}
+
+		Object reference(final Class<?> fixture, final String key) {
+			return lookup(fixture, key);
+		}
+	}
+
+	@Fixture(order = 1, groups = "accounts")
+	public static class Users extends AbstractFixture<List<String>> {
+
+		public Users() {
+			instances.incrementAndGet();
+		}
+
+		@Override
+		protected List<String> getData() {
+			final String admin = "admin-" + getContext().nextId();
+			addReference("admin", admin);
+			return Arrays.asList(admin);
+		}
+	}
+
+	@Fixture(order = 2)
+	public static class Orders extends AbstractFixture<List<String>> {
+
+		@FixtureReference(value = "admin", type = Users.class)
+		private String admin;
+
+		@Override
+		protected List<String> getData() {
+			return Arrays.asList("order-" + getContext().between(0, 1000000) + "-of-" + admin,
+					"order-" + getContext().uuid());
+		}
+	}
+}
@@ -0,0 +1,216 @@
+/* Copyright 2014 Extesla Digital Entertainment, Ltd. All rights reserved.
+ *
+ * Licensed under the MIT License (http://opensource.org/licenses/MIT)
+ *
+ * Permission is hereby granted, free of charge, to any
+ * person obtaining a copy of this software and associated
+ * documentation files (the "Software"), to deal in the
+ * Software without restriction, including without limitation
+ * the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software,
+ * and to permit persons to whom the Software is furnished
+ * to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice
+ * shall be included in all copies or substantial portions of
+ * the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY
+ * KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE
+ * WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR
+ * PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS
+ * OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR
+ * OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT
+ * OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE
+ * SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package com.extesla.fixtures.selection;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import com.extesla.fixtures.AbstractFixture;
+import com.extesla.fixtures.AbstractFixtureProcessor;
+import com.extesla.fixtures.annotations.Dependencies;
+import com.extesla.fixtures.annotations.Fixture;
+import com.extesla.fixtures.annotations.FixtureReference;
+
+/**
+ * Tests which fixtures the {@link AbstractFixtureProcessor} generates for
+ * {@link AbstractFixtureProcessor#run(Class...)} and
+ * {@link AbstractFixtureProcessor#runGroups(String...)}.
+ *
+ * @author Sean.Quinn
+ * @since  1.0
+ */
+public class SelectionTest {
+
+	private RecordingProcessor processor;
+
+	@Before
+	public void setUp() {
+		processor = new RecordingProcessor();
+	}
+
+	@Test
+	public void runsTheClosureOfTheTargets() {
+		processor.run(Reports.class);
+
+		assertGenerated(Roles.class, Users.class, Audits.class, Reports.class);
+		assertDependencyOrder();
+	}
+
+	@Test
+	public void followsEachKindOfEdge() {
+		processor.run(Users.class);
+		assertGenerated(Roles.class, Users.class);
+
+		processor.reset();
+		processor.generated.clear();
+		processor.run(Audits.class);
+		assertGenerated(Roles.class, Users.class, Audits.class);
+
+		processor.reset();
+		processor.generated.clear();
+		processor.run(Roles.class, Misc.class);
+		assertGenerated(Roles.class, Misc.class);
+	}
+
+	@Test
+	public void runsTheFixturesOfAGroupAndTheirClosure() {
+		processor.runGroups("audit");
+
+		assertGenerated(Roles.class, Users.class, Audits.class);
+		assertDependencyOrder();
+	}
+
+	@Test
+	public void runsTheFixturesOfAnyOfTheGroups() {
+		processor.runGroups("accounts", "misc");
+
+		assertGenerated(Roles.class, Users.class, Misc.class);
+		assertDependencyOrder();
+	}
+
+	@Test
+	public void runsNothingForAnUnknownGroup() {
+		processor.runGroups("unknown");
+
+		assertTrue(processor.generated.isEmpty());
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void requiresATarget() {
+		processor.run(new Class<?>[0]);
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void requiresAGroup() {
+		processor.runGroups();
+	}
+
+	private void assertGenerated(final Class<?>... fixtures) {
+		final List<String> expected = new ArrayList<String>();
+		for (final Class<?> fixture : fixtures) {
+			expected.add(fixture.getSimpleName());
+		}
+		assertEquals(new HashSet<String>(expected), new HashSet<String>(processor.generated));
+		assertEquals(expected.size(), processor.generated.size());
+	}
+
+	private void assertDependencyOrder() {
+		final List<String> generated = processor.generated;
+		for (final String[] edge : new String[][] { { "Roles", "Users" }, { "Users", "Audits" },
+				{ "Audits", "Reports" } }) {
+			if (generated.contains(edge[1])) {
+				assertTrue(generated.toString(), generated.indexOf(edge[0]) < generated.indexOf(edge[1]));
+			}
+		}
+	}
+
+	/**
+	 * A processor that records the fixtures in the order it persists them.
+	 */
+	static class RecordingProcessor extends AbstractFixtureProcessor {
+
+		final List<String> generated = new ArrayList<String>();
+
+		RecordingProcessor() {
+			super(new String[] { "com.extesla.fixtures.selection" });
+		}
+
+		@Override
+		protected void persist(final Object data, final boolean andFlush) {
+			generated.add((String) data);
+		}
+	}
+
+	@Fixture(order = 1)
+	public static class Roles extends AbstractFixture<List<String>> {
+
+		@Override
+		protected List<String> getData() {
+			addReference("admin", "admin");
+			return Arrays.asList("Roles");
+		}
+	}
+
+	/**
+	 * Depends on {@link Roles} through {@link Fixture#dependsOn()}.
+	 */
+	@Fixture(order = 2, dependsOn = Roles.class, groups = "accounts")
+	public static class Users extends AbstractFixture<List<String>> {
+
+		@Override
+		protected List<String> getData() {
+			addReference("root", "root");
+			return Arrays.asList("Users");
+		}
+	}
+
+	/**
+	 * Depends on {@link Users} through {@link Dependencies}.
+	 */
+	@Fixture(order = 3, groups = "audit")
+	@Dependencies(Users.class)
+	public static class Audits extends AbstractFixture<List<String>> {
+
+		@Override
+		protected List<String> getData() {
+			addReference("latest", "latest");
+			return Arrays.asList("Audits");
+		}
+	}
+
+	/**
+	 * Depends on {@link Audits} through an eager reference.
+	 */
+	@Fixture(order = 4)
+	public static class Reports extends AbstractFixture<List<String>> {
+
+		@FixtureReference(value = "latest", type = Audits.class)
+		private String audit;
+
+		@Override
+		protected List<String> getData() {
+			return Arrays.asList("Reports");
+		}
+	}
+
+	@Fixture(order = 1, groups = { "misc", "other" })
+	public static class Misc extends AbstractFixture<List<String>> {
+
+		@Override
+		protected List<String> getData() {
+			return Arrays.asList("Misc");
+		}
+	}
+}
@@ -0,0 +1,137 @@
+/* Copyright 2014 Extesla Digital Entertainment, Ltd. All rights reserved.
+ *
+ * Licensed under the MIT License (http://opensource.org/licenses/MIT)
+ *
+ * Permission is hereby granted, free of charge, to any
+ * person obtaining a copy of this software and associated
+ * documentation files (the "Software"), to deal in the
+ * Software without restriction, including without limitation
+ * the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software,
+ * and to permit persons to whom the Software is furnished
+ * to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice
+ * shall be included in all copies or substantial portions of
+ * the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY
+ * KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE
+ * WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR
+ * PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS
+ * OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR
+ * OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT
+ * OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE
+ * SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package com.extesla.fixtures.shard;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import com.extesla.fixtures.AbstractFixture;
+import com.extesla.fixtures.AbstractFixtureProcessor;
+import com.extesla.fixtures.FixtureRange;
+import com.extesla.fixtures.FixtureSink;
+import com.extesla.fixtures.RangeFixture;
+import com.extesla.fixtures.annotations.Fixture;
+import com.extesla.fixtures.annotations.FixtureReference;
+
+/**
+ * One shard of the sharded runs of {@link ShardedRunTest}, run in a process
+ * of its own. It writes the entities it persists to a file, one per line.
+ *
+ * @author Sean.Quinn
+ * @since  1.0
+ */
+public class ShardProcess {
+
+	/**
+	 * @param args the shard index, the shard count, the manifest directory
+	 * 		and the output file.
+	 */
+	public static void main(final String[] args) throws IOException {
+		final RecordingProcessor processor = new RecordingProcessor();
+		processor.setRangeSize(3);
+		processor.setShard(Integer.parseInt(args[0]), Integer.parseInt(args[1]), new File(args[2]));
+		processor.run(Users.class, Orders.class, Rows.class);
+
+		final StringBuilder text = new StringBuilder();
+		for (final Object entity : processor.persisted) {
+			text.append(entity).append('\n');
+		}
+		final OutputStream out = new FileOutputStream(args[3]);
+		try {
+			out.write(text.toString().getBytes("UTF-8"));
+		}
+		finally {
+			out.close();
+		}
+	}
+
+	/**
+	 * A processor that records the entities it persists.
+	 */
+	static class RecordingProcessor extends AbstractFixtureProcessor {
+
+		final List<Object> persisted = Collections.synchronizedList(new ArrayList<Object>());
+
+		RecordingProcessor() {
+			super(new String[] { "com.extesla.fixtures.shard" });
+		}
+
+		@Override
+		protected void persist(final Object data, final boolean andFlush) {
+			persisted.add(data);
+		}
+	}
+
+	@Fixture(order = 1)
+	public static class Users extends AbstractFixture<List<String>> {
+
+		@Override
+		protected List<String> getData() {
+			addReference("admin", "user-0");
+			return Arrays.asList("user-0", "user-1", "user-2");
+		}
+	}
+
+	@Fixture(order = 2)
+	public static class Orders extends AbstractFixture<List<String>> {
+
+		@FixtureReference(value = "admin", type = Users.class)
+		private String admin;
+
+		@Override
+		protected List<String> getData() {
+			return Arrays.asList("order-of-" + admin);
+		}
+	}
+
+	@Fixture(order = 1, partitioned = true)
+	public static class Rows extends AbstractFixture<List<String>> implements RangeFixture<String> {
+
+		@Override
+		protected List<String> getData() {
+			return Arrays.asList("rows-summary");
+		}
+
+		@Override
+		public long getRowCount() {
+			return 10;
+		}
+
+		@Override
+		public void generate(final FixtureRange range, final FixtureSink<String> sink) {
+			for (long row = range.getStart(); row < range.getEnd(); row++) {
+				sink.add("row-" + row);
+			}
+		}
+	}
+}
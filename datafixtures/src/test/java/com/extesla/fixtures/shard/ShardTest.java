@@ -0,0 +1,116 @@
+/* Copyright 2014 Extesla Digital Entertainment, Ltd. All rights reserved.
+ *
+ * Licensed under the MIT License (http://opensource.org/licenses/MIT)
+ *
+ * Permission is hereby granted, free of charge, to any
+ * person obtaining a copy of this software and associated
+ * documentation files (the "Software"), to deal in the
+ * Software without restriction, including without limitation
+ * the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software,
+ * and to permit persons to whom the Software is furnished
+ * to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice
+ * shall be included in all copies or substantial portions of
+ * the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY
+ * KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE
+ * WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR
+ * PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS
+ * OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR
+ * OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT
+ * OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE
+ * SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package com.extesla.fixtures.shard;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.Test;
+
+import com.extesla.fixtures.annotations.Fixture;
+
+/**
+ * Tests how a {@link Shard} assigns the fixtures of a sharded run.
+ *
+ * @author Sean.Quinn
+ * @since  1.0
+ */
+public class ShardTest {
+
+	@Test
+	public void balancesTheCostsOfTheFixtures() {
+		final Map<Class<?>, Long> costs = new HashMap<Class<?>, Long>();
+		costs.put(A.class, 100L);
+		costs.put(B.class, 60L);
+		costs.put(C.class, 50L);
+		costs.put(D.class, 40L);
+
+		final Map<String, Integer> owners = Shard.balance(Arrays.<Class<?>>asList(A.class, B.class, C.class,
+				D.class), costs, 2);
+		assertEquals(Integer.valueOf(0), owners.get(A.class.getName()));
+		assertEquals(Integer.valueOf(1), owners.get(B.class.getName()));
+		assertEquals(Integer.valueOf(1), owners.get(C.class.getName()));
+		assertEquals(Integer.valueOf(0), owners.get(D.class.getName()));
+	}
+
+	@Test
+	public void spreadsFixturesWithoutCostsEvenly() {
+		final List<Class<?>> fixtures = Arrays.<Class<?>>asList(A.class, B.class, C.class, D.class);
+		final Map<String, Integer> owners = Shard.balance(fixtures, Collections.<Class<?>, Long>emptyMap(), 2);
+
+		final int[] counts = new int[2];
+		for (final Integer owner : owners.values()) {
+			counts[owner]++;
+		}
+		assertEquals(2, counts[0]);
+		assertEquals(2, counts[1]);
+	}
+
+	@Test
+	public void dependsOnlyOnTheArguments() {
+		final Map<Class<?>, Long> costs = new HashMap<Class<?>, Long>();
+		costs.put(A.class, 10L);
+		costs.put(C.class, 10L);
+
+		assertEquals(Shard.balance(Arrays.<Class<?>>asList(A.class, B.class, C.class, D.class), costs, 3),
+				Shard.balance(Arrays.<Class<?>>asList(D.class, C.class, B.class, A.class), costs, 3));
+	}
+
+	@Test
+	public void leavesPartitionedFixturesToEveryShard() {
+		final Map<String, Integer> owners = Shard.balance(Arrays.<Class<?>>asList(A.class, Split.class),
+				Collections.<Class<?>, Long>emptyMap(), 2);
+		assertFalse(owners.containsKey(Split.class.getName()));
+
+		final Shard shard = new Shard(1, 2).assign(owners);
+		assertTrue(shard.owns(Split.class));
+		assertFalse(shard.owns(A.class));
+	}
+
+	public static class A {
+	}
+
+	public static class B {
+	}
+
+	public static class C {
+	}
+
+	public static class D {
+	}
+
+	@Fixture(partitioned = true)
+	public static class Split {
+	}
+}
@@ -0,0 +1,162 @@
+/* Copyright 2014 Extesla Digital Entertainment, Ltd. All rights reserved.
+ *
+ * Licensed under the MIT License (http://opensource.org/licenses/MIT)
+ *
+ * Permission is hereby granted, free of charge, to any
+ * person obtaining a copy of this software and associated
+ * documentation files (the "Software"), to deal in the
+ * Software without restriction, including without limitation
+ * the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software,
+ * and to permit persons to whom the Software is furnished
+ * to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice
+ * shall be included in all copies or substantial portions of
+ * the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY
+ * KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE
+ * WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR
+ * PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS
+ * OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR
+ * OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT
+ * OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE
+ * SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package com.extesla.fixtures.shard;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.extesla.fixtures.AbstractFixture;
+import com.extesla.fixtures.annotations.Fixture;
+
+/**
+ * Tests sharded runs on one machine, running each shard in a local process
+ * of its own.
+ *
+ * @author Sean.Quinn
+ * @since  1.0
+ */
+public class ShardedRunTest {
+
+	private File directory;
+
+	@Before
+	public void createDirectory() throws IOException {
+		directory = File.createTempFile("shards", "");
+		directory.delete();
+		directory.mkdirs();
+	}
+
+	@After
+	public void deleteDirectory() {
+		delete(directory);
+	}
+
+	@Test
+	public void persistsEveryEntityOnceAcrossTheShards() throws Exception {
+		final int count = 3;
+		final File manifest = new File(directory, "manifest");
+		final List<Process> processes = new ArrayList<Process>();
+		for (int index = 0; index < count; index++) {
+			processes.add(new ProcessBuilder(System.getProperty("java.home") + File.separator + "bin"
+					+ File.separator + "java", "-cp", System.getProperty("java.class.path"),
+					ShardProcess.class.getName(), String.valueOf(index), String.valueOf(count),
+					manifest.getPath(), new File(directory, "shard-" + index).getPath())
+					.redirectErrorStream(true).start());
+		}
+
+		final List<String> persisted = new ArrayList<String>();
+		for (int index = 0; index < count; index++) {
+			final Process process = processes.get(index);
+			final String output = read(process.getInputStream());
+			assertEquals("Shard " + index + " failed: " + output, 0, process.waitFor());
+			for (final String line : read(new FileInputStream(new File(directory, "shard-" + index))).split("\n")) {
+				if (line.length() > 0) {
+					persisted.add(line);
+				}
+			}
+		}
+
+		Collections.sort(persisted);
+		assertEquals(Arrays.asList("order-of-user-0", "row-0", "row-1", "row-2", "row-3", "row-4", "row-5",
+				"row-6", "row-7", "row-8", "row-9", "rows-summary", "user-0", "user-1", "user-2"), persisted);
+	}
+
+	@Test
+	public void usesTheAssignmentOfTheFirstShard() {
+		final File manifest = new File(directory, "manifest");
+		final ShardProcess.RecordingProcessor first = new ShardProcess.RecordingProcessor();
+		first.setShard(0, 2, manifest);
+		first.run(ShardProcess.Users.class);
+
+		final Map<String, Integer> published = new ShardManifest(manifest).awaitAssignment(0);
+		assertEquals(Collections.singletonMap(ShardProcess.Users.class.getName(), 0), published);
+	}
+
+	@Test
+	public void rejectsPartitionedFixturesThatAreNotRanges() {
+		final ShardProcess.RecordingProcessor processor = new ShardProcess.RecordingProcessor();
+		processor.setShard(0, 2, new File(directory, "manifest"));
+		try {
+			processor.run(Whole.class);
+			fail("A partitioned fixture that is not a range fixture was generated.");
+		}
+		catch (final IllegalArgumentException ex) {
+			assertTrue(ex.getMessage().contains(Whole.class.getName()));
+		}
+		assertEquals(Collections.emptyList(), processor.persisted);
+	}
+
+	private static String read(final InputStream in) throws IOException {
+		try {
+			final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+			final byte[] buffer = new byte[4096];
+			int read;
+			while ((read = in.read(buffer)) != -1) {
+				bytes.write(buffer, 0, read);
+			}
+			return new String(bytes.toByteArray(), "UTF-8");
+		}
+		finally {
+			in.close();
+		}
+	}
+
+	private static void delete(final File file) {
+		final File[] children = file.listFiles();
+		if (children != null) {
+			for (final File child : children) {
+				delete(child);
+			}
+		}
+		file.delete();
+	}
+
+	@Fixture(partitioned = true)
+	public static class Whole extends AbstractFixture<String> {
+
+		@Override
+		protected String getData() {
+			return "whole";
+		}
+	}
+}
@@ -0,0 +1,149 @@
+/* Copyright 2014 Extesla Digital Entertainment, Ltd. All rights reserved.
+ *
+ * Licensed under the MIT License (http://opensource.org/licenses/MIT)
+ *
+ * Permission is hereby granted, free of charge, to any
+ * person obtaining a copy of this software and associated
+ * documentation files (the "Software"), to deal in the
+ * Software without restriction, including without limitation
+ * the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software,
+ * and to permit persons to whom the Software is furnished
+ * to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice
+ * shall be included in all copies or substantial portions of
+ * the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY
+ * KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE
+ * WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR
+ * PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS
+ * OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR
+ * OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT
+ * OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE
+ * SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package com.extesla.fixtures.state;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+
+import java.util.Arrays;
+
+import org.junit.Test;
+
+import com.extesla.fixtures.AbstractFixture;
+import com.extesla.fixtures.FixtureRange;
+import com.extesla.fixtures.FixtureSink;
+import com.extesla.fixtures.RangeFixture;
+import com.extesla.fixtures.annotations.Fixture;
+import com.extesla.fixtures.graph.FixtureGraph;
+
+/**
+ * Tests the {@link FixtureFingerprints}.
+ *
+ * @author Sean.Quinn
+ * @since  1.0
+ */
+public class FixtureFingerprintsTest {
+
+	private final FixtureGraph graph = new FixtureGraph(Arrays.<Class<?>>asList(Plain.class, Ranged.class,
+			Downstream.class));
+
+	@Test
+	public void isStableForTheSameSettings() {
+		final FixtureFingerprints first = new FixtureFingerprints(graph, 42, 100);
+		final FixtureFingerprints second = new FixtureFingerprints(graph, 42, 100);
+
+		for (final Class<?> fixture : graph.getFixtures()) {
+			assertEquals(first.get(fixture), second.get(fixture));
+		}
+	}
+
+	@Test
+	public void changesWithTheSeed() {
+		final FixtureFingerprints first = new FixtureFingerprints(graph, 42, 100);
+		final FixtureFingerprints second = new FixtureFingerprints(graph, 43, 100);
+
+		for (final Class<?> fixture : graph.getFixtures()) {
+			assertFalse(first.get(fixture).equals(second.get(fixture)));
+		}
+	}
+
+	@Test
+	public void changesWithTheRangeSizeOfRangeFixturesAndDownstream() {
+		final FixtureFingerprints first = new FixtureFingerprints(graph, 42, 100);
+		final FixtureFingerprints second = new FixtureFingerprints(graph, 42, 200);
+
+		assertEquals(first.get(Plain.class), second.get(Plain.class));
+		assertFalse(first.get(Ranged.class).equals(second.get(Ranged.class)));
+		assertFalse(first.get(Downstream.class).equals(second.get(Downstream.class)));
+	}
+
+	@Test
+	public void digestsNestedClassesExtendingTheirFixtureOnce() {
+		final FixtureGraph enclosing = new FixtureGraph(Arrays.<Class<?>>asList(Enclosing.class));
+		final String fingerprint = new FixtureFingerprints(enclosing, 42, 100).get(Enclosing.class);
+
+		assertEquals(fingerprint, new FixtureFingerprints(enclosing, 42, 100).get(Enclosing.class));
+	}
+
+	@Fixture
+	public static class Plain extends AbstractFixture<String> {
+
+		@Override
+		protected String getData() {
+			return "plain";
+		}
+	}
+
+	@Fixture
+	public static class Ranged implements RangeFixture<Long> {
+
+		@Override
+		public long getRowCount() {
+			return 10;
+		}
+
+		@Override
+		public void generate(final FixtureRange range, final FixtureSink<Long> sink) {
+			for (long row = range.getStart(); row < range.getEnd(); row++) {
+				sink.add(row);
+			}
+		}
+	}
+
+	@Fixture(dependsOn = Ranged.class)
+	public static class Downstream extends AbstractFixture<String> {
+
+		@Override
+		protected String getData() {
+			return "downstream";
+		}
+	}
+
+	@Fixture
+	public static class Enclosing extends AbstractFixture<String> {
+
+		@Override
+		protected String getData() {
+			return new Variant().getName();
+		}
+
+		protected String getName() {
+			return "enclosing";
+		}
+
+		/**
+		 * A nested class extending the fixture that encloses it.
+		 */
+		static class Variant extends Enclosing {
+
+			@Override
+			protected String getName() {
+				return "variant";
+			}
+		}
+	}
+}
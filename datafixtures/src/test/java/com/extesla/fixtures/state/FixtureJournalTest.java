@@ -0,0 +1,168 @@
+/* Copyright 2014 Extesla Digital Entertainment, Ltd. All rights reserved.
+ *
+ * Licensed under the MIT License (http://opensource.org/licenses/MIT)
+ *
+ * Permission is hereby granted, free of charge, to any
+ * person obtaining a copy of this software and associated
+ * documentation files (the "Software"), to deal in the
+ * Software without restriction, including without limitation
+ * the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software,
+ * and to permit persons to whom the Software is furnished
+ * to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice
+ * shall be included in all copies or substantial portions of
+ * the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY
+ * KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE
+ * WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR
+ * PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS
+ * OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR
+ * OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT
+ * OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE
+ * SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package com.extesla.fixtures.state;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.Collections;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Tests that a {@link FixtureJournal} can be resumed, including after a
+ * crash that cut its last record short.
+ *
+ * @author Sean.Quinn
+ * @since  1.0
+ */
+public class FixtureJournalTest {
+
+	private File file;
+
+	@Before
+	public void createFile() throws IOException {
+		file = File.createTempFile("fixtures", ".journal");
+	}
+
+	@After
+	public void deleteFile() {
+		file.delete();
+	}
+
+	@Test
+	public void resumesTheCompletedFixturesWithTheirReferences() {
+		final FixtureJournal journal = new FixtureJournal(file);
+		journal.open(false);
+		journal.started(First.class);
+		journal.completed(First.class, Collections.<String, Object>singletonMap("admin", "user-0"));
+		journal.started(Second.class);
+		journal.close(false);
+
+		final FixtureJournal resumed = new FixtureJournal(file);
+		resumed.open(true);
+		try {
+			assertTrue(resumed.contains(First.class));
+			assertEquals(Collections.<String, Object>singletonMap("admin", "user-0"),
+					resumed.getReferences(First.class));
+			assertFalse(resumed.isInterrupted(First.class));
+
+			assertFalse(resumed.contains(Second.class));
+			assertTrue(resumed.isInterrupted(Second.class));
+			assertNull(resumed.getReferences(Second.class));
+		}
+		finally {
+			resumed.close(false);
+		}
+	}
+
+	@Test
+	public void dropsARecordCutShortAndAppendsAfterTheRest() throws IOException {
+		final FixtureJournal journal = new FixtureJournal(file);
+		journal.open(false);
+		journal.completed(First.class, Collections.<String, Object>emptyMap());
+		journal.completed(Second.class, Collections.<String, Object>emptyMap());
+		journal.close(false);
+		truncate(file, file.length() - 3);
+
+		final FixtureJournal resumed = new FixtureJournal(file);
+		resumed.open(true);
+		assertTrue(resumed.contains(First.class));
+		assertFalse(resumed.contains(Second.class));
+		resumed.completed(Third.class, Collections.<String, Object>emptyMap());
+		resumed.close(false);
+
+		final FixtureJournal again = new FixtureJournal(file);
+		again.open(true);
+		try {
+			assertTrue(again.contains(First.class));
+			assertFalse(again.contains(Second.class));
+			assertTrue(again.contains(Third.class));
+		}
+		finally {
+			again.close(false);
+		}
+	}
+
+	@Test
+	public void keepsTheFixtureWhoseReferencesCannotBeStored() {
+		final FixtureJournal journal = new FixtureJournal(file);
+		journal.open(false);
+		journal.completed(First.class, Collections.<String, Object>singletonMap("lock", new Object()));
+		journal.close(false);
+
+		final FixtureJournal resumed = new FixtureJournal(file);
+		resumed.open(true);
+		try {
+			assertTrue(resumed.contains(First.class));
+			assertNull(resumed.getReferences(First.class));
+		}
+		finally {
+			resumed.close(false);
+		}
+	}
+
+	@Test
+	public void startsAnewUnlessResumed() {
+		final FixtureJournal journal = new FixtureJournal(file);
+		journal.open(false);
+		journal.completed(First.class, Collections.<String, Object>emptyMap());
+		journal.close(false);
+
+		final FixtureJournal fresh = new FixtureJournal(file);
+		fresh.open(false);
+		assertFalse(fresh.contains(First.class));
+		fresh.close(true);
+		assertFalse(file.exists());
+	}
+
+	private static void truncate(final File file, final long length) throws IOException {
+		final RandomAccessFile raf = new RandomAccessFile(file, "rw");
+		try {
+			raf.setLength(length);
+		}
+		finally {
+			raf.close();
+		}
+	}
+
+	public static class First {
+	}
+
+	public static class Second {
+	}
+
+	public static class Third {
+	}
+}
@@ -0,0 +1,215 @@
+/* Copyright 2014 Extesla Digital Entertainment, Ltd. All rights reserved.
+ *
+ * Licensed under the MIT License (http://opensource.org/licenses/MIT)
+ *
+ * Permission is hereby granted, free of charge, to any
+ * person obtaining a copy of this software and associated
+ * documentation files (the "Software"), to deal in the
+ * Software without restriction, including without limitation
+ * the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software,
+ * and to permit persons to whom the Software is furnished
+ * to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice
+ * shall be included in all copies or substantial portions of
+ * the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY
+ * KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE
+ * WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR
+ * PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS
+ * OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR
+ * OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT
+ * OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE
+ * SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package com.extesla.fixtures.state;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.extesla.fixtures.FixtureSink;
+
+/**
+ * Tests that a {@link FixtureSnapshot} replays what it recorded.
+ *
+ * @author Sean.Quinn
+ * @since  1.0
+ */
+public class FixtureSnapshotTest {
+
+	private File file;
+
+	@Before
+	public void createFile() throws IOException {
+		file = File.createTempFile("fixtures", ".snapshot");
+		file.delete();
+	}
+
+	@After
+	public void deleteFile() {
+		file.delete();
+	}
+
+	@Test
+	public void replaysTheRecordedEntitiesInOrder() {
+		final List<Object> entities = new ArrayList<Object>();
+		for (int i = 0; i < FixtureSnapshot.RESET_INTERVAL * 3 + 7; i++) {
+			entities.add("entity-" + i);
+		}
+		record(First.class, "1", entities);
+
+		final FixtureSnapshot snapshot = new FixtureSnapshot(file);
+		snapshot.load();
+		try {
+			final ListSink replayed = new ListSink();
+			assertTrue(snapshot.replay(First.class, "1", replayed));
+			assertEquals(entities, replayed.entities);
+			assertEquals(Collections.<String, Object>singletonMap("count", entities.size()),
+					snapshot.getReferences(First.class, "1"));
+		}
+		finally {
+			snapshot.save();
+		}
+	}
+
+	@Test
+	public void keepsObjectsSharedWithinABlock() {
+		final List<Object> shared = new ArrayList<Object>();
+		final List<Object> entities = new ArrayList<Object>();
+		entities.add(shared);
+		entities.add(shared);
+		record(First.class, "1", entities);
+
+		final FixtureSnapshot snapshot = new FixtureSnapshot(file);
+		snapshot.load();
+		try {
+			final ListSink replayed = new ListSink();
+			assertTrue(snapshot.replay(First.class, "1", replayed));
+			assertTrue(replayed.entities.get(0) == replayed.entities.get(1));
+		}
+		finally {
+			snapshot.save();
+		}
+	}
+
+	@Test
+	public void doesNotReplayAChangedFixture() {
+		record(First.class, "1", Collections.<Object>singletonList("a"));
+
+		final FixtureSnapshot snapshot = new FixtureSnapshot(file);
+		snapshot.load();
+		try {
+			final ListSink replayed = new ListSink();
+			assertNull(snapshot.getReferences(First.class, "2"));
+			assertFalse(snapshot.replay(First.class, "2", replayed));
+			assertEquals(Collections.emptyList(), replayed.entities);
+		}
+		finally {
+			snapshot.save();
+		}
+	}
+
+	@Test
+	public void keepsTheFixturesNotRecordedAgain() {
+		record(First.class, "1", Collections.<Object>singletonList("a"));
+		record(Second.class, "1", Collections.<Object>singletonList("b"));
+
+		final FixtureSnapshot snapshot = new FixtureSnapshot(file);
+		snapshot.load();
+		try {
+			final ListSink first = new ListSink();
+			final ListSink second = new ListSink();
+			assertTrue(snapshot.replay(First.class, "1", first));
+			assertTrue(snapshot.replay(Second.class, "1", second));
+			assertEquals(Collections.<Object>singletonList("a"), first.entities);
+			assertEquals(Collections.<Object>singletonList("b"), second.entities);
+		}
+		finally {
+			snapshot.save();
+		}
+	}
+
+	@Test
+	public void doesNotRecordAFixtureWithAnEntityThatCannotBeSerialized() {
+		final ListSink passed = new ListSink();
+		final FixtureSnapshot snapshot = new FixtureSnapshot(file);
+		snapshot.load();
+		final FixtureSnapshot.Recorder recorder = snapshot.record(First.class, "1", passed);
+		recorder.add("a");
+		recorder.add(new Object());
+		recorder.complete(Collections.<String, Object>emptyMap());
+		snapshot.save();
+
+		assertEquals(2, passed.entities.size());
+		assertFalse(file.exists());
+	}
+
+	@Test
+	public void deletesTheSpoolFiles() {
+		final int before = countSpoolFiles();
+		final FixtureSnapshot snapshot = new FixtureSnapshot(file);
+		snapshot.load();
+		snapshot.record(First.class, "1", new ListSink()).add("abandoned");
+		final FixtureSnapshot.Recorder recorder = snapshot.record(Second.class, "1", new ListSink());
+		recorder.add("completed");
+		recorder.complete(Collections.<String, Object>emptyMap());
+		snapshot.save();
+
+		assertEquals(before, countSpoolFiles());
+	}
+
+	private void record(final Class<?> fixture, final String fingerprint, final List<Object> entities) {
+		final FixtureSnapshot snapshot = new FixtureSnapshot(file);
+		snapshot.load();
+		final FixtureSnapshot.Recorder recorder = snapshot.record(fixture, fingerprint, new ListSink());
+		for (final Object entity : entities) {
+			recorder.add(entity);
+		}
+		recorder.complete(Collections.<String, Object>singletonMap("count", entities.size()));
+		snapshot.save();
+	}
+
+	private static int countSpoolFiles() {
+		final File[] files = new File(System.getProperty("java.io.tmpdir")).listFiles();
+		int count = 0;
+		for (final File spool : files) {
+			if (spool.getName().startsWith("fixture") && spool.getName().endsWith(".spool")) {
+				count++;
+			}
+		}
+		return count;
+	}
+
+	/**
+	 * A sink that collects the entities it is given.
+	 */
+	private static class ListSink implements FixtureSink<Object> {
+
+		private final List<Object> entities = new ArrayList<Object>();
+
+		@Override
+		public void add(final Object entity) {
+			entities.add(entity);
+		}
+	}
+
+	public static class First {
+	}
+
+	public static class Second {
+	}
+}